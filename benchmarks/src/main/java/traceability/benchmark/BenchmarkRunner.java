@@ -0,0 +1,61 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks (all of them by default) with 1, N and 4N threads, where N is the number of available
+ * processors. Each thread count is run twice, once for throughput (ops/s) and once for sampled latency (ns/op
+ * percentiles), and both runs report the bytes allocated per invocation (<code>gc.alloc.rate.norm</code>) through the
+ * GC profiler.
+ * 
+ * <pre>
+ * {@code
+ *   java -jar target/benchmarks.jar [include regex] [result directory]
+ * }
+ * </pre>
+ * 
+ * <p>
+ * One JSON result file per mode and thread count is written to the result directory (the working directory by default), so two
+ * releases can be compared with any JMH visualizer.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // Utility class
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "traceability.benchmark.*";
+        String resultDir = args.length > 1 ? args[1] : ".";
+
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = { 1, cpus, 4 * cpus };
+
+        for (int threads : threadCounts) {
+            run(include, threads, Mode.Throughput, TimeUnit.SECONDS, resultDir);
+            run(include, threads, Mode.SampleTime, TimeUnit.NANOSECONDS, resultDir);
+        }
+    }
+
+    private static void run(String include, int threads, Mode mode, TimeUnit unit, String resultDir)
+            throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .mode(mode)
+                .timeUnit(unit)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultDir + "/jmh-" + mode.shortLabel() + "-" + threads + "t.json");
+
+        new Runner(options.build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package traceability.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.benchmark.support.DirectExecutorService;
+import traceability.logback.concurrent.TraceableExecutor;
+import traceability.logback.concurrent.TraceableExecutorService;
+
+/**
+ * Cost of a three stage <code>CompletableFuture</code> pipeline hopping threads at every stage, with a plain pool, with
+ * the MDC installed at every hop ({@link TraceableExecutorService}), and with the context carried lazily
+ * ({@link TraceableExecutor}). None of the stages logs, which is the case the lazy propagation is meant for. The stages
+ * are run inline by the executor, so the thread hand-off (the same with and without the decorators) does not hide the
+ * overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompletableFutureContextBenchmark {
+
+    private Executor direct;
+    private Executor eager;
+    private Executor lazy;
+
+    @State(Scope.Thread)
+    public static class Caller {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            MDC.put("user", "anonymous");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        direct = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        eager = new TraceableExecutorService(new DirectExecutorService(direct));
+        lazy = new TraceableExecutor(direct);
+    }
+
+    @Benchmark
+    public Integer baseline(Caller caller) {
+        return pipeline(direct);
+    }
+
+    @Benchmark
+    public Integer traceableExecutorService(Caller caller) {
+        return pipeline(eager);
+    }
+
+    @Benchmark
+    public Integer traceableExecutor(Caller caller) {
+        return pipeline(lazy);
+    }
+
+    private static Integer pipeline(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> 1, executor)
+                .thenApplyAsync(value -> value + 1, executor)
+                .thenApplyAsync(value -> value * 2, executor)
+                .join();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package traceability.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.benchmark.support.SimplePrincipal;
+import traceability.benchmark.support.StubFilterConfig;
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.filter.ContextServletFilter;
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.filter.PrincipalServletFilter;
+
+/**
+ * Cost of injecting the transaction header and the user with {@link ContextServletFilter}, compared to a stack of
+ * {@link HttpHeaderServletFilter} and {@link PrincipalServletFilter}, plus the composite filter with four fields. The
+ * chain reads the MDC once, as logging does, so the changes made by the filters afterwards are copy-on-write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ContextServletFilterBenchmark {
+
+    private FilterChain application;
+    private FilterChain stacked;
+    private ContextServletFilter composite;
+    private ContextServletFilter compositeFourFields;
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        StubHttpServletRequest request;
+
+        @Setup
+        public void setUp() {
+            request = new StubHttpServletRequest().withHeader("x-transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10")
+                    .withPrincipal(new SimplePrincipal("benchmark-user"));
+        }
+    }
+
+    @Setup
+    public void setUp() throws ServletException {
+        application = new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                // Stands for the application logging the request
+                MDC.get("transaction");
+            }
+        };
+
+        final HttpHeaderServletFilter header = new HttpHeaderServletFilter();
+        final PrincipalServletFilter principal = new PrincipalServletFilter();
+        principal.init(new StubFilterConfig().withInitParameter("mdc_key", "user"));
+        final FilterChain principalChain = new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException,
+                    ServletException {
+                principal.doFilter(request, response, application);
+            }
+        };
+        stacked = new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException,
+                    ServletException {
+                header.doFilter(request, response, principalChain);
+            }
+        };
+
+        composite = new ContextServletFilter();
+        compositeFourFields = new ContextServletFilter();
+        compositeFourFields.init(new StubFilterConfig().withInitParameter("fields",
+                "transaction=header:x-transaction, user=principal, client_ip=remote_addr, method=method"));
+    }
+
+    @Benchmark
+    public void stackedFilters(Requests requests) throws Exception {
+        stacked.doFilter(requests.request, null);
+    }
+
+    @Benchmark
+    public void compositeFilter(Requests requests) throws Exception {
+        composite.doFilter(requests.request, null, application);
+    }
+
+    @Benchmark
+    public void compositeFilterFourFields(Requests requests) throws Exception {
+        compositeFourFields.doFilter(requests.request, null, application);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package traceability.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.benchmark.support.NoopFilterChain;
+import traceability.benchmark.support.StubFilterConfig;
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.sampling.TransactionSampler;
+import traceability.logback.spring.mvc.HttpHeaderSpringInterceptor;
+import traceability.logback.trace.TraceContextParser;
+import traceability.logback.trace.TraceContextParser.Format;
+
+/**
+ * Cost of a request going through both a {@link HttpHeaderServletFilter} and a {@link HttpHeaderSpringInterceptor},
+ * both with sampling and the W3C <code>traceparent</code> enabled:
+ * <ul>
+ * <li><code>filterOnly</code>: the filter alone, the lower bound;</li>
+ * <li><code>filterAndInterceptor</code>: the interceptor finds the request owned by the filter and skips it;</li>
+ * <li><code>filterAndInterceptorUnowned</code>: the ownership attribute is hidden from the interceptor, which reads the
+ * headers and cleans the MDC up a second time, as both components did before they cooperated.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FilterAndInterceptorBenchmark {
+
+    private HttpHeaderServletFilter filter;
+    private FilterChain noopChain;
+    private FilterChain interceptorChain;
+    private FilterChain unownedInterceptorChain;
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        StubHttpServletRequest traced;
+
+        @Setup
+        public void setUp() {
+            traced = new StubHttpServletRequest().withHeader("x-transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10")
+                    .withHeader("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+        }
+    }
+
+    @Setup
+    public void setUp() throws ServletException {
+        filter = new HttpHeaderServletFilter();
+        filter.init(new StubFilterConfig().withInitParameter("sampling_rate", "0.05").withInitParameter(
+                "trace_format", "traceparent"));
+        noopChain = new NoopFilterChain();
+
+        HttpHeaderSpringInterceptor interceptor = new HttpHeaderSpringInterceptor();
+        interceptor.setSampler(new TransactionSampler(0.05));
+        interceptor.setTraceContextParser(new TraceContextParser(Format.TRACEPARENT));
+        interceptorChain = new InterceptorChain(interceptor, false);
+        unownedInterceptorChain = new InterceptorChain(interceptor, true);
+    }
+
+    @Benchmark
+    public ServletRequest filterOnly(Requests requests) throws IOException, ServletException {
+        filter.doFilter(requests.traced, null, noopChain);
+        return requests.traced;
+    }
+
+    @Benchmark
+    public ServletRequest filterAndInterceptor(Requests requests) throws IOException, ServletException {
+        filter.doFilter(requests.traced, null, interceptorChain);
+        return requests.traced;
+    }
+
+    @Benchmark
+    public ServletRequest filterAndInterceptorUnowned(Requests requests) throws IOException, ServletException {
+        filter.doFilter(requests.traced, null, unownedInterceptorChain);
+        return requests.traced;
+    }
+
+    /**
+     * {@link FilterChain} stand-in running the interceptor around an empty handler, as the dispatcher servlet does.
+     */
+    private static class InterceptorChain implements FilterChain {
+
+        private final HttpHeaderSpringInterceptor interceptor;
+        private final boolean hideOwner;
+        private final Object handler = new Object();
+
+        InterceptorChain(HttpHeaderSpringInterceptor interceptor, boolean hideOwner) {
+            this.interceptor = interceptor;
+            this.hideOwner = hideOwner;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            Object owner = httpRequest.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+            if (hideOwner) {
+                httpRequest.removeAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+            }
+            interceptor.preHandle(httpRequest, null, handler);
+            interceptor.afterCompletion(httpRequest, null, handler, null);
+            if (hideOwner) {
+                httpRequest.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, owner);
+            }
+        }
+    }
+}
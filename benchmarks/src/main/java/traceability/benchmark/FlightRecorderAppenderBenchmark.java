@@ -0,0 +1,148 @@
+package traceability.benchmark;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import traceability.logback.flight.FlightRecorderAppender;
+import traceability.logback.flight.FlightRecorders;
+
+/**
+ * Cost of a request logging ten <code>DEBUG</code> events and one <code>INFO</code> event, with the
+ * {@link FlightRecorderAppender} (successful and failed requests), compared to writing every event and to writing the
+ * <code>INFO</code> event only. The events are encoded with a pattern and written to a stream discarding them, so the
+ * formatting cost is measured, but not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FlightRecorderAppenderBenchmark {
+
+    private static final String TRANSACTION = "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10";
+
+    private Logger infoLogger;
+    private Logger debugLogger;
+    private Logger recordedLogger;
+    private FlightRecorderAppender recorder;
+    private Object argument = Integer.valueOf(42);
+
+    @State(Scope.Thread)
+    public static class Transaction {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", TRANSACTION);
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        infoLogger = createLogger("benchmark.flight.info", Level.INFO, createFileAppender());
+        debugLogger = createLogger("benchmark.flight.debug", Level.DEBUG, createFileAppender());
+
+        recorder = new FlightRecorderAppender();
+        recorder.setContext(context());
+        recorder.addAppender(createFileAppender());
+        recorder.start();
+        recordedLogger = createLogger("benchmark.flight.recorded", Level.DEBUG, recorder);
+    }
+
+    @TearDown
+    public void tearDown() {
+        recorder.stop();
+    }
+
+    @Benchmark
+    public void infoOnly(Transaction transaction) {
+        request(infoLogger);
+    }
+
+    @Benchmark
+    public void alwaysDebug(Transaction transaction) {
+        request(debugLogger);
+    }
+
+    @Benchmark
+    public void recordedSuccess(Transaction transaction) {
+        request(recordedLogger);
+        FlightRecorders.endTransaction(TRANSACTION, false);
+    }
+
+    @Benchmark
+    public void recordedFailure(Transaction transaction) {
+        request(recordedLogger);
+        FlightRecorders.endTransaction(TRANSACTION, true);
+    }
+
+    private void request(Logger logger) {
+        for (int i = 0; i < 10; i++) {
+            logger.debug("Processing item {}", argument);
+        }
+        logger.info("Request processed");
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+
+    private static OutputStreamAppender<ILoggingEvent> createFileAppender() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context());
+        encoder.setPattern("%d %X{transaction} %-5level %logger - %msg%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<ILoggingEvent>();
+        appender.setContext(context());
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // Discarded...
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // Discarded...
+            }
+        });
+        appender.start();
+        return appender;
+    }
+
+    private static Logger createLogger(String name, Level level,
+            Appender<ILoggingEvent> appender) {
+        Logger logger = context().getLogger(name);
+        logger.setLevel(level);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
\ No newline at end of file
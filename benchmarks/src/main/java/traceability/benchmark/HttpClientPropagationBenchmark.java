@@ -0,0 +1,167 @@
+package traceability.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import traceability.logback.http.HttpHeaderPropagator;
+import traceability.logback.http.TraceableHttpRequestInterceptor;
+import traceability.logback.spring.web.TraceableClientHttpRequestInterceptor;
+
+/**
+ * Throughput of GET calls to a local embedded HTTP server, with and without the transaction propagation, for raw
+ * {@link HttpURLConnection} calls ({@link HttpHeaderPropagator}), Spring {@link RestTemplate} calls
+ * ({@link TraceableClientHttpRequestInterceptor}) and Apache HttpClient calls ({@link TraceableHttpRequestInterceptor}).
+ * Connections are kept alive, so the overhead of the propagation is compared to the cost of a local round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HttpClientPropagationBenchmark {
+
+    private static final byte[] RESPONSE = "ok".getBytes();
+
+    private HttpServer server;
+    private URL url;
+
+    private HttpHeaderPropagator propagator;
+    private RestTemplate restTemplate;
+    private RestTemplate tracedRestTemplate;
+    private CloseableHttpClient httpClient;
+    private CloseableHttpClient tracedHttpClient;
+
+    @State(Scope.Thread)
+    public static class Transaction {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            MDC.put("sampled", "0");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        // Otherwise the delayed ACKs of the loopback interface dominate the round trip
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // Stands for the called service reading the transaction
+                exchange.getRequestHeaders().getFirst("x-transaction");
+                exchange.sendResponseHeaders(200, RESPONSE.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(RESPONSE);
+                out.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+
+        propagator = new HttpHeaderPropagator();
+        restTemplate = new RestTemplate();
+        tracedRestTemplate = new RestTemplate();
+        tracedRestTemplate.setInterceptors(Collections
+                .<ClientHttpRequestInterceptor> singletonList(new TraceableClientHttpRequestInterceptor()));
+        httpClient = HttpClients.createDefault();
+        tracedHttpClient = HttpClients.custom().addInterceptorLast(new TraceableHttpRequestInterceptor()).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        httpClient.close();
+        tracedHttpClient.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public int urlConnection(Transaction transaction) throws IOException {
+        return read((HttpURLConnection) url.openConnection());
+    }
+
+    @Benchmark
+    public int tracedUrlConnection(Transaction transaction) throws IOException {
+        return read(propagator.propagate((HttpURLConnection) url.openConnection()));
+    }
+
+    @Benchmark
+    public String restTemplate(Transaction transaction) {
+        return restTemplate.getForObject(url.toString(), String.class);
+    }
+
+    @Benchmark
+    public String tracedRestTemplate(Transaction transaction) {
+        return tracedRestTemplate.getForObject(url.toString(), String.class);
+    }
+
+    @Benchmark
+    public String httpClient(Transaction transaction) throws IOException {
+        return execute(httpClient);
+    }
+
+    @Benchmark
+    public String tracedHttpClient(Transaction transaction) throws IOException {
+        return execute(tracedHttpClient);
+    }
+
+    private String execute(CloseableHttpClient client) throws IOException {
+        CloseableHttpResponse response = client.execute(new HttpGet(url.toString()));
+        try {
+            return EntityUtils.toString(response.getEntity());
+        } finally {
+            response.close();
+        }
+    }
+
+    private static int read(HttpURLConnection connection) throws IOException {
+        // Reading the whole response keeps the connection alive for the next call
+        InputStream in = connection.getInputStream();
+        int length = 0;
+        try {
+            while (in.read() >= 0) {
+                length++;
+            }
+        } finally {
+            in.close();
+        }
+        return length;
+    }
+}
\ No newline at end of file
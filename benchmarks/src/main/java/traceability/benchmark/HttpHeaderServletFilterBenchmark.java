@@ -0,0 +1,108 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.benchmark.support.NoopFilterChain;
+import traceability.benchmark.support.StubFilterConfig;
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.filter.HttpHeaderServletFilter;
+
+/**
+ * Cost of {@link HttpHeaderServletFilter#doFilter} around an empty chain, with and without the transaction header, with
+ * the latency of the requests recorded (<code>timing</code> init-param), and with the W3C <code>traceparent</code> or B3
+ * trace context parsed as well (<code>trace_format</code> init-param).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HttpHeaderServletFilterBenchmark {
+
+    private HttpHeaderServletFilter filter;
+    private HttpHeaderServletFilter timedFilter;
+    private HttpHeaderServletFilter traceparentFilter;
+    private HttpHeaderServletFilter b3Filter;
+    private FilterChain chain;
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        StubHttpServletRequest traced;
+        StubHttpServletRequest untraced;
+        StubHttpServletRequest traceparent;
+        StubHttpServletRequest b3;
+
+        @Setup
+        public void setUp() {
+            traced = new StubHttpServletRequest().withHeader("x-transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            untraced = new StubHttpServletRequest();
+            traceparent = new StubHttpServletRequest().withHeader("x-transaction",
+                    "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10").withHeader("traceparent",
+                    "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+            b3 = new StubHttpServletRequest().withHeader("x-transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10")
+                    .withHeader("b3", "0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-1");
+        }
+    }
+
+    @Setup
+    public void setUp() throws ServletException {
+        filter = new HttpHeaderServletFilter();
+        chain = new NoopFilterChain();
+
+        timedFilter = new HttpHeaderServletFilter();
+        timedFilter.init(new StubFilterConfig().withInitParameter("timing", "true"));
+
+        traceparentFilter = new HttpHeaderServletFilter();
+        traceparentFilter.init(new StubFilterConfig().withInitParameter("trace_format", "traceparent"));
+
+        b3Filter = new HttpHeaderServletFilter();
+        b3Filter.init(new StubFilterConfig().withInitParameter("trace_format", "b3"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        timedFilter.destroy();
+    }
+
+    @Benchmark
+    public void headerPresent(Requests requests) throws Exception {
+        filter.doFilter(requests.traced, null, chain);
+    }
+
+    @Benchmark
+    public void headerMissing(Requests requests) throws Exception {
+        filter.doFilter(requests.untraced, null, chain);
+    }
+
+    @Benchmark
+    public void headerPresentTimed(Requests requests) throws Exception {
+        timedFilter.doFilter(requests.traced, null, chain);
+    }
+
+    @Benchmark
+    public void traceparentPresent(Requests requests) throws Exception {
+        traceparentFilter.doFilter(requests.traceparent, null, chain);
+    }
+
+    @Benchmark
+    public void b3Present(Requests requests) throws Exception {
+        b3Filter.doFilter(requests.b3, null, chain);
+    }
+}
\ No newline at end of file
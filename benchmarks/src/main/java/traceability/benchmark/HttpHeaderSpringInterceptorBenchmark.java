@@ -0,0 +1,66 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.spring.mvc.HttpHeaderSpringInterceptor;
+
+/**
+ * Cost of a full {@link HttpHeaderSpringInterceptor} cycle (<code>preHandle</code> and <code>afterCompletion</code>),
+ * with and without the transaction header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HttpHeaderSpringInterceptorBenchmark {
+
+    private HttpHeaderSpringInterceptor interceptor;
+    private Object handler;
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        StubHttpServletRequest traced;
+        StubHttpServletRequest untraced;
+
+        @Setup
+        public void setUp() {
+            traced = new StubHttpServletRequest().withHeader("x-transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            untraced = new StubHttpServletRequest();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        interceptor = new HttpHeaderSpringInterceptor();
+        handler = new Object();
+    }
+
+    @Benchmark
+    public boolean headerPresent(Requests requests) {
+        boolean result = interceptor.preHandle(requests.traced, null, handler);
+        interceptor.afterCompletion(requests.traced, null, handler, null);
+        return result;
+    }
+
+    @Benchmark
+    public boolean headerMissing(Requests requests) {
+        boolean result = interceptor.preHandle(requests.untraced, null, handler);
+        interceptor.afterCompletion(requests.untraced, null, handler, null);
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package traceability.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import traceability.logback.index.IndexedFileAppender;
+
+/**
+ * Cost of an <code>INFO</code> event written to a file, with and without the transaction index of the
+ * {@link IndexedFileAppender}. Logback flushes the file after every event, so the index competes with one
+ * <code>write</code> system call per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IndexedFileAppenderBenchmark {
+
+    private File directory;
+    private FileAppender<ILoggingEvent> plainAppender;
+    private FileAppender<ILoggingEvent> indexedAppender;
+    private Logger plainLogger;
+    private Logger indexedLogger;
+    private Object argument = Integer.valueOf(42);
+
+    @State(Scope.Thread)
+    public static class Transaction {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = File.createTempFile("indexed-benchmark", "");
+        directory.delete();
+        directory.mkdirs();
+
+        plainAppender = start(new FileAppender<ILoggingEvent>(), new File(directory, "plain.log"));
+        indexedAppender = start(new IndexedFileAppender(), new File(directory, "indexed.log"));
+        plainLogger = createLogger("benchmark.index.plain", plainAppender);
+        indexedLogger = createLogger("benchmark.index.indexed", indexedAppender);
+    }
+
+    @TearDown
+    public void tearDown() {
+        plainAppender.stop();
+        indexedAppender.stop();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void plainFile(Transaction transaction) {
+        plainLogger.info("Processing item {}", argument);
+    }
+
+    @Benchmark
+    public void indexedFile(Transaction transaction) {
+        indexedLogger.info("Processing item {}", argument);
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+
+    private static FileAppender<ILoggingEvent> start(FileAppender<ILoggingEvent> appender, File file) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context());
+        encoder.setPattern("%d %X{transaction} %-5level %logger - %msg%n");
+        encoder.start();
+
+        appender.setContext(context());
+        appender.setFile(file.getPath());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    private static Logger createLogger(String name, FileAppender<ILoggingEvent> appender) {
+        Logger logger = context().getLogger(name);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.selector.SelectorParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.logback.spring.jms.TraceableMessageListener;
+import traceability.logback.spring.jms.TraceableMessagePostProcessor;
+
+/**
+ * Cost of the transaction properties of a small message through an embedded, non-persistent ActiveMQ broker, with the
+ * string properties and with the <b>binary</b> mode of {@link TraceableMessagePostProcessor}: marshalling of the
+ * message to OpenWire, evaluation by the broker of a selector on the transaction, and a send and receive round trip
+ * decoded by the {@link TraceableMessageListener}. The size of the marshalled messages, with and without sampling
+ * decision, is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JmsBinaryTransactionBenchmark {
+
+    private static final String TRANSACTION = "01HV3K8Z9Q4X7M2N5P6R8T0W1Y";
+
+    @Param({ "false", "true" })
+    private boolean binary;
+
+    private BrokerService broker;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private MessageConsumer consumer;
+    private TraceableMessagePostProcessor processor;
+    private TraceableMessageListener listener;
+    private OpenWireFormat wireFormat;
+    private BooleanExpression selector;
+    private MessageEvaluationContext selected;
+
+    @Setup
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("benchmark");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+
+        connection = new ActiveMQConnectionFactory("vm://benchmark?create=false").createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("orders");
+        producer = session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        consumer = session.createConsumer(queue);
+
+        processor = new TraceableMessagePostProcessor();
+        processor.setBinary(binary);
+        listener = new TraceableMessageListener(new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+                // Only the decoding of the properties is measured
+            }
+        });
+        wireFormat = new OpenWireFormat();
+
+        MDC.put("transaction", TRANSACTION);
+        System.out.println("Marshalled message size (binary=" + binary + "): " + marshal() + " bytes");
+        MDC.put("sampled", "1");
+        System.out.println("Marshalled message size (binary=" + binary + ", sampled): " + marshal() + " bytes");
+
+        // The selector a consumer of a single transaction would use, matching the message
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        processor.postProcessMessage(message);
+        selector = SelectorParser.parse(binary ? "txH = " + message.getLongProperty("txH") + " AND txL = "
+                + message.getLongProperty("txL") : "transaction = '" + TRANSACTION + "'");
+        selected = new MessageEvaluationContext();
+        selected.setMessageReference(message);
+        MDC.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class TracedThread {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", TRANSACTION);
+            MDC.put("sampled", "1");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Benchmark
+    public int marshal(TracedThread thread) throws Exception {
+        return marshal();
+    }
+
+    @Benchmark
+    public boolean select() throws JMSException {
+        // A new context for each message, as the broker does
+        MessageEvaluationContext context = new MessageEvaluationContext();
+        context.setMessageReference(selected.getMessageReference());
+        return selector.matches(context);
+    }
+
+    @Benchmark
+    public void sendAndReceive(TracedThread thread) throws JMSException {
+        producer.send(processor.postProcessMessage(session.createTextMessage("order 42")));
+        listener.onMessage(consumer.receive());
+    }
+
+    private int marshal() throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setText("order 42");
+        processor.postProcessMessage(message);
+        return wireFormat.marshal(message).getLength();
+    }
+}
\ No newline at end of file
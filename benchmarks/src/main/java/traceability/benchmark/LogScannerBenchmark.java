@@ -0,0 +1,117 @@
+package traceability.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.logback.index.LogScanner;
+
+/**
+ * Time to extract the lines of a transaction from a 128 MB log file (one in a thousand lines matching), with the
+ * {@link LogScanner} and with a <code>readLine()</code> loop. The file is in the page cache, so the throughput in GB/s
+ * is the file size divided by the time per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LogScannerBenchmark {
+
+    private static final long FILE_SIZE = 128L << 20;
+
+    @Param({ "1" })
+    private int threads;
+
+    private File file;
+    private String transaction;
+    private List<File> files;
+    private LogScanner scanner;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("log-scanner-benchmark", ".log");
+        transaction = UUID.randomUUID().toString();
+        files = Collections.singletonList(file);
+        scanner = new LogScanner(Arrays.asList(transaction), threads);
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        try {
+            for (long written = 0, line = 0; written < FILE_SIZE; line++) {
+                String id = line % 1000 == 0 ? transaction : UUID.randomUUID().toString();
+                byte[] bytes = ("2012-03-14 10:15:42,123 [http-8080-" + (line % 200) + "] [" + id
+                        + "] INFO  traceability.sample.OrderService - Processing order item " + line + "\n")
+                        .getBytes("UTF-8");
+                out.write(bytes);
+                written += bytes.length;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long scanner() throws IOException {
+        return scanner.scan(files, NullOutputStream.INSTANCE);
+    }
+
+    @Benchmark
+    public long readLine() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"), 1 << 16);
+        try {
+            long lines = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.contains(transaction)) {
+                    lines++;
+                }
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+            // Discarded
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // Discarded
+        }
+    }
+}
\ No newline at end of file
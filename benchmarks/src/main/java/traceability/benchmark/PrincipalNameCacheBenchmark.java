@@ -0,0 +1,136 @@
+package traceability.benchmark;
+
+import java.security.Principal;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import traceability.benchmark.support.StubFilterConfig;
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.filter.PrincipalServletFilter;
+
+/**
+ * Cost of {@link PrincipalServletFilter#doFilter} with and without the principal name cache, for a population of users
+ * whose principals build a new name on every call. The chain keeps the MDC map of the last requests, as the backlog of
+ * an asynchronous appender does, and reports the number of distinct name instances the backlog retains
+ * (<code>retainedNames</code>) along with their size (<code>retainedNameBytes</code>), summed over the measurement
+ * iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PrincipalNameCacheBenchmark {
+
+    private static final int USERS = 1000;
+    private static final int BACKLOG = 8192;
+
+    private PrincipalServletFilter uncached;
+    private PrincipalServletFilter cached;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Backlog implements FilterChain {
+
+        StubHttpServletRequest[] requests;
+        Map<?, ?>[] events;
+        int next;
+
+        public long retainedNames;
+        public long retainedNameBytes;
+
+        @Setup
+        public void setUp() {
+            requests = new StubHttpServletRequest[USERS];
+            for (int i = 0; i < USERS; i++) {
+                requests[i] = new StubHttpServletRequest().withPrincipal(new DirectoryPrincipal("uid=user" + i));
+            }
+            events = new Map<?, ?>[BACKLOG];
+        }
+
+        @TearDown(Level.Iteration)
+        public void count() {
+            Map<String, Boolean> names = new IdentityHashMap<String, Boolean>();
+            for (Map<?, ?> event : events) {
+                if (event != null) {
+                    names.put((String) event.get("user"), Boolean.TRUE);
+                }
+            }
+            retainedNames = names.size();
+            retainedNameBytes = 0;
+            for (String name : names.keySet()) {
+                // Compact header String plus its char[], both 8 bytes aligned
+                retainedNameBytes += 24 + ((16 + 2 * name.length() + 7) & ~7);
+            }
+        }
+
+        StubHttpServletRequest nextRequest() {
+            return requests[next % USERS];
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            // Stands for an event queued by an asynchronous appender, holding the MDC map of the request
+            events[next++ % BACKLOG] = ((LogbackMDCAdapter) MDC.getMDCAdapter()).getPropertyMap();
+        }
+    }
+
+    @Setup
+    public void setUp() throws ServletException {
+        uncached = new PrincipalServletFilter();
+        uncached.init(new StubFilterConfig().withInitParameter("mdc_key", "user"));
+        cached = new PrincipalServletFilter();
+        cached.init(new StubFilterConfig().withInitParameter("mdc_key", "user").withInitParameter("name_cache_size",
+                String.valueOf(4 * USERS)));
+    }
+
+    @Benchmark
+    public void withoutCache(Backlog backlog) throws Exception {
+        uncached.doFilter(backlog.nextRequest(), null, backlog);
+    }
+
+    @Benchmark
+    public void withCache(Backlog backlog) throws Exception {
+        cached.doFilter(backlog.nextRequest(), null, backlog);
+    }
+
+    /**
+     * Principal building its name on every call, as directory based ones do.
+     */
+    private static final class DirectoryPrincipal implements Principal {
+
+        private final char[] distinguishedName;
+
+        DirectoryPrincipal(String distinguishedName) {
+            this.distinguishedName = distinguishedName.toCharArray();
+        }
+
+        @Override
+        public String getName() {
+            return new String(distinguishedName, 4, distinguishedName.length - 4);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.benchmark.support.NoopFilterChain;
+import traceability.benchmark.support.SimplePrincipal;
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.filter.PrincipalServletFilter;
+
+/**
+ * Cost of {@link PrincipalServletFilter#doFilter} around an empty chain, with and without an authenticated user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PrincipalServletFilterBenchmark {
+
+    private PrincipalServletFilter filter;
+    private FilterChain chain;
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        StubHttpServletRequest authenticated;
+        StubHttpServletRequest anonymous;
+
+        @Setup
+        public void setUp() {
+            authenticated = new StubHttpServletRequest().withPrincipal(new SimplePrincipal("benchmark-user"));
+            anonymous = new StubHttpServletRequest();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        filter = new PrincipalServletFilter();
+        chain = new NoopFilterChain();
+    }
+
+    @Benchmark
+    public void principalPresent(Requests requests) throws Exception {
+        filter.doFilter(requests.authenticated, null, chain);
+    }
+
+    @Benchmark
+    public void principalMissing(Requests requests) throws Exception {
+        filter.doFilter(requests.anonymous, null, chain);
+    }
+}
\ No newline at end of file
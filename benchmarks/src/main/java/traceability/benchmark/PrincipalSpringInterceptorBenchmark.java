@@ -0,0 +1,67 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.benchmark.support.SimplePrincipal;
+import traceability.benchmark.support.StubHttpServletRequest;
+import traceability.logback.spring.mvc.PrincipalSpringInterceptor;
+
+/**
+ * Cost of a full {@link PrincipalSpringInterceptor} cycle (<code>preHandle</code> and <code>afterCompletion</code>),
+ * with and without an authenticated user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PrincipalSpringInterceptorBenchmark {
+
+    private PrincipalSpringInterceptor interceptor;
+    private Object handler;
+
+    @State(Scope.Thread)
+    public static class Requests {
+
+        StubHttpServletRequest authenticated;
+        StubHttpServletRequest anonymous;
+
+        @Setup
+        public void setUp() {
+            authenticated = new StubHttpServletRequest().withPrincipal(new SimplePrincipal("benchmark-user"));
+            anonymous = new StubHttpServletRequest();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        interceptor = new PrincipalSpringInterceptor();
+        handler = new Object();
+    }
+
+    @Benchmark
+    public boolean principalPresent(Requests requests) {
+        boolean result = interceptor.preHandle(requests.authenticated, null, handler);
+        interceptor.afterCompletion(requests.authenticated, null, handler, null);
+        return result;
+    }
+
+    @Benchmark
+    public boolean principalMissing(Requests requests) {
+        boolean result = interceptor.preHandle(requests.anonymous, null, handler);
+        interceptor.afterCompletion(requests.anonymous, null, handler, null);
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+import traceability.logback.sampling.SamplingTurboFilter;
+
+/**
+ * Cost of a <code>debug</code> call with the {@link SamplingTurboFilter}, for transactions sampled and not sampled,
+ * compared to a disabled <code>debug</code> call without the filter and to logging the detail of every transaction. The
+ * events go to a no-op appender, so only the cost of creating and dispatching them is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SamplingTurboFilterBenchmark {
+
+    private Logger infoLogger;
+    private Logger debugLogger;
+    private Object argument = Integer.valueOf(42);
+
+    @State(Scope.Benchmark)
+    public static class Sampling {
+
+        SamplingTurboFilter filter;
+
+        @Setup
+        public void setUp() {
+            filter = new SamplingTurboFilter();
+            filter.start();
+            context().addTurboFilter(filter);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context().getTurboFilterList().remove(filter);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NotSampled {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            MDC.put("sampled", "0");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sampled {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            MDC.put("sampled", "1");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        infoLogger = createLogger("benchmark.sampling.info", Level.INFO);
+        debugLogger = createLogger("benchmark.sampling.debug", Level.DEBUG);
+    }
+
+    @Benchmark
+    public void disabledDebug(NotSampled transaction) {
+        infoLogger.debug("Processing item {}", argument);
+    }
+
+    @Benchmark
+    public void notSampledDebug(Sampling sampling, NotSampled transaction) {
+        infoLogger.debug("Processing item {}", argument);
+    }
+
+    @Benchmark
+    public void sampledDebug(Sampling sampling, Sampled transaction) {
+        infoLogger.debug("Processing item {}", argument);
+    }
+
+    @Benchmark
+    public void enabledDebug(NotSampled transaction) {
+        debugLogger.debug("Processing item {}", argument);
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+
+    private static Logger createLogger(String name, Level level) {
+        NOPAppender<ILoggingEvent> appender = new NOPAppender<ILoggingEvent>();
+        appender.setContext(context());
+        appender.start();
+
+        Logger logger = context().getLogger(name);
+        logger.setLevel(level);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
\ No newline at end of file
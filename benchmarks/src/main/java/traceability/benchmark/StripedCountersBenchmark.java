@@ -0,0 +1,50 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.logback.metrics.StripedCounters;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+
+/**
+ * Cost of counting an event shared by all the threads: a single {@link AtomicLong}, compared to
+ * {@link StripedCounters} and to {@link TraceMetrics#record}. The gap grows with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StripedCountersBenchmark {
+
+    private final AtomicLong atomic = new AtomicLong();
+    private final StripedCounters striped = new StripedCounters(3);
+
+    @Benchmark
+    public void atomicLong() {
+        atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    public void stripedCounters() {
+        striped.increment(1);
+    }
+
+    @Benchmark
+    public void traceMetrics() {
+        TraceMetrics.record(Channel.HTTP_IN, Outcome.TRACED);
+    }
+}
@@ -0,0 +1,70 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.logback.concurrent.TraceableRunnable;
+
+/**
+ * Cost of handing a task over with {@link TraceableRunnable}: capturing the MDC of the submitting thread and installing
+ * it around the task, compared to running the task as is. The task is run inline, so the queueing cost of a real pool
+ * (the same with and without the decorator) does not hide the overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraceableExecutorServiceBenchmark {
+
+    private Runnable task;
+
+    @State(Scope.Thread)
+    public static class Submitter {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            MDC.put("user", "anonymous");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        task = new Runnable() {
+            @Override
+            public void run() {
+                // Stands for the application task logging its progress
+                MDC.get("transaction");
+            }
+        };
+    }
+
+    @Benchmark
+    public void baseline(Submitter submitter) {
+        task.run();
+    }
+
+    @Benchmark
+    public void traceable(Submitter submitter) {
+        new TraceableRunnable(task).run();
+    }
+}
\ No newline at end of file
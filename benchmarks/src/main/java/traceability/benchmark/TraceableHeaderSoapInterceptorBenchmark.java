@@ -0,0 +1,99 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.benchmark.support.StubMessageFactory;
+import traceability.logback.cxf.TraceableHeaderSoapInterceptor;
+
+/**
+ * Cost of {@link TraceableHeaderSoapInterceptor#handleMessage}, with and without a namespace configured, both building a
+ * SAAJ element and in streaming mode. The header list of the message is cleared on every invocation, so it never
+ * grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraceableHeaderSoapInterceptorBenchmark {
+
+    private TraceableHeaderSoapInterceptor plainInterceptor;
+    private TraceableHeaderSoapInterceptor namespacedInterceptor;
+    private TraceableHeaderSoapInterceptor streamingInterceptor;
+    private TraceableHeaderSoapInterceptor streamingNamespacedInterceptor;
+
+    @State(Scope.Thread)
+    public static class Messages {
+
+        SoapMessage message;
+
+        @Setup
+        public void setUp() {
+            message = StubMessageFactory.newSoapMessage();
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.remove("transaction");
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        plainInterceptor = new TraceableHeaderSoapInterceptor();
+
+        namespacedInterceptor = new TraceableHeaderSoapInterceptor();
+        namespacedInterceptor.setNamespace("http://localdomain/core_1");
+
+        streamingInterceptor = new TraceableHeaderSoapInterceptor();
+        streamingInterceptor.setStreaming(true);
+
+        streamingNamespacedInterceptor = new TraceableHeaderSoapInterceptor();
+        streamingNamespacedInterceptor.setNamespace("http://localdomain/core_1");
+        streamingNamespacedInterceptor.setStreaming(true);
+    }
+
+    @Benchmark
+    public SoapMessage withoutNamespace(Messages messages) {
+        messages.message.getHeaders().clear();
+        plainInterceptor.handleMessage(messages.message);
+        return messages.message;
+    }
+
+    @Benchmark
+    public SoapMessage withNamespace(Messages messages) {
+        messages.message.getHeaders().clear();
+        namespacedInterceptor.handleMessage(messages.message);
+        return messages.message;
+    }
+
+    @Benchmark
+    public SoapMessage streamingWithoutNamespace(Messages messages) {
+        messages.message.getHeaders().clear();
+        streamingInterceptor.handleMessage(messages.message);
+        return messages.message;
+    }
+
+    @Benchmark
+    public SoapMessage streamingWithNamespace(Messages messages) {
+        messages.message.getHeaders().clear();
+        streamingNamespacedInterceptor.handleMessage(messages.message);
+        return messages.message;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package traceability.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.logback.spring.jms.TraceableJmsTemplate;
+
+/**
+ * Time to publish 100 small messages in a transacted session through an embedded, non-persistent ActiveMQ broker, with
+ * a {@link TraceableJmsTemplate}: one <code>convertAndSend</code> per message (a connection, a session and a commit
+ * each), and a single <code>convertAndSendBatch</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraceableJmsTemplateBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private BrokerService broker;
+    private TraceableJmsTemplate template;
+    private List<String> messages;
+
+    @Setup
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("template-benchmark");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+
+        template = new TraceableJmsTemplate(new ActiveMQConnectionFactory("vm://template-benchmark?create=false"));
+        template.setSessionTransacted(true);
+        template.setPubSubDomain(true);
+        template.setDefaultDestinationName("orders");
+
+        messages = new ArrayList<String>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            messages.add("order " + i);
+        }
+        MDC.put("transaction", "01HV3K8Z9Q4X7M2N5P6R8T0W1Y");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        MDC.clear();
+        broker.stop();
+    }
+
+    @Benchmark
+    public void convertAndSendEach() {
+        for (String message : messages) {
+            template.convertAndSend(message);
+        }
+    }
+
+    @Benchmark
+    public void convertAndSendBatch() {
+        template.convertAndSendBatch(messages);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.benchmark.support.StubMessage;
+import traceability.logback.spring.jms.TraceableMessageListener;
+
+/**
+ * Cost of {@link TraceableMessageListener#onMessage} over a direct call to the application listener, with and without
+ * the transaction property in the received message. Run it with the thread counts of the container concurrent
+ * consumers (see {@link BenchmarkRunner}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraceableMessageListenerBenchmark {
+
+    private MessageListener delegate;
+    private TraceableMessageListener listener;
+
+    @State(Scope.Thread)
+    public static class Consumer {
+
+        StubMessage tracedMessage;
+        StubMessage untracedMessage;
+
+        @Setup
+        public void setUp() throws JMSException {
+            tracedMessage = new StubMessage();
+            tracedMessage.setStringProperty("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+            untracedMessage = new StubMessage();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        delegate = new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+                // Stands for the application listener logging the message
+                MDC.get("transaction");
+            }
+        };
+        listener = new TraceableMessageListener(delegate);
+    }
+
+    @Benchmark
+    public void baseline(Consumer consumer) {
+        delegate.onMessage(consumer.tracedMessage);
+    }
+
+    @Benchmark
+    public void transactionPresent(Consumer consumer) throws JMSException {
+        listener.onMessage(consumer.tracedMessage, null);
+    }
+
+    @Benchmark
+    public void transactionMissing(Consumer consumer) throws JMSException {
+        listener.onMessage(consumer.untracedMessage, null);
+    }
+}
\ No newline at end of file
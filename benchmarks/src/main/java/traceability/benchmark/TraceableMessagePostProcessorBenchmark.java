@@ -0,0 +1,77 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import traceability.benchmark.support.StubMessage;
+import traceability.logback.spring.jms.TraceableMessagePostProcessor;
+
+/**
+ * Cost of {@link TraceableMessagePostProcessor#postProcessMessage}, with a transaction in the MDC of the sending thread
+ * and without it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TraceableMessagePostProcessorBenchmark {
+
+    private TraceableMessagePostProcessor processor;
+
+    @State(Scope.Thread)
+    public static class Messages {
+
+        StubMessage message;
+
+        @Setup
+        public void setUp() {
+            message = new StubMessage();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TracedThread {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.remove("transaction");
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        processor = new TraceableMessagePostProcessor();
+    }
+
+    @Benchmark
+    public Message transactionPresent(TracedThread thread, Messages messages) throws JMSException {
+        return processor.postProcessMessage(messages.message);
+    }
+
+    @Benchmark
+    public Message transactionMissing(Messages messages) throws JMSException {
+        return processor.postProcessMessage(messages.message);
+    }
+}
\ No newline at end of file
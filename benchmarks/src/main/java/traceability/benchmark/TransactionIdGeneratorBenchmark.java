@@ -0,0 +1,48 @@
+package traceability.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.logback.id.TimeBasedTransactionIdGenerator;
+
+/**
+ * Cost of a new transaction ID from {@link TimeBasedTransactionIdGenerator}, compared with the textual form of
+ * {@link UUID#randomUUID()}, which draws from a shared <code>SecureRandom</code>. Run it with the thread counts of
+ * {@link BenchmarkRunner} to see how both scale with the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransactionIdGeneratorBenchmark {
+
+    private TimeBasedTransactionIdGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new TimeBasedTransactionIdGenerator();
+    }
+
+    @Benchmark
+    public String timeBased() {
+        return generator.generate();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import traceability.logback.id.TransactionIdValidator;
+
+/**
+ * Cost of {@link TransactionIdValidator#validate} for a well-formed header, a header carrying CR/LF and a 64 KB header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransactionIdValidatorBenchmark {
+
+    private TransactionIdValidator validator;
+
+    private String valid;
+    private String injected;
+    private String oversized;
+
+    @Setup
+    public void setUp() {
+        validator = new TransactionIdValidator();
+
+        valid = "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10";
+        injected = "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10\r\nX-Injected: true";
+
+        StringBuilder builder = new StringBuilder(64 * 1024);
+        while (builder.length() < 64 * 1024) {
+            builder.append(valid);
+        }
+        oversized = builder.toString();
+    }
+
+    @Benchmark
+    public String validHeader() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public String injectedHeader() {
+        return validator.validate(injected);
+    }
+
+    @Benchmark
+    public String oversizedHeader() {
+        return validator.validate(oversized);
+    }
+}
\ No newline at end of file
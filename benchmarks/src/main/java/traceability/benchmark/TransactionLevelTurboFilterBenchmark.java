@@ -0,0 +1,139 @@
+package traceability.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+import traceability.logback.level.TransactionLevelTurboFilter;
+
+/**
+ * Cost of a disabled <code>debug</code> call with the {@link TransactionLevelTurboFilter}, with nothing watched and
+ * with <code>watched</code> transactions other than the current one, compared to the plain level check without the
+ * filter. <code>watchedDebug</code> is the call of a watched transaction, logged to a no-op appender.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransactionLevelTurboFilterBenchmark {
+
+    private static final String TRANSACTION = "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10";
+
+    private Logger logger;
+    private Object argument = Integer.valueOf(42);
+
+    @State(Scope.Benchmark)
+    public static class Watching {
+
+        @Param({ "0", "16" })
+        int watched;
+
+        TransactionLevelTurboFilter filter;
+
+        @Setup
+        public void setUp() {
+            filter = new TransactionLevelTurboFilter();
+            filter.setContext(context());
+            filter.setJmx(false);
+            filter.start();
+            for (int i = 0; i < watched; i++) {
+                filter.watch("watched-transaction-" + i);
+            }
+            context().addTurboFilter(filter);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context().getTurboFilterList().remove(filter);
+            filter.stop();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WatchingCurrent {
+
+        TransactionLevelTurboFilter filter;
+
+        @Setup
+        public void setUp() {
+            filter = new TransactionLevelTurboFilter();
+            filter.setContext(context());
+            filter.setJmx(false);
+            filter.start();
+            filter.watch(TRANSACTION);
+            context().addTurboFilter(filter);
+        }
+
+        @TearDown
+        public void tearDown() {
+            context().getTurboFilterList().remove(filter);
+            filter.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Transaction {
+
+        @Setup
+        public void setUp() {
+            MDC.put("transaction", TRANSACTION);
+            MDC.put("user", "anonymous");
+        }
+
+        @TearDown
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        NOPAppender<ILoggingEvent> appender = new NOPAppender<ILoggingEvent>();
+        appender.setContext(context());
+        appender.start();
+
+        logger = context().getLogger("benchmark.level");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @Benchmark
+    public void plainDebug(Transaction transaction) {
+        logger.debug("Processing item {}", argument);
+    }
+
+    @Benchmark
+    public void filteredDebug(Watching watching, Transaction transaction) {
+        logger.debug("Processing item {}", argument);
+    }
+
+    @Benchmark
+    public void watchedDebug(WatchingCurrent watching, Transaction transaction) {
+        logger.debug("Processing item {}", argument);
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+}
\ No newline at end of file
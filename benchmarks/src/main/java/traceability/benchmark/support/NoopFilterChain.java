@@ -0,0 +1,16 @@
+package traceability.benchmark.support;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * {@link FilterChain} stand-in that ends the chain immediately, so only the filter under test is measured.
+ */
+public class NoopFilterChain implements FilterChain {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response) {
+        // Nothing special...
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package traceability.benchmark.support;
+
+import java.security.Principal;
+
+/**
+ * {@link Principal} stand-in returning a fixed name.
+ */
+public class SimplePrincipal implements Principal {
+
+    private final String name;
+
+    public SimplePrincipal(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package traceability.benchmark.support;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+
+/**
+ * {@link FilterConfig} stand-in holding the init-params only.
+ */
+public class StubFilterConfig implements FilterConfig {
+
+    private final Map<String, String> initParameters = new HashMap<String, String>();
+
+    public StubFilterConfig withInitParameter(String name, String value) {
+        initParameters.put(name, value);
+        return this;
+    }
+
+    @Override
+    public String getFilterName() {
+        return "benchmark";
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration getInitParameterNames() {
+        return Collections.enumeration(initParameters.keySet());
+    }
+}
\ No newline at end of file
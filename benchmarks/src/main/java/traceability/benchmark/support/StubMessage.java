@@ -0,0 +1,284 @@
+package traceability.benchmark.support;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Minimal JMS {@link Message} stand-in for benchmarks: properties are kept in a plain map and headers in fields, with
+ * none of the marshalling a broker client would add.
+ */
+public class StubMessage implements Message {
+
+    private final Map<String, Object> properties = new HashMap<String, Object>();
+
+    private String messageId;
+    private String correlationId;
+    private Destination replyTo;
+    private Destination destination;
+    private String type;
+    private long timestamp;
+    private long expiration;
+    private int deliveryMode = DEFAULT_DELIVERY_MODE;
+    private int priority = DEFAULT_PRIORITY;
+    private boolean redelivered;
+
+    @Override
+    public void clearProperties() {
+        properties.clear();
+    }
+
+    @Override
+    public boolean propertyExists(String name) {
+        return properties.containsKey(name);
+    }
+
+    @Override
+    public Enumeration getPropertyNames() {
+        return Collections.enumeration(properties.keySet());
+    }
+
+    @Override
+    public Object getObjectProperty(String name) {
+        return properties.get(name);
+    }
+
+    @Override
+    public void setObjectProperty(String name, Object value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public String getStringProperty(String name) {
+        Object value = properties.get(name);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public void setStringProperty(String name, String value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public boolean getBooleanProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return false;
+        }
+        return ((Boolean) value).booleanValue();
+    }
+
+    @Override
+    public void setBooleanProperty(String name, boolean value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public byte getByteProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return 0;
+        }
+        return ((Number) value).byteValue();
+    }
+
+    @Override
+    public void setByteProperty(String name, byte value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public short getShortProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return 0;
+        }
+        return ((Number) value).shortValue();
+    }
+
+    @Override
+    public void setShortProperty(String name, short value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public int getIntProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return 0;
+        }
+        return ((Number) value).intValue();
+    }
+
+    @Override
+    public void setIntProperty(String name, int value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public long getLongProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return 0L;
+        }
+        return ((Number) value).longValue();
+    }
+
+    @Override
+    public void setLongProperty(String name, long value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public float getFloatProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return 0f;
+        }
+        return ((Number) value).floatValue();
+    }
+
+    @Override
+    public void setFloatProperty(String name, float value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public double getDoubleProperty(String name) throws JMSException {
+        Object value = properties.get(name);
+        if (value == null) {
+            return 0d;
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    @Override
+    public void setDoubleProperty(String name, double value) {
+        properties.put(name, value);
+    }
+
+    @Override
+    public String getJMSMessageID() {
+        return messageId;
+    }
+
+    @Override
+    public void setJMSMessageID(String value) {
+        this.messageId = value;
+    }
+
+    @Override
+    public long getJMSTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void setJMSTimestamp(long value) {
+        this.timestamp = value;
+    }
+
+    @Override
+    public String getJMSCorrelationID() {
+        return correlationId;
+    }
+
+    @Override
+    public void setJMSCorrelationID(String value) {
+        this.correlationId = value;
+    }
+
+    @Override
+    public Destination getJMSReplyTo() {
+        return replyTo;
+    }
+
+    @Override
+    public void setJMSReplyTo(Destination value) {
+        this.replyTo = value;
+    }
+
+    @Override
+    public Destination getJMSDestination() {
+        return destination;
+    }
+
+    @Override
+    public void setJMSDestination(Destination value) {
+        this.destination = value;
+    }
+
+    @Override
+    public int getJMSDeliveryMode() {
+        return deliveryMode;
+    }
+
+    @Override
+    public void setJMSDeliveryMode(int value) {
+        this.deliveryMode = value;
+    }
+
+    @Override
+    public String getJMSType() {
+        return type;
+    }
+
+    @Override
+    public void setJMSType(String value) {
+        this.type = value;
+    }
+
+    @Override
+    public long getJMSExpiration() {
+        return expiration;
+    }
+
+    @Override
+    public void setJMSExpiration(long value) {
+        this.expiration = value;
+    }
+
+    @Override
+    public int getJMSPriority() {
+        return priority;
+    }
+
+    @Override
+    public void setJMSPriority(int value) {
+        this.priority = value;
+    }
+
+    @Override
+    public boolean getJMSRedelivered() {
+        return redelivered;
+    }
+
+    @Override
+    public void setJMSRedelivered(boolean value) {
+        this.redelivered = value;
+    }
+
+    @Override
+    public byte[] getJMSCorrelationIDAsBytes() {
+        return correlationId == null ? null : correlationId.getBytes();
+    }
+
+    @Override
+    public void setJMSCorrelationIDAsBytes(byte[] value) {
+        this.correlationId = value == null ? null : new String(value);
+    }
+
+    @Override
+    public void acknowledge() {
+        // Nothing special...
+    }
+
+    @Override
+    public void clearBody() {
+        // Nothing special...
+    }
+}
\ No newline at end of file
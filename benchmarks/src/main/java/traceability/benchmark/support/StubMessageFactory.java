@@ -0,0 +1,19 @@
+package traceability.benchmark.support;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.message.MessageImpl;
+
+/**
+ * Factory of the CXF stand-ins: a {@link SoapMessage} is a plain map, so the real class is cheap enough to be used
+ * directly without a bus, an exchange or an interceptor chain.
+ */
+public final class StubMessageFactory {
+
+    private StubMessageFactory() {
+        // Utility class
+    }
+
+    public static SoapMessage newSoapMessage() {
+        return new SoapMessage(new MessageImpl());
+    }
+}
\ No newline at end of file
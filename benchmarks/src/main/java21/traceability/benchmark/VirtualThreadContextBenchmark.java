@@ -0,0 +1,117 @@
+package traceability.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import traceability.logback.concurrent.ScopedContext;
+import traceability.logback.concurrent.ScopedContextTurboFilter;
+import traceability.logback.concurrent.TraceableExecutorService;
+
+/**
+ * Cost of carrying the trace context to a million virtual threads, one per task: filling the MDC of every thread, the
+ * thread local path of {@link TraceableExecutorService}, and a {@link ScopedContext} bridged into the MDC only when the
+ * task logs. Only compiled with the <code>jdk21</code> profile; results are reported per task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VirtualThreadContextBenchmark {
+
+    private static final int TASKS = 1_000_000;
+    private static final String TRANSACTION = "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10";
+
+    @Param({ "false", "true" })
+    private boolean logging;
+
+    private LoggerContext loggerContext;
+    private ScopedContextTurboFilter filter;
+    private Logger logger;
+
+    @Setup
+    public void setUp() {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        filter = new ScopedContextTurboFilter();
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        // Enabled, but without any appender: the event is created, never written
+        logger = loggerContext.getLogger(VirtualThreadContextBenchmark.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.getTurboFilterList().remove(filter);
+        MDC.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void mdcPerThread() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < TASKS; i++) {
+                executor.execute(() -> {
+                    MDC.put("transaction", TRANSACTION);
+                    MDC.put("user", "anonymous");
+                    work();
+                    MDC.clear();
+                });
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void traceableExecutor() {
+        MDC.put("transaction", TRANSACTION);
+        MDC.put("user", "anonymous");
+        try (ExecutorService executor = new TraceableExecutorService(Executors.newVirtualThreadPerTaskExecutor())) {
+            for (int i = 0; i < TASKS; i++) {
+                executor.execute(this::work);
+            }
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void scopedContext() {
+        ScopedContext context = ScopedContext.current().where("transaction", TRANSACTION).where("user", "anonymous");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < TASKS; i++) {
+                executor.execute(context.wrap((Runnable) this::work));
+            }
+        }
+    }
+
+    private void work() {
+        if (logging) {
+            logger.info("Task done");
+        }
+    }
+}
\ No newline at end of file
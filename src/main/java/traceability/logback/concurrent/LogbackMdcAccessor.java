@@ -0,0 +1,90 @@
+package traceability.logback.concurrent;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.MDCAdapter;
+
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+
+/**
+ * {@link MdcAccessor} for Logback, sharing the context maps between threads instead of copying them.
+ * 
+ * <p>
+ * The {@link LogbackMDCAdapter} is copy-on-write: once its map has been read, the next change on the same thread is
+ * made on a fresh copy. {@link LogbackMDCAdapter#getPropertyMap()} hands over the live map and flags it as read, so
+ * capturing a context is a reference grab and the captured map is never modified again. Installing a context sets the
+ * map of the adapter thread local straight away, flagged as read too, so the task gets its own copy only if it changes
+ * its MDC.
+ * 
+ * <p>
+ * The thread locals of the adapter are not part of its API. If they cannot be found, contexts are still captured by
+ * reference, but installed through a copy.
+ */
+class LogbackMdcAccessor extends MdcAccessor {
+
+    private static Logger logger = LoggerFactory.getLogger(LogbackMdcAccessor.class);
+
+    /** Value of the last operation of the adapter, forcing a copy on the next change. */
+    private static final Integer READ_OPERATION = Integer.valueOf(2);
+
+    private final LogbackMDCAdapter adapter;
+    private final ThreadLocal<Map<String, String>> contextMap;
+    private final ThreadLocal<Integer> lastOperation;
+
+    LogbackMdcAccessor(LogbackMDCAdapter adapter, ThreadLocal<Map<String, String>> contextMap,
+            ThreadLocal<Integer> lastOperation) {
+        this.adapter = adapter;
+        this.contextMap = contextMap;
+        this.lastOperation = lastOperation;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.concurrent.MdcAccessor#capture()
+     */
+    @Override
+    public Map<String, String> capture() {
+        return adapter.getPropertyMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.concurrent.MdcAccessor#restore(java.util.Map)
+     */
+    @Override
+    public void restore(Map<String, String> context) {
+        if (contextMap == null) {
+            super.restore(context);
+            return;
+        }
+
+        if (context == null) {
+            contextMap.remove();
+        } else {
+            contextMap.set(context);
+        }
+        lastOperation.set(READ_OPERATION);
+    }
+
+    @SuppressWarnings("unchecked")
+    static MdcAccessor create(MDCAdapter mdcAdapter) {
+        LogbackMDCAdapter adapter = (LogbackMDCAdapter) mdcAdapter;
+        try {
+            Field contextMapField = LogbackMDCAdapter.class.getDeclaredField("copyOnInheritThreadLocal");
+            Field lastOperationField = LogbackMDCAdapter.class.getDeclaredField("lastOperation");
+            contextMapField.setAccessible(true);
+            lastOperationField.setAccessible(true);
+
+            return new LogbackMdcAccessor(adapter, (ThreadLocal<Map<String, String>>) contextMapField.get(adapter),
+                    (ThreadLocal<Integer>) lastOperationField.get(adapter));
+        } catch (Exception e) {
+            logger.debug("Logback MDC internals not available, contexts will be copied on install", e);
+            return new LogbackMdcAccessor(adapter, null, null);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package traceability.logback.concurrent;
+
+import java.util.Map;
+
+import org.slf4j.MDC;
+
+/**
+ * Low level access to the Mapped Diagnostic Context ({@link MDC}) of the current thread, as a whole.
+ * 
+ * <p>
+ * The default implementation relies on the public {@link MDC} API, so it copies the context on capture and on install.
+ * When Logback is the MDC implementation, {@link LogbackMdcAccessor} takes over and shares the context maps instead.
+ * 
+ * <p>
+ * Meant for components replacing the whole context at once, e.g. around a task or a request:
+ * 
+ * <pre>
+ * {@code
+ *   MdcAccessor accessor = MdcAccessor.getInstance();
+ *   Map<String, String> previous = accessor.install(context);
+ *   try {
+ *       ...
+ *   } finally {
+ *       accessor.restore(previous);
+ *   }
+ * }
+ * </pre>
+ */
+public class MdcAccessor {
+
+    private static final String LOGBACK_ADAPTER = "ch.qos.logback.classic.util.LogbackMDCAdapter";
+
+    private static final MdcAccessor INSTANCE = create();
+
+    /**
+     * Constructor, for subclasses only.
+     */
+    protected MdcAccessor() {
+        super();
+    }
+
+    /**
+     * @return The accessor matching the MDC implementation in use.
+     */
+    public static MdcAccessor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the context of the current thread. The returned map must never be modified.
+     * 
+     * @return The context, or <code>null</code> if empty.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> capture() {
+        return MDC.getCopyOfContextMap();
+    }
+
+    /**
+     * Replaces the context of the current thread. The installed map must never be modified afterwards.
+     * 
+     * @param context
+     *            A context returned by {@link #capture()} or {@link #install(Map)}, may be <code>null</code>.
+     * @return The replaced context, to be installed back once done.
+     */
+    public Map<String, String> install(Map<String, String> context) {
+        Map<String, String> previous = capture();
+        restore(context);
+        return previous;
+    }
+
+    /**
+     * Replaces the context of the current thread, discarding the previous one.
+     * 
+     * @param context
+     *            A context returned by {@link #capture()} or {@link #install(Map)}, may be <code>null</code>.
+     */
+    public void restore(Map<String, String> context) {
+        if (context == null || context.isEmpty()) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+
+    private static MdcAccessor create() {
+        // Logback classes are only loaded when Logback is the MDC implementation
+        if (MDC.getMDCAdapter() != null && LOGBACK_ADAPTER.equals(MDC.getMDCAdapter().getClass().getName())) {
+            return LogbackMdcAccessor.create(MDC.getMDCAdapter());
+        }
+        return new MdcAccessor();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,277 @@
+package traceability.logback.concurrent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.slf4j.MDC;
+
+/**
+ * Immutable trace context, bound to the current thread for the dynamic extent of a call instead of being stored in the
+ * Mapped Diagnostic Context ({@link MDC}) of every thread. Binding a context costs a single thread local reference, and
+ * the same context is shared by every thread it is handed over to, which suits applications running many short lived
+ * (e.g. virtual) threads.
+ * 
+ * <pre>
+ * {@code
+ *   ScopedContext.current().where("transaction", transactionId).run(task);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Contexts are not inherited by new threads: tasks forked inside a scope are decorated with {@link #wrap(Runnable)} or
+ * {@link #wrap(Callable)}, so they run with the context of the scope that forked them.
+ * 
+ * <p>
+ * The bound context reaches the MDC lazily, through the {@link ScopedContextTurboFilter}: only when something is
+ * actually logged inside the scope. The MDC of the thread is restored when the scope ends. Until then, the values are
+ * read with {@link #lookup(String)}, as the outbound propagators do.
+ */
+public final class ScopedContext {
+
+    private static final ScopedContext EMPTY = new ScopedContext(Collections.<String, String> emptyMap(), null);
+
+    private static final ThreadLocal<Frame> FRAMES = new ThreadLocal<Frame>();
+
+    /** Never modified once the context is created. */
+    private final Map<String, String> bindings;
+    /** The MDC the bindings were captured from, if any. */
+    private final Map<String, String> origin;
+
+    private ScopedContext(Map<String, String> bindings, Map<String, String> origin) {
+        this.bindings = bindings;
+        this.origin = origin;
+    }
+
+    /**
+     * @return The context bound to the current thread, empty if none.
+     */
+    public static ScopedContext current() {
+        Frame frame = FRAMES.get();
+        return frame == null ? EMPTY : frame.context;
+    }
+
+    /**
+     * Captures the context of the current thread, to be carried over to other threads: the MDC of the thread, overridden
+     * by the bound context. When Logback is the MDC implementation, the MDC is captured without any copy.
+     * 
+     * @return The captured context, empty if none.
+     */
+    public static ScopedContext capture() {
+        Frame frame = FRAMES.get();
+        Map<String, String> mdc = MdcAccessor.getInstance().capture();
+        if (mdc == null || mdc.isEmpty()) {
+            return frame == null ? EMPTY : frame.context;
+        }
+        if (frame != null && (mdc == frame.context.bindings || mdc == frame.context.origin)) {
+            // The MDC is the bound context installed by the bridge, or the map it was captured from
+            return frame.context;
+        }
+        if (frame == null || frame.bridged) {
+            return new ScopedContext(mdc, mdc);
+        }
+        Map<String, String> merged = new HashMap<String, String>(mdc);
+        merged.putAll(frame.context.bindings);
+        return new ScopedContext(merged, mdc);
+    }
+
+    /**
+     * Returns a value of the context bound to the current thread.
+     * 
+     * @param key
+     *            The key of the value.
+     * @return The bound value, or <code>null</code> if none.
+     */
+    public static String get(String key) {
+        return current().bindings.get(key);
+    }
+
+    /**
+     * Returns a value of the trace context of the current thread, whether it is bound to the thread or stored in its MDC:
+     * the bound value wins until the bound context reaches the MDC, then the MDC value wins. Unlike {@link MDC#get}, it
+     * sees the bound context before anything is logged in the scope, so the propagators and the turbo filters read their
+     * keys here.
+     * 
+     * @param key
+     *            The key of the value.
+     * @return The value, or <code>null</code> if none.
+     */
+    public static String lookup(String key) {
+        Frame frame = FRAMES.get();
+        if (frame != null && !frame.bridged) {
+            String value = frame.context.bindings.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return MDC.get(key);
+    }
+
+    /**
+     * Returns a new context, with the bindings of this one plus the given one. This context is not modified.
+     * 
+     * @param key
+     *            The key to bind.
+     * @param value
+     *            The value to bind, <code>null</code> to remove the binding.
+     * @return The new context.
+     */
+    public ScopedContext where(String key, String value) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        Map<String, String> copy = new HashMap<String, String>(bindings);
+        if (value == null) {
+            copy.remove(key);
+        } else {
+            copy.put(key, value);
+        }
+        return new ScopedContext(copy, null);
+    }
+
+    /**
+     * @return The bindings of this context, as an unmodifiable map.
+     */
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(bindings);
+    }
+
+    /**
+     * @return <code>true</code> if this context has no bindings.
+     */
+    boolean isEmpty() {
+        return bindings.isEmpty();
+    }
+
+    /**
+     * Runs an operation with this context bound to the current thread.
+     * 
+     * @param operation
+     *            The operation to run.
+     */
+    public void run(Runnable operation) {
+        Frame frame = enter();
+        try {
+            operation.run();
+        } finally {
+            exit(frame);
+        }
+    }
+
+    /**
+     * Calls an operation with this context bound to the current thread.
+     * 
+     * @param operation
+     *            The operation to call.
+     * @return The result of the operation.
+     * @throws Exception
+     *             The exception thrown by the operation.
+     */
+    public <V> V call(Callable<V> operation) throws Exception {
+        Frame frame = enter();
+        try {
+            return operation.call();
+        } finally {
+            exit(frame);
+        }
+    }
+
+    /**
+     * Decorates a task, so it runs with this context bound to the thread running it.
+     * 
+     * @param task
+     *            The task to decorate.
+     * @return The decorated task.
+     */
+    public Runnable wrap(final Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                ScopedContext.this.run(task);
+            }
+        };
+    }
+
+    /**
+     * Decorates a task, so it is called with this context bound to the thread calling it.
+     * 
+     * @param task
+     *            The task to decorate.
+     * @return The decorated task.
+     */
+    public <V> Callable<V> wrap(final Callable<V> task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        return new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return ScopedContext.this.call(task);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ScopedContext" + bindings;
+    }
+
+    /**
+     * Copies the context bound to the current thread into its MDC, unless already done for the current scope. The MDC
+     * of the thread is restored when the scope ends.
+     */
+    static void bridge() {
+        Frame frame = FRAMES.get();
+        if (frame == null || frame.bridged) {
+            return;
+        }
+        MdcAccessor accessor = MdcAccessor.getInstance();
+        Map<String, String> mdc = accessor.capture();
+        Map<String, String> context = frame.context.bindings;
+        if (mdc != null && !mdc.isEmpty()) {
+            context = new HashMap<String, String>(mdc);
+            context.putAll(frame.context.bindings);
+        }
+        frame.previousMdc = accessor.install(context);
+        frame.bridged = true;
+    }
+
+    private Frame enter() {
+        Frame frame = new Frame(this, FRAMES.get());
+        FRAMES.set(frame);
+        return frame;
+    }
+
+    private static void exit(Frame frame) {
+        if (frame.bridged) {
+            MdcAccessor.getInstance().restore(frame.previousMdc);
+        }
+        // Never removed, so the thread local entry is reused by the next scope of the thread
+        FRAMES.set(frame.parent);
+    }
+
+    /**
+     * A scope of the current thread.
+     */
+    private static final class Frame {
+
+        final ScopedContext context;
+        final Frame parent;
+        boolean bridged;
+        Map<String, String> previousMdc;
+
+        Frame(ScopedContext context, Frame parent) {
+            this.context = context;
+            this.parent = parent;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package traceability.logback.concurrent;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Logback {@link TurboFilter} bridging the {@link ScopedContext} bound to the current thread into its Mapped
+ * Diagnostic Context ({@link MDC}), the first time an enabled logging request is made inside the scope. Scopes where
+ * nothing is logged never touch the MDC.
+ * 
+ * <pre>
+ * {@code
+ *   <configuration>
+ *     <turboFilter class="traceability.logback.concurrent.ScopedContextTurboFilter" />
+ *     ...
+ *   </configuration>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * It never takes any decision. Turbo filters deciding on the MDC content must be declared after this one.
+ */
+public class ScopedContextTurboFilter extends TurboFilter {
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.classic.turbo.TurboFilter#decide(org.slf4j.Marker, ch.qos.logback.classic.Logger,
+     *      ch.qos.logback.classic.Level, java.lang.String, java.lang.Object[], java.lang.Throwable)
+     */
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != null && level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            ScopedContext.bridge();
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package traceability.logback.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.slf4j.MDC;
+
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+
+/**
+ * {@link Callable} decorator, running the task with the Mapped Diagnostic Context ({@link MDC}) of the thread that
+ * created the decorator. The context of the running thread is restored once the task is done.
+ * 
+ * <pre>
+ * {@code
+ *   Future<Result> result = executor.submit(new TraceableCallable<Result>(task));
+ * }
+ * </pre>
+ * 
+ * @param <V>
+ *            The result type of the task.
+ */
+public class TraceableCallable<V> implements Callable<V> {
+
+    private final Callable<V> task;
+    private final Map<String, String> context;
+
+    /**
+     * Constructor, capturing the context of the current thread.
+     * 
+     * @param task
+     *            The task to decorate.
+     */
+    public TraceableCallable(Callable<V> task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        this.task = task;
+        this.context = MdcAccessor.getInstance().capture();
+        TraceMetrics.record(Channel.TASK, context == null ? Outcome.SKIPPED : Outcome.TRACED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.Callable#call()
+     */
+    @Override
+    public V call() throws Exception {
+        MdcAccessor accessor = MdcAccessor.getInstance();
+        Map<String, String> previous = accessor.install(context);
+        try {
+            return task.call();
+        } finally {
+            accessor.restore(previous);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "TraceableCallable[" + task + "]";
+    }
+}
\ No newline at end of file
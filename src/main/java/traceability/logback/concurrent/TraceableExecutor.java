@@ -0,0 +1,74 @@
+package traceability.logback.concurrent;
+
+import java.util.concurrent.Executor;
+
+import org.slf4j.MDC;
+
+/**
+ * {@link Executor} decorator, carrying the context of the submitting thread (see {@link ScopedContext#capture()}) to
+ * the tasks as a {@link ScopedContext}: the Mapped Diagnostic Context ({@link MDC}) of the thread running a task is
+ * only filled if the task logs something, through the {@link ScopedContextTurboFilter}.
+ * 
+ * <p>
+ * Meant for asynchronous pipelines hopping threads at every stage, e.g. the <code>*Async</code> methods of
+ * <code>CompletableFuture</code>:
+ * 
+ * <pre>
+ * {@code
+ *   Executor executor = new TraceableExecutor(Executors.newFixedThreadPool(16));
+ *   CompletableFuture.supplyAsync(this::load, executor).thenApplyAsync(this::transform, executor);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * {@link #decorate(Runnable)} is the same propagation as a function, to be registered as a scheduling hook, e.g. in
+ * Reactor:
+ * 
+ * <pre>
+ * {@code
+ *   Schedulers.onScheduleHook("traceability", TraceableExecutor::decorate);
+ * }
+ * </pre>
+ */
+public class TraceableExecutor implements Executor {
+
+    private final Executor delegate;
+
+    /**
+     * Constructor.
+     * 
+     * @param delegate
+     *            The executor running the tasks.
+     */
+    public TraceableExecutor(Executor delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(decorate(command));
+    }
+
+    /**
+     * Decorates a task, so it runs with the context of the current thread.
+     * 
+     * @param task
+     *            The task to decorate.
+     * @return The decorated task, or the task itself if there is no context to carry.
+     */
+    public static Runnable decorate(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        ScopedContext context = ScopedContext.capture();
+        return context.isEmpty() ? task : context.wrap(task);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+package traceability.logback.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.MDC;
+
+/**
+ * {@link ExecutorService} decorator, propagating the Mapped Diagnostic Context ({@link MDC}) of the submitting thread to
+ * the tasks: the context is captured when a task is submitted, and installed in the pool thread while the task runs.
+ * 
+ * <p>
+ * Capturing the context does not copy it when Logback is the MDC implementation, so the per-task overhead is a couple
+ * of thread local accesses and the decorator allocation.
+ * 
+ * <p>
+ * In order to use the decorator, wrap the pool created by the application, or declare it in the application context:
+ * 
+ * <pre>
+ * {@code
+ *   ExecutorService executor = new TraceableExecutorService(Executors.newFixedThreadPool(16));
+ * }
+ * </pre>
+ * 
+ * <pre>
+ * {@code
+ * <bean id="executor" class="traceability.logback.concurrent.TraceableExecutorService" destroy-method="shutdown">
+ *     <constructor-arg>
+ *         <bean class="java.util.concurrent.Executors" factory-method="newFixedThreadPool">
+ *             <constructor-arg value="16" />
+ *         </bean>
+ *     </constructor-arg>
+ * </bean>
+ * }
+ * </pre>
+ */
+public class TraceableExecutorService implements ExecutorService {
+
+    private final ExecutorService delegate;
+
+    /**
+     * Constructor.
+     * 
+     * @param delegate
+     *            The executor running the tasks.
+     */
+    public TraceableExecutorService(ExecutorService delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(new TraceableRunnable(command));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#submit(java.util.concurrent.Callable)
+     */
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(new TraceableCallable<T>(task));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#submit(java.lang.Runnable, java.lang.Object)
+     */
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(new TraceableRunnable(task), result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#submit(java.lang.Runnable)
+     */
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(new TraceableRunnable(task));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#invokeAll(java.util.Collection)
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(wrap(tasks));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#invokeAll(java.util.Collection, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.invokeAll(wrap(tasks), timeout, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#invokeAny(java.util.Collection)
+     */
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(wrap(tasks));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#invokeAny(java.util.Collection, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(wrap(tasks), timeout, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#shutdownNow()
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#isShutdown()
+     */
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#isTerminated()
+     */
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private static <T> List<Callable<T>> wrap(Collection<? extends Callable<T>> tasks) {
+        List<Callable<T>> wrapped = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrapped.add(new TraceableCallable<T>(task));
+        }
+        return wrapped;
+    }
+}
\ No newline at end of file
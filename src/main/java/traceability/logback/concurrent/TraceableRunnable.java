@@ -0,0 +1,66 @@
+package traceability.logback.concurrent;
+
+import java.util.Map;
+
+import org.slf4j.MDC;
+
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+
+/**
+ * {@link Runnable} decorator, running the task with the Mapped Diagnostic Context ({@link MDC}) of the thread that
+ * created the decorator. The context of the running thread is restored once the task is done.
+ * 
+ * <pre>
+ * {@code
+ *   executor.execute(new TraceableRunnable(task));
+ * }
+ * </pre>
+ */
+public class TraceableRunnable implements Runnable {
+
+    private final Runnable task;
+    private final Map<String, String> context;
+
+    /**
+     * Constructor, capturing the context of the current thread.
+     * 
+     * @param task
+     *            The task to decorate.
+     */
+    public TraceableRunnable(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        this.task = task;
+        this.context = MdcAccessor.getInstance().capture();
+        TraceMetrics.record(Channel.TASK, context == null ? Outcome.SKIPPED : Outcome.TRACED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        MdcAccessor accessor = MdcAccessor.getInstance();
+        Map<String, String> previous = accessor.install(context);
+        try {
+            task.run();
+        } finally {
+            accessor.restore(previous);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "TraceableRunnable[" + task + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package traceability.logback.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.MDC;
+
+/**
+ * {@link ScheduledExecutorService} decorator, propagating the Mapped Diagnostic Context ({@link MDC}) of the scheduling
+ * thread to the tasks, as {@link TraceableExecutorService} does. Periodic tasks run every time with the context captured
+ * when they were scheduled.
+ * 
+ * <pre>
+ * {@code
+ *   ScheduledExecutorService scheduler = new TraceableScheduledExecutorService(Executors.newScheduledThreadPool(4));
+ * }
+ * </pre>
+ */
+public class TraceableScheduledExecutorService extends TraceableExecutorService implements ScheduledExecutorService {
+
+    private final ScheduledExecutorService delegate;
+
+    /**
+     * Constructor.
+     * 
+     * @param delegate
+     *            The executor running the tasks.
+     */
+    public TraceableScheduledExecutorService(ScheduledExecutorService delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ScheduledExecutorService#schedule(java.lang.Runnable, long,
+     *      java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return delegate.schedule(new TraceableRunnable(command), delay, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ScheduledExecutorService#schedule(java.util.concurrent.Callable, long,
+     *      java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return delegate.schedule(new TraceableCallable<V>(callable), delay, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate(java.lang.Runnable, long, long,
+     *      java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return delegate.scheduleAtFixedRate(new TraceableRunnable(command), initialDelay, period, unit);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay(java.lang.Runnable, long, long,
+     *      java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return delegate.scheduleWithFixedDelay(new TraceableRunnable(command), initialDelay, delay, unit);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,381 @@
+package traceability.logback.cxf;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
+import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.interceptor.OutgoingChainInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TransactionIdValidator;
+import traceability.logback.id.TransactionIdValidator.Policy;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+
+/**
+ * A thread-safe CXF {@link AbstractSoapInterceptor}, the inbound counterpart of {@link TraceableHeaderSoapInterceptor}:
+ * it reads the transaction field from the SOAP {@link Message} headers and injects it in the Mapped Diagnostic Context
+ * ({@link MDC}) of the thread serving the request.
+ * 
+ * <p>
+ * The header is read while the envelope is streamed: the interceptor runs right before the
+ * {@link ReadHeadersInterceptor} and decorates the {@link XMLStreamReader} of the message, capturing the text of the
+ * configured element as the events go by. No additional parsing and no DOM node is required to find the transaction,
+ * and the reader stops looking at the events once the header block is over.
+ * 
+ * <p>
+ * The transaction is checked by a {@link TransactionIdValidator} before being injected in the MDC, which may be
+ * replaced with a custom one through the <b>validator</b> property, e.g. to set its {@link Policy}. With the
+ * {@link Policy#REJECT} policy, an invalid transaction aborts the reading of the headers, and the client gets a
+ * <code>Sender</code> (SOAP 1.2) or <code>Client</code> (SOAP 1.1) fault.
+ * 
+ * <p>
+ * The sampling decision of the transaction (see {@link TransactionSampler}) is read the same way from the
+ * <b>sampledSoapKey</b> header (<code>SOAPSampled</code> by default) in the same namespace, if present.
+ * 
+ * <p>
+ * The transaction is ended and removed from the {@link MDC} once the exchange is completed (after the response has been
+ * sent) or as soon as the inbound chain is aborted by a fault, which flushes its detail buffered by the
+ * {@link traceability.logback.flight.FlightRecorderAppender}.
+ * 
+ * <p>
+ * In order to use the interceptor, configure it in the <b>inInterceptors</b> section of the CXF context file, with the
+ * same <b>soapKey</b> and <b>namespace</b> as the outbound interceptor of the clients:
+ * 
+ * <pre>
+ * {@code
+ * <bean id="traceableInInterceptor" class="traceability.logback.cxf.TraceableHeaderSoapInInterceptor">
+ *     <property name="soapKey" value="ConsumerTransactionID" />
+ *     <property name="namespace" value="http://webservice/core_1" />
+ * </bean>
+ * 
+ * <cxf:bus>
+ *     ...
+ *     <cxf:inInterceptors>
+ *         <ref bean="traceableInInterceptor" />
+ *         ...
+ *     </cxf:inInterceptors>
+ * </cxf:bus>
+ * }
+ * </pre>
+ * 
+ * @see http://cxf.apache.org/docs/interceptors.html
+ */
+public class TraceableHeaderSoapInInterceptor extends AbstractSoapInterceptor {
+
+    private static Logger logger = LoggerFactory.getLogger(TraceableHeaderSoapInInterceptor.class);
+
+    private static final String DEFAULT_MDC_KEY = "transaction";
+
+    private String mdcKey = DEFAULT_MDC_KEY;
+
+    private String soapKey = "SOAPTransaction";
+
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+
+    private String sampledSoapKey = "SOAPSampled";
+
+    private String namespace = null;
+
+    private TransactionIdValidator validator = new TransactionIdValidator();
+
+    private final CleanupInterceptor cleanupInterceptor = new CleanupInterceptor();
+
+    /**
+     * Constructor.
+     */
+    public TraceableHeaderSoapInInterceptor() {
+        super(Phase.READ);
+        addBefore(ReadHeadersInterceptor.class.getName());
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.interceptor.Interceptor#handleMessage(org.apache.cxf.message.Message)
+     */
+    @Override
+    public void handleMessage(SoapMessage message) {
+        XMLStreamReader reader = message.getContent(XMLStreamReader.class);
+        if (reader == null) {
+            InputStream in = message.getContent(InputStream.class);
+            if (in == null) {
+                return;
+            }
+            reader = StaxUtils.createXMLStreamReader(in);
+        }
+
+        message.setContent(XMLStreamReader.class, new TransactionHeaderReader(reader));
+
+        if (message.getInterceptorChain() != null) {
+            message.getInterceptorChain().add(cleanupInterceptor);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.phase.AbstractPhaseInterceptor#handleFault(org.apache.cxf.message.Message)
+     */
+    @Override
+    public void handleFault(SoapMessage message) {
+        FlightRecorders.endTransaction(MDC.get(mdcKey), true);
+        MDC.remove(mdcKey);
+        MDC.remove(sampledMdcKey);
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param soapKey
+     *            The soapKey to set.
+     */
+    public void setSoapKey(String soapKey) {
+        this.soapKey = soapKey;
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+
+    /**
+     * @param sampledSoapKey
+     *            The sampledSoapKey to set.
+     */
+    public void setSampledSoapKey(String sampledSoapKey) {
+        this.sampledSoapKey = sampledSoapKey;
+    }
+
+    /**
+     * @param namespace
+     *            The namespace to set.
+     */
+    public void setNamespace(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * @param validator
+     *            The validator to set, or <code>null</code> to inject the header values as they are.
+     */
+    public void setValidator(TransactionIdValidator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Returns the MDC key of the current element of the reader, if it is one of the configured headers.
+     * 
+     * @return The MDC key, or <code>null</code> if the element is not a traced header.
+     */
+    private String getHeaderMdcKey(XMLStreamReader reader) {
+        String localName = reader.getLocalName();
+        String key;
+        if (soapKey.equals(localName)) {
+            key = mdcKey;
+        } else if (sampledSoapKey.equals(localName)) {
+            key = sampledMdcKey;
+        } else {
+            return null;
+        }
+        return isInNamespace(reader) ? key : null;
+    }
+
+    /**
+     * Returns <code>true</code> if the current element of the reader is in the configured namespace.
+     */
+    private boolean isInNamespace(XMLStreamReader reader) {
+        String elementNamespace = reader.getNamespaceURI();
+        if (namespace == null || namespace.length() == 0) {
+            return elementNamespace == null || elementNamespace.length() == 0;
+        }
+        return namespace.equals(elementNamespace);
+    }
+
+    /**
+     * Single-use {@link XMLStreamReader} decorator, watching the events of the envelope up to the end of the SOAP
+     * header block. Once the header block is over, every call is a plain delegation.
+     */
+    private class TransactionHeaderReader extends StreamReaderDelegate {
+
+        // Element depths: 1 is the Envelope, 2 the Header and Body, 3 every header entry
+        private static final int HEADER_DEPTH = 2;
+        private static final int HEADER_ENTRY_DEPTH = 3;
+
+        private boolean done;
+        private boolean traced;
+        private boolean rejected;
+        private int depth;
+        private boolean inHeader;
+        private boolean capturing;
+        private String capturedKey;
+        private String text;
+        private StringBuilder textBuilder;
+
+        TransactionHeaderReader(XMLStreamReader reader) {
+            super(reader);
+            if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                depth = 1;
+            }
+        }
+
+        @Override
+        public int next() throws XMLStreamException {
+            int event = super.next();
+            if (!done) {
+                observe(event);
+            }
+            return event;
+        }
+
+        @Override
+        public int nextTag() throws XMLStreamException {
+            int event = super.nextTag();
+            if (!done) {
+                observe(event);
+            }
+            return event;
+        }
+
+        @Override
+        public String getElementText() throws XMLStreamException {
+            String elementText = super.getElementText();
+            if (capturing) {
+                text = elementText;
+                textBuilder = null;
+                observe(XMLStreamConstants.END_ELEMENT);
+            } else if (!done) {
+                depth--;
+            }
+            return elementText;
+        }
+
+        private void observe(int event) throws XMLStreamException {
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                if (depth == HEADER_DEPTH) {
+                    inHeader = "Header".equals(getLocalName());
+                    if (!inHeader) {
+                        finish();
+                    }
+                } else if (inHeader && depth == HEADER_ENTRY_DEPTH) {
+                    capturedKey = getHeaderMdcKey(this);
+                    capturing = capturedKey != null;
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+                if (capturing) {
+                    appendText();
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (capturing && depth == HEADER_ENTRY_DEPTH) {
+                    capturing = false;
+                    putTransaction();
+                }
+                depth--;
+                if (depth < HEADER_DEPTH && inHeader) {
+                    finish();
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void finish() {
+            done = true;
+            Outcome outcome = traced ? Outcome.TRACED : Outcome.ANONYMOUS;
+            TraceMetrics.record(Channel.SOAP_IN, rejected ? Outcome.REJECTED : outcome);
+        }
+
+        private void appendText() {
+            // Most of the times the value comes in a single event, so no copy is needed
+            if (text == null) {
+                text = getText();
+            } else {
+                if (textBuilder == null) {
+                    textBuilder = new StringBuilder(text);
+                }
+                textBuilder.append(getTextCharacters(), getTextStart(), getTextLength());
+            }
+        }
+
+        private void putTransaction() throws XMLStreamException {
+            String transaction = textBuilder == null ? text : textBuilder.toString();
+            text = null;
+            textBuilder = null;
+
+            if (transaction != null) {
+                transaction = transaction.trim();
+            }
+            if (transaction == null || transaction.length() == 0) {
+                return;
+            }
+
+            if (capturedKey.equals(mdcKey)) {
+                if (validator != null) {
+                    transaction = validator.validate(transaction);
+                    if (transaction == null) {
+                        rejected = true;
+                        finish();
+                        throw new XMLStreamException("Invalid transaction ID in the " + soapKey + " SOAP header");
+                    }
+                }
+                traced = true;
+                MDC.put(mdcKey, transaction);
+                logger.debug("Transaction ID {} read from SOAP Header", transaction);
+            } else {
+                String sampled = TransactionSampler.normalize(transaction);
+                if (sampled != null) {
+                    MDC.put(capturedKey, sampled);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the transaction from the {@link MDC} once the invocation is completed and the response, if any, has been
+     * sent.
+     */
+    private class CleanupInterceptor extends AbstractPhaseInterceptor<Message> {
+
+        CleanupInterceptor() {
+            super(Phase.POST_INVOKE);
+            addAfter(OutgoingChainInterceptor.class.getName());
+        }
+
+        @Override
+        public void handleMessage(Message message) {
+            FlightRecorders.endTransaction(MDC.get(mdcKey), false);
+            MDC.remove(mdcKey);
+            MDC.remove(sampledMdcKey);
+        }
+    }
+}
\ No newline at end of file
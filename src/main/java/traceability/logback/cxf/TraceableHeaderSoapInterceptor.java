@@ -2,6 +2,7 @@ package traceability.logback.cxf;
 
 import javax.xml.namespace.QName;
 import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPFactory;
 
 import org.apache.cxf.binding.soap.SoapMessage;
@@ -13,6 +14,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import traceability.logback.concurrent.ScopedContext;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+
 /**
  * A thread-safe CXF {@link AbstractSoapInterceptor}, that reads a transaction field from the Mapped Diagnostic Context
  * ({@link MDC}) of the request and injects it in the SOAP {@link Message} headers.
@@ -34,6 +41,24 @@ import org.slf4j.MDC;
  * }
  * </pre>
  * 
+ * <p>
+ * By default the header is built as a SAAJ {@link SOAPElement}. For high-volume clients, the <b>streaming</b> mode adds
+ * the transaction {@link String} itself as the header object, together with a shared data binding that writes the
+ * element directly into the outgoing XML stream at serialization time, so no DOM node is created per message. The
+ * resulting envelope is the same in both modes:
+ * 
+ * <pre>
+ * {@code
+ * <bean id="traceableInterceptor" class="traceability.logback.cxf.TraceableHeaderSoapInterceptor">
+ *     <property name="streaming" value="true" />
+ * </bean>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The sampling decision of the transaction (see {@link TransactionSampler}), if any, is added as a second header, named
+ * after the <b>sampledSoapKey</b> (<code>SOAPSampled</code> by default) in the same namespace.
+ * 
  * @see http://cxf.apache.org/docs/interceptors.html
  */
 public class TraceableHeaderSoapInterceptor extends AbstractSoapInterceptor {
@@ -46,14 +71,28 @@ public class TraceableHeaderSoapInterceptor extends AbstractSoapInterceptor {
 
     private String soapKey = "SOAPTransaction";
 
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+
+    private String sampledSoapKey = "SOAPSampled";
+
     private String prefix = "trace";
     private String namespace = null;
 
+    private boolean streaming = false;
+
+    // Resolved once per configuration change, instead of once per message
+    private QName qname;
+    private TransactionHeaderDataBinding dataBinding;
+    private QName sampledQname;
+    private TransactionHeaderDataBinding sampledDataBinding;
+    private volatile SOAPFactory soapFactory;
+
     /**
      * Constructor.
      */
     public TraceableHeaderSoapInterceptor() {
         super(Phase.PRE_PROTOCOL);
+        updateHeaderDefinition();
     }
 
     /**
@@ -63,28 +102,76 @@ public class TraceableHeaderSoapInterceptor extends AbstractSoapInterceptor {
      */
     @Override
     public void handleMessage(SoapMessage message) {
-        String transaction = MDC.get(mdcKey);
+        String transaction = ScopedContext.lookup(mdcKey);
         if (transaction == null || transaction.length() == 0) {
+            TraceMetrics.record(Channel.SOAP_OUT, Outcome.SKIPPED);
             return;
         }
 
         try {
-            QName qname = new QName(namespace, soapKey);
-            SOAPElement element = SOAPFactory.newInstance().createElement(soapKey);
-            if (namespace != null) {
-                element = SOAPFactory.newInstance().createElement(soapKey, prefix, namespace);
-            }
-            element.addTextNode(transaction);
+            message.getHeaders().add(createHeader(qname, dataBinding, transaction));
 
-            Header header = new Header(qname, element);
-            message.getHeaders().add(header);
+            String sampled = ScopedContext.lookup(sampledMdcKey);
+            if (sampled != null && sampled.length() > 0) {
+                message.getHeaders().add(createHeader(sampledQname, sampledDataBinding, sampled));
+            }
 
+            TraceMetrics.record(Channel.SOAP_OUT, Outcome.TRACED);
             logger.debug("Transaction ID {} added to SOAP Header", transaction);
         } catch (Exception e) {
+            TraceMetrics.record(Channel.SOAP_OUT, Outcome.FAILED);
             logger.warn("Unable to inject transaction ID in SOAP Header due to {}", e.getMessage());
         }
     }
 
+    /**
+     * Creates the header holding the given value, according to the <b>streaming</b> mode.
+     */
+    private Header createHeader(QName name, TransactionHeaderDataBinding binding, String value) throws SOAPException {
+        if (streaming) {
+            return new Header(name, value, binding);
+        }
+        return new Header(name, createElement(name.getLocalPart(), value));
+    }
+
+    /**
+     * Creates the DOM header element holding the given value.
+     */
+    private SOAPElement createElement(String localName, String value) throws SOAPException {
+        SOAPElement element;
+        if (namespace == null) {
+            element = getSoapFactory().createElement(localName);
+        } else {
+            element = getSoapFactory().createElement(localName, prefix, namespace);
+        }
+        element.addTextNode(value);
+        return element;
+    }
+
+    /**
+     * Returns the {@link SOAPFactory}, looked up only on first use: the lookup goes through the service loader and is
+     * never required in streaming mode. Factory implementations create a new owner document per element, so the
+     * instance is shared by all threads.
+     */
+    private SOAPFactory getSoapFactory() throws SOAPException {
+        SOAPFactory factory = soapFactory;
+        if (factory == null) {
+            factory = SOAPFactory.newInstance();
+            soapFactory = factory;
+        }
+        return factory;
+    }
+
+    /**
+     * Resolves the header name and the streaming data binding from the current configuration.
+     */
+    private void updateHeaderDefinition() {
+        qname = new QName(namespace, soapKey);
+        dataBinding = new TransactionHeaderDataBinding(soapKey, prefix, namespace);
+        sampledQname = new QName(namespace, sampledSoapKey);
+        sampledDataBinding = new TransactionHeaderDataBinding(sampledSoapKey, prefix, namespace);
+    }
+
     /**
      * @param mdcKey
      *            The mdcKey to set.
@@ -99,6 +186,24 @@ public class TraceableHeaderSoapInterceptor extends AbstractSoapInterceptor {
      */
     public void setSoapKey(String soapKey) {
         this.soapKey = soapKey;
+        updateHeaderDefinition();
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+
+    /**
+     * @param sampledSoapKey
+     *            The sampledSoapKey to set.
+     */
+    public void setSampledSoapKey(String sampledSoapKey) {
+        this.sampledSoapKey = sampledSoapKey;
+        updateHeaderDefinition();
     }
 
     /**
@@ -107,6 +212,7 @@ public class TraceableHeaderSoapInterceptor extends AbstractSoapInterceptor {
      */
     public void setPrefix(String prefix) {
         this.prefix = prefix;
+        updateHeaderDefinition();
     }
 
     /**
@@ -115,5 +221,15 @@ public class TraceableHeaderSoapInterceptor extends AbstractSoapInterceptor {
      */
     public void setNamespace(String namespace) {
         this.namespace = namespace;
+        updateHeaderDefinition();
+    }
+
+    /**
+     * @param streaming
+     *            <code>true</code> to write the header directly into the outgoing XML stream, instead of building a
+     *            SAAJ element per message.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package traceability.logback.cxf;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.databinding.DataBinding;
+import org.apache.cxf.databinding.DataReader;
+import org.apache.cxf.databinding.DataWriter;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Attachment;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.service.model.MessagePartInfo;
+
+/**
+ * An immutable, write-only CXF {@link DataBinding} that serializes a transaction ID as a single SOAP header element,
+ * straight into the {@link XMLStreamWriter} of the outgoing message.
+ * 
+ * <p>
+ * The header object is the transaction {@link String} itself, so no DOM element is built per message: the element name
+ * and namespace are resolved once, when the binding is created.
+ */
+class TransactionHeaderDataBinding implements DataBinding {
+
+    private final String localName;
+    private final String prefix;
+    private final String namespace;
+
+    private final DataWriter<XMLStreamWriter> writer = new TransactionHeaderWriter();
+
+    /**
+     * Constructor.
+     * 
+     * @param localName
+     *            The name of the header element.
+     * @param prefix
+     *            The prefix of the header element, only used if the namespace is not <code>null</code>.
+     * @param namespace
+     *            The namespace of the header element, may be <code>null</code>.
+     */
+    TransactionHeaderDataBinding(String localName, String prefix, String namespace) {
+        this.localName = localName;
+        this.prefix = prefix;
+        this.namespace = namespace;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#createWriter(java.lang.Class)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> DataWriter<T> createWriter(Class<T> cls) {
+        if (cls == XMLStreamWriter.class) {
+            return (DataWriter<T>) writer;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#createReader(java.lang.Class)
+     */
+    @Override
+    public <T> DataReader<T> createReader(Class<T> cls) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#getSupportedReaderFormats()
+     */
+    @Override
+    public Class<?>[] getSupportedReaderFormats() {
+        return new Class<?>[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#getSupportedWriterFormats()
+     */
+    @Override
+    public Class<?>[] getSupportedWriterFormats() {
+        return new Class<?>[] { XMLStreamWriter.class };
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#initialize(org.apache.cxf.service.Service)
+     */
+    @Override
+    public void initialize(Service service) {
+        // Nothing special...
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#getDeclaredNamespaceMappings()
+     */
+    @Override
+    public Map<String, String> getDeclaredNamespaceMappings() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#setMtomThreshold(int)
+     */
+    @Override
+    public void setMtomThreshold(int threshold) {
+        // Nothing special...
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.cxf.databinding.DataBinding#getMtomThreshold()
+     */
+    @Override
+    public int getMtomThreshold() {
+        return 0;
+    }
+
+    /**
+     * Stateless writer of the header element, shared by all messages.
+     */
+    private class TransactionHeaderWriter implements DataWriter<XMLStreamWriter> {
+
+        @Override
+        public void write(Object obj, XMLStreamWriter output) {
+            try {
+                if (namespace == null) {
+                    output.writeStartElement(localName);
+                } else {
+                    output.writeStartElement(prefix, localName, namespace);
+                    if (!namespace.equals(output.getNamespaceContext().getNamespaceURI(prefix))) {
+                        output.writeNamespace(prefix, namespace);
+                    }
+                }
+                output.writeCharacters(obj.toString());
+                output.writeEndElement();
+            } catch (XMLStreamException e) {
+                throw new Fault(e);
+            }
+        }
+
+        @Override
+        public void write(Object obj, MessagePartInfo part, XMLStreamWriter output) {
+            write(obj, output);
+        }
+
+        @Override
+        public void setSchema(Schema s) {
+            // Nothing special...
+        }
+
+        @Override
+        public void setAttachments(Collection<Attachment> attachments) {
+            // Nothing special...
+        }
+
+        @Override
+        public void setProperty(String key, Object value) {
+            // Nothing special...
+        }
+    }
+}
\ No newline at end of file
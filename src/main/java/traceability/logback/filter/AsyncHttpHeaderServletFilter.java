@@ -0,0 +1,315 @@
+package traceability.logback.filter;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.trace.TraceContextParser;
+
+/**
+ * Servlet 3 {@link Filter} for HTTP requests, reading the transaction from the request <b>header</b> as
+ * {@link HttpHeaderServletFilter} does, and keeping the Mapped Diagnostic Context ({@link MDC}) up to date when the
+ * request is processed asynchronously.
+ * 
+ * <p>
+ * The transaction is stored as a request attribute, so it is restored on every dispatch of the request (including the
+ * {@link DispatcherType#ASYNC} and {@link DispatcherType#ERROR} ones) without reading and validating the header again.
+ * The {@link AsyncContext} handed to the application is decorated, so the tasks given to
+ * {@link AsyncContext#start(Runnable)} and the callbacks of every {@link AsyncListener} registered through it run with
+ * the transaction in the MDC of the container thread calling them. Nothing is bound to the thread that received the
+ * request. When sampling or the trace context are enabled, the sampling decision and the trace context are stored and
+ * restored along with the transaction.
+ * 
+ * <p>
+ * The end of every request is notified to the {@link FlightRecorders}: at the end of the dispatch for synchronous
+ * requests, and once the {@link AsyncContext} completes for asynchronous ones. The transaction is failed if an
+ * exception escapes a dispatch, or if the asynchronous processing times out or fails.
+ * 
+ * <p>
+ * In order to use the filter, it must support asynchronous requests and be mapped to the <b>ASYNC</b> dispatcher, in
+ * the web.xml:
+ * 
+ * <pre>
+ * {@code
+ * <filter>
+ *     <filter-name>Logback MDC Filter</filter-name>
+ *     <filter-class>traceability.logback.filter.AsyncHttpHeaderServletFilter</filter-class>
+ *     <async-supported>true</async-supported>
+ * </filter>
+ * <filter-mapping>
+ *     <filter-name>Logback MDC Filter</filter-name>
+ *     <url-pattern>/*</url-pattern>
+ *     <dispatcher>REQUEST</dispatcher>
+ *     <dispatcher>ASYNC</dispatcher>
+ *     <dispatcher>ERROR</dispatcher>
+ * </filter-mapping>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * All the init-params of the {@link HttpHeaderServletFilter} are supported, and the request is owned by the filter
+ * during each dispatch as well (see {@link HttpHeaderServletFilter#OWNER_ATTRIBUTE}). With the <b>timing</b>
+ * init-param, asynchronous requests are timed from their first dispatch until the {@link AsyncContext} completes.
+ */
+public class AsyncHttpHeaderServletFilter extends HttpHeaderServletFilter {
+
+    private String attributeName = attributeName(getMdcKey());
+    private String sampledAttributeName = attributeName + ".sampled";
+    private String traceAttributeName = attributeName + ".trace";
+    private String endAttributeName = attributeName + ".end";
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.filter.HttpHeaderServletFilter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        super.init(config);
+        attributeName = attributeName(getMdcKey());
+        sampledAttributeName = attributeName + ".sampled";
+        traceAttributeName = attributeName + ".trace";
+        endAttributeName = attributeName + ".end";
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.filter.HttpHeaderServletFilter#doFilter(javax.servlet.ServletRequest,
+     *      javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws ServletException,
+            IOException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        if (httpRequest.getAttribute(OWNER_ATTRIBUTE) != null) {
+            // Traced upstream, which also cleans the MDC up
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Any dispatch but the first one finds the transaction already resolved
+        String transaction = (String) httpRequest.getAttribute(attributeName);
+        boolean first = transaction == null;
+        long start = 0;
+        if (first) {
+            transaction = readTransaction(httpRequest);
+            if (transaction == null) {
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            httpRequest.setAttribute(attributeName, transaction);
+            String sampled = readSampled(httpRequest, transaction);
+            if (sampled != null) {
+                httpRequest.setAttribute(sampledAttributeName, sampled);
+            }
+            String[] trace = readTrace(httpRequest);
+            if (trace != null) {
+                httpRequest.setAttribute(traceAttributeName, trace);
+            }
+            if (getLatencyRecorder() != null) {
+                start = System.nanoTime();
+            }
+        }
+
+        String sampled = (String) httpRequest.getAttribute(sampledAttributeName);
+        String[] trace = (String[]) httpRequest.getAttribute(traceAttributeName);
+        int size = 1 + (sampled == null ? 0 : 1);
+        for (int i = 0; trace != null && i < trace.length; i++) {
+            size += trace[i] == null ? 0 : 1;
+        }
+
+        // The keys and values of the request, the transaction first
+        String[] mdcKeys = new String[size];
+        String[] values = new String[size];
+        mdcKeys[0] = getMdcKey();
+        values[0] = transaction;
+        int count = 1;
+        if (sampled != null) {
+            mdcKeys[count] = getSampler().getMdcKey();
+            values[count++] = sampled;
+        }
+        if (trace != null) {
+            TraceContextParser traceParser = getTraceContextParser();
+            String[] traceKeys = { traceParser.getTraceIdMdcKey(), traceParser.getSpanIdMdcKey(),
+                    traceParser.getFlagsMdcKey() };
+            for (int i = 0; i < trace.length; i++) {
+                if (trace[i] != null) {
+                    mdcKeys[count] = traceKeys[i];
+                    values[count++] = trace[i];
+                }
+            }
+        }
+
+        for (int i = 0; i < mdcKeys.length; i++) {
+            MDC.put(mdcKeys[i], values[i]);
+        }
+        httpRequest.setAttribute(OWNER_ATTRIBUTE, this);
+
+        boolean completed = false;
+        try {
+            if (httpRequest.isAsyncSupported()) {
+                chain.doFilter(new TraceableAsyncRequest(httpRequest, mdcKeys, values), response);
+            } else {
+                chain.doFilter(request, response);
+            }
+            completed = true;
+        } finally {
+            httpRequest.removeAttribute(OWNER_ATTRIBUTE);
+            end(httpRequest, transaction, !completed, first ? getLatencyRecorder() : null, start);
+            for (int i = 0; i < mdcKeys.length; i++) {
+                MDC.remove(mdcKeys[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the trace context of the request, if enabled and valid.
+     * 
+     * @return The trace ID, span ID and trace flags (each one may be <code>null</code>), or <code>null</code>.
+     */
+    private String[] readTrace(HttpServletRequest request) {
+        TraceContextParser traceParser = getTraceContextParser();
+        if (traceParser == null || !traceParser.put(request)) {
+            return null;
+        }
+
+        // Read back from the MDC, where the parser validates and splits the headers
+        String[] trace = { MDC.get(traceParser.getTraceIdMdcKey()), MDC.get(traceParser.getSpanIdMdcKey()),
+                MDC.get(traceParser.getFlagsMdcKey()) };
+        traceParser.remove();
+        return trace;
+    }
+
+    /**
+     * Ends the transaction, and records the duration of the request if timed by this dispatch, once the request is
+     * complete: at the end of the dispatch if the request is not asynchronous, or when the {@link AsyncContext}
+     * completes otherwise. The start time is handed over to the listener of the {@link AsyncContext}, the only
+     * allocation of an asynchronous request needed for timing.
+     */
+    private void end(HttpServletRequest request, String transaction, boolean failed, LatencyRecorder recorder,
+            long start) {
+        TransactionEndListener listener = (TransactionEndListener) request.getAttribute(endAttributeName);
+        if (listener == null && request.isAsyncSupported() && request.isAsyncStarted()) {
+            listener = new TransactionEndListener(transaction, recorder, getEntryPoint(request), start);
+            request.setAttribute(endAttributeName, listener);
+            request.getAsyncContext().addListener(listener);
+        }
+
+        if (listener != null) {
+            if (failed) {
+                listener.failed = true;
+            }
+            return;
+        }
+
+        FlightRecorders.endTransaction(transaction, failed);
+        if (recorder != null) {
+            recorder.record(getEntryPoint(request), System.nanoTime() - start);
+        }
+    }
+
+    private static String attributeName(String mdcKey) {
+        return AsyncHttpHeaderServletFilter.class.getName() + "." + mdcKey;
+    }
+
+    /**
+     * Ends the transaction of an asynchronous request when it completes, as failed if a dispatch threw an exception, or
+     * if the request timed out or failed, and records its duration if timing is enabled.
+     */
+    private static class TransactionEndListener implements AsyncListener {
+
+        private final String transaction;
+        private final LatencyRecorder recorder;
+        private final String entryPoint;
+        private final long start;
+
+        volatile boolean failed;
+
+        TransactionEndListener(String transaction, LatencyRecorder recorder, String entryPoint, long start) {
+            this.transaction = transaction;
+            this.recorder = recorder;
+            this.entryPoint = entryPoint;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            FlightRecorders.endTransaction(transaction, failed);
+            if (recorder != null) {
+                recorder.record(entryPoint, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when the asynchronous processing starts again
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * Request decorator, handing over a {@link TraceableAsyncContext} when the asynchronous processing is started.
+     */
+    private static class TraceableAsyncRequest extends HttpServletRequestWrapper {
+
+        private final String[] mdcKeys;
+        private final String[] values;
+
+        private TraceableAsyncContext asyncContext;
+
+        TraceableAsyncRequest(HttpServletRequest request, String[] mdcKeys, String[] values) {
+            super(request);
+            this.mdcKeys = mdcKeys;
+            this.values = values;
+        }
+
+        @Override
+        public AsyncContext startAsync() {
+            return wrap(super.startAsync());
+        }
+
+        @Override
+        public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+            return wrap(super.startAsync(servletRequest, servletResponse));
+        }
+
+        @Override
+        public AsyncContext getAsyncContext() {
+            return wrap(super.getAsyncContext());
+        }
+
+        private AsyncContext wrap(AsyncContext context) {
+            if (asyncContext == null || !asyncContext.wraps(context)) {
+                asyncContext = new TraceableAsyncContext(context, mdcKeys, values);
+            }
+            return asyncContext;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,277 @@
+package traceability.logback.filter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+
+import traceability.logback.concurrent.MdcAccessor;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TransactionIdGenerator;
+import traceability.logback.id.TransactionIdValidator;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+
+/**
+ * Servlet {@link Filter} for HTTP requests, reading a configurable set of <b>fields</b> from the request (headers,
+ * principal, client IP, method) in a single pass, and updating the Mapped Diagnostic Context ({@link MDC}) of the
+ * request with all of them at once. It replaces a stack of {@link HttpHeaderServletFilter} and
+ * {@link PrincipalServletFilter}: the context is replaced as a whole when the request starts, and restored as a whole
+ * when it ends, instead of one copy-on-write MDC change per field.
+ * 
+ * <p>
+ * In order to use the filter in your Servlet application, edit the web.xml, adding the following filter:
+ * 
+ * <pre>
+ * {@code
+ * <filter>
+ *     <filter-name>Logback MDC Filter</filter-name>
+ *     <filter-class>traceability.logback.filter.ContextServletFilter</filter-class>
+ *     <init-param>
+ *       <param-name>fields</param-name>
+ *       <param-value>transaction=header:x-transaction, user=principal, client_ip=remote_addr, method=method</param-value>
+ *     </init-param>
+ * </filter>
+ * <filter-mapping>
+ *     <filter-name>Logback MDC Filter</filter-name>
+ *     <url-pattern>/*</url-pattern>
+ * </filter-mapping>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Each field is an MDC key and its source, one of <code>header:&lt;name&gt;</code>, <code>principal</code>,
+ * <code>remote_addr</code> and <code>method</code>. The default fields are
+ * <code>transaction=header:x-transaction, user=principal</code>.
+ * 
+ * <p>
+ * Missing headers and principals are traced as <code>anonymous</code>, unless a {@link TransactionIdGenerator} is
+ * configured with the <b>id_generator</b> init-param, giving each missing header its own ID. Header values are
+ * validated as in {@link HttpHeaderServletFilter}, with the same <b>max_length</b>, <b>allowed_chars</b> and
+ * <b>invalid_policy</b> init-params.
+ * 
+ * <p>
+ * The first header field is the transaction of the request: it is ended when the request ends, for the
+ * {@link traceability.logback.flight.FlightRecorderAppender}. Any MDC change made by the application during the request
+ * is discarded when the request ends.
+ * 
+ * <p>
+ * Like the {@link HttpHeaderServletFilter}, the filter owns the MDC of the request while it goes down the chain (see
+ * {@link HttpHeaderServletFilter#OWNER_ATTRIBUTE}), so the components downstream neither read their own fields nor
+ * clean the MDC up, and it lets through the requests already owned by a component upstream.
+ */
+public class ContextServletFilter implements Filter {
+
+    private static final String ANONYMOUS = TransactionIdValidator.ANONYMOUS;
+
+    private Field[] fields = { new Field("transaction", Source.HEADER, "x-transaction"),
+            new Field("user", Source.PRINCIPAL, null) };
+    private TransactionIdGenerator idGenerator = null;
+    private TransactionIdValidator validator = new TransactionIdValidator();
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        if (config.getInitParameter("fields") != null) {
+            fields = parseFields(config.getInitParameter("fields"));
+        }
+
+        if (config.getInitParameter("id_generator") != null) {
+            idGenerator = HttpHeaderServletFilter.createIdGenerator(config.getInitParameter("id_generator"));
+            validator.setIdGenerator(idGenerator);
+        }
+
+        HttpHeaderServletFilter.configureValidator(validator, config);
+        TraceMetrics.register();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse,
+     *      javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws ServletException,
+            IOException {
+        if (request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE) != null) {
+            // Traced upstream, which also cleans the MDC up
+            chain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        MdcAccessor accessor = MdcAccessor.getInstance();
+
+        Map<String, String> current = accessor.capture();
+        Map<String, String> context;
+        if (current == null) {
+            context = new HashMap<String, String>(2 * fields.length);
+        } else {
+            context = new HashMap<String, String>(current);
+        }
+
+        String transaction = null;
+        for (Field field : fields) {
+            String value = read(field, httpRequest);
+            if (value == null) {
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            context.put(field.mdcKey, value);
+            if (transaction == null && field.source == Source.HEADER && !ANONYMOUS.equals(value)) {
+                transaction = value;
+            }
+        }
+
+        Map<String, String> previous = accessor.install(context);
+        request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, this);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            request.removeAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+            FlightRecorders.endTransaction(transaction, !completed);
+            accessor.restore(previous);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+        TraceMetrics.unregister();
+    }
+
+    /**
+     * @return The validator of the header values, exposing the number of invalid ones.
+     */
+    public TransactionIdValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * Reads the value of a field from the request.
+     * 
+     * @return The value, or <code>null</code> if a header value is rejected.
+     */
+    private String read(Field field, HttpServletRequest request) {
+        switch (field.source) {
+        case HEADER:
+            String header = request.getHeader(field.header);
+            if (header == null || header.length() == 0) {
+                if (idGenerator == null) {
+                    TraceMetrics.record(Channel.HTTP_IN, Outcome.ANONYMOUS);
+                    return ANONYMOUS;
+                }
+                TraceMetrics.record(Channel.HTTP_IN, Outcome.GENERATED);
+                return idGenerator.generate();
+            }
+            String validated = validator.validate(header);
+            TraceMetrics.record(Channel.HTTP_IN, validated == null ? Outcome.REJECTED : Outcome.TRACED);
+            return validated;
+        case PRINCIPAL:
+            Principal principal = request.getUserPrincipal();
+            String name = principal == null ? null : principal.getName();
+            if (name != null && name.length() > 0) {
+                TraceMetrics.record(Channel.PRINCIPAL, Outcome.TRACED);
+                return name;
+            }
+            TraceMetrics.record(Channel.PRINCIPAL, Outcome.ANONYMOUS);
+            return ANONYMOUS;
+        case REMOTE_ADDR:
+            String address = request.getRemoteAddr();
+            return address == null ? ANONYMOUS : address;
+        default:
+            return request.getMethod();
+        }
+    }
+
+    /**
+     * Parses the <b>fields</b> init-param: a comma separated list of <code>mdc_key=source</code>.
+     */
+    private static Field[] parseFields(String value) throws ServletException {
+        List<Field> parsed = new ArrayList<Field>();
+        for (String definition : value.split(",")) {
+            if (definition.trim().length() == 0) {
+                continue;
+            }
+
+            int equals = definition.indexOf('=');
+            if (equals <= 0) {
+                throw new ServletException("Invalid field, expected mdc_key=source: " + definition.trim());
+            }
+            String mdcKey = definition.substring(0, equals).trim();
+            String source = definition.substring(equals + 1).trim();
+
+            String header = null;
+            int colon = source.indexOf(':');
+            if (colon >= 0) {
+                header = source.substring(colon + 1).trim();
+                source = source.substring(0, colon).trim();
+            }
+
+            Source parsedSource;
+            try {
+                parsedSource = Source.valueOf(source.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Invalid field source: " + definition.trim(), e);
+            }
+            if (mdcKey.length() == 0 || (parsedSource == Source.HEADER) != (header != null && header.length() > 0)) {
+                throw new ServletException("Invalid field: " + definition.trim());
+            }
+            parsed.add(new Field(mdcKey, parsedSource, header));
+        }
+
+        if (parsed.isEmpty()) {
+            throw new ServletException("No fields configured");
+        }
+        return parsed.toArray(new Field[parsed.size()]);
+    }
+
+    /**
+     * Sources of the fields.
+     */
+    private enum Source {
+        HEADER, PRINCIPAL, REMOTE_ADDR, METHOD
+    }
+
+    /**
+     * A field of the request, injected in the MDC.
+     */
+    private static final class Field {
+
+        final String mdcKey;
+        final Source source;
+        final String header;
+
+        Field(String mdcKey, Source source, String header) {
+            this.mdcKey = mdcKey;
+            this.source = source;
+            this.header = header;
+        }
+    }
+}
\ No newline at end of file
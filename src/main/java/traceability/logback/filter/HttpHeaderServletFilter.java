@@ -1,6 +1,7 @@
 package traceability.logback.filter;
 
 import java.io.IOException;
+import java.util.Locale;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -9,9 +10,21 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.MDC;
 
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TransactionIdGenerator;
+import traceability.logback.id.TransactionIdValidator;
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.SamplingTurboFilter;
+import traceability.logback.sampling.TransactionSampler;
+import traceability.logback.trace.TraceContextParser;
+
 /**
  * Servlet {@link Filter} for HTTP requests, reading the required <b>header</b> from the request and updating the Mapped
  * Diagnostic Context ({@link MDC}) of the request, so the API can be traced and audited.
@@ -57,6 +70,58 @@ import org.slf4j.MDC;
  * </pre>
  * 
  * <p>
+ * Requests without the header are traced as <code>anonymous</code>. In order to give each of them its own transaction
+ * ID, configure a {@link TransactionIdGenerator} implementation with the <b>id_generator</b> init-param:
+ * 
+ * <pre>
+ * {@code
+ *     <init-param>
+ *       <param-name>id_generator</param-name>
+ *       <param-value>traceability.logback.id.TimeBasedTransactionIdGenerator</param-value>
+ *     </init-param>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Header values are validated before being injected in the MDC: by default, they are cut at the first character that is
+ * not an ASCII letter, a digit or one of <code>-_.:</code>, and at 128 characters. The validation is configured with the
+ * <b>max_length</b>, <b>allowed_chars</b> and <b>invalid_policy</b> (<code>truncate</code>, <code>generate</code> or
+ * <code>reject</code>) init-params, see {@link TransactionIdValidator}. Invalid values that cannot be kept are replaced
+ * as missing ones are: by the <b>id_generator</b>, or with <code>anonymous</code>. Rejected requests get a
+ * <code>400 Bad Request</code> response.
+ * 
+ * <p>
+ * The filter may also make the sampling decision of the transaction (see {@link TransactionSampler}), enabled with the
+ * <b>sampling_rate</b> init-param (e.g. <code>0.05</code>): the decision received in the <code>x-sampled</code> header
+ * (<b>sampled_header</b> init-param), or derived from the transaction ID, is injected in the MDC with the
+ * <code>sampled</code> key (<b>sampled_mdc_key</b> init-param), for the {@link SamplingTurboFilter}.
+ * 
+ * <p>
+ * The trace context sent by edge proxies may be injected in the MDC too, enabled with the <b>trace_format</b>
+ * init-param (<code>traceparent</code> for W3C Trace Context, or <code>b3</code>): the trace ID, span ID and trace flags
+ * are injected with the <code>trace_id</code>, <code>span_id</code> and <code>trace_flags</code> keys
+ * (<b>trace_id_mdc_key</b>, <b>span_id_mdc_key</b> and <b>trace_flags_mdc_key</b> init-params), see
+ * {@link TraceContextParser}.
+ * 
+ * <p>
+ * The end of every request is notified to the {@link FlightRecorders}, as failed if an exception escapes the chain.
+ * 
+ * <p>
+ * While the request goes down the chain, the filter owns its MDC values, and tells so with the
+ * {@link #OWNER_ATTRIBUTE} request attribute. The components downstream (another filter, or the
+ * <code>HttpHeaderSpringInterceptor</code> of the application) find the request already traced: they neither read the
+ * headers nor clean the MDC up, whatever their own configuration. Conversely, the filter lets through the requests
+ * already owned by a component upstream.
+ * 
+ * <p>
+ * With the <b>timing</b> init-param set to <code>true</code>, the duration of the requests is recorded per entry point
+ * in a {@link LatencyRecorder} named after the filter, exported over JMX. The entry point of a request is the pattern
+ * of the handler matched by Spring MVC, if any, or else its servlet path: set the <b>timing_entry_point</b> init-param
+ * to record all the requests under a single name instead, e.g. for a servlet mapped to <code>/</code> without Spring
+ * MVC. The number of entry points with their own histogram is bounded by the <b>timing_max_entry_points</b> init-param
+ * (200 by default).
+ * 
+ * <p>
  * Finally, configure your <code>logback.xml</code> file with the default <b>mcd_key</b>:
  * 
  * <pre>
@@ -81,12 +146,28 @@ import org.slf4j.MDC;
  */
 public class HttpHeaderServletFilter implements Filter {
 
+    /**
+     * Name of the request attribute holding the component that traces the request, if any. It is set once the MDC is
+     * updated and removed by the same component once the MDC is cleaned up.
+     */
+    public static final String OWNER_ATTRIBUTE = HttpHeaderServletFilter.class.getName() + ".owner";
+
     private static final String DEFAULT_HEADER_NAME = "x-transaction";
     private static final String DEFAULT_MDC_KEY = "transaction";
-    private static final String ANONYMOUS = "anonymous";
+    private static final String ANONYMOUS = TransactionIdValidator.ANONYMOUS;
+
+    /** The pattern matched by Spring MVC, as <code>HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE</code>. */
+    private static final String BEST_MATCHING_PATTERN_ATTRIBUTE = "org.springframework.web.servlet.HandlerMapping"
+            + ".bestMatchingPattern";
 
     private String headerName = DEFAULT_HEADER_NAME;
     private String mdcKey = DEFAULT_MDC_KEY;
+    private TransactionIdGenerator idGenerator = null;
+    private TransactionIdValidator validator = new TransactionIdValidator();
+    private TransactionSampler sampler = null;
+    private TraceContextParser traceParser = null;
+    private LatencyRecorder recorder = null;
+    private String entryPoint = null;
 
     /**
      * {@inheritDoc}
@@ -94,7 +175,7 @@ public class HttpHeaderServletFilter implements Filter {
      * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
      */
     @Override
-    public void init(FilterConfig config) {
+    public void init(FilterConfig config) throws ServletException {
         if (config.getInitParameter("header_name") != null) {
             headerName = config.getInitParameter("header_name");
         }
@@ -102,6 +183,18 @@ public class HttpHeaderServletFilter implements Filter {
         if (config.getInitParameter("mdc_key") != null) {
             mdcKey = config.getInitParameter("mdc_key");
         }
+
+        if (config.getInitParameter("id_generator") != null) {
+            idGenerator = createIdGenerator(config.getInitParameter("id_generator"));
+            validator.setIdGenerator(idGenerator);
+        }
+
+        configureValidator(validator, config);
+        sampler = createSampler(config);
+        traceParser = createTraceParser(config);
+        recorder = createRecorder(this, config);
+        entryPoint = config.getInitParameter("timing_entry_point");
+        TraceMetrics.register();
     }
 
     /**
@@ -113,19 +206,47 @@ public class HttpHeaderServletFilter implements Filter {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws ServletException,
             IOException {
-        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        if (request.getAttribute(OWNER_ATTRIBUTE) != null) {
+            // Traced upstream, which also cleans the MDC up
+            chain.doFilter(request, response);
+            return;
+        }
 
-        String transaction = httpRequest.getHeader(headerName);
-        if (transaction == null || transaction.length() == 0) {
-            transaction = ANONYMOUS;
+        String transaction = readTransaction((HttpServletRequest) request);
+        if (transaction == null) {
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
         }
 
         MDC.put(mdcKey, transaction);
+        String sampled = readSampled((HttpServletRequest) request, transaction);
+        if (sampled != null) {
+            MDC.put(sampler.getMdcKey(), sampled);
+        }
+        if (traceParser != null) {
+            traceParser.put((HttpServletRequest) request);
+        }
 
+        request.setAttribute(OWNER_ATTRIBUTE, this);
+
+        long start = recorder == null ? 0 : System.nanoTime();
+        boolean completed = false;
         try {
             chain.doFilter(request, response);
+            completed = true;
         } finally {
+            request.removeAttribute(OWNER_ATTRIBUTE);
+            FlightRecorders.endTransaction(transaction, !completed);
             MDC.remove(mdcKey);
+            if (sampled != null) {
+                MDC.remove(sampler.getMdcKey());
+            }
+            if (traceParser != null) {
+                traceParser.remove();
+            }
+            if (recorder != null) {
+                recorder.record(entryPoint((HttpServletRequest) request, entryPoint), System.nanoTime() - start);
+            }
         }
     }
 
@@ -136,6 +257,224 @@ public class HttpHeaderServletFilter implements Filter {
      */
     @Override
     public void destroy() {
-        // Nothing special...
+        if (recorder != null) {
+            recorder.close();
+        }
+        TraceMetrics.unregister();
+    }
+
+    /**
+     * Reads the transaction ID of the request from the configured header, validating it, or creates a new one if the
+     * header is missing.
+     * 
+     * @param request
+     *            The HTTP request.
+     * @return The transaction ID, or <code>null</code> if the header value is rejected.
+     */
+    protected String readTransaction(HttpServletRequest request) {
+        String transaction = request.getHeader(headerName);
+        if (transaction == null || transaction.length() == 0) {
+            if (idGenerator == null) {
+                TraceMetrics.record(Channel.HTTP_IN, Outcome.ANONYMOUS);
+                return ANONYMOUS;
+            }
+            TraceMetrics.record(Channel.HTTP_IN, Outcome.GENERATED);
+            return idGenerator.generate();
+        }
+
+        String validated = validator.validate(transaction);
+        TraceMetrics.record(Channel.HTTP_IN, validated == null ? Outcome.REJECTED : Outcome.TRACED);
+        return validated;
+    }
+
+    /**
+     * Reads the sampling decision of the request, or makes it if none was received.
+     * 
+     * @param request
+     *            The HTTP request.
+     * @param transaction
+     *            The transaction ID of the request.
+     * @return The sampling decision, or <code>null</code> if sampling is disabled.
+     */
+    protected String readSampled(HttpServletRequest request, String transaction) {
+        if (sampler == null) {
+            return null;
+        }
+        return sampler.sample(request.getHeader(sampler.getHeaderName()), ANONYMOUS.equals(transaction) ? null
+                : transaction);
+    }
+
+    /**
+     * @return The sampler of the transactions, or <code>null</code> if sampling is disabled.
+     */
+    protected TransactionSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * @return The parser of the trace context headers, or <code>null</code> if they are ignored.
+     */
+    protected TraceContextParser getTraceContextParser() {
+        return traceParser;
+    }
+
+    /**
+     * @return The key of the transaction in the MDC.
+     */
+    protected String getMdcKey() {
+        return mdcKey;
+    }
+
+    /**
+     * @return The validator of the header values, exposing the number of invalid ones.
+     */
+    public TransactionIdValidator getValidator() {
+        return validator;
+    }
+
+    /**
+     * @return The latency histograms of the requests, or <code>null</code> if timing is disabled.
+     */
+    public LatencyRecorder getLatencyRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @param request
+     *            The HTTP request, once handled.
+     * @return The entry point the duration of the request is recorded under.
+     */
+    protected String getEntryPoint(HttpServletRequest request) {
+        return entryPoint(request, entryPoint);
+    }
+
+    /**
+     * Returns the entry point of a request: the configured one if any, or else the pattern matched by Spring MVC (after
+     * the servlet path, for a servlet mapped to a path), or else the servlet path. Unlike the servlet path of a servlet
+     * mapped to <code>/</code>, the pattern does not change with the path variables of the request.
+     */
+    static String entryPoint(HttpServletRequest request, String configured) {
+        if (configured != null) {
+            return configured;
+        }
+        Object pattern = request.getAttribute(BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern instanceof String) {
+            return request.getPathInfo() == null ? (String) pattern : request.getServletPath() + pattern;
+        }
+        return request.getServletPath();
+    }
+
+    /**
+     * Applies the validation init-params, if any.
+     */
+    static void configureValidator(TransactionIdValidator validator, FilterConfig config) throws ServletException {
+        String maxLength = config.getInitParameter("max_length");
+        String policy = config.getInitParameter("invalid_policy");
+
+        try {
+            if (maxLength != null) {
+                validator.setMaxLength(Integer.parseInt(maxLength.trim()));
+            }
+
+            if (config.getInitParameter("allowed_chars") != null) {
+                validator.setAllowedChars(config.getInitParameter("allowed_chars"));
+            }
+
+            if (policy != null) {
+                validator.setPolicy(TransactionIdValidator.Policy.valueOf(policy.trim().toUpperCase(Locale.ENGLISH)));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Invalid transaction validation init-param", e);
+        }
+    }
+
+    /**
+     * Creates the {@link TransactionSampler} from the sampling init-params, if enabled.
+     */
+    private static TransactionSampler createSampler(FilterConfig config) throws ServletException {
+        String rate = config.getInitParameter("sampling_rate");
+        if (rate == null) {
+            return null;
+        }
+
+        TransactionSampler transactionSampler;
+        try {
+            transactionSampler = new TransactionSampler(Double.parseDouble(rate.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Invalid sampling_rate init-param", e);
+        }
+        if (config.getInitParameter("sampled_header") != null) {
+            transactionSampler.setHeaderName(config.getInitParameter("sampled_header"));
+        }
+        if (config.getInitParameter("sampled_mdc_key") != null) {
+            transactionSampler.setMdcKey(config.getInitParameter("sampled_mdc_key"));
+        }
+        return transactionSampler;
+    }
+
+    /**
+     * Creates the {@link TraceContextParser} from the trace context init-params, if enabled.
+     */
+    private static TraceContextParser createTraceParser(FilterConfig config) throws ServletException {
+        String format = config.getInitParameter("trace_format");
+        if (format == null) {
+            return null;
+        }
+
+        TraceContextParser parser;
+        try {
+            parser = new TraceContextParser(TraceContextParser.Format.valueOf(format.trim().toUpperCase(
+                    Locale.ENGLISH)));
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Invalid trace_format init-param", e);
+        }
+        if (config.getInitParameter("trace_id_mdc_key") != null) {
+            parser.setTraceIdMdcKey(config.getInitParameter("trace_id_mdc_key"));
+        }
+        if (config.getInitParameter("span_id_mdc_key") != null) {
+            parser.setSpanIdMdcKey(config.getInitParameter("span_id_mdc_key"));
+        }
+        if (config.getInitParameter("trace_flags_mdc_key") != null) {
+            parser.setFlagsMdcKey(config.getInitParameter("trace_flags_mdc_key"));
+        }
+        return parser;
+    }
+
+    /**
+     * Creates the {@link LatencyRecorder} from the timing init-params, if enabled, named after the filter.
+     */
+    static LatencyRecorder createRecorder(Filter filter, FilterConfig config) throws ServletException {
+        if (!Boolean.parseBoolean(config.getInitParameter("timing"))) {
+            return null;
+        }
+
+        String name = config.getFilterName();
+        if (name == null || name.length() == 0) {
+            name = filter.getClass().getSimpleName();
+        }
+        String maxEntryPoints = config.getInitParameter("timing_max_entry_points");
+        if (maxEntryPoints == null) {
+            return new LatencyRecorder(name);
+        }
+        try {
+            return new LatencyRecorder(name, Integer.parseInt(maxEntryPoints.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Invalid timing_max_entry_points init-param", e);
+        }
+    }
+
+    /**
+     * Instantiates the configured {@link TransactionIdGenerator}, through its no-argument constructor.
+     */
+    static TransactionIdGenerator createIdGenerator(String className) throws ServletException {
+        try {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader == null) {
+                classLoader = HttpHeaderServletFilter.class.getClassLoader();
+            }
+            return (TransactionIdGenerator) Class.forName(className, true, classLoader).newInstance();
+        } catch (Exception e) {
+            throw new ServletException("Invalid id_generator: " + className, e);
+        }
     }
 }
\ No newline at end of file
@@ -13,6 +13,12 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.slf4j.MDC;
 
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.principal.PrincipalNameCache;
+
 /**
  * Servlet {@link Filter} for HTTP requests, reading the {@link Principal} from the request and updating the Mapped
  * Diagnostic Context ({@link MDC}) of the request, so the API can be traced and audited.
@@ -54,6 +60,16 @@ import org.slf4j.MDC;
  * </pre>
  * 
  * <p>
+ * Principals building a new name on every call (e.g. JAAS or LDAP ones) can share one instance per user through a
+ * {@link PrincipalNameCache}, enabled with the <b>name_cache_size</b> init-param (number of slots, a few times the
+ * number of active users).
+ * 
+ * <p>
+ * With the <b>timing</b> init-param set to <code>true</code>, the duration of the requests is recorded per entry point
+ * in a {@link LatencyRecorder}, with the same <b>timing_entry_point</b> init-param as the
+ * {@link HttpHeaderServletFilter}.
+ * 
+ * <p>
  * Finally, configure your <code>logback.xml</code> file with the default <b>mcd_key</b>:
  * 
  * <pre>
@@ -82,6 +98,9 @@ public class PrincipalServletFilter implements Filter {
     private static final String ANONYMOUS = "anonymous";
 
     private String mdcKey = DEFAULT_MDC_KEY;
+    private PrincipalNameCache nameCache = null;
+    private LatencyRecorder recorder = null;
+    private String entryPoint = null;
 
     /**
      * {@inheritDoc}
@@ -89,10 +108,22 @@ public class PrincipalServletFilter implements Filter {
      * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
      */
     @Override
-    public void init(FilterConfig config) {
+    public void init(FilterConfig config) throws ServletException {
         if (config.getInitParameter("mdc_key") != null) {
             mdcKey = config.getInitParameter("mdc_key");
         }
+
+        if (config.getInitParameter("name_cache_size") != null) {
+            try {
+                nameCache = new PrincipalNameCache(Integer.parseInt(config.getInitParameter("name_cache_size").trim()));
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Invalid name_cache_size init-param", e);
+            }
+        }
+
+        recorder = HttpHeaderServletFilter.createRecorder(this, config);
+        entryPoint = config.getInitParameter("timing_entry_point");
+        TraceMetrics.register();
     }
 
     /**
@@ -108,16 +139,24 @@ public class PrincipalServletFilter implements Filter {
 
         String username = ANONYMOUS;
         Principal principal = httpRequest.getUserPrincipal();
-        if (principal != null && principal.getName().length() > 0) {
-            username = principal.getName();
+        if (principal != null) {
+            String name = nameCache == null ? principal.getName() : nameCache.getName(principal);
+            if (name != null && name.length() > 0) {
+                username = name;
+            }
         }
+        TraceMetrics.record(Channel.PRINCIPAL, ANONYMOUS.equals(username) ? Outcome.ANONYMOUS : Outcome.TRACED);
 
         MDC.put(mdcKey, username);
 
+        long start = recorder == null ? 0 : System.nanoTime();
         try {
             chain.doFilter(request, response);
         } finally {
             MDC.remove(mdcKey);
+            if (recorder != null) {
+                recorder.record(HttpHeaderServletFilter.entryPoint(httpRequest, entryPoint), System.nanoTime() - start);
+            }
         }
     }
 
@@ -128,6 +167,23 @@ public class PrincipalServletFilter implements Filter {
      */
     @Override
     public void destroy() {
-        // Nothing special...
+        if (recorder != null) {
+            recorder.close();
+        }
+        TraceMetrics.unregister();
+    }
+
+    /**
+     * @return The cache of the principal names, exposing its statistics, or <code>null</code> if disabled.
+     */
+    public PrincipalNameCache getNameCache() {
+        return nameCache;
+    }
+
+    /**
+     * @return The latency histograms of the requests, or <code>null</code> if timing is disabled.
+     */
+    public LatencyRecorder getLatencyRecorder() {
+        return recorder;
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package traceability.logback.filter;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.slf4j.MDC;
+
+/**
+ * {@link AsyncContext} decorator, running the asynchronous tasks and the {@link AsyncListener} callbacks with the
+ * transaction of the request (and its sampling decision, if any) in the Mapped Diagnostic Context ({@link MDC}). The
+ * previous MDC values of the calling container thread are restored afterwards.
+ */
+class TraceableAsyncContext implements AsyncContext {
+
+    private final AsyncContext delegate;
+    private final String[] mdcKeys;
+    private final String[] values;
+
+    /**
+     * Constructor.
+     * 
+     * @param delegate
+     *            The {@link AsyncContext} of the container.
+     * @param mdcKeys
+     *            The keys of the request values in the MDC.
+     * @param values
+     *            The values of the request (the transaction first), in the same order.
+     */
+    TraceableAsyncContext(AsyncContext delegate, String[] mdcKeys, String[] values) {
+        this.delegate = delegate;
+        this.mdcKeys = mdcKeys;
+        this.values = values;
+    }
+
+    /**
+     * Returns <code>true</code> if this is the decorator of the given {@link AsyncContext}.
+     */
+    boolean wraps(AsyncContext context) {
+        return delegate == context;
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+        return delegate.getRequest();
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+        return delegate.getResponse();
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return delegate.hasOriginalRequestAndResponse();
+    }
+
+    @Override
+    public void dispatch() {
+        delegate.dispatch();
+    }
+
+    @Override
+    public void dispatch(String path) {
+        delegate.dispatch(path);
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+        delegate.dispatch(context, path);
+    }
+
+    @Override
+    public void complete() {
+        delegate.complete();
+    }
+
+    @Override
+    public void start(final Runnable run) {
+        delegate.start(new Runnable() {
+            @Override
+            public void run() {
+                String[] previous = install();
+                try {
+                    run.run();
+                } finally {
+                    restore(previous);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+        delegate.addListener(new TraceableAsyncListener(listener));
+    }
+
+    @Override
+    public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+        delegate.addListener(new TraceableAsyncListener(listener), servletRequest, servletResponse);
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+        return delegate.createListener(clazz);
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        delegate.setTimeout(timeout);
+    }
+
+    @Override
+    public long getTimeout() {
+        return delegate.getTimeout();
+    }
+
+    private String[] install() {
+        String[] previous = new String[mdcKeys.length];
+        for (int i = 0; i < mdcKeys.length; i++) {
+            previous[i] = MDC.get(mdcKeys[i]);
+            MDC.put(mdcKeys[i], values[i]);
+        }
+        return previous;
+    }
+
+    private void restore(String[] previous) {
+        for (int i = 0; i < mdcKeys.length; i++) {
+            if (previous[i] == null) {
+                MDC.remove(mdcKeys[i]);
+            } else {
+                MDC.put(mdcKeys[i], previous[i]);
+            }
+        }
+    }
+
+    /**
+     * Listener decorator: the events handed to the application refer to this {@link AsyncContext}, so listeners added
+     * again from {@link AsyncListener#onStartAsync(AsyncEvent)} keep being decorated.
+     */
+    private class TraceableAsyncListener implements AsyncListener {
+
+        private final AsyncListener listener;
+
+        TraceableAsyncListener(AsyncListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            String[] previous = install();
+            try {
+                listener.onComplete(wrap(event));
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            String[] previous = install();
+            try {
+                listener.onTimeout(wrap(event));
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            String[] previous = install();
+            try {
+                listener.onError(wrap(event));
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            String[] previous = install();
+            try {
+                listener.onStartAsync(wrap(event));
+            } finally {
+                restore(previous);
+            }
+        }
+
+        private AsyncEvent wrap(AsyncEvent event) {
+            AsyncContext context = event.getAsyncContext() == delegate ? TraceableAsyncContext.this : new TraceableAsyncContext(
+                    event.getAsyncContext(), mdcKeys, values);
+            return new AsyncEvent(context, event.getSuppliedRequest(), event.getSuppliedResponse(), event.getThrowable());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package traceability.logback.flight;
+
+/**
+ * A recorder buffering the detail of the transactions in progress, until they are known to have failed or succeeded.
+ * The components handling the transactions notify the recorders through {@link FlightRecorders}.
+ */
+public interface FlightRecorder {
+
+    /**
+     * Writes the buffered detail of a failed transaction. The detail logged afterwards is written directly.
+     * 
+     * @param transaction
+     *            The transaction ID.
+     */
+    void flush(String transaction);
+
+    /**
+     * Discards the buffered detail of a completed transaction.
+     * 
+     * @param transaction
+     *            The transaction ID.
+     */
+    void discard(String transaction);
+}
\ No newline at end of file
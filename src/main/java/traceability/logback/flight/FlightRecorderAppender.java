@@ -0,0 +1,387 @@
+package traceability.logback.flight;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import traceability.logback.id.TransactionIdValidator;
+
+/**
+ * Logback appender keeping the detail of every transaction in progress in memory, and writing it to its delegate
+ * appenders only if the transaction fails. This gives the <code>DEBUG</code> detail of the failed transactions, at the
+ * I/O cost of logging at <code>INFO</code>.
+ * 
+ * <p>
+ * The events of a transaction (<code>transaction</code> {@link MDC} key) below the <b>threshold</b> (<code>INFO</code>
+ * by default) are buffered, up to <b>maxBytes</b> (estimated) per transaction: the oldest ones are dropped beyond. The
+ * buffer is flushed to the delegates as soon as an event at the <b>flushLevel</b> (<code>ERROR</code> by default)
+ * arrives for the transaction, or when a filter, an interceptor or a listener sees an exception escape the transaction
+ * it set, and the later events of the transaction are written directly. On success, the buffer is just
+ * dropped. Events at or above the threshold, and events without transaction, are written directly or dropped according
+ * to the threshold:
+ * 
+ * <pre>
+ * {@code
+ *   <configuration>
+ *     <appender name="FILE" class="ch.qos.logback.core.FileAppender">
+ *       ...
+ *     </appender>
+ *     <appender name="FLIGHT" class="traceability.logback.flight.FlightRecorderAppender">
+ *       <maxBytes>65536</maxBytes>
+ *       <appender-ref ref="FILE" />
+ *     </appender>
+ *     <root level="DEBUG">
+ *       <appender-ref ref="FLIGHT" />
+ *     </root>
+ *   </configuration>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The filters, interceptors and listeners end the transactions they set. The transactions of the other threads never
+ * end: when more than <b>maxTransactions</b> are buffered, the ones idle for <b>maxIdle</b> milliseconds are evicted,
+ * or else the least recently used one, so new transactions are always buffered. The buffers of the transactions are
+ * locked by the threads of the transaction only, so they are not contended.
+ */
+public class FlightRecorderAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements
+        AppenderAttachable<ILoggingEvent>, FlightRecorder {
+
+    // Estimated size of an event, besides its message and its exception
+    private static final int EVENT_SIZE = 256;
+    private static final int THROWABLE_SIZE = 4096;
+    private static final long EVICTION_PERIOD = 1000L;
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<ILoggingEvent>();
+    private final ConcurrentMap<String, Buffer> buffers = new ConcurrentHashMap<String, Buffer>();
+    private volatile long lastEviction;
+
+    private String mdcKey = "transaction";
+    private Level threshold = Level.INFO;
+    private Level flushLevel = Level.ERROR;
+    private int maxBytes = 65536;
+    private int maxTransactions = 1024;
+    private long maxIdle = 60000L;
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.UnsynchronizedAppenderBase#start()
+     */
+    @Override
+    public void start() {
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No delegate appender for the flight recorder [" + getName() + "]");
+            return;
+        }
+        super.start();
+        FlightRecorders.register(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.UnsynchronizedAppenderBase#stop()
+     */
+    @Override
+    public void stop() {
+        FlightRecorders.unregister(this);
+        super.stop();
+        buffers.clear();
+        appenders.detachAndStopAllAppenders();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.UnsynchronizedAppenderBase#append(java.lang.Object)
+     */
+    @Override
+    protected void append(ILoggingEvent event) {
+        Level level = event.getLevel();
+        String transaction = event.getMDCPropertyMap().get(mdcKey);
+        if (transaction == null || TransactionIdValidator.ANONYMOUS.equals(transaction)) {
+            if (level.isGreaterOrEqual(threshold)) {
+                appenders.appendLoopOnAppenders(event);
+            }
+            return;
+        }
+
+        if (level.isGreaterOrEqual(flushLevel)) {
+            flush(transaction);
+            appenders.appendLoopOnAppenders(event);
+            return;
+        }
+        if (level.isGreaterOrEqual(threshold)) {
+            appenders.appendLoopOnAppenders(event);
+            return;
+        }
+
+        Buffer buffer = getBuffer(transaction);
+        // The event is kept beyond the logging call: its message and context must be captured now
+        event.prepareForDeferredProcessing();
+        if (!buffer.add(event, sizeOf(event), maxBytes)) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.flight.FlightRecorder#flush(java.lang.String)
+     */
+    @Override
+    public void flush(String transaction) {
+        Buffer buffer = buffers.get(transaction);
+        if (buffer == null) {
+            // Later events of the transaction are written directly
+            buffer = new Buffer();
+            Buffer existing = buffers.putIfAbsent(transaction, buffer);
+            if (existing != null) {
+                buffer = existing;
+            }
+        }
+        for (ILoggingEvent event : buffer.drain()) {
+            appenders.appendLoopOnAppenders(event);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.flight.FlightRecorder#discard(java.lang.String)
+     */
+    @Override
+    public void discard(String transaction) {
+        buffers.remove(transaction);
+    }
+
+    /**
+     * @return The number of transactions with a buffer.
+     */
+    public int getTransactionCount() {
+        return buffers.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#addAppender(ch.qos.logback.core.Appender)
+     */
+    @Override
+    public void addAppender(Appender<ILoggingEvent> newAppender) {
+        appenders.addAppender(newAppender);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#iteratorForAppenders()
+     */
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#getAppender(java.lang.String)
+     */
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#isAttached(ch.qos.logback.core.Appender)
+     */
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#detachAndStopAllAppenders()
+     */
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#detachAppender(ch.qos.logback.core.Appender)
+     */
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.spi.AppenderAttachable#detachAppender(java.lang.String)
+     */
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param threshold
+     *            The threshold to set: events at this level or higher are never buffered.
+     */
+    public void setThreshold(Level threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param flushLevel
+     *            The flushLevel to set: events at this level or higher flush the buffer of their transaction.
+     */
+    public void setFlushLevel(Level flushLevel) {
+        this.flushLevel = flushLevel;
+    }
+
+    /**
+     * @param maxBytes
+     *            The maxBytes to set, estimated size of the events buffered per transaction.
+     */
+    public void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param maxTransactions
+     *            The maxTransactions to set.
+     */
+    public void setMaxTransactions(int maxTransactions) {
+        this.maxTransactions = maxTransactions;
+    }
+
+    /**
+     * @param maxIdle
+     *            The maxIdle to set, in milliseconds.
+     */
+    public void setMaxIdle(long maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns the buffer of a transaction, creating it if needed.
+     * 
+     * @return The buffer, making room by evicting the idle or else the least recently used buffers if needed.
+     */
+    private Buffer getBuffer(String transaction) {
+        Buffer buffer = buffers.get(transaction);
+        if (buffer != null) {
+            return buffer;
+        }
+        if (buffers.size() >= maxTransactions && !evictIdle()) {
+            evictLeastRecentlyUsed();
+        }
+        buffer = new Buffer();
+        Buffer existing = buffers.putIfAbsent(transaction, buffer);
+        return existing == null ? buffer : existing;
+    }
+
+    /**
+     * Removes the buffers idle for more than <b>maxIdle</b>, at most once per second.
+     * 
+     * @return <code>true</code> if room was made for a new transaction.
+     */
+    private boolean evictIdle() {
+        long now = System.currentTimeMillis();
+        if (now - lastEviction < EVICTION_PERIOD) {
+            return false;
+        }
+        lastEviction = now;
+
+        for (Iterator<Buffer> i = buffers.values().iterator(); i.hasNext();) {
+            if (now - i.next().lastUpdate > maxIdle) {
+                i.remove();
+            }
+        }
+        return buffers.size() < maxTransactions;
+    }
+
+    /**
+     * Removes the buffer updated the longest time ago.
+     */
+    private void evictLeastRecentlyUsed() {
+        Map.Entry<String, Buffer> oldest = null;
+        for (Map.Entry<String, Buffer> entry : buffers.entrySet()) {
+            if (oldest == null || entry.getValue().lastUpdate < oldest.getValue().lastUpdate) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            buffers.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private static int sizeOf(ILoggingEvent event) {
+        String message = event.getFormattedMessage();
+        int size = EVENT_SIZE + (message == null ? 0 : 2 * message.length());
+        return event.getThrowableProxy() == null ? size : size + THROWABLE_SIZE;
+    }
+
+    /**
+     * The events of a transaction, oldest first.
+     */
+    private static class Buffer {
+
+        private final ArrayDeque<ILoggingEvent> events = new ArrayDeque<ILoggingEvent>();
+        private long bytes;
+        private boolean flushed;
+        volatile long lastUpdate = System.currentTimeMillis();
+
+        /**
+         * @return <code>false</code> if the buffer has been flushed, so the event must be written directly.
+         */
+        synchronized boolean add(ILoggingEvent event, int size, int maxBytes) {
+            if (flushed) {
+                return false;
+            }
+            events.addLast(event);
+            bytes += size;
+            while (bytes > maxBytes && !events.isEmpty()) {
+                bytes -= sizeOf(events.removeFirst());
+            }
+            lastUpdate = System.currentTimeMillis();
+            return true;
+        }
+
+        synchronized ILoggingEvent[] drain() {
+            flushed = true;
+            ILoggingEvent[] drained = events.toArray(new ILoggingEvent[events.size()]);
+            events.clear();
+            bytes = 0;
+            return drained;
+        }
+    }
+}
\ No newline at end of file
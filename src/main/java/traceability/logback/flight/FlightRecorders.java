@@ -0,0 +1,69 @@
+package traceability.logback.flight;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registry of the started {@link FlightRecorder}, notified of the end of every transaction by the filters and
+ * interceptors. Depends on no logging implementation, so the filters may call it whether Logback is deployed or not.
+ * 
+ * <p>
+ * The recorders are an array, replaced as a whole on every change: notifying the end of a transaction takes no lock,
+ * and costs a single volatile read when no recorder is started.
+ */
+public final class FlightRecorders {
+
+    private static final FlightRecorder[] NONE = new FlightRecorder[0];
+
+    private static volatile FlightRecorder[] recorders = NONE;
+
+    private FlightRecorders() {
+        super();
+    }
+
+    /**
+     * Notifies the end of a transaction to every started recorder: the detail of a failed transaction is flushed, then
+     * the buffer of the transaction is discarded.
+     * 
+     * @param transaction
+     *            The transaction ID, may be <code>null</code>.
+     * @param failed
+     *            <code>true</code> if the transaction failed.
+     */
+    public static void endTransaction(String transaction, boolean failed) {
+        FlightRecorder[] current = recorders;
+        if (current == NONE || transaction == null) {
+            return;
+        }
+        for (FlightRecorder recorder : current) {
+            if (failed) {
+                recorder.flush(transaction);
+            }
+            recorder.discard(transaction);
+        }
+    }
+
+    /**
+     * @param recorder
+     *            The recorder to notify.
+     */
+    public static synchronized void register(FlightRecorder recorder) {
+        List<FlightRecorder> updated = new ArrayList<FlightRecorder>(Arrays.asList(recorders));
+        if (!updated.contains(recorder)) {
+            updated.add(recorder);
+            recorders = updated.toArray(new FlightRecorder[updated.size()]);
+        }
+    }
+
+    /**
+     * @param recorder
+     *            The recorder not to notify anymore.
+     */
+    public static synchronized void unregister(FlightRecorder recorder) {
+        List<FlightRecorder> updated = new ArrayList<FlightRecorder>(Arrays.asList(recorders));
+        if (updated.remove(recorder)) {
+            recorders = updated.isEmpty() ? NONE : updated.toArray(new FlightRecorder[updated.size()]);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package traceability.logback.http;
+
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+
+import org.slf4j.MDC;
+
+import traceability.logback.concurrent.ScopedContext;
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+
+/**
+ * A thread-safe helper for raw {@link HttpURLConnection} calls, that reads the transaction field from the Mapped
+ * Diagnostic Context ({@link MDC}) of the request and injects it in the request headers, so the called service reads it
+ * back with its {@link HttpHeaderServletFilter}. The sampling decision of the transaction (see
+ * {@link TransactionSampler}), if any, is forwarded as well.
+ * 
+ * <p>
+ * In order to use the helper, propagate the transaction before connecting:
+ * 
+ * <pre>
+ * {@code
+ *   private HttpHeaderPropagator propagator = new HttpHeaderPropagator();
+ *   ...
+ *   HttpURLConnection connection = propagator.propagate((HttpURLConnection) url.openConnection());
+ *   ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The <b>headerName</b> (<code>x-transaction</code> by default) must match the configuration of the
+ * {@link HttpHeaderServletFilter} of the called services. No header is written if the MDC holds no transaction.
+ */
+public class HttpHeaderPropagator {
+
+    private static final String DEFAULT_HEADER_NAME = "x-transaction";
+    private static final String DEFAULT_MDC_KEY = "transaction";
+
+    private String headerName = DEFAULT_HEADER_NAME;
+    private String mdcKey = DEFAULT_MDC_KEY;
+    private String sampledHeaderName = TransactionSampler.DEFAULT_HEADER_NAME;
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+
+    /**
+     * Constructor.
+     */
+    public HttpHeaderPropagator() {
+        super();
+    }
+
+    /**
+     * Constructor with all available configurations.
+     */
+    public HttpHeaderPropagator(String mdcKey, String headerName) {
+        super();
+        this.mdcKey = mdcKey;
+        this.headerName = headerName;
+    }
+
+    /**
+     * Injects the transaction of the current thread in the request headers of a connection not connected yet.
+     * 
+     * @param connection
+     *            The connection to the called service.
+     * @return The same connection.
+     */
+    public <C extends URLConnection> C propagate(C connection) {
+        String transaction = ScopedContext.lookup(mdcKey);
+        if (transaction == null || transaction.length() == 0) {
+            TraceMetrics.record(Channel.HTTP_OUT, Outcome.SKIPPED);
+            return connection;
+        }
+        connection.setRequestProperty(headerName, transaction);
+
+        String sampled = ScopedContext.lookup(sampledMdcKey);
+        if (sampled != null && sampled.length() > 0) {
+            connection.setRequestProperty(sampledHeaderName, sampled);
+        }
+        TraceMetrics.record(Channel.HTTP_OUT, Outcome.TRACED);
+        return connection;
+    }
+
+    /**
+     * @param headerName
+     *            The headerName to set.
+     */
+    public void setHeaderName(String headerName) {
+        this.headerName = headerName;
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param sampledHeaderName
+     *            The sampledHeaderName to set.
+     */
+    public void setSampledHeaderName(String sampledHeaderName) {
+        this.sampledHeaderName = sampledHeaderName;
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+}
\ No newline at end of file
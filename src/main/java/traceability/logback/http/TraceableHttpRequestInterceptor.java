@@ -0,0 +1,113 @@
+package traceability.logback.http;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.MDC;
+
+import traceability.logback.concurrent.ScopedContext;
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+
+/**
+ * A thread-safe Apache HttpClient {@link HttpRequestInterceptor}, that reads the transaction field from the Mapped
+ * Diagnostic Context ({@link MDC}) of the request and injects it in the request headers, so the called service reads it
+ * back with its {@link HttpHeaderServletFilter}. The sampling decision of the transaction (see
+ * {@link TransactionSampler}), if any, is forwarded as well.
+ * 
+ * <p>
+ * In order to use the interceptor, add it to the client:
+ * 
+ * <pre>
+ * {@code
+ *   CloseableHttpClient client = HttpClients.custom().addInterceptorLast(new TraceableHttpRequestInterceptor()).build();
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The <b>headerName</b> (<code>x-transaction</code> by default) must match the configuration of the
+ * {@link HttpHeaderServletFilter} of the called services. No header is written if the MDC holds no transaction.
+ */
+public class TraceableHttpRequestInterceptor implements HttpRequestInterceptor {
+
+    private static final String DEFAULT_HEADER_NAME = "x-transaction";
+    private static final String DEFAULT_MDC_KEY = "transaction";
+
+    private String headerName = DEFAULT_HEADER_NAME;
+    private String mdcKey = DEFAULT_MDC_KEY;
+    private String sampledHeaderName = TransactionSampler.DEFAULT_HEADER_NAME;
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+
+    /**
+     * Constructor.
+     */
+    public TraceableHttpRequestInterceptor() {
+        super();
+    }
+
+    /**
+     * Constructor with all available configurations.
+     */
+    public TraceableHttpRequestInterceptor(String mdcKey, String headerName) {
+        super();
+        this.mdcKey = mdcKey;
+        this.headerName = headerName;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.apache.http.HttpRequestInterceptor#process(org.apache.http.HttpRequest,
+     *      org.apache.http.protocol.HttpContext)
+     */
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        String transaction = ScopedContext.lookup(mdcKey);
+        if (transaction == null || transaction.length() == 0) {
+            TraceMetrics.record(Channel.HTTP_OUT, Outcome.SKIPPED);
+            return;
+        }
+        request.setHeader(headerName, transaction);
+
+        String sampled = ScopedContext.lookup(sampledMdcKey);
+        if (sampled != null && sampled.length() > 0) {
+            request.setHeader(sampledHeaderName, sampled);
+        }
+        TraceMetrics.record(Channel.HTTP_OUT, Outcome.TRACED);
+    }
+
+    /**
+     * @param headerName
+     *            The headerName to set.
+     */
+    public void setHeaderName(String headerName) {
+        this.headerName = headerName;
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param sampledHeaderName
+     *            The sampledHeaderName to set.
+     */
+    public void setSampledHeaderName(String sampledHeaderName) {
+        this.sampledHeaderName = sampledHeaderName;
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+}
\ No newline at end of file
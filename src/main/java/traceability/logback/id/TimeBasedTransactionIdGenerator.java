@@ -0,0 +1,143 @@
+package traceability.logback.id;
+
+import java.lang.management.ManagementFactory;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free {@link TransactionIdGenerator}, creating 128-bit IDs that sort by creation time and are unique across
+ * nodes in practice, encoded as 26 Crockford base32 characters (the same text layout as a ULID).
+ * 
+ * <p>
+ * Each ID is made of:
+ * <ul>
+ * <li>48 bits: the creation time, in milliseconds since the epoch.</li>
+ * <li>24 bits: the node ID, set explicitly or derived from the JVM name (<code>pid@host</code>) and its start time.</li>
+ * <li>24 bits: the stripe of the generating thread, assigned once per thread.</li>
+ * <li>32 bits: a sequence, owned by the generating thread.</li>
+ * </ul>
+ * 
+ * <p>
+ * As the stripe and the sequence belong to the generating thread, an ID is created with no lock, no shared counter and
+ * no random source: the only per-call allocation is the resulting {@link String}. The sequence is never reset, so the
+ * uniqueness does not depend on the clock moving forward.
+ * 
+ * <p>
+ * A derived node ID is a 24-bit hash, so two JVMs of a large fleet may share it. The stripes are therefore counted
+ * from a random value drawn once per JVM, and each sequence starts at a random value drawn once per thread: two JVMs
+ * with the same node ID would have to generate in the same millisecond from threads with the same stripe at the same
+ * point of their sequences to collide. The stripe counter wraps after 2<sup>24</sup> threads, after which two threads
+ * of the same JVM share a stripe, still with sequences starting at different random values.
+ */
+public class TimeBasedTransactionIdGenerator implements TransactionIdGenerator {
+
+    /** Length of every generated ID. */
+    public static final int LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final int TIMESTAMP_CHARS = 10;
+    private static final int CHUNK_CHARS = 8;
+    private static final int NODE_BITS = 24;
+    private static final int NODE_MASK = (1 << NODE_BITS) - 1;
+    private static final int STRIPE_MASK = (1 << 24) - 1;
+    private static final long TIMESTAMP_MASK = (1L << 48) - 1;
+
+    private static final Random seeds = new SecureRandom();
+    private static final AtomicInteger stripes = new AtomicInteger(seeds.nextInt());
+
+    private final int node;
+
+    private final ThreadLocal<ThreadState> state = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState(stripes.getAndIncrement() & STRIPE_MASK, seeds.nextInt());
+        }
+    };
+
+    /**
+     * Constructor, deriving the node ID from the running JVM.
+     */
+    public TimeBasedTransactionIdGenerator() {
+        this(defaultNode());
+    }
+
+    /**
+     * Constructor with an explicit node ID.
+     * 
+     * @param node
+     *            The node ID, only the lowest 24 bits are used.
+     */
+    public TimeBasedTransactionIdGenerator(int node) {
+        super();
+        this.node = node & NODE_MASK;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.id.TransactionIdGenerator#generate()
+     */
+    @Override
+    public String generate() {
+        ThreadState current = state.get();
+        int sequence = current.sequence++;
+
+        char[] buffer = current.buffer;
+        encode(buffer, 0, TIMESTAMP_CHARS, System.currentTimeMillis() & TIMESTAMP_MASK);
+        encode(buffer, TIMESTAMP_CHARS, CHUNK_CHARS, ((long) node << 16) | (current.stripe >>> 8));
+        encode(buffer, TIMESTAMP_CHARS + CHUNK_CHARS, CHUNK_CHARS, ((long) (current.stripe & 0xFF) << 32)
+                | (sequence & 0xFFFFFFFFL));
+
+        return new String(buffer, 0, LENGTH);
+    }
+
+    /**
+     * @return The node ID of this generator.
+     */
+    public int getNode() {
+        return node;
+    }
+
+    /**
+     * Writes the lowest <code>length * 5</code> bits of the value, most significant first.
+     */
+    private static void encode(char[] buffer, int offset, int length, long value) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+
+    /**
+     * The JVM name usually reads as <code>pid@host</code>, the start time tells apart restarts reusing the pid.
+     */
+    private static int defaultNode() {
+        long seed = ManagementFactory.getRuntimeMXBean().getName().hashCode() * 0x9E3779B97F4A7C15L;
+        seed ^= ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        // Final mix of MurmurHash3, so close inputs do not end up on close node IDs
+        seed ^= seed >>> 33;
+        seed *= 0xFF51AFD7ED558CCDL;
+        seed ^= seed >>> 33;
+        seed *= 0xC4CEB9FE1A85EC53L;
+        seed ^= seed >>> 33;
+        return (int) seed;
+    }
+
+    /**
+     * Per-thread state: never shared, so no synchronization is needed.
+     */
+    private static final class ThreadState {
+
+        final int stripe;
+        final char[] buffer = new char[LENGTH];
+        int sequence;
+
+        ThreadState(int stripe, int sequence) {
+            this.stripe = stripe;
+            this.sequence = sequence;
+        }
+    }
+}
\ No newline at end of file
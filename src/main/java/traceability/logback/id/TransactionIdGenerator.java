@@ -0,0 +1,19 @@
+package traceability.logback.id;
+
+/**
+ * Source of new transaction IDs, used when a request arrives without one.
+ * 
+ * <p>
+ * Implementations must be thread-safe, as a single instance is shared by all the threads serving requests, and must
+ * provide a public no-argument constructor in order to be configured by class name (see the <b>id_generator</b>
+ * init-param of the <code>HttpHeaderServletFilter</code>).
+ */
+public interface TransactionIdGenerator {
+
+    /**
+     * Creates a new transaction ID.
+     * 
+     * @return A new, non-empty, transaction ID.
+     */
+    String generate();
+}
\ No newline at end of file
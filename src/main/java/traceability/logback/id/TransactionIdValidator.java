@@ -0,0 +1,192 @@
+package traceability.logback.id;
+
+import traceability.logback.metrics.StripedCounters;
+
+/**
+ * A thread-safe validator of incoming transaction IDs, so a client cannot push oversized values or control characters
+ * (such as CR/LF) into every log line and every header propagated downstream.
+ * 
+ * <p>
+ * A transaction ID is valid when it is not longer than <b>maxLength</b> characters and it is only made of ASCII letters,
+ * digits and the <b>allowedChars</b>. The check is a single bounded pass over the characters, with a lookup table and
+ * no regular expression: at most <b>maxLength</b> + 1 characters are read, whatever the size of the value.
+ * 
+ * <p>
+ * Valid values are returned as they are. Invalid ones are handled according to the configured {@link Policy}, and every
+ * outcome is counted. The invalid values that cannot be kept are replaced the same way as missing ones: with a new
+ * transaction ID from the <b>idGenerator</b>, or with {@link #ANONYMOUS} if none is set.
+ */
+public class TransactionIdValidator {
+
+    /**
+     * How invalid transaction IDs are handled.
+     */
+    public enum Policy {
+
+        /**
+         * The value is cut at the first invalid character or at <b>maxLength</b>, whichever comes first. If nothing is
+         * left, the value is replaced as with {@link #GENERATE}.
+         */
+        TRUNCATE,
+
+        /**
+         * The value is replaced with a new transaction ID, or with {@link TransactionIdValidator#ANONYMOUS} if no
+         * <b>idGenerator</b> is set.
+         */
+        GENERATE,
+
+        /**
+         * The value is rejected, and the request should not be served.
+         */
+        REJECT
+    }
+
+    /** Replacement of the invalid transaction IDs without <b>idGenerator</b>, as for the missing ones. */
+    public static final String ANONYMOUS = "anonymous";
+
+    /** Default maximum length of a transaction ID. */
+    public static final int DEFAULT_MAX_LENGTH = 128;
+
+    /** Default characters allowed besides ASCII letters and digits. */
+    public static final String DEFAULT_ALLOWED_CHARS = "-_.:";
+
+    private static final int ASCII = 128;
+
+    private int maxLength = DEFAULT_MAX_LENGTH;
+    private boolean[] allowed = createTable(DEFAULT_ALLOWED_CHARS);
+    private Policy policy = Policy.TRUNCATE;
+    private TransactionIdGenerator idGenerator = null;
+
+    private static final int TRUNCATED = 0;
+    private static final int GENERATED = 1;
+    private static final int REJECTED = 2;
+
+    private final StripedCounters counters = new StripedCounters(3);
+
+    /**
+     * Validates a transaction ID.
+     * 
+     * @param transaction
+     *            The non-empty transaction ID to validate.
+     * @return The same transaction ID if valid, otherwise its replacement according to the {@link Policy}, or
+     *         <code>null</code> if it is rejected.
+     */
+    public String validate(String transaction) {
+        int invalidAt = findInvalid(transaction);
+        if (invalidAt < 0) {
+            return transaction;
+        }
+
+        switch (policy) {
+        case REJECT:
+            counters.increment(REJECTED);
+            return null;
+        case TRUNCATE:
+            if (invalidAt > 0) {
+                counters.increment(TRUNCATED);
+                return transaction.substring(0, invalidAt);
+            }
+            // Nothing left to keep...
+        default:
+            counters.increment(GENERATED);
+            return idGenerator == null ? ANONYMOUS : idGenerator.generate();
+        }
+    }
+
+    /**
+     * @param maxLength
+     *            The maxLength to set.
+     */
+    public void setMaxLength(int maxLength) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("maxLength must be positive: " + maxLength);
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param allowedChars
+     *            The characters allowed besides ASCII letters and digits.
+     */
+    public void setAllowedChars(String allowedChars) {
+        this.allowed = createTable(allowedChars);
+    }
+
+    /**
+     * @param policy
+     *            The policy to set.
+     */
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * @param idGenerator
+     *            The idGenerator to set, used to replace invalid transaction IDs, or <code>null</code> to replace them
+     *            with {@link #ANONYMOUS}.
+     */
+    public void setIdGenerator(TransactionIdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * @return The number of transaction IDs truncated so far.
+     */
+    public long getTruncatedCount() {
+        return counters.get(TRUNCATED);
+    }
+
+    /**
+     * @return The number of transaction IDs replaced with a generated one (or {@link #ANONYMOUS}) so far.
+     */
+    public long getGeneratedCount() {
+        return counters.get(GENERATED);
+    }
+
+    /**
+     * @return The number of transaction IDs rejected so far.
+     */
+    public long getRejectedCount() {
+        return counters.get(REJECTED);
+    }
+
+    /**
+     * Returns the index of the first invalid character, <b>maxLength</b> if the value is too long, or -1 if the value is
+     * valid.
+     */
+    private int findInvalid(String transaction) {
+        boolean[] table = allowed;
+        int length = transaction.length();
+        int limit = length < maxLength ? length : maxLength;
+
+        for (int i = 0; i < limit; i++) {
+            char c = transaction.charAt(i);
+            if (c >= ASCII || !table[c]) {
+                return i;
+            }
+        }
+        return length > maxLength ? maxLength : -1;
+    }
+
+    private static boolean[] createTable(String allowedChars) {
+        boolean[] table = new boolean[ASCII];
+        for (char c = '0'; c <= '9'; c++) {
+            table[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[c] = true;
+            table[Character.toUpperCase(c)] = true;
+        }
+
+        if (allowedChars != null) {
+            for (int i = 0; i < allowedChars.length(); i++) {
+                char c = allowedChars.charAt(i);
+                if (c < ' ' || c >= ASCII - 1) {
+                    throw new IllegalArgumentException("Only printable ASCII characters may be allowed: " + (int) c);
+                }
+                table[c] = true;
+            }
+        }
+        return table;
+    }
+}
\ No newline at end of file
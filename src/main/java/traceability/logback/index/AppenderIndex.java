@@ -0,0 +1,134 @@
+package traceability.logback.index;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.spi.ContextAware;
+
+import traceability.logback.id.TransactionIdValidator;
+
+/**
+ * The index written by an indexed appender alongside its current log file: counts the bytes written to the file, and
+ * appends the record of every event of a transaction through a {@link TransactionIndexWriter}. Used under the lock of
+ * the appender.
+ */
+final class AppenderIndex {
+
+    private final ContextAware appender;
+
+    private String mdcKey = "transaction";
+    private int segmentRecords = 1 << 20;
+
+    private TransactionIndexWriter writer;
+    private CountingOutputStream counter;
+    private File openingFile;
+
+    /**
+     * Constructor.
+     * 
+     * @param appender
+     *            The appender, reporting the errors.
+     */
+    AppenderIndex(ContextAware appender) {
+        this.appender = appender;
+    }
+
+    /**
+     * Closes the index of the previous file before the appender opens a log file.
+     */
+    void opening(String fileName) {
+        close();
+        openingFile = new File(fileName);
+    }
+
+    /**
+     * Opens the index of a log file once the appender opened it.
+     */
+    void opened(String fileName, boolean append) {
+        openingFile = null;
+        try {
+            writer = new TransactionIndexWriter(new File(fileName), segmentRecords, append);
+        } catch (IOException e) {
+            appender.addError("Unable to open the transaction index of [" + fileName + "]", e);
+            writer = null;
+        }
+    }
+
+    /**
+     * Counts the bytes written to the log file being opened.
+     */
+    OutputStream wrap(OutputStream outputStream) {
+        // The file is already opened, so its length is the offset of the first event
+        counter = new CountingOutputStream(outputStream, openingFile == null ? 0 : openingFile.length());
+        return counter;
+    }
+
+    /**
+     * @return The offset of the next event in the log file.
+     */
+    long offset() {
+        return counter.count;
+    }
+
+    /**
+     * Indexes an event written from an offset, if logged within a transaction.
+     */
+    void written(ILoggingEvent event, long offset, String fileName) {
+        String transaction = event.getMDCPropertyMap().get(mdcKey);
+        if (writer != null && transaction != null && !TransactionIdValidator.ANONYMOUS.equals(transaction)) {
+            try {
+                writer.append(transaction, offset, counter.count - offset);
+            } catch (IOException e) {
+                // The log must go on without its index
+                appender.addError("Unable to write the transaction index of [" + fileName + "]", e);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Sorts and closes the index of the current log file, if any.
+     */
+    void close() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    void setSegmentRecords(int segmentRecords) {
+        this.segmentRecords = segmentRecords;
+    }
+
+    /**
+     * Counts the bytes written to the log file.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package traceability.logback.index;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+
+/**
+ * Logback {@link FileAppender} writing, alongside the log file, an index of the events of every transaction
+ * (<code>transaction</code> {@link MDC} key), so the events of a transaction are found with a {@link TransactionIndex}
+ * lookup instead of a scan of the whole log:
+ * 
+ * <pre>
+ * {@code
+ *   <appender name="FILE" class="traceability.logback.index.IndexedFileAppender">
+ *     <file>/var/log/app.log</file>
+ *     <encoder>
+ *       <pattern>%d %X{transaction} %level %logger - %msg%n</pattern>
+ *     </encoder>
+ *   </appender>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The byte offset of every event is counted as it is written, and the index record is appended under the lock of the
+ * file, through a {@link TransactionIndexWriter}. Events without transaction, or of the <code>anonymous</code>
+ * transaction, are not indexed. The offsets must match the file, so the <b>prudent</b> mode, where several processes
+ * share the file, is not supported. The index is not rolled along with the file: use the
+ * {@link IndexedRollingFileAppender} instead.
+ */
+public class IndexedFileAppender extends FileAppender<ILoggingEvent> {
+
+    private final AppenderIndex index = new AppenderIndex(this);
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.FileAppender#start()
+     */
+    @Override
+    public void start() {
+        if (isPrudent()) {
+            addError("The prudent mode is not supported by the indexed appender [" + getName() + "]");
+            return;
+        }
+        super.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.OutputStreamAppender#stop()
+     */
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            super.stop();
+            index.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.FileAppender#openFile(java.lang.String)
+     */
+    @Override
+    public void openFile(String fileName) throws IOException {
+        synchronized (lock) {
+            index.opening(fileName);
+            super.openFile(fileName);
+            index.opened(fileName, isAppend());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.OutputStreamAppender#setOutputStream(java.io.OutputStream)
+     */
+    @Override
+    public void setOutputStream(OutputStream outputStream) {
+        super.setOutputStream(index.wrap(outputStream));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.FileAppender#writeOut(java.lang.Object)
+     */
+    @Override
+    protected void writeOut(ILoggingEvent event) throws IOException {
+        long offset = index.offset();
+        super.writeOut(event);
+        index.written(event, offset, getFile());
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        index.setMdcKey(mdcKey);
+    }
+
+    /**
+     * @param segmentRecords
+     *            The segmentRecords to set, number of records of each index segment (16 bytes each).
+     */
+    public void setSegmentRecords(int segmentRecords) {
+        index.setSegmentRecords(segmentRecords);
+    }
+}
\ No newline at end of file
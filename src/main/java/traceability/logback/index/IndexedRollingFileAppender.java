@@ -0,0 +1,191 @@
+package traceability.logback.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.RollingPolicy;
+import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
+import ch.qos.logback.core.rolling.helper.CompressionMode;
+
+/**
+ * Logback {@link RollingFileAppender} writing an index of the events of every transaction (<code>transaction</code>
+ * {@link MDC} key) alongside each log file, as the {@link IndexedFileAppender} does, so each rolled file keeps its own
+ * index:
+ * 
+ * <pre>
+ * {@code
+ *   <appender name="FILE" class="traceability.logback.index.IndexedRollingFileAppender">
+ *     <file>/var/log/app.log</file>
+ *     <rollingPolicy class="ch.qos.logback.core.rolling.TimeBasedRollingPolicy">
+ *       <fileNamePattern>/var/log/app-%d{yyyy-MM-dd}.log</fileNamePattern>
+ *       <maxHistory>30</maxHistory>
+ *     </rollingPolicy>
+ *     <encoder>
+ *       <pattern>%d %X{transaction} %level %logger - %msg%n</pattern>
+ *     </encoder>
+ *   </appender>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * On a rollover, the index of the active file is sorted, closed, and renamed along with the file, then a new index is
+ * started for the new file. The indexes of the files deleted by the <b>maxHistory</b> of the policy are deleted too.
+ * Only the {@link TimeBasedRollingPolicy} (and its size and time based variant) is supported, as the name of the rolled
+ * file is known, and without compression, as the offsets of the index would not match a compressed file. The
+ * <b>prudent</b> mode is not supported either.
+ */
+public class IndexedRollingFileAppender extends RollingFileAppender<ILoggingEvent> {
+
+    private final AppenderIndex index = new AppenderIndex(this);
+
+    private String rolledFile;
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.rolling.RollingFileAppender#start()
+     */
+    @Override
+    public void start() {
+        if (isPrudent()) {
+            addError("The prudent mode is not supported by the indexed appender [" + getName() + "]");
+            return;
+        }
+        RollingPolicy policy = getRollingPolicy();
+        if (policy != null && !(policy instanceof TimeBasedRollingPolicy)) {
+            addError("Only the TimeBasedRollingPolicy is supported by the indexed appender [" + getName() + "]");
+            return;
+        }
+        if (policy != null && policy.getCompressionMode() != CompressionMode.NONE) {
+            addError("Compression is not supported by the indexed appender [" + getName() + "]");
+            return;
+        }
+        super.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.OutputStreamAppender#stop()
+     */
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            super.stop();
+            index.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.rolling.RollingFileAppender#rollover()
+     */
+    @Override
+    public void rollover() {
+        synchronized (lock) {
+            if (rawFileProperty() != null) {
+                // The policy renames the active file to the file of the elapsed period
+                rolledFile = ((TimeBasedRollingPolicy<?>) getRollingPolicy())
+                        .getTimeBasedFileNamingAndTriggeringPolicy().getElapsedPeriodsFileName();
+            }
+            try {
+                super.rollover();
+            } finally {
+                rolledFile = null;
+            }
+            deleteOrphanIndexes(new File(getFile()).getAbsoluteFile().getParentFile());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.FileAppender#openFile(java.lang.String)
+     */
+    @Override
+    public void openFile(String fileName) throws IOException {
+        synchronized (lock) {
+            index.opening(fileName);
+            if (rolledFile != null && !new File(fileName).exists()
+                    && !TransactionIndexWriter.rename(new File(fileName), new File(rolledFile))) {
+                addError("Unable to rename the transaction index of [" + fileName + "] to [" + rolledFile + "]");
+            }
+            super.openFile(fileName);
+            index.opened(fileName, isAppend());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.OutputStreamAppender#setOutputStream(java.io.OutputStream)
+     */
+    @Override
+    public void setOutputStream(OutputStream outputStream) {
+        super.setOutputStream(index.wrap(outputStream));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.core.FileAppender#writeOut(java.lang.Object)
+     */
+    @Override
+    protected void writeOut(ILoggingEvent event) throws IOException {
+        long offset = index.offset();
+        super.writeOut(event);
+        index.written(event, offset, getFile());
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        index.setMdcKey(mdcKey);
+    }
+
+    /**
+     * @param segmentRecords
+     *            The segmentRecords to set, number of records of each index segment (16 bytes each).
+     */
+    public void setSegmentRecords(int segmentRecords) {
+        index.setSegmentRecords(segmentRecords);
+    }
+
+    /**
+     * Deletes the index segments of the log files removed from a directory, e.g. by the <b>maxHistory</b> of the
+     * policy.
+     */
+    private static void deleteOrphanIndexes(File directory) {
+        File[] files = directory == null ? null : directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            int suffix = name.lastIndexOf(".idx.");
+            if (suffix > 0 && isNumber(name, suffix + 5) && !new File(directory, name.substring(0, suffix)).exists()) {
+                file.delete();
+            }
+        }
+    }
+
+    private static boolean isNumber(String name, int start) {
+        if (start == name.length()) {
+            return false;
+        }
+        for (int i = start; i < name.length(); i++) {
+            if (name.charAt(i) < '0' || name.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,443 @@
+package traceability.logback.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import traceability.logback.id.TransactionIdValidator;
+
+/**
+ * Offline scanner extracting the lines of one or more transactions from log files written without a
+ * {@link TransactionIndex}, e.g. rotated logs and their gzip archives. The transaction IDs are searched as they are
+ * written in the logs, whatever they came from (<code>x-transaction</code> header, JMS <code>transaction</code>
+ * property, <code>SOAPTransaction</code> header), as whole IDs: a match must not be preceded or followed by a letter,
+ * a digit or one of <code>-_.:</code>, so that an ID never matches the longer IDs starting or ending with it.
+ * 
+ * <p>
+ * Plain files are memory-mapped in chunks ending on a line boundary, scanned in parallel, and the matching lines are
+ * written in the order of the file. The search reads the chunks 8 bytes at a time, looking for the first two bytes of
+ * the transaction IDs in the whole word at once, so that no line is ever decoded or copied unless it matches. Gzip
+ * archives (<code>.gz</code>) are inflated and scanned by the calling thread.
+ * 
+ * <pre>
+ * {@code
+ *   java -cp traceability.jar traceability.logback.index.LogScanner -x 4f1c2a9e app.log.2.gz app.log.1 app.log
+ * }
+ * </pre>
+ */
+public class LogScanner {
+
+    static final int DEFAULT_CHUNK_SIZE = 32 << 20;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final int COPY_SIZE = 8192;
+    private static final int INFLATE_SIZE = 1 << 20;
+    private static final boolean[] ID_BYTES = createIdBytes();
+
+    private final byte[][] patterns;
+    private final long[] firsts;
+    private final long[] seconds;
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Constructor, searching the transaction IDs as UTF-8.
+     * 
+     * @param transactions
+     *            The transaction IDs to extract.
+     * @param threads
+     *            The number of threads scanning the chunks of a file.
+     */
+    public LogScanner(Collection<String> transactions, int threads) {
+        this(transactions, threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    LogScanner(Collection<String> transactions, int threads, int chunkSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        Charset charset = Charset.forName("UTF-8");
+        List<byte[]> encoded = new ArrayList<byte[]>();
+        for (String transaction : new LinkedHashSet<String>(transactions)) {
+            if (transaction == null || transaction.length() == 0) {
+                throw new IllegalArgumentException("Empty transaction ID");
+            }
+            encoded.add(transaction.getBytes(charset));
+        }
+        if (encoded.isEmpty()) {
+            throw new IllegalArgumentException("No transaction ID");
+        }
+
+        this.patterns = encoded.toArray(new byte[encoded.size()][]);
+        this.firsts = new long[patterns.length];
+        this.seconds = new long[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            firsts[i] = broadcast(patterns[i][0]);
+            seconds[i] = patterns[i].length > 1 ? broadcast(patterns[i][1]) : 0;
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Command line entry point.
+     * 
+     * <pre>
+     * LogScanner [-t threads] -x transaction [-x transaction...] file...
+     * </pre>
+     * 
+     * Exits with <code>0</code> if lines were found, <code>1</code> if none, <code>2</code> on error.
+     * 
+     * @param args
+     *            The command line arguments.
+     */
+    public static void main(String[] args) {
+        List<String> transactions = new ArrayList<String>();
+        List<File> files = new ArrayList<File>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-x".equals(args[i]) && i + 1 < args.length) {
+                    transactions.add(args[++i]);
+                } else if ("-t".equals(args[i]) && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    files.add(new File(args[i]));
+                }
+            }
+        } catch (NumberFormatException e) {
+            files.clear();
+        }
+        if (transactions.isEmpty() || files.isEmpty()) {
+            System.err.println("Usage: LogScanner [-t threads] -x transaction [-x transaction...] file...");
+            System.exit(2);
+        }
+
+        try {
+            OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+            long lines = new LogScanner(transactions, threads).scan(files, out);
+            out.flush();
+            System.exit(lines > 0 ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println("LogScanner: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Writes the lines of the transactions found in log files, in the order of the files and of their lines. Each line
+     * is written with a line feed.
+     * 
+     * @param files
+     *            The log files, plain or gzip (<code>.gz</code>).
+     * @param out
+     *            The stream receiving the lines.
+     * @return The number of lines written.
+     * @throws IOException
+     *             If a file cannot be read, or if the lines cannot be written.
+     */
+    public long scan(List<File> files, OutputStream out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long lines = 0;
+            for (File file : files) {
+                if (file.getName().endsWith(".gz")) {
+                    lines += scanCompressed(file, out);
+                } else {
+                    lines += scanMapped(file, out, pool);
+                }
+            }
+            return lines;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long scanMapped(File file, OutputStream out, ExecutorService pool) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            long lines = 0;
+
+            // Bounded window of chunks in progress, drained in order
+            LinkedList<Future<Lines>> pending = new LinkedList<Future<Lines>>();
+            long start = 0;
+            while (start < size) {
+                final long chunkStart = start;
+                final long chunkEnd = nextLine(channel, Math.min(size, start + chunkSize) - 1, size);
+                pending.add(pool.submit(new Callable<Lines>() {
+                    @Override
+                    public Lines call() throws IOException {
+                        Lines found = new Lines();
+                        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                                chunkEnd - chunkStart);
+                        scan(chunk.order(ByteOrder.LITTLE_ENDIAN), 0, chunk.limit(), found);
+                        return found;
+                    }
+                }));
+                if (pending.size() >= threads * 2) {
+                    lines += drain(pending.removeFirst(), out);
+                }
+                start = chunkEnd;
+            }
+            while (!pending.isEmpty()) {
+                lines += drain(pending.removeFirst(), out);
+            }
+            return lines;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private long scanCompressed(File file, OutputStream out) throws IOException {
+        InputStream in = new GZIPInputStream(new FileInputStream(file), 1 << 16);
+        try {
+            Lines found = new Lines();
+            byte[] buffer = new byte[INFLATE_SIZE];
+            int filled = 0;
+            long lines = 0;
+            for (;;) {
+                if (filled == buffer.length) {
+                    // A line longer than the buffer
+                    byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, filled);
+                    buffer = grown;
+                }
+                int read = in.read(buffer, filled, buffer.length - filled);
+                if (read < 0) {
+                    break;
+                }
+                filled += read;
+
+                int end = filled;
+                while (end > 0 && buffer[end - 1] != '\n') {
+                    end--;
+                }
+                if (end > 0) {
+                    scan(ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN), 0, end, found);
+                    System.arraycopy(buffer, end, buffer, 0, filled - end);
+                    filled -= end;
+                    lines += found.lines;
+                    found.writeTo(out);
+                    found.reset();
+                }
+            }
+            if (filled > 0) {
+                scan(ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN), 0, filled, found);
+                lines += found.lines;
+                found.writeTo(out);
+            }
+            return lines;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies the lines of the transactions found in <code>[from, to[</code> of a little-endian buffer, starting on a
+     * line boundary.
+     */
+    void scan(ByteBuffer buffer, int from, int to, Lines found) {
+        byte[] copy = null;
+        int position = from;
+        while (position < to) {
+            int match = indexOf(buffer, position, to);
+            if (match < 0) {
+                return;
+            }
+            int start = match;
+            while (start > from && buffer.get(start - 1) != '\n') {
+                start--;
+            }
+            int end = match;
+            while (end < to && buffer.get(end++) != '\n') {
+                // Up to the line feed, included
+            }
+
+            if (copy == null) {
+                copy = new byte[COPY_SIZE];
+            }
+            for (int offset = start; offset < end; offset += COPY_SIZE) {
+                int length = Math.min(COPY_SIZE, end - offset);
+                for (int i = 0; i < length; i++) {
+                    copy[i] = buffer.get(offset + i);
+                }
+                found.write(copy, 0, length);
+            }
+            if (buffer.get(end - 1) != '\n') {
+                found.write('\n');
+            }
+            found.lines++;
+            position = end;
+        }
+    }
+
+    private int indexOf(ByteBuffer buffer, int from, int to) {
+        int position = from;
+        for (; position + 9 <= to; position += 8) {
+            // Each byte of the word compared at once with the first two bytes of the transaction IDs
+            long word = buffer.getLong(position);
+            long next = buffer.getLong(position + 1);
+            long candidates = 0;
+            for (int i = 0; i < patterns.length; i++) {
+                long first = zeros(word ^ firsts[i]);
+                candidates |= patterns[i].length > 1 ? first & zeros(next ^ seconds[i]) : first;
+            }
+            while (candidates != 0) {
+                int candidate = position + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (matches(buffer, candidate, to)) {
+                    return candidate;
+                }
+                candidates &= candidates - 1;
+            }
+        }
+        for (; position < to; position++) {
+            if (matches(buffer, position, to)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a transaction ID starts at <code>position</code>, as a whole: the bytes around it must not belong to
+     * a transaction ID, so that <code>tx-1</code> matches neither <code>tx-10</code> nor <code>abctx-1</code>.
+     */
+    private boolean matches(ByteBuffer buffer, int position, int to) {
+        if (position > 0 && isIdByte(buffer.get(position - 1))) {
+            return false;
+        }
+        patterns: for (byte[] pattern : patterns) {
+            int end = position + pattern.length;
+            if (end > to) {
+                continue;
+            }
+            for (int i = 0; i < pattern.length; i++) {
+                if (buffer.get(position + i) != pattern[i]) {
+                    continue patterns;
+                }
+            }
+            if (end == to || !isIdByte(buffer.get(end))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a byte may be part of a transaction ID: an ASCII letter or digit, or one of the characters
+     * allowed by default by the {@link TransactionIdValidator}.
+     */
+    private static boolean isIdByte(byte value) {
+        return value >= 0 && ID_BYTES[value];
+    }
+
+    private static boolean[] createIdBytes() {
+        boolean[] table = new boolean[128];
+        for (char c = '0'; c <= '9'; c++) {
+            table[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            table[c] = true;
+            table[Character.toUpperCase(c)] = true;
+        }
+        for (char c : TransactionIdValidator.DEFAULT_ALLOWED_CHARS.toCharArray()) {
+            table[c] = true;
+        }
+        return table;
+    }
+
+    /**
+     * Returns a word with the high bit set in each byte that is zero in <code>word</code>. Bytes above a zero byte may
+     * be set too, so each candidate is checked afterwards.
+     */
+    private static long zeros(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    private static long broadcast(byte value) {
+        return (value & 0xFFL) * ONES;
+    }
+
+    private static long drain(Future<Lines> future, OutputStream out) throws IOException {
+        try {
+            Lines found = future.get();
+            found.writeTo(out);
+            return found.lines;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted scan");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the position following the first line feed at or after <code>position</code>, or the size of the file.
+     * A chunk ending there only holds whole lines.
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(COPY_SIZE);
+        long current = position;
+        while (current < size) {
+            window.clear();
+            int read = channel.read(window, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return size;
+    }
+
+    /**
+     * Lines found in a chunk, and their number.
+     */
+    static final class Lines extends ByteArrayOutputStream {
+
+        private int lines;
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The number of lines is reset as well.
+         * 
+         * @see java.io.ByteArrayOutputStream#reset()
+         */
+        @Override
+        public synchronized void reset() {
+            super.reset();
+            lines = 0;
+        }
+    }
+}
\ No newline at end of file
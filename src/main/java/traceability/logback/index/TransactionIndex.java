@@ -0,0 +1,224 @@
+package traceability.logback.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Side index of a log file, written by the {@link IndexedFileAppender}, locating the events of a transaction without
+ * scanning the log file: the index is about a tenth of the size of the log, and each event of the transaction is then
+ * read with a single seek.
+ * 
+ * <p>
+ * The index of <code>app.log</code> is made of the segments <code>app.log.idx.0</code>, <code>app.log.idx.1</code>...
+ * Each segment is a 16 bytes header (<code>TXI1</code> magic number, format version, record size, number of sorted
+ * records) followed by fixed size records of 16 bytes: the 64 bits FNV-1a hash of the transaction ID, then the byte
+ * offset of the event in the log file (upper 40 bits) and its length (lower 24 bits). The first record made only of
+ * zeros ends the segment.
+ * 
+ * <p>
+ * The sorted records come first, ordered by the upper 32 bits of their hash then in the order of the log, and are
+ * found by binary search. The records appended since the segment was last sorted (e.g. the current segment of a running
+ * appender) follow, in the order of the log, and are scanned.
+ * 
+ * 
+ * <pre>
+ * {@code
+ *   List<String> events = new TransactionIndex(new File("/var/log/app.log")).lookup("4f1c2a9e");
+ * }
+ * </pre>
+ */
+public class TransactionIndex {
+
+    static final int MAGIC = 0x54584931; // TXI1
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+    static final int SORTED_OFFSET = 12;
+    static final long KEY_MASK = 0xffffffff00000000L;
+
+    static final int LENGTH_BITS = 24;
+    static final long MAX_LENGTH = (1L << LENGTH_BITS) - 1;
+    static final long MAX_OFFSET = (1L << (64 - LENGTH_BITS)) - 1;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final File logFile;
+    private final Charset charset;
+
+    /**
+     * Constructor, reading the events as UTF-8.
+     * 
+     * @param logFile
+     *            The indexed log file.
+     */
+    public TransactionIndex(File logFile) {
+        this(logFile, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param logFile
+     *            The indexed log file.
+     * @param charset
+     *            The charset of the log file.
+     */
+    public TransactionIndex(File logFile, Charset charset) {
+        this.logFile = logFile;
+        this.charset = charset;
+    }
+
+    /**
+     * Reads the events of a transaction from the log file.
+     * 
+     * @param transaction
+     *            The transaction ID.
+     * @return The events of the transaction, in the order of the log, each with its line separator.
+     * @throws IOException
+     *             If the index or the log file cannot be read.
+     */
+    public List<String> lookup(String transaction) throws IOException {
+        List<String> events = new ArrayList<String>();
+        long[] locations = find(transaction);
+        if (locations.length == 0) {
+            return events;
+        }
+
+        RandomAccessFile log = new RandomAccessFile(logFile, "r");
+        try {
+            byte[] buffer = new byte[256];
+            for (long location : locations) {
+                int length = (int) (location & MAX_LENGTH);
+                if (buffer.length < length) {
+                    buffer = new byte[length];
+                }
+                log.seek(location >>> LENGTH_BITS);
+                log.readFully(buffer, 0, length);
+                events.add(new String(buffer, 0, length, charset));
+            }
+        } finally {
+            log.close();
+        }
+        return events;
+    }
+
+    /**
+     * Finds the events of a transaction in the index.
+     * 
+     * @param transaction
+     *            The transaction ID.
+     * @return The location of each event: its byte offset in the upper 40 bits, its length in the lower 24 bits.
+     * @throws IOException
+     *             If the index cannot be read.
+     */
+    public long[] find(String transaction) throws IOException {
+        long hash = hash(transaction);
+        long[] locations = new long[16];
+        int count = 0;
+
+        for (int segment = 0;; segment++) {
+            File file = segmentFile(logFile, segment);
+            if (!file.exists()) {
+                break;
+            }
+            ByteBuffer records = map(file);
+            int capacity = (records.limit() - HEADER_SIZE) / RECORD_SIZE;
+            int sorted = records.getInt(SORTED_OFFSET);
+            if (sorted < 0 || sorted > capacity) {
+                throw new IOException("Corrupted transaction index segment: " + file);
+            }
+
+            // Sorted records: the run of the upper bits of the hash, found by binary search
+            long key = hash & KEY_MASK;
+            int low = 0;
+            int high = sorted;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if ((records.getLong(HEADER_SIZE + middle * RECORD_SIZE) & KEY_MASK) < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            for (int record = low; record < sorted; record++) {
+                long recordHash = records.getLong(HEADER_SIZE + record * RECORD_SIZE);
+                if ((recordHash & KEY_MASK) != key) {
+                    break;
+                }
+                if (recordHash == hash) {
+                    locations = add(locations, count++, records.getLong(HEADER_SIZE + record * RECORD_SIZE + 8));
+                }
+            }
+
+            // Records appended since the segment was sorted
+            for (int record = sorted; record < capacity; record++) {
+                long recordHash = records.getLong(HEADER_SIZE + record * RECORD_SIZE);
+                long location = records.getLong(HEADER_SIZE + record * RECORD_SIZE + 8);
+                if (recordHash == 0 && location == 0) {
+                    break;
+                }
+                if (recordHash == hash) {
+                    locations = add(locations, count++, location);
+                }
+            }
+        }
+
+        long[] found = new long[count];
+        System.arraycopy(locations, 0, found, 0, count);
+        return found;
+    }
+
+    /**
+     * Sets a location, growing the array if full.
+     */
+    private static long[] add(long[] locations, int index, long location) {
+        if (index == locations.length) {
+            long[] grown = new long[index * 2];
+            System.arraycopy(locations, 0, grown, 0, index);
+            locations = grown;
+        }
+        locations[index] = location;
+        return locations;
+    }
+
+    /**
+     * Returns the 64 bits FNV-1a hash of the characters of a transaction ID.
+     */
+    static long hash(String transaction) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < transaction.length(); i++) {
+            hash ^= transaction.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the file of a segment of the index of a log file.
+     */
+    static File segmentFile(File logFile, int segment) {
+        return new File(logFile.getPath() + ".idx." + segment);
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a transaction index segment: " + file);
+            }
+            return buffer;
+        } finally {
+            // The mapping outlives the channel
+            raf.close();
+        }
+    }
+}
\ No newline at end of file
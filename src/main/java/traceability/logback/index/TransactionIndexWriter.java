@@ -0,0 +1,193 @@
+package traceability.logback.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Appends records to the index of a log file (see {@link TransactionIndex} for the format), through memory-mapped
+ * segments of a fixed number of records. Appending a record is two stores in the mapping, without any system call:
+ * the operating system writes the dirty pages back in batches, and the segments are forced to disk when closed.
+ * 
+ * <p>
+ * The records are appended in the order of the log, and a segment is sorted by hash once, when it is full or when the
+ * writer is closed, so a lookup reads a single run of records per sorted segment. A lookup running while a segment is
+ * being sorted may miss some of its events.
+ * 
+ * <p>
+ * Not thread-safe: the {@link IndexedFileAppender} appends under the lock of the log file.
+ */
+public class TransactionIndexWriter {
+
+    private final File logFile;
+    private final int segmentRecords;
+
+    private int segment;
+    private MappedByteBuffer records;
+
+    /**
+     * Constructor, opening the last segment of the index, or creating the first one.
+     * 
+     * @param logFile
+     *            The indexed log file.
+     * @param segmentRecords
+     *            The number of records of each segment.
+     * @param append
+     *            <code>false</code> to delete the existing index.
+     * @throws IOException
+     *             If the index cannot be opened.
+     */
+    public TransactionIndexWriter(File logFile, int segmentRecords, boolean append) throws IOException {
+        if (segmentRecords <= 0) {
+            throw new IllegalArgumentException("segmentRecords must be positive: " + segmentRecords);
+        }
+        this.logFile = logFile;
+        this.segmentRecords = segmentRecords;
+
+        while (TransactionIndex.segmentFile(logFile, segment + 1).exists()) {
+            segment++;
+        }
+        if (!append) {
+            for (int i = segment; i >= 0; i--) {
+                TransactionIndex.segmentFile(logFile, i).delete();
+            }
+            segment = 0;
+        }
+        open();
+    }
+
+    /**
+     * Appends the record of an event.
+     * 
+     * @param transaction
+     *            The transaction ID of the event.
+     * @param offset
+     *            The byte offset of the event in the log file.
+     * @param length
+     *            The length of the event in bytes.
+     * @throws IOException
+     *             If a new segment cannot be created.
+     */
+    public void append(String transaction, long offset, long length) throws IOException {
+        if (offset > TransactionIndex.MAX_OFFSET || length <= 0) {
+            return;
+        }
+        if (records.remaining() < TransactionIndex.RECORD_SIZE) {
+            sort(records);
+            records.force();
+            segment++;
+            open();
+        }
+        records.putLong(TransactionIndex.hash(transaction));
+        records.putLong(offset << TransactionIndex.LENGTH_BITS | Math.min(length, TransactionIndex.MAX_LENGTH));
+    }
+
+    /**
+     * Sorts the current segment and forces it to disk.
+     */
+    public void close() {
+        if (records != null) {
+            sort(records);
+            records.force();
+            records = null;
+        }
+    }
+
+    private void open() throws IOException {
+        File file = TransactionIndex.segmentFile(logFile, segment);
+        long size = TransactionIndex.HEADER_SIZE + (long) segmentRecords * TransactionIndex.RECORD_SIZE;
+        boolean exists = file.exists() && file.length() >= TransactionIndex.HEADER_SIZE;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            records = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, exists ? raf.length() : size);
+        } finally {
+            // The mapping outlives the channel
+            raf.close();
+        }
+
+        if (!exists) {
+            records.putInt(TransactionIndex.MAGIC);
+            records.putInt(TransactionIndex.VERSION);
+            records.putInt(TransactionIndex.RECORD_SIZE);
+            records.putInt(0);
+        } else if (records.getInt(0) != TransactionIndex.MAGIC || records.getInt(4) != TransactionIndex.VERSION) {
+            throw new IOException("Not a transaction index segment: " + file);
+        }
+        records.position(end(records));
+    }
+
+    /**
+     * Renames the index of a log file after the file has been renamed, e.g. by a rollover.
+     * 
+     * @param logFile
+     *            The former name of the log file.
+     * @param renamedFile
+     *            The new name of the log file.
+     * @return <code>false</code> if a segment cannot be renamed.
+     */
+    public static boolean rename(File logFile, File renamedFile) {
+        boolean renamed = true;
+        for (int segment = 0; TransactionIndex.segmentFile(logFile, segment).exists(); segment++) {
+            File target = TransactionIndex.segmentFile(renamedFile, segment);
+            target.delete();
+            renamed &= TransactionIndex.segmentFile(logFile, segment).renameTo(target);
+        }
+        return renamed;
+    }
+
+    /**
+     * Sorts the records of a segment by the upper 32 bits of their hash, then in the order of the log, and stores the
+     * number of sorted records in the header. The records are sorted as keys made of these 32 bits and the position of
+     * the record, which keeps the order of the log among equal hashes: the records appended to a sorted segment (e.g.
+     * after a restart) come after the others, so sorting the whole segment again keeps that order too.
+     */
+    private static void sort(MappedByteBuffer records) {
+        int count = (records.position() - TransactionIndex.HEADER_SIZE) / TransactionIndex.RECORD_SIZE;
+        if (records.getInt(TransactionIndex.SORTED_OFFSET) == count) {
+            return;
+        }
+
+        long[] hashes = new long[count];
+        long[] locations = new long[count];
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int position = TransactionIndex.HEADER_SIZE + i * TransactionIndex.RECORD_SIZE;
+            hashes[i] = records.getLong(position);
+            locations[i] = records.getLong(position + 8);
+            keys[i] = hashes[i] & TransactionIndex.KEY_MASK | i;
+        }
+        Arrays.sort(keys);
+
+        records.putInt(TransactionIndex.SORTED_OFFSET, 0);
+        for (int i = 0; i < count; i++) {
+            int record = (int) (keys[i] & ~TransactionIndex.KEY_MASK);
+            int position = TransactionIndex.HEADER_SIZE + i * TransactionIndex.RECORD_SIZE;
+            records.putLong(position, hashes[record]);
+            records.putLong(position + 8, locations[record]);
+        }
+        records.putInt(TransactionIndex.SORTED_OFFSET, count);
+    }
+
+    /**
+     * Returns the position of the first free record of a segment, by binary search of the first record made only of
+     * zeros.
+     */
+    private static int end(MappedByteBuffer records) {
+        int low = 0;
+        int high = (records.limit() - TransactionIndex.HEADER_SIZE) / TransactionIndex.RECORD_SIZE;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int position = TransactionIndex.HEADER_SIZE + middle * TransactionIndex.RECORD_SIZE;
+            if (records.getLong(position) == 0 && records.getLong(position + 8) == 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return TransactionIndex.HEADER_SIZE + low * TransactionIndex.RECORD_SIZE;
+    }
+}
\ No newline at end of file
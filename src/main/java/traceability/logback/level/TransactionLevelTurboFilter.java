@@ -0,0 +1,358 @@
+package traceability.logback.level;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import traceability.logback.concurrent.ScopedContext;
+
+/**
+ * Logback {@link TurboFilter} lowering the level of a handful of watched transactions, so their <code>DEBUG</code> (or
+ * <code>TRACE</code>) detail is logged without lowering the level of the loggers for everybody. A logging request is
+ * accepted, whatever the level of the logger, if it is at the <b>watchLevel</b> (<code>DEBUG</code> by default) or
+ * higher and the transaction (<code>transaction</code> {@link MDC} key) or the principal (<code>user</code> key) of the
+ * thread is watched.
+ * 
+ * <p>
+ * The watched values are managed at runtime through JMX, with the <code>watch</code> and <code>unwatch</code>
+ * operations of the <code>traceability.logback:type=TransactionLevelTurboFilter,name=&lt;name&gt;</code> MBean, or
+ * listed in a <b>file</b> (one value per line, <code>#</code> for comments), checked for changes every
+ * <b>refreshPeriod</b> milliseconds. The MBean is named after the <b>name</b> of the filter, or after its Logback
+ * context and identity hash code if unnamed (e.g. <code>name=default-1b6d3586</code>), so the filters of several
+ * applications never replace each other:
+ * 
+ * <pre>
+ * {@code
+ *   <configuration>
+ *     <turboFilter class="traceability.logback.level.TransactionLevelTurboFilter">
+ *       <watchLevel>TRACE</watchLevel>
+ *       <file>/etc/myapp/watched-transactions.txt</file>
+ *     </turboFilter>
+ *     ...
+ *   </configuration>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The watched values are an immutable set, replaced as a whole on every change, so the logging threads never take a
+ * lock. As long as nothing is watched, a logging request costs a single volatile read.
+ */
+public class TransactionLevelTurboFilter extends TurboFilter implements TransactionLevelTurboFilterMBean {
+
+    private static final Set<String> NONE = Collections.emptySet();
+
+    private volatile Set<String> watched = NONE;
+
+    // Guarded by this
+    private final Set<String> managedValues = new HashSet<String>();
+    private Set<String> fileValues = NONE;
+    private long fileLastModified;
+    private long fileLength;
+
+    private String mdcKey = "transaction";
+    private String userMdcKey = "user";
+    private Level watchLevel = Level.DEBUG;
+    private String file = null;
+    private long refreshPeriod = 5000L;
+    private boolean jmx = true;
+
+    private ScheduledExecutorService watcher;
+    private ObjectName objectName;
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.classic.turbo.TurboFilter#decide(org.slf4j.Marker, ch.qos.logback.classic.Logger,
+     *      ch.qos.logback.classic.Level, java.lang.String, java.lang.Object[], java.lang.Throwable)
+     */
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        Set<String> current = watched;
+        if (current == NONE || level == null || !level.isGreaterOrEqual(watchLevel)
+                || level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String transaction = ScopedContext.lookup(mdcKey);
+        if (transaction != null && current.contains(transaction)) {
+            return FilterReply.ACCEPT;
+        }
+        String user = userMdcKey == null ? null : ScopedContext.lookup(userMdcKey);
+        if (user != null && current.contains(user)) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.classic.turbo.TurboFilter#start()
+     */
+    @Override
+    public void start() {
+        if (file != null) {
+            reload();
+            if (refreshPeriod > 0) {
+                watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = new Thread(task, "TransactionLevelTurboFilter-" + file);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                watcher.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        reloadIfModified();
+                    }
+                }, refreshPeriod, refreshPeriod, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (jmx) {
+            register();
+        }
+        super.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.classic.turbo.TurboFilter#stop()
+     */
+    @Override
+    public void stop() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+        if (objectName != null) {
+            unregister();
+        }
+        super.stop();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.level.TransactionLevelTurboFilterMBean#watch(java.lang.String)
+     */
+    @Override
+    public synchronized void watch(String value) {
+        if (value != null && value.trim().length() > 0 && managedValues.add(value.trim())) {
+            publish();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.level.TransactionLevelTurboFilterMBean#unwatch(java.lang.String)
+     */
+    @Override
+    public synchronized void unwatch(String value) {
+        if (value != null && managedValues.remove(value.trim())) {
+            publish();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.level.TransactionLevelTurboFilterMBean#clearWatched()
+     */
+    @Override
+    public synchronized void clearWatched() {
+        managedValues.clear();
+        publish();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.level.TransactionLevelTurboFilterMBean#reload()
+     */
+    @Override
+    public synchronized void reload() {
+        if (file == null) {
+            return;
+        }
+
+        File watchFile = new File(file);
+        fileLastModified = watchFile.lastModified();
+        fileLength = watchFile.length();
+        if (!watchFile.isFile()) {
+            fileValues = NONE;
+        } else {
+            try {
+                fileValues = readValues(watchFile);
+            } catch (IOException e) {
+                addWarn("Unable to read the watched transactions from " + file + ", keeping the previous ones", e);
+                return;
+            }
+        }
+        publish();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.level.TransactionLevelTurboFilterMBean#getWatched()
+     */
+    @Override
+    public String[] getWatched() {
+        return watched.toArray(new String[0]);
+    }
+
+    /**
+     * @param mdcKey
+     *            The key of the transaction in the MDC.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param userMdcKey
+     *            The key of the principal in the MDC, or <code>null</code> to watch transactions only.
+     */
+    public void setUserMdcKey(String userMdcKey) {
+        this.userMdcKey = userMdcKey;
+    }
+
+    /**
+     * @param watchLevel
+     *            The lowest level logged for watched transactions.
+     */
+    public void setWatchLevel(Level watchLevel) {
+        this.watchLevel = watchLevel;
+    }
+
+    /**
+     * @param file
+     *            The path of the file listing the watched values.
+     */
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * @param refreshPeriod
+     *            The milliseconds between two checks of the watch file, or 0 to read it only on start and
+     *            {@link #reload()}.
+     */
+    public void setRefreshPeriod(long refreshPeriod) {
+        this.refreshPeriod = refreshPeriod;
+    }
+
+    /**
+     * @param jmx
+     *            <code>false</code> not to register the filter in the platform MBean server.
+     */
+    public void setJmx(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    /**
+     * Reads the watch file again if its timestamp or size has changed since the last time.
+     */
+    synchronized void reloadIfModified() {
+        File watchFile = new File(file);
+        if (watchFile.lastModified() != fileLastModified || watchFile.length() != fileLength) {
+            reload();
+        }
+    }
+
+    /**
+     * Replaces the set read by the logging threads with the union of the managed and file values.
+     */
+    private void publish() {
+        if (managedValues.isEmpty() && fileValues.isEmpty()) {
+            watched = NONE;
+        } else {
+            Set<String> values = new HashSet<String>(managedValues);
+            values.addAll(fileValues);
+            watched = Collections.unmodifiableSet(values);
+        }
+    }
+
+    private static Set<String> readValues(File watchFile) throws IOException {
+        Set<String> values = new HashSet<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(watchFile), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    values.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return values.isEmpty() ? NONE : values;
+    }
+
+    private void register() {
+        try {
+            objectName = new ObjectName("traceability.logback:type=TransactionLevelTurboFilter,name="
+                    + (getName() == null ? defaultName() : getName()));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            addWarn("Unable to register the filter in the MBean server", e);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Returns the name of an unnamed filter, unique within the JVM: the name of its Logback context followed by the
+     * identity hash code of the filter.
+     */
+    private String defaultName() {
+        String contextName = getContext() == null ? null : getContext().getName();
+        return (contextName == null ? "default" : contextName) + "-"
+                + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    /**
+     * @return The name of the MBean of the filter, or <code>null</code> if not registered.
+     */
+    ObjectName getObjectName() {
+        return objectName;
+    }
+
+    private void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            addWarn("Unable to unregister the filter from the MBean server", e);
+        }
+        objectName = null;
+    }
+}
\ No newline at end of file
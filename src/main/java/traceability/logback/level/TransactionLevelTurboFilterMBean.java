@@ -0,0 +1,38 @@
+package traceability.logback.level;
+
+/**
+ * Management interface of the {@link TransactionLevelTurboFilter}, registered in the platform MBean server.
+ */
+public interface TransactionLevelTurboFilterMBean {
+
+    /**
+     * Adds a transaction ID or a principal name to the watched values.
+     * 
+     * @param value
+     *            The value to watch.
+     */
+    void watch(String value);
+
+    /**
+     * Removes a value added with {@link #watch(String)}. The values read from the watch file are kept.
+     * 
+     * @param value
+     *            The value to stop watching.
+     */
+    void unwatch(String value);
+
+    /**
+     * Removes all the values added with {@link #watch(String)}. The values read from the watch file are kept.
+     */
+    void clearWatched();
+
+    /**
+     * Reads the watch file again, if any, even if it has not changed.
+     */
+    void reload();
+
+    /**
+     * @return The watched values, from the management interface and from the watch file.
+     */
+    String[] getWatched();
+}
\ No newline at end of file
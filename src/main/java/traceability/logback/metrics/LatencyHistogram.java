@@ -0,0 +1,202 @@
+package traceability.logback.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe, fixed-memory histogram of request durations, in microseconds, with the layout of an HDR histogram:
+ * every power of two is split into 32 linear buckets, so any recorded value is reported with a relative error below
+ * 1/32 (about 3%), from 1 microsecond up to 38 hours. Longer durations are recorded as the highest trackable value.
+ * 
+ * <p>
+ * Recording a duration is a single atomic increment on a preallocated array: it never locks and never allocates. The
+ * statistics are computed when read, from the counts of every bucket, so they may miss the durations recorded while
+ * they are being computed.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+
+    /** The highest trackable duration. */
+    static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records a duration.
+     * 
+     * @param nanos
+     *            The duration in nanoseconds, as measured with {@link System#nanoTime()}.
+     */
+    public void recordNanos(long nanos) {
+        record(nanos / 1000L);
+    }
+
+    /**
+     * Records a duration.
+     * 
+     * @param micros
+     *            The duration in microseconds.
+     */
+    public void record(long micros) {
+        long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+    }
+
+    /**
+     * Returns the duration below which the given percentage of the recorded durations fall.
+     * 
+     * @param percentile
+     *            The percentage, between 0 and 100.
+     * @return The highest duration of the bucket holding the percentile, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(snapshot.length - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#getCount()
+     */
+    @Override
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#getMean()
+     */
+    @Override
+    public long getMean() {
+        long[] snapshot = snapshot();
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (snapshot[i] > 0) {
+                total += snapshot[i];
+                sum += (double) snapshot[i] * (lowestValueOf(i) + highestValueOf(i)) / 2;
+            }
+        }
+        return total == 0 ? 0 : Math.round(sum / total);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#getP50()
+     */
+    @Override
+    public long getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#getP99()
+     */
+    @Override
+    public long getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#getP999()
+     */
+    @Override
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#getMax()
+     */
+    @Override
+    public long getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.LatencyHistogramMBean#reset()
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the bucket of a value: values below 64 have their own bucket, higher ones share it with the values having
+     * the same 6 most significant bits.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return (long) (SUB_BUCKET_COUNT + (index & (SUB_BUCKET_COUNT - 1))) << shift;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        return lowestValueOf(index) + (1L << shift) - 1;
+    }
+}
\ No newline at end of file
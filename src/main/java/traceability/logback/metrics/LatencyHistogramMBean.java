@@ -0,0 +1,42 @@
+package traceability.logback.metrics;
+
+/**
+ * Management interface of a {@link LatencyHistogram}. All the durations are in microseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * @return The number of recorded requests.
+     */
+    long getCount();
+
+    /**
+     * @return The mean duration.
+     */
+    long getMean();
+
+    /**
+     * @return The median duration.
+     */
+    long getP50();
+
+    /**
+     * @return The 99th percentile of the durations.
+     */
+    long getP99();
+
+    /**
+     * @return The 99.9th percentile of the durations.
+     */
+    long getP999();
+
+    /**
+     * @return The longest duration.
+     */
+    long getMax();
+
+    /**
+     * Discards all the recorded durations.
+     */
+    void reset();
+}
\ No newline at end of file
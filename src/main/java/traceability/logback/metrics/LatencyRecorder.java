@@ -0,0 +1,200 @@
+package traceability.logback.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread-safe registry of {@link LatencyHistogram}, one per entry point of the application (e.g. a servlet path or a
+ * handler method), each one exported in the platform MBean server as
+ * <code>traceability.logback:type=Latency,loader=&lt;loader&gt;,recorder=&lt;name&gt;,entryPoint=&lt;entry
+ * point&gt;</code>. The <code>loader</code> key identifies the context class loader of the thread creating the
+ * recorder, i.e. the application, so the recorders of several applications of a container may have the same name. A
+ * histogram whose name is already registered (e.g. by another recorder with the same name) is not exported, and the
+ * MBean of the other one is left untouched.
+ * 
+ * <p>
+ * Entry points are named after themselves if they are {@link String}, after their class and name if they are
+ * {@link Method}, and after their simple name if they are {@link Class}. The histogram of an entry point is created the
+ * first time it is seen: afterwards, recording a duration is a map lookup and an atomic increment, without any lock
+ * nor allocation. The number of histograms is bounded by <b>maxEntryPoints</b>: the durations of the entry points seen
+ * once the limit is reached are recorded in a shared <code>other</code> histogram.
+ */
+public class LatencyRecorder {
+
+    private static Logger logger = LoggerFactory.getLogger(LatencyRecorder.class);
+
+    /** Default maximum number of histograms. */
+    public static final int DEFAULT_MAX_ENTRY_POINTS = 200;
+
+    /** Name of the histogram shared by the entry points beyond the limit. */
+    public static final String OTHER = "other";
+
+    private final String name;
+    private final String loader;
+    private final int maxEntryPoints;
+
+    private final ConcurrentMap<Object, LatencyHistogram> histograms =
+            new ConcurrentHashMap<Object, LatencyHistogram>();
+
+    // Guarded by this
+    private final Map<String, LatencyHistogram> histogramsByName = new HashMap<String, LatencyHistogram>();
+    private final List<ObjectName> objectNames = new ArrayList<ObjectName>();
+    private volatile LatencyHistogram other;
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            The name of the recorder in the MBean server.
+     */
+    public LatencyRecorder(String name) {
+        this(name, DEFAULT_MAX_ENTRY_POINTS);
+    }
+
+    /**
+     * Constructor with all available configurations.
+     * 
+     * @param name
+     *            The name of the recorder in the MBean server.
+     * @param maxEntryPoints
+     *            The maximum number of histograms.
+     */
+    public LatencyRecorder(String name, int maxEntryPoints) {
+        if (maxEntryPoints <= 0) {
+            throw new IllegalArgumentException("maxEntryPoints must be positive: " + maxEntryPoints);
+        }
+        this.name = name;
+        this.maxEntryPoints = maxEntryPoints;
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        this.loader = TraceMetrics.loaderName(classLoader == null ? LatencyRecorder.class.getClassLoader()
+                : classLoader);
+    }
+
+    /**
+     * Records the duration of a request.
+     * 
+     * @param entryPoint
+     *            The entry point of the request.
+     * @param nanos
+     *            The duration in nanoseconds, as measured with {@link System#nanoTime()}.
+     */
+    public void record(Object entryPoint, long nanos) {
+        getHistogram(entryPoint).recordNanos(nanos);
+    }
+
+    /**
+     * Returns the histogram of an entry point, creating it if needed.
+     * 
+     * @param entryPoint
+     *            The entry point, <code>null</code> for the <code>other</code> histogram.
+     * @return The histogram of the entry point, or the shared <code>other</code> histogram if the limit is reached.
+     */
+    public LatencyHistogram getHistogram(Object entryPoint) {
+        LatencyHistogram histogram = histograms.get(entryPoint == null ? OTHER : entryPoint);
+        if (histogram != null) {
+            return histogram;
+        }
+        LatencyHistogram otherHistogram = other;
+        if (otherHistogram != null) {
+            return otherHistogram;
+        }
+        return createHistogram(entryPoint == null ? OTHER : entryPoint);
+    }
+
+    /**
+     * @return The histograms, by entry point name.
+     */
+    public synchronized Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new HashMap<String, LatencyHistogram>(histogramsByName));
+    }
+
+    /**
+     * Unregisters all the histograms from the MBean server.
+     */
+    public synchronized void close() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : objectNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                logger.debug("Unable to unregister {}", objectName, e);
+            }
+        }
+        objectNames.clear();
+    }
+
+    private synchronized LatencyHistogram createHistogram(Object entryPoint) {
+        LatencyHistogram histogram = histograms.get(entryPoint);
+        if (histogram != null) {
+            return histogram;
+        }
+        if (other != null) {
+            return other;
+        }
+
+        if (histogramsByName.size() >= maxEntryPoints) {
+            other = register(OTHER);
+            return other;
+        }
+
+        // Entry points with the same name share their histogram
+        String entryPointName = nameOf(entryPoint);
+        histogram = histogramsByName.get(entryPointName);
+        if (histogram == null) {
+            histogram = register(entryPointName);
+        }
+        histograms.put(entryPoint, histogram);
+        return histogram;
+    }
+
+    private LatencyHistogram register(String entryPointName) {
+        LatencyHistogram histogram = histogramsByName.get(entryPointName);
+        if (histogram != null) {
+            return histogram;
+        }
+        histogram = new LatencyHistogram();
+        histogramsByName.put(entryPointName, histogram);
+
+        try {
+            ObjectName objectName = objectName(entryPointName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(histogram, objectName);
+            objectNames.add(objectName);
+        } catch (JMException e) {
+            logger.warn("Unable to register the latency histogram of {}: {}", entryPointName, e.getMessage());
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The name of the MBean of the histogram of an entry point.
+     */
+    ObjectName objectName(String entryPointName) throws JMException {
+        return new ObjectName("traceability.logback:type=Latency,loader=" + loader + ",recorder="
+                + ObjectName.quote(name) + ",entryPoint=" + ObjectName.quote(entryPointName));
+    }
+
+    private static String nameOf(Object entryPoint) {
+        if (entryPoint instanceof Method) {
+            Method method = (Method) entryPoint;
+            return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        }
+        if (entryPoint instanceof Class) {
+            return ((Class<?>) entryPoint).getSimpleName();
+        }
+        return String.valueOf(entryPoint);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package traceability.logback.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of thread-safe counters, striped to scale with the number of threads updating them.
+ * 
+ * <p>
+ * Every stripe holds a copy of all the counters, padded to a cache line of its own, and each thread increments the
+ * copies of the stripe picked from its ID. Threads on different stripes never contend for the same cache line, so
+ * counting in a hot path stays an uncontended atomic increment. Reading a counter sums its copies: the result may miss
+ * the increments made while it is being read.
+ */
+public class StripedCounters {
+
+    // Longs per cache line, assuming 64 bytes lines
+    private static final int LINE = 8;
+    private static final int MAX_STRIPES = 64;
+    private static final int STRIPES = stripes();
+
+    private final int size;
+    private final int width;
+    private final AtomicLongArray cells;
+
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            The number of counters.
+     */
+    public StripedCounters(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        this.size = size;
+        this.width = (size + LINE - 1) / LINE * LINE;
+        // The leading line keeps the first stripe away from the array header
+        this.cells = new AtomicLongArray(LINE + STRIPES * width);
+    }
+
+    /**
+     * Adds one to a counter.
+     * 
+     * @param counter
+     *            The index of the counter.
+     */
+    public void increment(int counter) {
+        if (counter < 0 || counter >= size) {
+            throw new IndexOutOfBoundsException("counter: " + counter);
+        }
+        cells.getAndIncrement(offset() + counter);
+    }
+
+    /**
+     * @param counter
+     *            The index of the counter.
+     * @return The value of the counter.
+     */
+    public long get(int counter) {
+        if (counter < 0 || counter >= size) {
+            throw new IndexOutOfBoundsException("counter: " + counter);
+        }
+        long total = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            total += cells.get(LINE + stripe * width + counter);
+        }
+        return total;
+    }
+
+    /**
+     * Sets all the counters back to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    /**
+     * @return The number of counters.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int offset() {
+        return LINE + ((int) Thread.currentThread().getId() & (STRIPES - 1)) * width;
+    }
+
+    /**
+     * Returns the number of stripes: the number of processors rounded up to a power of two, up to 64.
+     */
+    private static int stripes() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+}
\ No newline at end of file
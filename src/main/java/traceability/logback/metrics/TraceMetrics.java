@@ -0,0 +1,270 @@
+package traceability.logback.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts how the transaction IDs are propagated through each channel (incoming HTTP requests, outgoing JMS messages,
+ * pooled tasks...), so the callers breaking the correlation of the logs can be found: a growing <code>anonymous</code>
+ * count on a channel means requests arrive without transaction ID, a growing <code>skipped</code> count means requests
+ * leave without one.
+ * 
+ * <p>
+ * Every component of the library records the outcome of each request or message it handles. Recording an outcome is an
+ * increment of a {@link StripedCounters}: it never locks and never allocates.
+ * 
+ * <p>
+ * The counts of each channel are exported in the platform MBean server as
+ * <code>traceability.logback:type=TraceMetrics,loader=&lt;loader&gt;,channel=&lt;channel&gt;</code>, e.g.
+ * <code>channel=http_in</code>, from the first call to {@link #register()} until the matching call to
+ * {@link #unregister()}. The <code>loader</code> key identifies the class loader of the library, so the applications of
+ * a container deploying their own copy each get their own MBeans. The Servlet filters register the metrics at
+ * <code>init</code> and unregister them at <code>destroy</code>, and the Spring MVC interceptors once their properties
+ * are set and when their context is closed, so the platform MBean server does not keep the classes of an undeployed
+ * application. An MBean registered under the same name by someone else is never replaced nor unregistered.
+ */
+public class TraceMetrics implements TraceMetricsMBean {
+
+    private static Logger logger = LoggerFactory.getLogger(TraceMetrics.class);
+
+    /**
+     * The channels carrying transaction IDs.
+     */
+    public enum Channel {
+        /** Incoming HTTP requests: Servlet filters and Spring MVC interceptors. */
+        HTTP_IN,
+        /** Outgoing HTTP requests: HTTP client interceptors. */
+        HTTP_OUT,
+        /** Incoming JMS messages. */
+        JMS_IN,
+        /** Outgoing JMS messages. */
+        JMS_OUT,
+        /** Incoming SOAP requests. */
+        SOAP_IN,
+        /** Outgoing SOAP requests. */
+        SOAP_OUT,
+        /** Principals of the incoming HTTP requests. */
+        PRINCIPAL,
+        /** Tasks submitted to thread pools. */
+        TASK
+    }
+
+    /**
+     * The outcomes of the propagation of a transaction ID.
+     */
+    public enum Outcome {
+        /** The transaction ID was received or propagated. */
+        TRACED,
+        /** No transaction ID was received, the request is traced as anonymous. */
+        ANONYMOUS,
+        /** No transaction ID was received, a new one was generated. */
+        GENERATED,
+        /** The received transaction ID was invalid, the request was rejected. */
+        REJECTED,
+        /** No transaction ID was in the MDC, nothing was propagated. */
+        SKIPPED,
+        /** The transaction ID could not be read or written because of an error. */
+        FAILED
+    }
+
+    private static final TraceMetrics[] CHANNELS = create();
+
+    private static final String LOADER = loaderName(TraceMetrics.class.getClassLoader());
+
+    /** Number of {@link #register()} calls not yet matched by {@link #unregister()}, guarded by the class. */
+    private static int registrations = 0;
+
+    /** The names registered by the first {@link #register()} call, guarded by the class. */
+    private static final List<ObjectName> OBJECT_NAMES = new ArrayList<ObjectName>();
+
+    private final Channel channel;
+    private final StripedCounters counters = new StripedCounters(Outcome.values().length);
+
+    private TraceMetrics(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Records the outcome of a request or message.
+     * 
+     * @param channel
+     *            The channel of the request or message.
+     * @param outcome
+     *            The outcome.
+     */
+    public static void record(Channel channel, Outcome outcome) {
+        CHANNELS[channel.ordinal()].counters.increment(outcome.ordinal());
+    }
+
+    /**
+     * Registers the metrics of every channel in the platform MBean server, unless already registered. Each call must be
+     * matched by a call to {@link #unregister()}.
+     */
+    public static synchronized void register() {
+        if (registrations++ > 0) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (TraceMetrics metrics : CHANNELS) {
+            try {
+                ObjectName objectName = objectName(metrics.channel);
+                server.registerMBean(metrics, objectName);
+                OBJECT_NAMES.add(objectName);
+            } catch (JMException e) {
+                logger.warn("Unable to register the trace metrics of {}: {}", metrics.channel, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Unregisters the metrics of every channel from the platform MBean server, once every call to {@link #register()}
+     * is matched. The counts are kept.
+     */
+    public static synchronized void unregister() {
+        if (registrations == 0 || --registrations > 0) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : OBJECT_NAMES) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                logger.debug("Unable to unregister {}", objectName, e);
+            }
+        }
+        OBJECT_NAMES.clear();
+    }
+
+    /**
+     * @param channel
+     *            The channel.
+     * @return The metrics of the channel.
+     */
+    public static TraceMetrics getInstance(Channel channel) {
+        return CHANNELS[channel.ordinal()];
+    }
+
+    /**
+     * @param outcome
+     *            The outcome.
+     * @return The number of requests or messages of the channel with the outcome.
+     */
+    public long getCount(Outcome outcome) {
+        return counters.get(outcome.ordinal());
+    }
+
+    /**
+     * @return The channel.
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#getTraced()
+     */
+    @Override
+    public long getTraced() {
+        return getCount(Outcome.TRACED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#getAnonymous()
+     */
+    @Override
+    public long getAnonymous() {
+        return getCount(Outcome.ANONYMOUS);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#getGenerated()
+     */
+    @Override
+    public long getGenerated() {
+        return getCount(Outcome.GENERATED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#getRejected()
+     */
+    @Override
+    public long getRejected() {
+        return getCount(Outcome.REJECTED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#getSkipped()
+     */
+    @Override
+    public long getSkipped() {
+        return getCount(Outcome.SKIPPED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#getFailed()
+     */
+    @Override
+    public long getFailed() {
+        return getCount(Outcome.FAILED);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see traceability.logback.metrics.TraceMetricsMBean#reset()
+     */
+    @Override
+    public void reset() {
+        counters.reset();
+    }
+
+    /**
+     * Creates the metrics of every channel.
+     */
+    private static TraceMetrics[] create() {
+        Channel[] channels = Channel.values();
+        TraceMetrics[] metrics = new TraceMetrics[channels.length];
+        for (Channel channel : channels) {
+            metrics[channel.ordinal()] = new TraceMetrics(channel);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return The name of the MBean of the channel.
+     */
+    static ObjectName objectName(Channel channel) throws JMException {
+        return new ObjectName("traceability.logback:type=TraceMetrics,loader=" + LOADER + ",channel="
+                + channel.name().toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return The value of the <code>loader</code> key of the MBeans loaded by a class loader: its identity hash code.
+     */
+    static String loaderName(ClassLoader classLoader) {
+        return Integer.toHexString(System.identityHashCode(classLoader));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package traceability.logback.metrics;
+
+/**
+ * Management interface of the {@link TraceMetrics} of a channel. Every count is the number of requests or messages of
+ * the channel with that outcome since the start, or since the last reset.
+ */
+public interface TraceMetricsMBean {
+
+    /**
+     * @return The number of transaction IDs received or propagated.
+     */
+    long getTraced();
+
+    /**
+     * @return The number of requests received without transaction ID and traced as anonymous.
+     */
+    long getAnonymous();
+
+    /**
+     * @return The number of requests received without transaction ID and given a new one.
+     */
+    long getGenerated();
+
+    /**
+     * @return The number of requests rejected because of an invalid transaction ID.
+     */
+    long getRejected();
+
+    /**
+     * @return The number of outgoing requests or messages sent without transaction ID, as none was in the MDC.
+     */
+    long getSkipped();
+
+    /**
+     * @return The number of transaction IDs that could not be read or written because of an error.
+     */
+    long getFailed();
+
+    /**
+     * Sets all the counts back to zero.
+     */
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package traceability.logback.principal;
+
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import traceability.logback.metrics.StripedCounters;
+
+/**
+ * A bounded, thread-safe intern cache for {@link Principal} names, so the requests of the same user share one
+ * <code>String</code> instance instead of the new one many principals (e.g. JAAS or LDAP ones) build on every
+ * {@link Principal#getName()} call. The shared instance is the one referenced by the MDC maps of the requests and by
+ * every pending asynchronous log event.
+ * 
+ * <p>
+ * The cache is a fixed size table of four-slot buckets, indexed by the hash of the name: a lookup reads at most four
+ * adjacent slots and never blocks. A new name takes the first slot of its bucket, shifting the others, so the least
+ * recently added name of a full bucket is evicted. The capacity should be a few times the number of
+ * active users, so they rarely collide. Hits, misses and evictions are counted with {@link StripedCounters}, so
+ * counting every lookup does not make the request threads contend.
+ */
+public class PrincipalNameCache {
+
+    /** Default number of slots. */
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<String> names;
+    private final int mask;
+
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+    private static final int EVICTIONS = 2;
+
+    private final StripedCounters counters = new StripedCounters(3);
+
+    /**
+     * Constructor, with the default capacity.
+     */
+    public PrincipalNameCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param capacity
+     *            The number of slots, rounded up to a power of two (at least 4).
+     */
+    public PrincipalNameCache(int capacity) {
+        if (capacity < 1 || capacity > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAXIMUM_CAPACITY + ": " + capacity);
+        }
+        int size = Math.max(WAYS, Integer.highestOneBit(capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        names = new AtomicReferenceArray<String>(size);
+        // Index of the first slot of a bucket
+        mask = size - WAYS;
+    }
+
+    /**
+     * Returns the name of a principal, as a shared instance.
+     * 
+     * @param principal
+     *            The principal.
+     * @return The shared name of the principal, or <code>null</code> if the principal or its name is <code>null</code>.
+     */
+    public String getName(Principal principal) {
+        return principal == null ? null : intern(principal.getName());
+    }
+
+    /**
+     * Returns the shared instance of a name, caching the given one if there is none.
+     * 
+     * @param name
+     *            The name.
+     * @return The shared instance, equal to the name.
+     */
+    public String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        int index = spread(name.hashCode()) & mask;
+        for (int i = index; i < index + WAYS; i++) {
+            String cached = names.get(i);
+            if (cached != null && cached.equals(name)) {
+                counters.increment(HITS);
+                return cached;
+            }
+        }
+
+        counters.increment(MISSES);
+        if (names.get(index + WAYS - 1) != null) {
+            counters.increment(EVICTIONS);
+        }
+        // Strings are safely published: a racing lookup may miss, but never sees a wrong name
+        for (int i = index + WAYS - 1; i > index; i--) {
+            names.lazySet(i, names.get(i - 1));
+        }
+        names.lazySet(index, name);
+        return name;
+    }
+
+    /**
+     * @return The number of slots.
+     */
+    public int getCapacity() {
+        return names.length();
+    }
+
+    /**
+     * @return The number of names found in the cache.
+     */
+    public long getHitCount() {
+        return counters.get(HITS);
+    }
+
+    /**
+     * @return The number of names not found in the cache.
+     */
+    public long getMissCount() {
+        return counters.get(MISSES);
+    }
+
+    /**
+     * @return The number of names replaced by another one in their slot.
+     */
+    public long getEvictionCount() {
+        return counters.get(EVICTIONS);
+    }
+
+    /**
+     * Spreads the bits of the hash, since the names of a population often differ in a few characters only.
+     */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
\ No newline at end of file
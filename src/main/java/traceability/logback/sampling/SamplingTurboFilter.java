@@ -0,0 +1,86 @@
+package traceability.logback.sampling;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import traceability.logback.concurrent.ScopedContext;
+
+/**
+ * Logback {@link TurboFilter} logging the sampled transactions in full detail, and dropping the detail of the others,
+ * according to the decision stored in the Mapped Diagnostic Context ({@link MDC}) by {@link TransactionSampler}. The
+ * decision is taken before the logging event is created, so dropped requests cost no formatting nor allocation.
+ * 
+ * <p>
+ * Requests below the <b>threshold</b> level (<code>INFO</code> by default) are denied for transactions not sampled,
+ * and accepted for sampled ones if their level is <b>sampledLevel</b> (<code>DEBUG</code> by default) or higher,
+ * whatever the level of the logger. Every other request, and any request out of a transaction with a decision, goes on
+ * through the regular level checks.
+ * 
+ * <pre>
+ * {@code
+ *   <configuration>
+ *     <turboFilter class="traceability.logback.sampling.SamplingTurboFilter">
+ *       <sampledLevel>TRACE</sampledLevel>
+ *     </turboFilter>
+ *     ...
+ *   </configuration>
+ * }
+ * </pre>
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String mdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+    private Level threshold = Level.INFO;
+    private Level sampledLevel = Level.DEBUG;
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see ch.qos.logback.classic.turbo.TurboFilter#decide(org.slf4j.Marker, ch.qos.logback.classic.Logger,
+     *      ch.qos.logback.classic.Level, java.lang.String, java.lang.Object[], java.lang.Throwable)
+     */
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(threshold)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String sampled = ScopedContext.lookup(mdcKey);
+        if (TransactionSampler.NOT_SAMPLED.equals(sampled)) {
+            return FilterReply.DENY;
+        }
+        if (TransactionSampler.SAMPLED.equals(sampled) && level.isGreaterOrEqual(sampledLevel)) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param threshold
+     *            The level from which requests are never filtered.
+     */
+    public void setThreshold(Level threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param sampledLevel
+     *            The lowest level logged for sampled transactions.
+     */
+    public void setSampledLevel(Level sampledLevel) {
+        this.sampledLevel = sampledLevel;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package traceability.logback.sampling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.MDC;
+
+/**
+ * A thread-safe head-based sampling decision, made once at the entry point of a transaction and carried along with it
+ * in the Mapped Diagnostic Context ({@link MDC}), so every service of the call chain logs the same fraction of
+ * transactions in full detail (see {@link SamplingTurboFilter}).
+ * 
+ * <p>
+ * A decision received from upstream (in the <b>headerName</b> header) is kept as it is. Otherwise, the decision is
+ * derived from the hash of the transaction ID: a service receiving the transaction without the decision still makes
+ * the same one. Transactions without their own ID (e.g. <code>anonymous</code>) are sampled one by one.
+ * 
+ * <p>
+ * The decision is stored as {@link #SAMPLED} or {@link #NOT_SAMPLED}.
+ */
+public class TransactionSampler {
+
+    /** Default name of the HTTP header carrying the decision. */
+    public static final String DEFAULT_HEADER_NAME = "x-sampled";
+
+    /** Default key of the decision in the MDC, in JMS properties and in SOAP headers. */
+    public static final String DEFAULT_MDC_KEY = "sampled";
+
+    /** Value of a sampled transaction. */
+    public static final String SAMPLED = "1";
+
+    /** Value of a transaction not sampled. */
+    public static final String NOT_SAMPLED = "0";
+
+    private static final int PRECISION = 1 << 24;
+
+    private final AtomicInteger unidentified = new AtomicInteger();
+
+    private double rate;
+    private int threshold;
+    private String headerName = DEFAULT_HEADER_NAME;
+    private String mdcKey = DEFAULT_MDC_KEY;
+
+    /**
+     * Constructor.
+     * 
+     * @param rate
+     *            The fraction of transactions to sample, between 0 and 1.
+     */
+    public TransactionSampler(double rate) {
+        setRate(rate);
+    }
+
+    /**
+     * Returns the decision of a transaction.
+     * 
+     * @param received
+     *            The decision received from upstream, may be <code>null</code>.
+     * @param transaction
+     *            The transaction ID, or <code>null</code> if the transaction has no ID of its own.
+     * @return {@link #SAMPLED} or {@link #NOT_SAMPLED}.
+     */
+    public String sample(String received, String transaction) {
+        String decision = normalize(received);
+        if (decision != null) {
+            return decision;
+        }
+        return isSampled(transaction) ? SAMPLED : NOT_SAMPLED;
+    }
+
+    /**
+     * Decides whether a transaction is sampled.
+     * 
+     * @param transaction
+     *            The transaction ID, or <code>null</code> if the transaction has no ID of its own.
+     * @return <code>true</code> if sampled.
+     */
+    public boolean isSampled(String transaction) {
+        int hash = transaction == null ? unidentified.getAndIncrement() : transaction.hashCode();
+        return (mix(hash) >>> 8) < threshold;
+    }
+
+    /**
+     * Parses a decision received from another service.
+     * 
+     * @param value
+     *            The received value: <code>1</code>, <code>0</code>, <code>true</code> or <code>false</code>.
+     * @return {@link #SAMPLED}, {@link #NOT_SAMPLED}, or <code>null</code> if the value is missing or invalid.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (SAMPLED.equals(value) || "true".equalsIgnoreCase(value)) {
+            return SAMPLED;
+        }
+        if (NOT_SAMPLED.equals(value) || "false".equalsIgnoreCase(value)) {
+            return NOT_SAMPLED;
+        }
+        return null;
+    }
+
+    /**
+     * @return The fraction of transactions sampled.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate
+     *            The fraction of transactions to sample, between 0 and 1.
+     */
+    public void setRate(double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("rate must be between 0 and 1: " + rate);
+        }
+        this.rate = rate;
+        this.threshold = (int) Math.round(rate * PRECISION);
+    }
+
+    /**
+     * @return The name of the HTTP header carrying the decision.
+     */
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    /**
+     * @param headerName
+     *            The headerName to set.
+     */
+    public void setHeaderName(String headerName) {
+        this.headerName = headerName;
+    }
+
+    /**
+     * @return The key of the decision in the MDC.
+     */
+    public String getMdcKey() {
+        return mdcKey;
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, so close transaction IDs (e.g. time based ones) get unrelated decisions.
+     */
+    private static int mix(int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package traceability.logback.spring.jms;
+
+import java.util.Arrays;
+
+/**
+ * Packs the transaction IDs made of 128 bits into a pair of <code>long</code> message properties, and unpacks them back
+ * to the very same text. The supported texts are:
+ * <ul>
+ * <li>the 26 uppercase Crockford base32 characters of a ULID, as generated by the
+ * <code>TimeBasedTransactionIdGenerator</code>;</li>
+ * <li>the 36 lowercase characters of a UUID;</li>
+ * <li>32 lowercase hexadecimal digits, e.g. a W3C trace ID.</li>
+ * </ul>
+ * 
+ * <p>
+ * The text layout and the sampling decision of the transaction go to a third, <code>byte</code>, property: bits 0 to 3
+ * hold the layout, bit 4 tells whether a sampling decision is present, and bit 5 holds it. This property is left out
+ * for a ULID without sampling decision, the most common case. The properties get short names (<code>txH</code>,
+ * <code>txL</code> and <code>txF</code> by default), as OpenWire writes the name of every property in every message.
+ */
+final class BinaryTransactionCodec {
+
+    static final String DEFAULT_KEY = "tx";
+    static final String HIGH_SUFFIX = "H";
+    static final String LOW_SUFFIX = "L";
+    static final String FLAGS_SUFFIX = "F";
+
+    static final int NONE = 0;
+    static final int ULID = 1;
+    static final int UUID = 2;
+    static final int HEX = 3;
+
+    static final int FORMAT_MASK = 0xF;
+    static final int SAMPLING_PRESENT = 1 << 4;
+    static final int SAMPLED = 1 << 5;
+
+    private static final int ULID_LENGTH = 26;
+    private static final int UUID_LENGTH = 36;
+    private static final int HEX_LENGTH = 32;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] CROCKFORD_VALUES = createValues(CROCKFORD);
+    private static final byte[] HEX_VALUES = createValues(HEX_DIGITS);
+
+    private BinaryTransactionCodec() {
+        super();
+    }
+
+    /**
+     * Returns the layout of a transaction ID, or {@link #NONE} if it cannot be packed.
+     */
+    static int format(String transaction) {
+        switch (transaction.length()) {
+        case ULID_LENGTH:
+            // 130 bits of text: the first character only carries 3 of them
+            return transaction.charAt(0) < '8' && isDigits(transaction, 0, ULID_LENGTH, CROCKFORD_VALUES) ? ULID
+                    : NONE;
+        case UUID_LENGTH:
+            return transaction.charAt(8) == '-' && transaction.charAt(13) == '-' && transaction.charAt(18) == '-'
+                    && transaction.charAt(23) == '-' && isDigits(transaction, 0, 8, HEX_VALUES)
+                    && isDigits(transaction, 9, 13, HEX_VALUES) && isDigits(transaction, 14, 18, HEX_VALUES)
+                    && isDigits(transaction, 19, 23, HEX_VALUES) && isDigits(transaction, 24, 36, HEX_VALUES) ? UUID
+                    : NONE;
+        case HEX_LENGTH:
+            return isDigits(transaction, 0, HEX_LENGTH, HEX_VALUES) ? HEX : NONE;
+        default:
+            return NONE;
+        }
+    }
+
+    /**
+     * Returns the upper 64 bits of a transaction ID of the given layout.
+     */
+    static long high(String transaction, int format) {
+        if (format == ULID) {
+            // Characters 0 to 12 hold the upper 63 bits, the first bit of character 13 holds the last one
+            return decode(transaction, 0, 13, CROCKFORD_VALUES, 5) << 1
+                    | CROCKFORD_VALUES[transaction.charAt(13)] >>> 4;
+        }
+        if (format == UUID) {
+            return decode(transaction, 0, 8, HEX_VALUES, 4) << 32 | decode(transaction, 9, 13, HEX_VALUES, 4) << 16
+                    | decode(transaction, 14, 18, HEX_VALUES, 4);
+        }
+        return decode(transaction, 0, 16, HEX_VALUES, 4);
+    }
+
+    /**
+     * Returns the lower 64 bits of a transaction ID of the given layout.
+     */
+    static long low(String transaction, int format) {
+        if (format == ULID) {
+            return decode(transaction, 13, 26, CROCKFORD_VALUES, 5);
+        }
+        if (format == UUID) {
+            return decode(transaction, 19, 23, HEX_VALUES, 4) << 48 | decode(transaction, 24, 36, HEX_VALUES, 4);
+        }
+        return decode(transaction, 16, 32, HEX_VALUES, 4);
+    }
+
+    /**
+     * Returns the text of a packed transaction ID, or <code>null</code> if the layout is unknown.
+     */
+    static String decode(long high, long low, int format) {
+        char[] buffer;
+        switch (format) {
+        case ULID:
+            buffer = new char[ULID_LENGTH];
+            encode(buffer, 0, 13, high >>> 1, CROCKFORD, 5);
+            buffer[13] = CROCKFORD[(int) ((high & 1) << 4 | low >>> 60)];
+            encode(buffer, 14, 12, low, CROCKFORD, 5);
+            return new String(buffer);
+        case UUID:
+            buffer = new char[UUID_LENGTH];
+            encode(buffer, 0, 8, high >>> 32, HEX_DIGITS, 4);
+            encode(buffer, 9, 4, high >>> 16, HEX_DIGITS, 4);
+            encode(buffer, 14, 4, high, HEX_DIGITS, 4);
+            encode(buffer, 19, 4, low >>> 48, HEX_DIGITS, 4);
+            encode(buffer, 24, 12, low, HEX_DIGITS, 4);
+            buffer[8] = buffer[13] = buffer[18] = buffer[23] = '-';
+            return new String(buffer);
+        case HEX:
+            buffer = new char[HEX_LENGTH];
+            encode(buffer, 0, 16, high, HEX_DIGITS, 4);
+            encode(buffer, 16, 16, low, HEX_DIGITS, 4);
+            return new String(buffer);
+        default:
+            return null;
+        }
+    }
+
+    private static boolean isDigits(String text, int from, int to, byte[] values) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= values.length || values[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads <code>[from, to[</code> as a number, most significant digit first, keeping its lowest 64 bits.
+     */
+    private static long decode(String text, int from, int to, byte[] values, int bits) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << bits | values[text.charAt(i)];
+        }
+        return value;
+    }
+
+    /**
+     * Writes the lowest <code>length * bits</code> bits of the value, most significant first.
+     */
+    private static void encode(char[] buffer, int offset, int length, long value, char[] digits, int bits) {
+        int mask = (1 << bits) - 1;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = digits[(int) (value & mask)];
+            value >>>= bits;
+        }
+    }
+
+    private static byte[] createValues(char[] digits) {
+        byte[] values = new byte[128];
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < digits.length; i++) {
+            values[digits[i]] = (byte) i;
+        }
+        return values;
+    }
+}
\ No newline at end of file
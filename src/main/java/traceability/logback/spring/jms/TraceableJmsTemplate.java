@@ -0,0 +1,168 @@
+package traceability.logback.spring.jms;
+
+import java.util.Collection;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.MDC;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import traceability.logback.concurrent.ScopedContext;
+
+/**
+ * A Spring {@link JmsTemplate} injecting the transaction of the Mapped Diagnostic Context ({@link MDC}) in every message
+ * it sends, so call sites cannot forget to pass a {@link TraceableMessagePostProcessor}: every <code>send</code> and
+ * <code>convertAndSend</code> method is covered. Messages sent directly through a <code>ProducerCallback</code> are
+ * not.
+ * 
+ * <pre>
+ * {@code
+ * <bean id="jmsTemplate" class="traceability.logback.spring.jms.TraceableJmsTemplate">
+ *     <property name="connectionFactory" ref="connectionFactory" />
+ * </bean>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The names of the MDC fields and message properties, as well as the <b>binary</b> mode, are configured with the
+ * <b>messagePostProcessor</b> property.
+ * 
+ * <p>
+ * Bulk publishers should use the <code>convertAndSendBatch</code> methods, sending a collection of messages with a
+ * single session and producer, and a single read of the MDC. With a locally transacted session
+ * (<b>sessionTransacted</b>), the whole batch is committed at once.
+ */
+public class TraceableJmsTemplate extends JmsTemplate {
+
+    private TraceableMessagePostProcessor messagePostProcessor = new TraceableMessagePostProcessor();
+
+    /**
+     * Constructor, for bean-style configuration.
+     */
+    public TraceableJmsTemplate() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param connectionFactory
+     *            The factory of the connections to send with.
+     */
+    public TraceableJmsTemplate(ConnectionFactory connectionFactory) {
+        super(connectionFactory);
+    }
+
+    /**
+     * Converts and sends each object of a collection to the default destination, in a single session.
+     * 
+     * @param messages
+     *            The objects to convert and send.
+     */
+    public void convertAndSendBatch(Collection<?> messages) {
+        Destination defaultDestination = getDefaultDestination();
+        if (defaultDestination != null) {
+            convertAndSendBatch(defaultDestination, messages);
+        } else if (getDefaultDestinationName() != null) {
+            convertAndSendBatch(getDefaultDestinationName(), messages);
+        } else {
+            throw new IllegalStateException("No 'defaultDestination' or 'defaultDestinationName' specified. "
+                    + "Check configuration of JmsTemplate.");
+        }
+    }
+
+    /**
+     * Converts and sends each object of a collection to a destination, in a single session.
+     * 
+     * @param destination
+     *            The destination.
+     * @param messages
+     *            The objects to convert and send.
+     */
+    public void convertAndSendBatch(final Destination destination, final Collection<?> messages) {
+        final String transaction = ScopedContext.lookup(messagePostProcessor.getMdcKey());
+        final String sampled = ScopedContext.lookup(messagePostProcessor.getSampledMdcKey());
+        execute(new SessionCallback<Object>() {
+            @Override
+            public Object doInJms(Session session) throws JMSException {
+                doSendBatch(session, destination, messages, transaction, sampled);
+                return null;
+            }
+        }, false);
+    }
+
+    /**
+     * Converts and sends each object of a collection to a destination, in a single session.
+     * 
+     * @param destinationName
+     *            The name of the destination, resolved once.
+     * @param messages
+     *            The objects to convert and send.
+     */
+    public void convertAndSendBatch(final String destinationName, final Collection<?> messages) {
+        final String transaction = ScopedContext.lookup(messagePostProcessor.getMdcKey());
+        final String sampled = ScopedContext.lookup(messagePostProcessor.getSampledMdcKey());
+        execute(new SessionCallback<Object>() {
+            @Override
+            public Object doInJms(Session session) throws JMSException {
+                Destination destination = resolveDestinationName(session, destinationName);
+                doSendBatch(session, destination, messages, transaction, sampled);
+                return null;
+            }
+        }, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The transaction of the MDC is injected in the message before it is sent.
+     * 
+     * @see org.springframework.jms.core.JmsTemplate#doSend(javax.jms.MessageProducer, javax.jms.Message)
+     */
+    @Override
+    protected void doSend(MessageProducer producer, Message message) throws JMSException {
+        messagePostProcessor.postProcessMessage(message);
+        super.doSend(producer, message);
+    }
+
+    /**
+     * Sends a batch with a single producer, committing once if the session is locally transacted.
+     */
+    private void doSendBatch(Session session, Destination destination, Collection<?> messages, String transaction,
+            String sampled) throws JMSException {
+        MessageConverter converter = getMessageConverter();
+        if (converter == null) {
+            throw new IllegalStateException("No 'messageConverter' specified. Check configuration of JmsTemplate.");
+        }
+
+        MessageProducer producer = createProducer(session, destination);
+        try {
+            for (Object object : messages) {
+                Message message = converter.toMessage(object, session);
+                messagePostProcessor.postProcessMessage(message, transaction, sampled);
+                super.doSend(producer, message);
+            }
+            if (session.getTransacted() && isSessionLocallyTransacted(session)) {
+                JmsUtils.commitIfNecessary(session);
+            }
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+    }
+
+    /**
+     * @param messagePostProcessor
+     *            The messagePostProcessor to set, injecting the transaction in the messages.
+     */
+    public void setMessagePostProcessor(TraceableMessagePostProcessor messagePostProcessor) {
+        this.messagePostProcessor = messagePostProcessor;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+package traceability.logback.spring.jms;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+
+/**
+ * A thread-safe JMS {@link MessageListener} decorator, the consumer counterpart of {@link TraceableMessagePostProcessor}:
+ * it reads the transaction field from the received {@link Message} properties and injects it in the Mapped Diagnostic
+ * Context ({@link MDC}) of the consumer thread while the delegate listener runs, then ends the transaction for the
+ * {@link traceability.logback.flight.FlightRecorderAppender}.
+ * 
+ * <p>
+ * The delegate may be a plain {@link MessageListener} or a Spring {@link SessionAwareMessageListener}. As the decorator
+ * implements both interfaces, message listener containers always hand over the {@link Session}, which is forwarded to
+ * session-aware delegates.
+ * 
+ * <p>
+ * A single instance is shared by all the concurrent consumers of a container, so the only per-message work is a
+ * property lookup and the MDC update. In order to use the listener, wrap the application listener in the container
+ * definition:
+ * 
+ * <pre>
+ * {@code
+ * <bean class="org.springframework.jms.listener.DefaultMessageListenerContainer">
+ *     <property name="connectionFactory" ref="connectionFactory" />
+ *     <property name="destinationName" value="orders" />
+ *     <property name="concurrentConsumers" value="20" />
+ *     <property name="messageListener">
+ *         <bean class="traceability.logback.spring.jms.TraceableMessageListener">
+ *             <constructor-arg ref="ordersListener" />
+ *         </bean>
+ *     </property>
+ * </bean>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The <b>mdcKey</b> and <b>jmsKey</b> properties (and <b>sampledMdcKey</b> and <b>sampledJmsKey</b> for the sampling
+ * decision of the transaction) must match the configuration of the {@link TraceableMessagePostProcessor} of the
+ * producers. Messages without the <b>jmsKey</b> string property are looked up for the numeric properties written by
+ * producers in <b>binary</b> mode (named after <b>binaryJmsKey</b>), so a destination may switch to the binary form one
+ * producer at a time.
+ */
+public class TraceableMessageListener implements MessageListener, SessionAwareMessageListener<Message> {
+
+    private static Logger logger = LoggerFactory.getLogger(TraceableMessageListener.class);
+
+    private static final String DEFAULT_MDC_KEY = "transaction";
+
+    private final MessageListener messageListener;
+    private final SessionAwareMessageListener<Message> sessionAwareMessageListener;
+
+    private String mdcKey = DEFAULT_MDC_KEY;
+    private String jmsKey = DEFAULT_MDC_KEY;
+    private String jmsHighKey = BinaryTransactionCodec.DEFAULT_KEY + BinaryTransactionCodec.HIGH_SUFFIX;
+    private String jmsLowKey = BinaryTransactionCodec.DEFAULT_KEY + BinaryTransactionCodec.LOW_SUFFIX;
+    private String jmsFlagsKey = BinaryTransactionCodec.DEFAULT_KEY + BinaryTransactionCodec.FLAGS_SUFFIX;
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+    private String sampledJmsKey = TransactionSampler.DEFAULT_MDC_KEY;
+
+    /**
+     * Constructor.
+     * 
+     * @param delegate
+     *            The {@link MessageListener} or {@link SessionAwareMessageListener} to invoke.
+     * @throws IllegalArgumentException
+     *             If the delegate implements none of the listener interfaces.
+     */
+    @SuppressWarnings("unchecked")
+    public TraceableMessageListener(Object delegate) {
+        super();
+        if (delegate instanceof SessionAwareMessageListener) {
+            this.sessionAwareMessageListener = (SessionAwareMessageListener<Message>) delegate;
+            this.messageListener = null;
+        } else if (delegate instanceof MessageListener) {
+            this.sessionAwareMessageListener = null;
+            this.messageListener = (MessageListener) delegate;
+        } else {
+            throw new IllegalArgumentException("Delegate must implement MessageListener or SessionAwareMessageListener: "
+                    + delegate);
+        }
+    }
+
+    /**
+     * Constructor with all available configurations.
+     */
+    public TraceableMessageListener(Object delegate, String mdcKey, String jmsKey) {
+        this(delegate);
+        this.mdcKey = mdcKey;
+        setJmsKey(jmsKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A session-aware delegate is not supported here, as it has no {@link Session} to receive.
+     * 
+     * @see javax.jms.MessageListener#onMessage(javax.jms.Message)
+     */
+    @Override
+    public void onMessage(Message message) {
+        if (messageListener == null) {
+            throw new IllegalStateException("SessionAwareMessageListener delegate requires a Session: "
+                    + sessionAwareMessageListener);
+        }
+
+        String transaction = putTransaction(message);
+        boolean completed = false;
+        try {
+            messageListener.onMessage(message);
+            completed = true;
+        } finally {
+            FlightRecorders.endTransaction(transaction, !completed);
+            MDC.remove(mdcKey);
+            MDC.remove(sampledMdcKey);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.springframework.jms.listener.SessionAwareMessageListener#onMessage(javax.jms.Message, javax.jms.Session)
+     */
+    @Override
+    public void onMessage(Message message, Session session) throws JMSException {
+        String transaction = putTransaction(message);
+        boolean completed = false;
+        try {
+            if (sessionAwareMessageListener != null) {
+                sessionAwareMessageListener.onMessage(message, session);
+            } else {
+                messageListener.onMessage(message);
+            }
+            completed = true;
+        } finally {
+            FlightRecorders.endTransaction(transaction, !completed);
+            MDC.remove(mdcKey);
+            MDC.remove(sampledMdcKey);
+        }
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param jmsKey
+     *            The jmsKey to set.
+     */
+    public void setJmsKey(String jmsKey) {
+        this.jmsKey = jmsKey;
+    }
+
+    /**
+     * @param binaryJmsKey
+     *            The prefix of the numeric properties of the binary form, followed by <code>H</code>, <code>L</code>
+     *            and <code>F</code> (<code>tx</code> by default).
+     */
+    public void setBinaryJmsKey(String binaryJmsKey) {
+        this.jmsHighKey = binaryJmsKey + BinaryTransactionCodec.HIGH_SUFFIX;
+        this.jmsLowKey = binaryJmsKey + BinaryTransactionCodec.LOW_SUFFIX;
+        this.jmsFlagsKey = binaryJmsKey + BinaryTransactionCodec.FLAGS_SUFFIX;
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+
+    /**
+     * @param sampledJmsKey
+     *            The sampledJmsKey to set.
+     */
+    public void setSampledJmsKey(String sampledJmsKey) {
+        this.sampledJmsKey = sampledJmsKey;
+    }
+
+    /**
+     * Reads the transaction and its sampling decision from the message properties into the {@link MDC}. An unreadable
+     * property never prevents the message from being delivered.
+     * 
+     * @return The transaction put in the {@link MDC}, or <code>null</code>.
+     */
+    private String putTransaction(Message message) {
+        String transaction;
+        String sampled;
+        try {
+            transaction = message.getStringProperty(jmsKey);
+            sampled = TransactionSampler.normalize(message.getStringProperty(sampledJmsKey));
+            if (transaction == null && message.propertyExists(jmsHighKey)) {
+                // Left out for a ULID without sampling decision
+                int flags = message.propertyExists(jmsFlagsKey) ? message.getByteProperty(jmsFlagsKey)
+                        : BinaryTransactionCodec.ULID;
+                transaction = BinaryTransactionCodec.decode(message.getLongProperty(jmsHighKey), message
+                        .getLongProperty(jmsLowKey), flags & BinaryTransactionCodec.FORMAT_MASK);
+                if (sampled == null && (flags & BinaryTransactionCodec.SAMPLING_PRESENT) != 0) {
+                    sampled = (flags & BinaryTransactionCodec.SAMPLED) != 0 ? TransactionSampler.SAMPLED
+                            : TransactionSampler.NOT_SAMPLED;
+                }
+            }
+        } catch (JMSException e) {
+            TraceMetrics.record(Channel.JMS_IN, Outcome.FAILED);
+            logger.debug("Unable to read the transaction property {}", jmsKey, e);
+            return null;
+        } catch (NumberFormatException e) {
+            // A numeric property sent as an unparsable string
+            TraceMetrics.record(Channel.JMS_IN, Outcome.FAILED);
+            logger.debug("Unable to read the transaction property {}", jmsHighKey, e);
+            return null;
+        }
+
+        if (transaction != null && transaction.length() > 0) {
+            TraceMetrics.record(Channel.JMS_IN, Outcome.TRACED);
+            MDC.put(mdcKey, transaction);
+        } else {
+            TraceMetrics.record(Channel.JMS_IN, Outcome.ANONYMOUS);
+            transaction = null;
+        }
+        if (sampled != null) {
+            MDC.put(sampledMdcKey, sampled);
+        }
+        return transaction;
+    }
+}
\ No newline at end of file
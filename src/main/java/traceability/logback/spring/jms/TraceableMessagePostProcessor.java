@@ -6,6 +6,12 @@ import javax.jms.Message;
 import org.slf4j.MDC;
 import org.springframework.jms.core.MessagePostProcessor;
 
+import traceability.logback.concurrent.ScopedContext;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+
 /**
  * A thread-safe Spring JMS {@link MessagePostProcessor}, that reads a transaction field from the Mapped Diagnostic
  * Context ({@link MDC}) of the request and injects it in the {@link Message} headers.
@@ -57,6 +63,18 @@ import org.springframework.jms.core.MessagePostProcessor;
  * </bean>
  * }
  * </pre>
+ * 
+ * <p>
+ * The sampling decision of the transaction (see {@link TransactionSampler}) is forwarded as well, from the
+ * <b>sampledMdcKey</b> MDC field to the <b>sampledJmsKey</b> message property (both <code>sampled</code> by default).
+ * 
+ * <p>
+ * For high-rate destinations, the <b>binary</b> property packs the transaction IDs made of 128 bits (the ULIDs of the
+ * <code>TimeBasedTransactionIdGenerator</code>, UUIDs, 32 hexadecimal digits) into the <code>long</code> properties
+ * <b>binaryJmsKey</b><code>H</code> and <b>binaryJmsKey</b><code>L</code>, and their layout and sampling decision into
+ * the <code>byte</code> property <b>binaryJmsKey</b><code>F</code>, left out for a ULID without sampling decision
+ * (<b>binaryJmsKey</b> is <code>tx</code> by default). Other transaction IDs are still sent as strings. The
+ * {@link TraceableMessageListener} reads both forms.
  */
 public class TraceableMessagePostProcessor implements MessagePostProcessor {
 
@@ -64,6 +82,12 @@ public class TraceableMessagePostProcessor implements MessagePostProcessor {
 
     private String mdcKey = DEFAULT_MDC_KEY;
     private String jmsKey = DEFAULT_MDC_KEY;
+    private String jmsHighKey = BinaryTransactionCodec.DEFAULT_KEY + BinaryTransactionCodec.HIGH_SUFFIX;
+    private String jmsLowKey = BinaryTransactionCodec.DEFAULT_KEY + BinaryTransactionCodec.LOW_SUFFIX;
+    private String jmsFlagsKey = BinaryTransactionCodec.DEFAULT_KEY + BinaryTransactionCodec.FLAGS_SUFFIX;
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+    private String sampledJmsKey = TransactionSampler.DEFAULT_MDC_KEY;
+    private boolean binary = false;
 
     /**
      * Constructor.
@@ -78,7 +102,7 @@ public class TraceableMessagePostProcessor implements MessagePostProcessor {
     public TraceableMessagePostProcessor(String mdcKey, String jmsKey) {
         super();
         this.mdcKey = mdcKey;
-        this.jmsKey = jmsKey;
+        setJmsKey(jmsKey);
     }
 
     /**
@@ -88,15 +112,80 @@ public class TraceableMessagePostProcessor implements MessagePostProcessor {
      */
     @Override
     public Message postProcessMessage(Message message) throws JMSException {
-        String transaction = MDC.get(mdcKey);
+        return postProcessMessage(message, ScopedContext.lookup(mdcKey), ScopedContext.lookup(sampledMdcKey));
+    }
 
+    /**
+     * Injects a transaction read from the MDC beforehand in the message headers, e.g. once for a whole batch.
+     * 
+     * @param message
+     *            The message to send.
+     * @param transaction
+     *            The transaction, may be <code>null</code>.
+     * @param sampled
+     *            The sampling decision of the transaction, may be <code>null</code>.
+     * @return The same message.
+     * @throws JMSException
+     *             If a property cannot be set.
+     */
+    Message postProcessMessage(Message message, String transaction, String sampled) throws JMSException {
         if (transaction != null && transaction.length() > 0) {
+            if (binary && setBinaryProperties(message, transaction, sampled)) {
+                TraceMetrics.record(Channel.JMS_OUT, Outcome.TRACED);
+                return message;
+            }
             message.setStringProperty(jmsKey, transaction);
+            TraceMetrics.record(Channel.JMS_OUT, Outcome.TRACED);
+        } else {
+            TraceMetrics.record(Channel.JMS_OUT, Outcome.SKIPPED);
+        }
+
+        if (sampled != null && sampled.length() > 0) {
+            message.setStringProperty(sampledJmsKey, sampled);
         }
 
         return message;
     }
 
+    /**
+     * Packs the transaction and its sampling decision into numeric properties, if the transaction ID can be packed.
+     */
+    private boolean setBinaryProperties(Message message, String transaction, String sampled) throws JMSException {
+        int format = BinaryTransactionCodec.format(transaction);
+        if (format == BinaryTransactionCodec.NONE) {
+            return false;
+        }
+
+        int flags = format;
+        if (TransactionSampler.SAMPLED.equals(sampled)) {
+            flags |= BinaryTransactionCodec.SAMPLING_PRESENT | BinaryTransactionCodec.SAMPLED;
+        } else if (TransactionSampler.NOT_SAMPLED.equals(sampled)) {
+            flags |= BinaryTransactionCodec.SAMPLING_PRESENT;
+        } else if (sampled != null && sampled.length() > 0) {
+            message.setStringProperty(sampledJmsKey, sampled);
+        }
+        message.setLongProperty(jmsHighKey, BinaryTransactionCodec.high(transaction, format));
+        message.setLongProperty(jmsLowKey, BinaryTransactionCodec.low(transaction, format));
+        if (flags != BinaryTransactionCodec.ULID) {
+            message.setByteProperty(jmsFlagsKey, (byte) flags);
+        }
+        return true;
+    }
+
+    /**
+     * @return The key of the transaction in the MDC.
+     */
+    String getMdcKey() {
+        return mdcKey;
+    }
+
+    /**
+     * @return The key of the sampling decision in the MDC.
+     */
+    String getSampledMdcKey() {
+        return sampledMdcKey;
+    }
+
     /**
      * @param mdcKey
      *            The mdcKey to set.
@@ -112,4 +201,39 @@ public class TraceableMessagePostProcessor implements MessagePostProcessor {
     public void setJmsKey(String jmsKey) {
         this.jmsKey = jmsKey;
     }
+
+    /**
+     * @param binaryJmsKey
+     *            The prefix of the numeric properties of the binary form, followed by <code>H</code>, <code>L</code>
+     *            and <code>F</code> (<code>tx</code> by default).
+     */
+    public void setBinaryJmsKey(String binaryJmsKey) {
+        this.jmsHighKey = binaryJmsKey + BinaryTransactionCodec.HIGH_SUFFIX;
+        this.jmsLowKey = binaryJmsKey + BinaryTransactionCodec.LOW_SUFFIX;
+        this.jmsFlagsKey = binaryJmsKey + BinaryTransactionCodec.FLAGS_SUFFIX;
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+
+    /**
+     * @param sampledJmsKey
+     *            The sampledJmsKey to set.
+     */
+    public void setSampledJmsKey(String sampledJmsKey) {
+        this.sampledJmsKey = sampledJmsKey;
+    }
+
+    /**
+     * @param binary
+     *            <code>true</code> to pack the transaction IDs into numeric properties when possible.
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
 }
\ No newline at end of file
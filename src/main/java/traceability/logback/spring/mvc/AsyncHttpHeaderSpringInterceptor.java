@@ -0,0 +1,146 @@
+package traceability.logback.spring.mvc;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.CallableProcessingInterceptorAdapter;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import traceability.logback.concurrent.MdcAccessor;
+import traceability.logback.filter.HttpHeaderServletFilter;
+
+/**
+ * Intercepts all servlet requests as {@link HttpHeaderSpringInterceptor} does, and keeps the Mapped Diagnostic Context
+ * ({@link MDC}) up to date when the handler processes the request asynchronously, returning a {@link Callable}, a
+ * <code>WebAsyncTask</code> or a {@link DeferredResult}.
+ * 
+ * <p>
+ * The context of the request is stored as a request attribute once the header is read, and:
+ * <ul>
+ * <li>the container thread gets its own context back as soon as the asynchronous processing is started, instead of
+ * keeping the transaction until the end of the request;</li>
+ * <li>the {@link Callable} runs with the context of the request in the MDC of the task executor thread, which gets its
+ * own context back afterwards;</li>
+ * <li>the completion dispatch runs with the context of the request, without reading and validating the header again,
+ * and ends the transaction.</li>
+ * </ul>
+ * The thread completing a {@link DeferredResult} belongs to the application, which may decorate its tasks with a
+ * <code>TraceableRunnable</code> to get the context.
+ * 
+ * <p>
+ * The interceptor is declared the same way as the {@link HttpHeaderSpringInterceptor}, and supports all its properties:
+ * 
+ * <pre>
+ * {@code
+ * <bean class="traceability.logback.spring.mvc.AsyncHttpHeaderSpringInterceptor">
+ *     <property name="headerName" value="x-transaction" />
+ *     <property name="mdcKey" value="transaction" />
+ * </bean>
+ * }
+ * </pre>
+ */
+public class AsyncHttpHeaderSpringInterceptor extends HttpHeaderSpringInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String CONTEXT_ATTRIBUTE = AsyncHttpHeaderSpringInterceptor.class.getName() + ".context";
+    private static final String PREVIOUS_ATTRIBUTE = AsyncHttpHeaderSpringInterceptor.class.getName() + ".previous";
+    private static final String WORKER_ATTRIBUTE = AsyncHttpHeaderSpringInterceptor.class.getName() + ".worker";
+    private static final CallableProcessingInterceptor CALLABLE_INTERCEPTOR = new TraceableCallableInterceptor();
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The dispatches following the first one install the context of the request.
+     * 
+     * @see traceability.logback.spring.mvc.HttpHeaderSpringInterceptor#preHandle(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse, java.lang.Object)
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        MdcAccessor accessor = MdcAccessor.getInstance();
+
+        @SuppressWarnings("unchecked")
+        Map<String, String> context = (Map<String, String>) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            request.setAttribute(PREVIOUS_ATTRIBUTE, accessor.install(context));
+            return true;
+        }
+
+        Map<String, String> previous = accessor.capture();
+        if (!super.preHandle(request, response, handler)) {
+            return false;
+        }
+        request.setAttribute(PREVIOUS_ATTRIBUTE, previous);
+        request.setAttribute(CONTEXT_ATTRIBUTE, accessor.capture());
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(CONTEXT_ATTRIBUTE, CALLABLE_INTERCEPTOR);
+        return true;
+    }
+
+    /**
+     * Gives the container thread its own context back while the request goes on asynchronously. The completion
+     * dispatch installs the whole stored context of the request, including the values set by the application.
+     * 
+     * @see traceability.logback.spring.mvc.HttpHeaderSpringInterceptor#afterConcurrentHandlingStarted(
+     *      javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        super.afterConcurrentHandlingStarted(request, response, handler);
+        MdcAccessor.getInstance().restore((Map<String, String>) request.getAttribute(PREVIOUS_ATTRIBUTE));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The transaction is ended only if the interceptor owns the request: a request traced upstream (e.g. by a
+     * {@link HttpHeaderServletFilter} during the first dispatch) is ended there. The container thread gets its own
+     * context back afterwards.
+     * 
+     * @see traceability.logback.spring.mvc.HttpHeaderSpringInterceptor#afterCompletion(
+     *      javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object,
+     *      java.lang.Exception)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object owner = request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+        // A stored context without owner was traced by a filter of the first dispatch, which is over
+        completeRequest(request, handler, ex, owner == this
+                || owner == null && request.getAttribute(CONTEXT_ATTRIBUTE) == null);
+        MdcAccessor.getInstance().restore((Map<String, String>) request.getAttribute(PREVIOUS_ATTRIBUTE));
+    }
+
+    /**
+     * Installs the context of the request around the {@link Callable} on the task executor thread. Shared by all the
+     * requests, as the state of each one is kept in its attributes.
+     */
+    private static class TraceableCallableInterceptor extends CallableProcessingInterceptorAdapter {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            Map<String, String> context = (Map<String, String>) request.getAttribute(CONTEXT_ATTRIBUTE,
+                    RequestAttributes.SCOPE_REQUEST);
+            request.setAttribute(WORKER_ATTRIBUTE, MdcAccessor.getInstance().install(context),
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            MdcAccessor.getInstance().restore(
+                    (Map<String, String>) request.getAttribute(WORKER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+        }
+    }
+}
\ No newline at end of file
@@ -4,8 +4,22 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TransactionIdGenerator;
+import traceability.logback.id.TransactionIdValidator;
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+import traceability.logback.trace.TraceContextParser;
+
 /**
  * Intercepts all servlet requests, reading the required <b>header</b> from the request and updating the Mapped
  * Diagnostic Context ({@link MDC}) of the thread, so each invocation can be traced and audited.
@@ -24,6 +38,81 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
  * </pre>
  * 
  * <p>
+ * Requests without the header are traced as <code>anonymous</code>, unless an <b>idGenerator</b> is set to give each of
+ * them its own transaction ID:
+ * 
+ * <pre>
+ * {@code
+ *     <property name="idGenerator">
+ *         <bean class="traceability.logback.id.TimeBasedTransactionIdGenerator" />
+ *     </property>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Header values are checked by a {@link TransactionIdValidator} before being injected in the MDC, which may be replaced
+ * with a custom one through the <b>validator</b> property. Invalid values that cannot be kept are replaced by the
+ * <b>idGenerator</b> too, or with <code>anonymous</code>. Rejected requests are not handled and get a
+ * <code>400 Bad Request</code> status.
+ * 
+ * <p>
+ * Setting a <b>sampler</b> (see {@link TransactionSampler}) also injects the sampling decision of the transaction in
+ * the MDC, the received one or a new one:
+ * 
+ * <pre>
+ * {@code
+ *     <property name="sampler">
+ *         <bean class="traceability.logback.sampling.TransactionSampler">
+ *             <constructor-arg value="0.05" />
+ *         </bean>
+ *     </property>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Setting a <b>traceContextParser</b> (see {@link TraceContextParser}) also injects the W3C <code>traceparent</code>
+ * or B3 trace context sent by edge proxies in the MDC:
+ * 
+ * <pre>
+ * {@code
+ *     <property name="traceContextParser">
+ *         <bean class="traceability.logback.trace.TraceContextParser">
+ *             <constructor-arg value="TRACEPARENT" />
+ *         </bean>
+ *     </property>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The end of every request is notified to the {@link FlightRecorders}, as failed if the handler threw an exception.
+ * 
+ * <p>
+ * When a {@link HttpHeaderServletFilter} is installed too, the request reaches the interceptor already traced by the
+ * filter, which owns its MDC values (see {@link HttpHeaderServletFilter#OWNER_ATTRIBUTE}): the interceptor neither
+ * reads the headers nor cleans the MDC up, leaving both to the filter. Otherwise, the interceptor owns the request from
+ * <code>preHandle</code> to <code>afterCompletion</code>: the dispatch of an asynchronous handler cleans the MDC up in
+ * <code>afterConcurrentHandlingStarted</code>, and the completion dispatch installs the same context again.
+ * 
+ * <p>
+ * Setting a <b>latencyRecorder</b> (see {@link LatencyRecorder}) records the duration of the requests, from the first
+ * <code>preHandle</code> to the last <code>afterCompletion</code> (so asynchronous handlers are timed up to the end of
+ * their completion dispatch), per handler method (or per handler class for handlers other than annotated methods):
+ * 
+ * <pre>
+ * {@code
+ *     <property name="latencyRecorder">
+ *         <bean class="traceability.logback.metrics.LatencyRecorder" destroy-method="close">
+ *             <constructor-arg value="api" />
+ *         </bean>
+ *     </property>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * Declared as a bean, the interceptor registers the {@link TraceMetrics} in the MBean server until its context is
+ * closed.
+ * 
+ * <p>
  * Finally, configure your <code>logback.xml</code> file with the configured <b>mdcKey</b> (or <b>%X{transaction}</b> by
  * default):
  * 
@@ -40,14 +129,22 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
  * <p>
  * More info can be found at http://logback.qos.ch/manual/mdc.html.
  */
-public class HttpHeaderSpringInterceptor extends HandlerInterceptorAdapter {
+public class HttpHeaderSpringInterceptor extends HandlerInterceptorAdapter implements InitializingBean, DisposableBean {
 
     private static final String DEFAULT_HEADER_NAME = "x-transaction";
     private static final String DEFAULT_MDC_KEY = "transaction";
-    private static final String ANONYMOUS = "anonymous";
+    private static final String ANONYMOUS = TransactionIdValidator.ANONYMOUS;
+    private static final String CONTEXT_ATTRIBUTE = HttpHeaderSpringInterceptor.class.getName() + ".context";
 
     private String headerName = DEFAULT_HEADER_NAME;
     private String mdcKey = DEFAULT_MDC_KEY;
+    private TransactionIdGenerator idGenerator = null;
+    private TransactionIdValidator validator = new TransactionIdValidator();
+    private TransactionSampler sampler = null;
+    private TraceContextParser traceParser = null;
+    private LatencyRecorder recorder = null;
+    private final RequestTimer timer = new RequestTimer(HttpHeaderSpringInterceptor.class.getName() + ".start");
+    private boolean registered = false;
 
     /**
      * {@inheritDoc}
@@ -57,13 +154,57 @@ public class HttpHeaderSpringInterceptor extends HandlerInterceptorAdapter {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object owner = request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+        if (owner == this) {
+            // Completion dispatch of an asynchronous handler: the transaction resolved by the first dispatch goes on
+            String[] context = (String[]) request.getAttribute(CONTEXT_ATTRIBUTE);
+            if (context != null) {
+                request.removeAttribute(CONTEXT_ATTRIBUTE);
+                installContext(context);
+            }
+        }
+        if (owner != null) {
+            // Traced upstream, which also cleans the MDC up
+            if (recorder != null) {
+                timer.start(request);
+            }
+            return true;
+        }
+
         String transaction = request.getHeader(headerName);
         if (transaction == null || transaction.length() == 0) {
-            transaction = ANONYMOUS;
+            if (idGenerator == null) {
+                TraceMetrics.record(Channel.HTTP_IN, Outcome.ANONYMOUS);
+                transaction = ANONYMOUS;
+            } else {
+                TraceMetrics.record(Channel.HTTP_IN, Outcome.GENERATED);
+                transaction = idGenerator.generate();
+            }
+        } else if (validator != null) {
+            transaction = validator.validate(transaction);
+            if (transaction == null) {
+                TraceMetrics.record(Channel.HTTP_IN, Outcome.REJECTED);
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return false;
+            }
+            TraceMetrics.record(Channel.HTTP_IN, Outcome.TRACED);
+        } else {
+            TraceMetrics.record(Channel.HTTP_IN, Outcome.TRACED);
         }
 
         MDC.put(mdcKey, transaction);
+        if (sampler != null) {
+            MDC.put(sampler.getMdcKey(), sampler.sample(request.getHeader(sampler.getHeaderName()),
+                    ANONYMOUS.equals(transaction) ? null : transaction));
+        }
+        if (traceParser != null) {
+            traceParser.put(request);
+        }
+        request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, this);
 
+        if (recorder != null) {
+            timer.start(request);
+        }
         return true;
     }
 
@@ -75,7 +216,70 @@ public class HttpHeaderSpringInterceptor extends HandlerInterceptorAdapter {
      */
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
-        MDC.remove(mdcKey);
+        Object owner = request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+        completeRequest(request, handler, ex, owner == null || owner == this);
+    }
+
+    /**
+     * Ends the transaction of a request and cleans the MDC up if the interceptor owns the request, then records its
+     * duration.
+     */
+    void completeRequest(HttpServletRequest request, Object handler, Exception ex, boolean owned) {
+        if (owned) {
+            request.removeAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+            request.removeAttribute(CONTEXT_ATTRIBUTE);
+            FlightRecorders.endTransaction(MDC.get(mdcKey), ex != null);
+            removeContext();
+        }
+        if (recorder != null) {
+            timer.stop(recorder, request, entryPoint(handler));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The container thread is released while the handler goes on asynchronously: the interceptor keeps owning the
+     * request, and stores its context as a request attribute, so the completion dispatch goes on with the same
+     * transaction (instead of reading the headers again, which would generate another ID) and ends it.
+     * 
+     * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#afterConcurrentHandlingStarted(javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse, java.lang.Object)
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        if (request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE) == this) {
+            request.setAttribute(CONTEXT_ATTRIBUTE, captureContext());
+            removeContext();
+        }
+        timer.detach(request);
+    }
+
+    /**
+     * Registers the {@link TraceMetrics} in the MBean server.
+     * 
+     * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+     */
+    @Override
+    public synchronized void afterPropertiesSet() {
+        if (!registered) {
+            registered = true;
+            TraceMetrics.register();
+        }
+    }
+
+    /**
+     * Unregisters the {@link TraceMetrics} from the MBean server, if registered by {@link #afterPropertiesSet()}.
+     * 
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public synchronized void destroy() {
+        if (registered) {
+            registered = false;
+            TraceMetrics.unregister();
+        }
     }
 
     /**
@@ -93,4 +297,112 @@ public class HttpHeaderSpringInterceptor extends HandlerInterceptorAdapter {
     public void setMdcKey(String mdcKey) {
         this.mdcKey = mdcKey;
     }
+
+    /**
+     * @param idGenerator
+     *            The idGenerator to set.
+     */
+    public void setIdGenerator(TransactionIdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+        if (validator != null) {
+            validator.setIdGenerator(idGenerator);
+        }
+    }
+
+    /**
+     * @param validator
+     *            The validator to set, or <code>null</code> to inject the header values as they are. It replaces the
+     *            invalid values with the <b>idGenerator</b> of the interceptor, if set.
+     */
+    public void setValidator(TransactionIdValidator validator) {
+        this.validator = validator;
+        if (validator != null && idGenerator != null) {
+            validator.setIdGenerator(idGenerator);
+        }
+    }
+
+    /**
+     * @param sampler
+     *            The sampler to set, or <code>null</code> to disable sampling.
+     */
+    public void setSampler(TransactionSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * @param traceContextParser
+     *            The traceContextParser to set, or <code>null</code> to ignore the trace context headers.
+     */
+    public void setTraceContextParser(TraceContextParser traceContextParser) {
+        this.traceParser = traceContextParser;
+    }
+
+    /**
+     * @param latencyRecorder
+     *            The latencyRecorder to set, or <code>null</code> to disable timing.
+     */
+    public void setLatencyRecorder(LatencyRecorder latencyRecorder) {
+        this.recorder = latencyRecorder;
+    }
+
+    /**
+     * @return The values of the request in the MDC: the transaction, the sampling decision and the trace context.
+     */
+    private String[] captureContext() {
+        String[] context = new String[5];
+        context[0] = MDC.get(mdcKey);
+        if (sampler != null) {
+            context[1] = MDC.get(sampler.getMdcKey());
+        }
+        if (traceParser != null) {
+            context[2] = MDC.get(traceParser.getTraceIdMdcKey());
+            context[3] = MDC.get(traceParser.getSpanIdMdcKey());
+            context[4] = MDC.get(traceParser.getFlagsMdcKey());
+        }
+        return context;
+    }
+
+    /**
+     * Puts the values captured by {@link #captureContext()} back in the MDC.
+     */
+    private void installContext(String[] context) {
+        putIfPresent(mdcKey, context[0]);
+        if (sampler != null) {
+            putIfPresent(sampler.getMdcKey(), context[1]);
+        }
+        if (traceParser != null) {
+            putIfPresent(traceParser.getTraceIdMdcKey(), context[2]);
+            putIfPresent(traceParser.getSpanIdMdcKey(), context[3]);
+            putIfPresent(traceParser.getFlagsMdcKey(), context[4]);
+        }
+    }
+
+    private static void putIfPresent(String key, String value) {
+        if (value != null) {
+            MDC.put(key, value);
+        }
+    }
+
+    /**
+     * Removes the values of the request from the MDC.
+     */
+    private void removeContext() {
+        MDC.remove(mdcKey);
+        if (sampler != null) {
+            MDC.remove(sampler.getMdcKey());
+        }
+        if (traceParser != null) {
+            traceParser.remove();
+        }
+    }
+
+    /**
+     * Returns the entry point of a handler: the method of annotated handlers, the class of the other ones.
+     */
+    static Object entryPoint(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            return ((HandlerMethod) handler).getMethod();
+        }
+        return handler == null ? null : handler.getClass();
+    }
 }
\ No newline at end of file
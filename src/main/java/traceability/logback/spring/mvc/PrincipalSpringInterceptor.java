@@ -6,8 +6,16 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.principal.PrincipalNameCache;
+
 /**
  * Intercepts all servlet requests, reading the {@link Principal} from the request and updating the Mapped Diagnostic
  * Context ({@link MDC}) of the thread, so each invocation can be traced and audited.
@@ -35,6 +43,18 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
  * </pre>
  * 
  * <p>
+ * Principals building a new name on every call (e.g. JAAS or LDAP ones) can share one instance per user through a
+ * {@link PrincipalNameCache}, set with the <b>nameCache</b> property.
+ * 
+ * <p>
+ * Setting a <b>latencyRecorder</b> (see {@link LatencyRecorder}) records the duration of the requests per handler, as
+ * with the {@link HttpHeaderSpringInterceptor}.
+ * 
+ * <p>
+ * Declared as a bean, the interceptor registers the {@link TraceMetrics} in the MBean server until its context is
+ * closed.
+ * 
+ * <p>
  * Finally, configure your <code>logback.xml</code> file with the configured <b>mdcKey</b> (or <b>%X{transaction}</b> by
  * default):
  * 
@@ -51,12 +71,16 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
  * <p>
  * More info can be found at http://logback.qos.ch/manual/mdc.html.
  */
-public class PrincipalSpringInterceptor extends HandlerInterceptorAdapter {
+public class PrincipalSpringInterceptor extends HandlerInterceptorAdapter implements InitializingBean, DisposableBean {
 
     private static final String DEFAULT_MDC_KEY = "transaction";
     private static final String ANONYMOUS = "anonymous";
 
     private String mdcKey = DEFAULT_MDC_KEY;
+    private PrincipalNameCache nameCache = null;
+    private LatencyRecorder recorder = null;
+    private final RequestTimer timer = new RequestTimer(PrincipalSpringInterceptor.class.getName() + ".start");
+    private boolean registered = false;
 
     /**
      * {@inheritDoc}
@@ -68,12 +92,19 @@ public class PrincipalSpringInterceptor extends HandlerInterceptorAdapter {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         String username = ANONYMOUS;
         Principal principal = request.getUserPrincipal();
-        if (principal != null && principal.getName().length() > 0) {
-            username = principal.getName();
+        if (principal != null) {
+            String name = nameCache == null ? principal.getName() : nameCache.getName(principal);
+            if (name != null && name.length() > 0) {
+                username = name;
+            }
         }
+        TraceMetrics.record(Channel.PRINCIPAL, ANONYMOUS.equals(username) ? Outcome.ANONYMOUS : Outcome.TRACED);
 
         MDC.put(mdcKey, username);
 
+        if (recorder != null) {
+            timer.start(request);
+        }
         return true;
     }
 
@@ -86,6 +117,49 @@ public class PrincipalSpringInterceptor extends HandlerInterceptorAdapter {
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
         MDC.remove(mdcKey);
+        if (recorder != null) {
+            timer.stop(recorder, request, HttpHeaderSpringInterceptor.entryPoint(handler));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The request keeps its start time while the handler goes on asynchronously.
+     * 
+     * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#afterConcurrentHandlingStarted(
+     *      javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object)
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        timer.detach(request);
+    }
+
+    /**
+     * Registers the {@link TraceMetrics} in the MBean server.
+     * 
+     * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+     */
+    @Override
+    public synchronized void afterPropertiesSet() {
+        if (!registered) {
+            registered = true;
+            TraceMetrics.register();
+        }
+    }
+
+    /**
+     * Unregisters the {@link TraceMetrics} from the MBean server, if registered by {@link #afterPropertiesSet()}.
+     * 
+     * @see org.springframework.beans.factory.DisposableBean#destroy()
+     */
+    @Override
+    public synchronized void destroy() {
+        if (registered) {
+            registered = false;
+            TraceMetrics.unregister();
+        }
     }
 
     /**
@@ -95,4 +169,20 @@ public class PrincipalSpringInterceptor extends HandlerInterceptorAdapter {
     public void setMdcKey(String mdcKey) {
         this.mdcKey = mdcKey;
     }
+
+    /**
+     * @param nameCache
+     *            The nameCache to set, <code>null</code> to disable it.
+     */
+    public void setNameCache(PrincipalNameCache nameCache) {
+        this.nameCache = nameCache;
+    }
+
+    /**
+     * @param latencyRecorder
+     *            The latencyRecorder to set, or <code>null</code> to disable timing.
+     */
+    public void setLatencyRecorder(LatencyRecorder latencyRecorder) {
+        this.recorder = latencyRecorder;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package traceability.logback.spring.mvc;
+
+import javax.servlet.http.HttpServletRequest;
+
+import traceability.logback.metrics.LatencyRecorder;
+
+/**
+ * Times the requests of an interceptor, from the first <code>preHandle</code> to the last <code>afterCompletion</code>.
+ * The start time is kept as a request attribute, as the dispatches may run on different threads, in a holder reused by
+ * all the synchronous requests of a thread, so timing them allocates nothing. A request going asynchronous takes the
+ * holder of the thread along, and the thread gets a new one.
+ */
+final class RequestTimer {
+
+    private final String attributeName;
+    private final ThreadLocal<long[]> holders = new ThreadLocal<long[]>();
+
+    /**
+     * Constructor.
+     * 
+     * @param attributeName
+     *            The name of the request attribute holding the start time.
+     */
+    RequestTimer(String attributeName) {
+        this.attributeName = attributeName;
+    }
+
+    /**
+     * Starts timing a request, unless an earlier dispatch of the same request (e.g. before an asynchronous handler
+     * returned) did.
+     */
+    void start(HttpServletRequest request) {
+        if (request.getAttribute(attributeName) != null) {
+            return;
+        }
+        long[] holder = holders.get();
+        if (holder == null) {
+            holder = new long[1];
+            holders.set(holder);
+        }
+        holder[0] = System.nanoTime();
+        request.setAttribute(attributeName, holder);
+    }
+
+    /**
+     * Leaves the holder of the current thread to a request going on asynchronously.
+     */
+    void detach(HttpServletRequest request) {
+        long[] holder = holders.get();
+        if (holder != null && request.getAttribute(attributeName) == holder) {
+            holders.remove();
+        }
+    }
+
+    /**
+     * Records the duration of a request started with {@link #start(HttpServletRequest)}, if any.
+     */
+    void stop(LatencyRecorder recorder, HttpServletRequest request, Object entryPoint) {
+        long[] holder = (long[]) request.getAttribute(attributeName);
+        if (holder != null) {
+            request.removeAttribute(attributeName);
+            recorder.record(entryPoint, System.nanoTime() - holder[0]);
+        }
+    }
+}
\ No newline at end of file
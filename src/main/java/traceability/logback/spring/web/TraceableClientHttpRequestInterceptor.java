@@ -0,0 +1,129 @@
+package traceability.logback.spring.web;
+
+import java.io.IOException;
+
+import org.slf4j.MDC;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import traceability.logback.concurrent.ScopedContext;
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.sampling.TransactionSampler;
+import traceability.logback.spring.mvc.HttpHeaderSpringInterceptor;
+
+/**
+ * A thread-safe Spring {@link ClientHttpRequestInterceptor}, that reads the transaction field from the Mapped Diagnostic
+ * Context ({@link MDC}) of the request and injects it in the headers of the <code>RestTemplate</code> requests, so the
+ * called service reads it back with its {@link HttpHeaderServletFilter} or {@link HttpHeaderSpringInterceptor}. The
+ * sampling decision of the transaction (see {@link TransactionSampler}), if any, is forwarded as well.
+ * 
+ * <p>
+ * In order to use the interceptor, add it to the <code>RestTemplate</code>:
+ * 
+ * <pre>
+ * {@code
+ * <bean class="org.springframework.web.client.RestTemplate">
+ *     <property name="interceptors">
+ *         <bean class="traceability.logback.spring.web.TraceableClientHttpRequestInterceptor">
+ *             <property name="headerName" value="x-transaction" />
+ *             <property name="mdcKey" value="transaction" />
+ *         </bean>
+ *     </property>
+ * </bean>
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The <b>headerName</b> must match the configuration of the called services (<code>x-transaction</code> by default). No
+ * header is written if the MDC holds no transaction.
+ */
+public class TraceableClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String DEFAULT_HEADER_NAME = "x-transaction";
+    private static final String DEFAULT_MDC_KEY = "transaction";
+
+    private String headerName = DEFAULT_HEADER_NAME;
+    private String mdcKey = DEFAULT_MDC_KEY;
+    private String sampledHeaderName = TransactionSampler.DEFAULT_HEADER_NAME;
+    private String sampledMdcKey = TransactionSampler.DEFAULT_MDC_KEY;
+
+    /**
+     * Constructor.
+     */
+    public TraceableClientHttpRequestInterceptor() {
+        super();
+    }
+
+    /**
+     * Constructor with all available configurations.
+     */
+    public TraceableClientHttpRequestInterceptor(String mdcKey, String headerName) {
+        super();
+        this.mdcKey = mdcKey;
+        this.headerName = headerName;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see org.springframework.http.client.ClientHttpRequestInterceptor#intercept(org.springframework.http.HttpRequest,
+     *      byte[], org.springframework.http.client.ClientHttpRequestExecution)
+     */
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String transaction = ScopedContext.lookup(mdcKey);
+        if (transaction != null && transaction.length() > 0) {
+            HttpHeaders headers = request.getHeaders();
+            headers.set(headerName, transaction);
+
+            String sampled = ScopedContext.lookup(sampledMdcKey);
+            if (sampled != null && sampled.length() > 0) {
+                headers.set(sampledHeaderName, sampled);
+            }
+            TraceMetrics.record(Channel.HTTP_OUT, Outcome.TRACED);
+        } else {
+            TraceMetrics.record(Channel.HTTP_OUT, Outcome.SKIPPED);
+        }
+
+        return execution.execute(request, body);
+    }
+
+    /**
+     * @param headerName
+     *            The headerName to set.
+     */
+    public void setHeaderName(String headerName) {
+        this.headerName = headerName;
+    }
+
+    /**
+     * @param mdcKey
+     *            The mdcKey to set.
+     */
+    public void setMdcKey(String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    /**
+     * @param sampledHeaderName
+     *            The sampledHeaderName to set.
+     */
+    public void setSampledHeaderName(String sampledHeaderName) {
+        this.sampledHeaderName = sampledHeaderName;
+    }
+
+    /**
+     * @param sampledMdcKey
+     *            The sampledMdcKey to set.
+     */
+    public void setSampledMdcKey(String sampledMdcKey) {
+        this.sampledMdcKey = sampledMdcKey;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,353 @@
+package traceability.logback.trace;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.MDC;
+
+/**
+ * A thread-safe parser of the distributed tracing headers sent by edge proxies, either the W3C Trace Context
+ * <code>traceparent</code> header or the B3 headers (the single <code>b3</code> header, or else the
+ * <code>X-B3-*</code> ones), injecting the trace ID, the span ID and the trace flags in the Mapped Diagnostic Context
+ * ({@link MDC}).
+ * 
+ * <p>
+ * Header values are validated and split in a single pass with index arithmetic, without regular expressions: the only
+ * strings created are the trace ID and the span ID put in the MDC, and none at all for the <code>X-B3-*</code> headers.
+ * Invalid headers are ignored, and nothing is injected.
+ * 
+ * <p>
+ * The flags are injected as received: two hexadecimal digits for <code>traceparent</code> (e.g. <code>01</code> when
+ * sampled), the sampling state for B3 (<code>1</code>, <code>0</code> or <code>d</code> for debug).
+ */
+public class TraceContextParser {
+
+    /**
+     * Supported header formats.
+     */
+    public enum Format {
+
+        /**
+         * W3C Trace Context: <code>traceparent: 00-{trace-id}-{parent-id}-{flags}</code>.
+         */
+        TRACEPARENT,
+
+        /**
+         * B3: <code>b3: {TraceId}-{SpanId}-{SamplingState}-{ParentSpanId}</code>, or the <code>X-B3-TraceId</code>,
+         * <code>X-B3-SpanId</code>, <code>X-B3-Sampled</code> and <code>X-B3-Flags</code> headers.
+         */
+        B3
+    }
+
+    /** Name of the W3C Trace Context header. */
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    /** Name of the single B3 header. */
+    public static final String B3_HEADER = "b3";
+
+    /** Name of the B3 trace ID header. */
+    public static final String B3_TRACE_ID_HEADER = "X-B3-TraceId";
+
+    /** Name of the B3 span ID header. */
+    public static final String B3_SPAN_ID_HEADER = "X-B3-SpanId";
+
+    /** Name of the B3 sampling state header. */
+    public static final String B3_SAMPLED_HEADER = "X-B3-Sampled";
+
+    /** Name of the B3 debug flag header. */
+    public static final String B3_FLAGS_HEADER = "X-B3-Flags";
+
+    /** Default key of the trace ID in the MDC. */
+    public static final String DEFAULT_TRACE_ID_MDC_KEY = "trace_id";
+
+    /** Default key of the span ID in the MDC. */
+    public static final String DEFAULT_SPAN_ID_MDC_KEY = "span_id";
+
+    /** Default key of the trace flags in the MDC. */
+    public static final String DEFAULT_FLAGS_MDC_KEY = "trace_flags";
+
+    // traceparent: 00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01
+    private static final int TRACEPARENT_LENGTH = 55;
+    private static final int TRACE_ID_START = 3;
+    private static final int SPAN_ID_START = 36;
+    private static final int FLAGS_START = 53;
+
+    private static final int TRACE_ID_LENGTH = 32;
+    private static final int SHORT_TRACE_ID_LENGTH = 16;
+    private static final int SPAN_ID_LENGTH = 16;
+
+    private static final String SAMPLED = "1";
+    private static final String NOT_SAMPLED = "0";
+    private static final String DEBUG = "d";
+
+    private static final String[] HEX_BYTES = createHexBytes();
+
+    private final Format format;
+    private String traceIdMdcKey = DEFAULT_TRACE_ID_MDC_KEY;
+    private String spanIdMdcKey = DEFAULT_SPAN_ID_MDC_KEY;
+    private String flagsMdcKey = DEFAULT_FLAGS_MDC_KEY;
+
+    /**
+     * Constructor.
+     * 
+     * @param format
+     *            The format of the headers to parse.
+     */
+    public TraceContextParser(Format format) {
+        if (format == null) {
+            throw new NullPointerException("format");
+        }
+        this.format = format;
+    }
+
+    /**
+     * Injects the trace context of a request in the MDC, if its headers are valid.
+     * 
+     * @param request
+     *            The HTTP request.
+     * @return <code>true</code> if injected.
+     */
+    public boolean put(HttpServletRequest request) {
+        if (format == Format.TRACEPARENT) {
+            return putTraceparent(request.getHeader(TRACEPARENT_HEADER));
+        }
+        String single = request.getHeader(B3_HEADER);
+        if (single != null) {
+            return putB3(single);
+        }
+        String sampled = SAMPLED.equals(request.getHeader(B3_FLAGS_HEADER)) ? DEBUG : request
+                .getHeader(B3_SAMPLED_HEADER);
+        return putB3(request.getHeader(B3_TRACE_ID_HEADER), request.getHeader(B3_SPAN_ID_HEADER), sampled);
+    }
+
+    /**
+     * Injects the trace context of a <code>traceparent</code> header in the MDC, if valid.
+     * 
+     * @param traceparent
+     *            The header value, may be <code>null</code>.
+     * @return <code>true</code> if injected.
+     */
+    public boolean putTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() < TRACEPARENT_LENGTH) {
+            return false;
+        }
+        // Version ff is forbidden, later versions may append fields after a dash
+        if (!isHex(traceparent, 0, 2) || traceparent.startsWith("ff")
+                || (traceparent.length() > TRACEPARENT_LENGTH && (traceparent.startsWith("00") || traceparent
+                        .charAt(TRACEPARENT_LENGTH) != '-'))) {
+            return false;
+        }
+        if (traceparent.charAt(TRACE_ID_START - 1) != '-' || traceparent.charAt(SPAN_ID_START - 1) != '-'
+                || traceparent.charAt(FLAGS_START - 1) != '-') {
+            return false;
+        }
+        if (!isId(traceparent, TRACE_ID_START, SPAN_ID_START - 1) || !isId(traceparent, SPAN_ID_START, FLAGS_START - 1)
+                || !isHex(traceparent, FLAGS_START, TRACEPARENT_LENGTH)) {
+            return false;
+        }
+
+        MDC.put(traceIdMdcKey, traceparent.substring(TRACE_ID_START, SPAN_ID_START - 1));
+        MDC.put(spanIdMdcKey, traceparent.substring(SPAN_ID_START, FLAGS_START - 1));
+        MDC.put(flagsMdcKey, HEX_BYTES[hexValue(traceparent.charAt(FLAGS_START)) << 4
+                | hexValue(traceparent.charAt(FLAGS_START + 1))]);
+        return true;
+    }
+
+    /**
+     * Injects the trace context of a single <code>b3</code> header in the MDC, if valid. A header only made of the
+     * sampling state carries no trace context, and is ignored.
+     * 
+     * @param b3
+     *            The header value, may be <code>null</code>.
+     * @return <code>true</code> if injected.
+     */
+    public boolean putB3(String b3) {
+        if (b3 == null) {
+            return false;
+        }
+        int length = b3.length();
+        int traceIdEnd = length > TRACE_ID_LENGTH && b3.charAt(TRACE_ID_LENGTH) == '-' ? TRACE_ID_LENGTH
+                : SHORT_TRACE_ID_LENGTH;
+        int spanIdEnd = traceIdEnd + 1 + SPAN_ID_LENGTH;
+        if (length < spanIdEnd || b3.charAt(traceIdEnd) != '-' || !isId(b3, 0, traceIdEnd)
+                || !isId(b3, traceIdEnd + 1, spanIdEnd)) {
+            return false;
+        }
+
+        String sampled = null;
+        if (length > spanIdEnd) {
+            // -{SamplingState}, then optionally -{ParentSpanId}
+            if (b3.charAt(spanIdEnd) != '-' || length == spanIdEnd + 1) {
+                return false;
+            }
+            sampled = sampled(b3.charAt(spanIdEnd + 1));
+            int parentStart = spanIdEnd + 3;
+            if (sampled == null
+                    || (length > spanIdEnd + 2 && (b3.charAt(spanIdEnd + 2) != '-'
+                            || length != parentStart + SPAN_ID_LENGTH || !isId(b3, parentStart, length)))) {
+                return false;
+            }
+        }
+
+        MDC.put(traceIdMdcKey, b3.substring(0, traceIdEnd));
+        MDC.put(spanIdMdcKey, b3.substring(traceIdEnd + 1, spanIdEnd));
+        if (sampled != null) {
+            MDC.put(flagsMdcKey, sampled);
+        }
+        return true;
+    }
+
+    /**
+     * Injects the trace context of the <code>X-B3-*</code> headers in the MDC, if valid.
+     * 
+     * @param traceId
+     *            The <code>X-B3-TraceId</code> header value, may be <code>null</code>.
+     * @param spanId
+     *            The <code>X-B3-SpanId</code> header value, may be <code>null</code>.
+     * @param sampled
+     *            The <code>X-B3-Sampled</code> header value (<code>1</code>, <code>0</code>, or the legacy
+     *            <code>true</code> and <code>false</code>), <code>d</code> if the <code>X-B3-Flags</code> header is
+     *            <code>1</code>, may be <code>null</code>.
+     * @return <code>true</code> if injected.
+     */
+    public boolean putB3(String traceId, String spanId, String sampled) {
+        if (traceId == null || spanId == null) {
+            return false;
+        }
+        if ((traceId.length() != TRACE_ID_LENGTH && traceId.length() != SHORT_TRACE_ID_LENGTH)
+                || !isId(traceId, 0, traceId.length()) || spanId.length() != SPAN_ID_LENGTH
+                || !isId(spanId, 0, SPAN_ID_LENGTH)) {
+            return false;
+        }
+
+        MDC.put(traceIdMdcKey, traceId);
+        MDC.put(spanIdMdcKey, spanId);
+        String flags = null;
+        if (sampled != null) {
+            flags = sampled.length() == 1 ? sampled(sampled.charAt(0)) : "true".equalsIgnoreCase(sampled) ? SAMPLED
+                    : "false".equalsIgnoreCase(sampled) ? NOT_SAMPLED : null;
+        }
+        if (flags != null) {
+            MDC.put(flagsMdcKey, flags);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the trace context from the MDC.
+     */
+    public void remove() {
+        MDC.remove(traceIdMdcKey);
+        MDC.remove(spanIdMdcKey);
+        MDC.remove(flagsMdcKey);
+    }
+
+    /**
+     * @return The format of the parsed headers.
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return The key of the trace ID in the MDC.
+     */
+    public String getTraceIdMdcKey() {
+        return traceIdMdcKey;
+    }
+
+    /**
+     * @param traceIdMdcKey
+     *            The traceIdMdcKey to set.
+     */
+    public void setTraceIdMdcKey(String traceIdMdcKey) {
+        this.traceIdMdcKey = traceIdMdcKey;
+    }
+
+    /**
+     * @return The key of the span ID in the MDC.
+     */
+    public String getSpanIdMdcKey() {
+        return spanIdMdcKey;
+    }
+
+    /**
+     * @param spanIdMdcKey
+     *            The spanIdMdcKey to set.
+     */
+    public void setSpanIdMdcKey(String spanIdMdcKey) {
+        this.spanIdMdcKey = spanIdMdcKey;
+    }
+
+    /**
+     * @return The key of the trace flags in the MDC.
+     */
+    public String getFlagsMdcKey() {
+        return flagsMdcKey;
+    }
+
+    /**
+     * @param flagsMdcKey
+     *            The flagsMdcKey to set.
+     */
+    public void setFlagsMdcKey(String flagsMdcKey) {
+        this.flagsMdcKey = flagsMdcKey;
+    }
+
+    /**
+     * Checks that <code>[from, to[</code> is made of lowercase hexadecimal digits, not all zeros.
+     */
+    private static boolean isId(String value, int from, int to) {
+        boolean zero = true;
+        for (int i = from; i < to; i++) {
+            int digit = hexValue(value.charAt(i));
+            if (digit < 0) {
+                return false;
+            }
+            zero &= digit == 0;
+        }
+        return !zero;
+    }
+
+    /**
+     * Checks that <code>[from, to[</code> is made of lowercase hexadecimal digits.
+     */
+    private static boolean isHex(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (hexValue(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static String sampled(char state) {
+        switch (state) {
+        case '1':
+            return SAMPLED;
+        case '0':
+            return NOT_SAMPLED;
+        case 'd':
+            return DEBUG;
+        default:
+            return null;
+        }
+    }
+
+    private static String[] createHexBytes() {
+        String[] hexBytes = new String[256];
+        for (int i = 0; i < hexBytes.length; i++) {
+            hexBytes[i] = Character.forDigit(i >> 4, 16) + "" + Character.forDigit(i & 0xF, 16);
+        }
+        return hexBytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package traceability.logback.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+/**
+ * Unit test for {@link MdcAccessor} and {@link LogbackMdcAccessor}.
+ */
+public class TestMdcAccessor {
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testGetInstance_ShouldUseLogbackAccessorWithLogback() throws Exception {
+        assertTrue(MdcAccessor.getInstance() instanceof LogbackMdcAccessor);
+    }
+
+    @Test
+    public void testCapture_ShouldNotCopyLogbackContext() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        MdcAccessor accessor = MdcAccessor.getInstance();
+        assertSame(accessor.capture(), accessor.capture());
+    }
+
+    @Test
+    public void testCapture_ShouldNotSeeLaterChangesOfTheThread() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        Map<String, String> captured = MdcAccessor.getInstance().capture();
+
+        MDC.put("transaction", "modified");
+        MDC.put("another_key", "value");
+
+        assertEquals(Collections.singletonMap("transaction", "unique_transaction"), new HashMap<String, String>(
+                captured));
+    }
+
+    @Test
+    public void testInstall_ShouldShareCapturedContextUntilModified() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MdcAccessor accessor = MdcAccessor.getInstance();
+        Map<String, String> captured = accessor.capture();
+        MDC.clear();
+
+        Map<String, String> previous = accessor.install(captured);
+        assertEquals("unique_transaction", MDC.get("transaction"));
+
+        MDC.put("transaction", "modified");
+        assertEquals("modified", MDC.get("transaction"));
+        assertEquals("unique_transaction", captured.get("transaction"));
+
+        accessor.restore(previous);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testInstall_ShouldClearContextIfNull() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MdcAccessor accessor = MdcAccessor.getInstance();
+
+        Map<String, String> previous = accessor.install(null);
+        assertNull(MDC.get("transaction"));
+
+        accessor.restore(previous);
+        assertEquals("unique_transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testInstall_ShouldCopyContextWithGenericAccessor() throws Exception {
+        MdcAccessor accessor = new MdcAccessor();
+        MDC.put("transaction", "unique_transaction");
+        Map<String, String> captured = accessor.capture();
+        MDC.clear();
+
+        Map<String, String> previous = accessor.install(captured);
+        assertEquals("unique_transaction", MDC.get("transaction"));
+        MDC.put("transaction", "modified");
+        assertEquals("unique_transaction", captured.get("transaction"));
+
+        accessor.restore(previous);
+        assertNull(MDC.get("transaction"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package traceability.logback.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Unit test for {@link ScopedContext} and {@link ScopedContextTurboFilter}.
+ */
+public class TestScopedContext {
+
+    private LoggerContext loggerContext;
+    private ScopedContextTurboFilter filter;
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        filter = new ScopedContextTurboFilter();
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        logger = loggerContext.getLogger(TestScopedContext.class);
+        logger.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        loggerContext.getTurboFilterList().remove(filter);
+        logger.setLevel(null);
+    }
+
+    @Test
+    public void testCurrent_ShouldBeEmptyOutOfAnyScope() throws Exception {
+        assertTrue(ScopedContext.current().asMap().isEmpty());
+        assertNull(ScopedContext.get("transaction"));
+    }
+
+    @Test
+    public void testWhere_ShouldNotModifyOriginalContext() throws Exception {
+        ScopedContext original = ScopedContext.current().where("transaction", "unique_transaction");
+        ScopedContext modified = original.where("transaction", "modified").where("user", "anonymous");
+
+        assertEquals("unique_transaction", original.asMap().get("transaction"));
+        assertEquals(1, original.asMap().size());
+        assertEquals("modified", modified.asMap().get("transaction"));
+        assertEquals("anonymous", modified.asMap().get("user"));
+        assertTrue(modified.where("user", null).where("transaction", null).asMap().isEmpty());
+    }
+
+    @Test
+    public void testCapture_ShouldOverrideMDCWithBoundContext() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("user", "anonymous");
+
+        String captured = ScopedContext.current().where("transaction", "scoped_transaction").call(
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        ScopedContext context = ScopedContext.capture();
+                        return context.asMap().get("transaction") + "," + context.asMap().get("user");
+                    }
+                });
+
+        assertEquals("scoped_transaction,anonymous", captured);
+        assertEquals("unique_transaction", ScopedContext.capture().asMap().get("transaction"));
+    }
+
+    @Test
+    public void testRun_ShouldBindContextOnlyDuringTheCall() throws Exception {
+        final StringBuilder seen = new StringBuilder();
+
+        ScopedContext.current().where("transaction", "unique_transaction").run(new Runnable() {
+            @Override
+            public void run() {
+                seen.append(ScopedContext.get("transaction"));
+            }
+        });
+
+        assertEquals("unique_transaction", seen.toString());
+        assertNull(ScopedContext.get("transaction"));
+    }
+
+    @Test
+    public void testCall_ShouldRestoreOuterContextWhenNestedScopeEnds() throws Exception {
+        String result = ScopedContext.current().where("transaction", "outer").call(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                String inner = ScopedContext.current().where("transaction", "inner").call(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return ScopedContext.get("transaction");
+                    }
+                });
+                return inner + "," + ScopedContext.get("transaction");
+            }
+        });
+
+        assertEquals("inner,outer", result);
+    }
+
+    @Test
+    public void testCall_ShouldUnbindContextWhenOperationFails() throws Exception {
+        try {
+            ScopedContext.current().where("transaction", "unique_transaction").call(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new IllegalStateException("failure");
+                }
+            });
+            fail("The exception of the operation should be propagated");
+        } catch (IllegalStateException e) {
+            assertEquals("failure", e.getMessage());
+        }
+
+        assertNull(ScopedContext.get("transaction"));
+    }
+
+    @Test
+    public void testWrap_ShouldRunForkedTaskWithContextOfTheScope() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            ScopedContext context = ScopedContext.current().where("transaction", "unique_transaction");
+            Callable<String> task = context.wrap(new Callable<String>() {
+                @Override
+                public String call() {
+                    return ScopedContext.get("transaction");
+                }
+            });
+
+            assertEquals("unique_transaction", pool.submit(task).get());
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testRun_ShouldNotTouchMDCIfNothingIsLogged() throws Exception {
+        final StringBuilder seen = new StringBuilder();
+
+        ScopedContext.current().where("transaction", "unique_transaction").run(new Runnable() {
+            @Override
+            public void run() {
+                logger.debug("Disabled level, not bridged");
+                seen.append(MDC.get("transaction"));
+            }
+        });
+
+        assertEquals("null", seen.toString());
+    }
+
+    @Test
+    public void testRun_ShouldBridgeContextIntoMDCWhenLogging() throws Exception {
+        MDC.put("user", "anonymous");
+        final StringBuilder seen = new StringBuilder();
+
+        ScopedContext.current().where("transaction", "unique_transaction").run(new Runnable() {
+            @Override
+            public void run() {
+                logger.info("Enabled level, bridged");
+                seen.append(MDC.get("transaction")).append(',').append(MDC.get("user"));
+            }
+        });
+
+        assertEquals("unique_transaction,anonymous", seen.toString());
+        assertNull(MDC.get("transaction"));
+        assertEquals("anonymous", MDC.get("user"));
+    }
+
+    @Test
+    public void testLookup_ShouldReadBoundContextThenMDC() throws Exception {
+        MDC.put("user", "anonymous");
+        final StringBuilder seen = new StringBuilder();
+
+        ScopedContext.current().where("transaction", "unique_transaction").run(new Runnable() {
+            @Override
+            public void run() {
+                seen.append(ScopedContext.lookup("transaction")).append(',').append(ScopedContext.lookup("user"));
+                logger.info("Enabled level, bridged");
+                MDC.put("transaction", "modified");
+                seen.append(',').append(ScopedContext.lookup("transaction"));
+            }
+        });
+
+        assertEquals("unique_transaction,anonymous,modified", seen.toString());
+        assertNull(ScopedContext.lookup("transaction"));
+    }
+}
\ No newline at end of file
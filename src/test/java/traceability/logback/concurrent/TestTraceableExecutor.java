@@ -0,0 +1,244 @@
+package traceability.logback.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+
+import traceability.logback.spring.jms.TraceableMessagePostProcessor;
+
+/**
+ * Unit test for {@link TraceableExecutor}.
+ */
+public class TestTraceableExecutor {
+
+    private LoggerContext loggerContext;
+    private ScopedContextTurboFilter filter;
+    private Logger logger;
+
+    private ExecutorService firstPool;
+    private ExecutorService secondPool;
+    private TraceableExecutor first;
+    private TraceableExecutor second;
+
+    @Before
+    public void setUp() throws Exception {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        filter = new ScopedContextTurboFilter();
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        logger = loggerContext.getLogger(TestTraceableExecutor.class);
+        logger.setLevel(Level.INFO);
+
+        firstPool = Executors.newSingleThreadExecutor();
+        secondPool = Executors.newSingleThreadExecutor();
+        first = new TraceableExecutor(firstPool);
+        second = new TraceableExecutor(secondPool);
+
+        // Logback MDC is inherited by new threads, so the pool threads are started before any MDC is set
+        poolContext(firstPool);
+        poolContext(secondPool);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        loggerContext.getTurboFilterList().remove(filter);
+        logger.setLevel(null);
+
+        firstPool.shutdownNow();
+        secondPool.shutdownNow();
+        firstPool.awaitTermination(5, TimeUnit.SECONDS);
+        secondPool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_ShouldRejectNullDelegate() throws Exception {
+        new TraceableExecutor(null);
+    }
+
+    @Test
+    public void testDecorate_ShouldReturnTaskIfNoContext() throws Exception {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        assertSame(task, TraceableExecutor.decorate(task));
+    }
+
+    @Test
+    public void testExecute_ShouldFillMDCOnlyWhenLogging() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        FutureTask<String> result = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() {
+                String before = MDC.get("transaction") + "," + ScopedContext.get("transaction");
+                logger.info("Enabled level, bridged");
+                return before + "," + MDC.get("transaction");
+            }
+        });
+        first.execute(result);
+
+        assertEquals("null,unique_transaction,unique_transaction", result.get());
+        assertEquals("null,null", poolContext(firstPool));
+    }
+
+    @Test
+    public void testExecute_ShouldPropagateTransactionBeforeLogging() throws Exception {
+        Mockery mockery = new Mockery();
+        final Message messageMock = mockery.mock(Message.class);
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setStringProperty(with("transaction"), with("unique_transaction"));
+            }
+        });
+        MDC.put("transaction", "unique_transaction");
+
+        FutureTask<String> result = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                // Nothing logged yet, so the MDC of the pool thread is still empty
+                new TraceableMessagePostProcessor().postProcessMessage(messageMock);
+                return MDC.get("transaction");
+            }
+        });
+        first.execute(result);
+
+        assertNull(result.get(5, TimeUnit.SECONDS));
+        mockery.assertIsSatisfied();
+    }
+
+    @Test
+    public void testExecute_ShouldCarryContextAcrossThreadHops() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        final FutureTask<String> secondStage = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() {
+                logger.info("Second stage");
+                return MDC.get("transaction");
+            }
+        });
+
+        first.execute(new Runnable() {
+            @Override
+            public void run() {
+                logger.info("First stage");
+                second.execute(secondStage);
+            }
+        });
+
+        assertEquals("unique_transaction", secondStage.get(5, TimeUnit.SECONDS));
+        assertEquals("null,null", poolContext(firstPool));
+        assertEquals("null,null", poolContext(secondPool));
+    }
+
+    @Test
+    public void testExecute_ShouldCarryScopedContextOverMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("user", "anonymous");
+        final FutureTask<String> result = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() {
+                return ScopedContext.get("transaction") + "," + ScopedContext.get("user");
+            }
+        });
+
+        ScopedContext.current().where("transaction", "scoped_transaction").run(new Runnable() {
+            @Override
+            public void run() {
+                first.execute(result);
+            }
+        });
+
+        assertEquals("scoped_transaction,anonymous", result.get());
+    }
+
+    @Test
+    public void testExecute_ShouldNotLeakContextOfCancelledTask() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        firstPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        MDC.put("transaction", "unique_transaction");
+        FutureTask<String> cancelled = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() {
+                return MDC.get("transaction");
+            }
+        });
+        first.execute(cancelled);
+        assertTrue(cancelled.cancel(false));
+        blocked.countDown();
+
+        assertEquals("null,null", poolContext(firstPool));
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    public void testExecute_ShouldRestorePoolThreadWhenRunningTaskIsCancelled() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        MDC.put("transaction", "unique_transaction");
+        FutureTask<String> running = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                logger.info("Started");
+                started.countDown();
+                new CountDownLatch(1).await();
+                return MDC.get("transaction");
+            }
+        });
+        first.execute(running);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(running.cancel(true));
+
+        assertEquals("null,null", poolContext(firstPool));
+        assertTrue(running.isCancelled());
+    }
+
+    /**
+     * Returns the transaction of a pool thread, once the pending tasks are done.
+     */
+    private String poolContext(ExecutorService pool) throws Exception {
+        return pool.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return MDC.get("transaction") + "," + ScopedContext.get("transaction");
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+}
\ No newline at end of file
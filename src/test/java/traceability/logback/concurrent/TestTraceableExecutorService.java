@@ -0,0 +1,233 @@
+package traceability.logback.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+/**
+ * Unit test for {@link TraceableExecutorService}.
+ */
+public class TestTraceableExecutorService {
+
+    private ExecutorService pool;
+    private TraceableExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        // A single thread, so every task reuses the thread of the previous one
+        pool = Executors.newSingleThreadExecutor();
+        executor = new TraceableExecutorService(pool);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSubmit_ShouldRunCallableWithSubmitterMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        assertEquals("unique_transaction", executor.submit(new ReadMDC("transaction")).get());
+    }
+
+    @Test
+    public void testSubmit_ShouldRunRunnableWithSubmitterMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        final String[] seen = new String[1];
+
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = MDC.get("transaction");
+            }
+        }).get();
+
+        assertEquals("unique_transaction", seen[0]);
+    }
+
+    @Test
+    public void testExecute_ShouldRunRunnableWithSubmitterMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        final String[] seen = new String[1];
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                seen[0] = MDC.get("transaction");
+            }
+        });
+        executor.submit(new ReadMDC("transaction")).get(); // Waits for the previous task
+
+        assertEquals("unique_transaction", seen[0]);
+    }
+
+    @Test
+    public void testSubmit_ShouldCaptureMDCAtSubmitTime() throws Exception {
+        MDC.put("transaction", "first");
+        Future<String> first = executor.submit(new ReadMDC("transaction"));
+        MDC.put("transaction", "second");
+        Future<String> second = executor.submit(new ReadMDC("transaction"));
+        MDC.remove("transaction");
+        Future<String> third = executor.submit(new ReadMDC("transaction"));
+
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+        assertNull(third.get());
+    }
+
+    @Test
+    public void testSubmit_ShouldNotLeakMDCBetweenTasks() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                MDC.put("task_key", "task_value");
+                return null;
+            }
+        }).get();
+        MDC.clear();
+
+        assertNull(executor.submit(new ReadMDC("transaction")).get());
+        assertNull(executor.submit(new ReadMDC("task_key")).get());
+    }
+
+    @Test
+    public void testSubmit_ShouldNotModifySubmitterMDCFromTask() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                MDC.put("transaction", "modified");
+                MDC.put("task_key", "task_value");
+                return null;
+            }
+        }).get();
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+        assertNull(MDC.get("task_key"));
+    }
+
+    @Test
+    public void testSubmit_ShouldRestorePoolThreadMDC() throws Exception {
+        ExecutorService inline = new TraceableExecutorService(new CallerRunsExecutorService());
+        MDC.put("transaction", "caller");
+
+        // The task runs on the calling thread, with a different captured context
+        Callable<String> task = new ReadMDC("transaction");
+        MDC.put("transaction", "captured");
+        Callable<String> traceable = new TraceableCallable<String>(task);
+        MDC.put("transaction", "caller");
+
+        assertEquals("captured", traceable.call());
+        assertEquals("caller", MDC.get("transaction"));
+        assertEquals("caller", inline.submit(task).get());
+        assertEquals("caller", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testInvokeAll_ShouldRunAllCallablesWithSubmitterMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        List<Future<String>> results = executor.invokeAll(Arrays.asList(new ReadMDC("transaction"), new ReadMDC(
+                "transaction")));
+
+        assertEquals("unique_transaction", results.get(0).get());
+        assertEquals("unique_transaction", results.get(1).get());
+    }
+
+    @Test
+    public void testInvokeAny_ShouldRunCallableWithSubmitterMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        assertEquals("unique_transaction", executor.invokeAny(Arrays.asList(new ReadMDC("transaction"))));
+    }
+
+    @Test
+    public void testShutdown_ShouldShutdownDelegate() throws Exception {
+        executor.shutdown();
+
+        assertEquals(true, pool.isShutdown());
+        assertEquals(true, executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(true, executor.isTerminated());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testConstructor_ShouldRejectNullDelegate() throws Exception {
+        new TraceableExecutorService(null);
+    }
+
+    /**
+     * Test helper returning an MDC value of the thread running the task.
+     */
+    private static class ReadMDC implements Callable<String> {
+
+        private final String key;
+
+        ReadMDC(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String call() {
+            return MDC.get(key);
+        }
+    }
+
+    /**
+     * Test helper running the tasks in the submitting thread.
+     */
+    private static class CallerRunsExecutorService extends AbstractExecutorService {
+
+        private boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package traceability.logback.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+/**
+ * Unit test for {@link TraceableScheduledExecutorService}.
+ */
+public class TestTraceableScheduledExecutorService {
+
+    private ScheduledExecutorService pool;
+    private TraceableScheduledExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = Executors.newScheduledThreadPool(1);
+        executor = new TraceableScheduledExecutorService(pool);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSchedule_ShouldRunCallableWithSchedulerMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        ScheduledFuture<String> result = executor.schedule(new Callable<String>() {
+            @Override
+            public String call() {
+                return MDC.get("transaction");
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        assertEquals("unique_transaction", result.get());
+    }
+
+    @Test
+    public void testSchedule_ShouldRunRunnableWithSchedulerMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        final BlockingQueue<String> seen = new LinkedBlockingQueue<String>();
+
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                seen.add(String.valueOf(MDC.get("transaction")));
+            }
+        }, 10, TimeUnit.MILLISECONDS).get();
+
+        assertEquals("unique_transaction", seen.poll());
+    }
+
+    @Test
+    public void testScheduleAtFixedRate_ShouldRunEveryExecutionWithSchedulerMDC() throws Exception {
+        final BlockingQueue<String> seen = new LinkedBlockingQueue<String>();
+        final CountDownLatch executions = new CountDownLatch(3);
+
+        MDC.put("transaction", "unique_transaction");
+        ScheduledFuture<?> result = executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                seen.add(String.valueOf(MDC.get("transaction")));
+                MDC.put("transaction", "modified_by_task");
+                executions.countDown();
+            }
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(executions.await(5, TimeUnit.SECONDS));
+        result.cancel(false);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("unique_transaction", seen.poll());
+        }
+    }
+
+    @Test
+    public void testScheduleWithFixedDelay_ShouldRunEveryExecutionWithSchedulerMDC() throws Exception {
+        final BlockingQueue<String> seen = new LinkedBlockingQueue<String>();
+        final CountDownLatch executions = new CountDownLatch(2);
+
+        MDC.put("transaction", "unique_transaction");
+        ScheduledFuture<?> result = executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                seen.add(String.valueOf(MDC.get("transaction")));
+                executions.countDown();
+            }
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(executions.await(5, TimeUnit.SECONDS));
+        result.cancel(false);
+
+        assertEquals("unique_transaction", seen.poll());
+        assertEquals("unique_transaction", seen.poll());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,375 @@
+package traceability.logback.cxf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ListIterator;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.phase.PhaseManagerImpl;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TransactionIdValidator;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+
+/**
+ * Unit test for {@link TraceableHeaderSoapInInterceptor}.
+ */
+public class TestTraceableHeaderSoapInInterceptor {
+
+    private static final String ENVELOPE_START = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">";
+    private static final String BODY = "<soap:Body><ns:echo xmlns:ns=\"http://localdomain/service\">"
+            + "<SOAPTransaction>body_is_not_a_header</SOAPTransaction></ns:echo></soap:Body></soap:Envelope>";
+
+    private static Bus bus;
+
+    private TraceableHeaderSoapInInterceptor interceptor;
+
+    @BeforeClass
+    public static void setUpBus() {
+        bus = BusFactory.newInstance().createBus();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        interceptor = new TraceableHeaderSoapInInterceptor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testHandleMessage_ShouldSetSoapHeaderTransactionInMDC() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "</soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldKeepSoapHeadersAvailableToCXF() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "</soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals(1, message.getHeaders().size());
+        assertEquals("SOAPTransaction", message.getHeaders().get(0).getName().getLocalPart());
+    }
+
+    @Test
+    public void testHandleMessage_ShouldNotModifyMDCIfSoapHeaderNotFound() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><Another>value</Another></soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldNotModifyMDCIfEnvelopeHasNoHeader() throws Exception {
+        SoapMessage message = createMessage("");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldNotModifyMDCIfSoapHeaderIsEmpty() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction/></soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldUseAlternateMDCKeyIfConfigured() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "</soap:Header>");
+
+        interceptor.setMdcKey("another-transaction");
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertNull(MDC.get("transaction"));
+        assertEquals("unique_transaction", MDC.get("another-transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldUseAlternateSoapKeyIfConfigured() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>ignored</SOAPTransaction>"
+                + "<DifferentElementName>unique_transaction</DifferentElementName></soap:Header>");
+
+        interceptor.setSoapKey("DifferentElementName");
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldUseNamespaceIfConfigured() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>no_namespace</SOAPTransaction>"
+                + "<core:SOAPTransaction xmlns:core=\"http://localdomain/core_1\">unique_transaction"
+                + "</core:SOAPTransaction></soap:Header>");
+
+        interceptor.setNamespace("http://localdomain/core_1");
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldReadHeaderWrittenByOutboundInterceptorInStreamingMode() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><trace:SOAPTransaction "
+                + "xmlns:trace=\"http://localdomain/core_1\">unique&amp;transaction</trace:SOAPTransaction>"
+                + "</soap:Header>");
+
+        TransactionIdValidator validator = new TransactionIdValidator();
+        validator.setAllowedChars("&");
+        interceptor.setValidator(validator);
+        interceptor.setNamespace("http://localdomain/core_1");
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique&transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldRegisterCleanupToClearMDCOnceCompleted() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "</soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+        assertEquals("unique_transaction", MDC.get("transaction"));
+
+        Interceptor<? extends Message> cleanup = findCleanupInterceptor(message);
+        assertNotNull(cleanup);
+
+        cleanup.handleMessage(null);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleFault_ShouldClearMDC() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        interceptor.handleFault(createMessage(""));
+
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldEndTransactionForFlightRecorders() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "</soap:Header>");
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            interceptor.handleMessage(message);
+            readHeaders(message);
+            findCleanupInterceptor(message).handleMessage(null);
+            assertEquals("discard:unique_transaction ", seen.toString());
+
+            seen.setLength(0);
+            MDC.put("transaction", "unique_transaction");
+            interceptor.handleFault(createMessage(""));
+            assertEquals("flush:unique_transaction discard:unique_transaction ", seen.toString());
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testHandleMessage_ShouldReadFromInputStreamIfNoReaderAvailable() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "</soap:Header>");
+        message.removeContent(XMLStreamReader.class);
+
+        interceptor.handleMessage(message);
+        assertTrue(message.getContent(XMLStreamReader.class) != null);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldTruncateInvalidSoapHeaderTransaction() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction&#13;&#10;forged line"
+                + "</SOAPTransaction></soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldRejectInvalidSoapHeaderTransactionIfConfigured() throws Exception {
+        TransactionIdValidator validator = new TransactionIdValidator();
+        validator.setPolicy(TransactionIdValidator.Policy.REJECT);
+        interceptor.setValidator(validator);
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique/transaction</SOAPTransaction>"
+                + "</soap:Header>");
+        long rejected = TraceMetrics.getInstance(Channel.SOAP_IN).getRejected();
+
+        interceptor.handleMessage(message);
+        try {
+            readHeaders(message);
+            fail("The invalid transaction should be rejected");
+        } catch (SoapFault e) {
+            assertEquals(message.getVersion().getSender(), e.getFaultCode());
+        }
+
+        assertNull(MDC.get("transaction"));
+        assertEquals(1, validator.getRejectedCount());
+        assertEquals(rejected + 1, TraceMetrics.getInstance(Channel.SOAP_IN).getRejected());
+    }
+
+    @Test
+    public void testHandleMessage_ShouldNotValidateSoapHeaderTransactionWithoutValidator() throws Exception {
+        interceptor.setValidator(null);
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique/transaction</SOAPTransaction>"
+                + "</soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique/transaction", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldSetSoapHeaderSampledInMDC() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPTransaction>unique_transaction</SOAPTransaction>"
+                + "<SOAPSampled>true</SOAPSampled></soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+        assertEquals("1", MDC.get("sampled"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldIgnoreInvalidSoapHeaderSampled() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><SOAPSampled>maybe</SOAPSampled>"
+                + "<SOAPTransaction>unique_transaction</SOAPTransaction></soap:Header>");
+
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("unique_transaction", MDC.get("transaction"));
+        assertNull(MDC.get("sampled"));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldUseAlternateSampledKeysIfConfigured() throws Exception {
+        SoapMessage message = createMessage("<soap:Header><DifferentSampledName>0</DifferentSampledName>"
+                + "</soap:Header>");
+
+        interceptor.setSampledSoapKey("DifferentSampledName");
+        interceptor.setSampledMdcKey("another-sampled");
+        interceptor.handleMessage(message);
+        readHeaders(message);
+
+        assertEquals("0", MDC.get("another-sampled"));
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testHandleFault_ShouldClearMDCSampled() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+
+        interceptor.handleFault(createMessage(""));
+
+        assertNull(MDC.get("sampled"));
+    }
+
+    /**
+     * Test helper creating an inbound message with the given header block.
+     */
+    private SoapMessage createMessage(String header) throws Exception {
+        byte[] envelope = (ENVELOPE_START + header + BODY).getBytes("UTF-8");
+
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        Exchange exchange = new ExchangeImpl();
+        exchange.put(Bus.class, bus);
+        message.setExchange(exchange);
+        message.setInterceptorChain(new PhaseInterceptorChain(new PhaseManagerImpl().getInPhases()));
+        message.setContent(InputStream.class, new ByteArrayInputStream(envelope));
+        message.setContent(XMLStreamReader.class, StaxUtils.createXMLStreamReader(new ByteArrayInputStream(envelope)));
+        return message;
+    }
+
+    /**
+     * Test helper running the real CXF {@link ReadHeadersInterceptor}, which consumes the envelope up to the body.
+     */
+    private void readHeaders(SoapMessage message) {
+        new ReadHeadersInterceptor(bus).handleMessage(message);
+    }
+
+    /**
+     * Test helper looking up the cleanup interceptor registered in the chain of the message.
+     */
+    private Interceptor<? extends Message> findCleanupInterceptor(SoapMessage message) {
+        ListIterator<Interceptor<? extends Message>> iterator = message.getInterceptorChain().getIterator();
+        while (iterator.hasNext()) {
+            Interceptor<? extends Message> candidate = iterator.next();
+            if (candidate.getClass().getName().startsWith(TraceableHeaderSoapInInterceptor.class.getName())) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -1,16 +1,26 @@
 package traceability.logback.cxf;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.soap.SOAPElement;
+import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.cxf.BusFactory;
 import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.SoapOutInterceptor;
 import org.apache.cxf.headers.Header;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.phase.PhaseManagerImpl;
+import org.apache.cxf.staxutils.StaxUtils;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
 import org.jmock.lib.legacy.ClassImposteriser;
@@ -171,4 +181,107 @@ public class TestTraceableHeaderSoapInterceptor {
 
         assertEquals(0, soapHeaders.size());
     }
+
+    @Test
+    public void testHandleMessage_ShouldAddStreamingHeaderIfConfigured() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        interceptor.setStreaming(true);
+        interceptor.handleMessage(messageMock);
+
+        assertEquals(1, soapHeaders.size());
+        assertEquals("unique_transaction", soapHeaders.get(0).getObject());
+        assertNotNull(soapHeaders.get(0).getDataBinding());
+        assertEquals("SOAPTransaction", soapHeaders.get(0).getName().getLocalPart());
+    }
+
+    @Test
+    public void testHandleMessage_ShouldWriteSameEnvelopeInStreamingMode() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        assertEquals(writeEnvelope(false), writeEnvelope(true));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldWriteSameEnvelopeInStreamingModeWithNamespace() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        interceptor.setNamespace("http://localdomain/core_1");
+        interceptor.setPrefix("core");
+        interceptor.setSoapKey("DifferentElementName");
+
+        String expected = writeEnvelope(false);
+        assertTrue(expected.contains("<core:DifferentElementName xmlns:core=\"http://localdomain/core_1\">"));
+        assertEquals(expected, writeEnvelope(true));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldEscapeTransactionInStreamingMode() throws Exception {
+        MDC.put("transaction", "<unique>&transaction");
+
+        assertEquals(writeEnvelope(false), writeEnvelope(true));
+    }
+
+    @Test
+    public void testHandleMessage_ShouldSetMDCSampledInSecondSoapHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+
+        interceptor.setNamespace("http://localdomain/core_1");
+        interceptor.handleMessage(messageMock);
+
+        assertEquals(2, soapHeaders.size());
+        SOAPElement element = (SOAPElement) soapHeaders.get(1).getObject();
+        assertEquals("http://localdomain/core_1", element.getNamespaceURI());
+        assertEquals("trace:SOAPSampled", element.getNodeName());
+        assertEquals("1", element.getTextContent());
+    }
+
+    @Test
+    public void testHandleMessage_ShouldAddStreamingSampledHeaderIfConfigured() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("another-sampled", "0");
+
+        interceptor.setStreaming(true);
+        interceptor.setSampledMdcKey("another-sampled");
+        interceptor.setSampledSoapKey("DifferentSampledName");
+        interceptor.handleMessage(messageMock);
+
+        assertEquals(2, soapHeaders.size());
+        assertEquals("0", soapHeaders.get(1).getObject());
+        assertNotNull(soapHeaders.get(1).getDataBinding());
+        assertEquals("DifferentSampledName", soapHeaders.get(1).getName().getLocalPart());
+    }
+
+    @Test
+    public void testHandleMessage_ShouldNotAddSampledHeaderIfTransactionNotFoundInMDC() throws Exception {
+        MDC.put("sampled", "1");
+
+        interceptor.handleMessage(messageMock);
+
+        assertEquals(0, soapHeaders.size());
+    }
+
+    /**
+     * Test helper running the real CXF {@link SoapOutInterceptor} on a message holding the injected header, returning
+     * the envelope start as written on the wire.
+     */
+    private String writeEnvelope(boolean streaming) throws Exception {
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        message.setExchange(new ExchangeImpl());
+        message.setInterceptorChain(new PhaseInterceptorChain(new PhaseManagerImpl().getOutPhases()));
+
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(out);
+        message.setContent(XMLStreamWriter.class, writer);
+
+        interceptor.setStreaming(streaming);
+        interceptor.handleMessage(message);
+        assertEquals(1, message.getHeaders().size());
+
+        new SoapOutInterceptor(BusFactory.newInstance().createBus()).handleMessage(message);
+        writer.flush();
+
+        return out.toString();
+    }
 }
\ No newline at end of file
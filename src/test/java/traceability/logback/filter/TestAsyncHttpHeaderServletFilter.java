@@ -0,0 +1,444 @@
+package traceability.logback.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.EnumSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.metrics.LatencyRecorder;
+
+/**
+ * Unit test for {@link AsyncHttpHeaderServletFilter}, running the asynchronous scenarios in an embedded Jetty server.
+ */
+public class TestAsyncHttpHeaderServletFilter {
+
+    private static Server server;
+    private static int port;
+    private static FilterHolder tracedFilterHolder;
+
+    private static final String TRACEPARENT = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+
+    /** Values seen by the code running out of the servlet, on other threads. */
+    private static final BlockingQueue<String> seen = new LinkedBlockingQueue<String>();
+
+    private AsyncHttpHeaderServletFilter filter;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new Server();
+        SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+
+        FilterHolder filterHolder = new FilterHolder(AsyncHttpHeaderServletFilter.class);
+        filterHolder.setAsyncSupported(true);
+        context.addFilter(filterHolder, "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+
+        ServletHolder servletHolder = new ServletHolder(new AsyncServlet());
+        servletHolder.setAsyncSupported(true);
+        context.addServlet(servletHolder, "/*");
+
+        // The same servlet behind a filter reading the trace context and timing the requests
+        ServletContextHandler tracedContext = new ServletContextHandler();
+        tracedContext.setContextPath("/traced");
+
+        tracedFilterHolder = new FilterHolder(AsyncHttpHeaderServletFilter.class);
+        tracedFilterHolder.setAsyncSupported(true);
+        tracedFilterHolder.setInitParameter("trace_format", "traceparent");
+        tracedFilterHolder.setInitParameter("timing", "true");
+        tracedContext.addFilter(tracedFilterHolder, "/*", EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC));
+
+        ServletHolder tracedServletHolder = new ServletHolder(new AsyncServlet());
+        tracedServletHolder.setAsyncSupported(true);
+        tracedContext.addServlet(tracedServletHolder, "/async/*");
+
+        ContextHandlerCollection contexts = new ContextHandlerCollection();
+        contexts.setHandlers(new Handler[] { context, tracedContext });
+        server.setHandler(contexts);
+        server.start();
+        port = connector.getLocalPort();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        filter = new AsyncHttpHeaderServletFilter();
+        seen.clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetHttpHeaderInMDCOfSynchronousRequests() throws Exception {
+        assertEquals("sync:transaction_id", get("/sync", "transaction_id"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetHttpHeaderInMDCOfAsyncContextTasks() throws Exception {
+        assertEquals("start:transaction_id", get("/start", "transaction_id"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetHttpHeaderInMDCOfAsyncDispatches() throws Exception {
+        assertEquals("dispatch:transaction_id", get("/dispatch", "transaction_id"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetHttpHeaderInMDCOfAsyncListenerCallbacks() throws Exception {
+        assertEquals("timeout:transaction_id", get("/timeout", "transaction_id"));
+        assertEquals("complete:transaction_id", seen.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseAnonymousIfNotHttpHeaderFound() throws Exception {
+        assertEquals("dispatch:anonymous", get("/dispatch", null));
+    }
+
+    @Test
+    public void testDoFilter_ShouldNotLeakTransactionBetweenAsyncRequests() throws Exception {
+        assertEquals("start:first", get("/start", "first"));
+        assertEquals("start:second", get("/start", "second"));
+        assertEquals("start:anonymous", get("/start", null));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetTraceContextInMDCOfAsyncContextTasks() throws Exception {
+        assertEquals("start:transaction_id:0af7651916cd43dd8448eb211c80319c",
+                get("/traced/async/start", "transaction_id", TRACEPARENT));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetTraceContextInMDCOfAsyncDispatches() throws Exception {
+        assertEquals("dispatch:transaction_id:0af7651916cd43dd8448eb211c80319c",
+                get("/traced/async/dispatch", "transaction_id", TRACEPARENT));
+    }
+
+    @Test
+    public void testDoFilter_ShouldIgnoreTraceContextIfNotEnabled() throws Exception {
+        assertEquals("dispatch:transaction_id", get("/dispatch", "transaction_id", TRACEPARENT));
+    }
+
+    @Test
+    public void testDoFilter_ShouldRecordLatencyOfWholeAsyncRequest() throws Exception {
+        LatencyRecorder recorder = ((AsyncHttpHeaderServletFilter) tracedFilterHolder.getFilter())
+                .getLatencyRecorder();
+        long before = count(recorder);
+
+        get("/traced/async/timeout", "transaction_id", null);
+
+        // Recorded when the request completes, possibly after the response is read
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count(recorder) == before && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(before + 1, count(recorder));
+        assertTrue(recorder.getHistograms().get("/async").getMax() >= TimeUnit.MILLISECONDS.toMicros(100));
+    }
+
+    @Test
+    public void testDoFilter_ShouldReuseTransactionOfPreviousDispatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AsyncHttpHeaderServletFilter.class.getName() + ".transaction", "first_dispatch");
+        request.addHeader("x-transaction", "ignored");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Spring mocks predate Servlet 3, so the asynchronous support is answered here
+        HttpServletRequest synchronousRequest = new HttpServletRequestWrapper(request) {
+            @Override
+            public boolean isAsyncSupported() {
+                return false;
+            }
+        };
+
+        filter.doFilter(synchronousRequest, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                assertEquals("first_dispatch", MDC.get("transaction"));
+            }
+        });
+
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldReuseSampledOfPreviousDispatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AsyncHttpHeaderServletFilter.class.getName() + ".transaction", "first_dispatch");
+        request.setAttribute(AsyncHttpHeaderServletFilter.class.getName() + ".transaction.sampled", "1");
+        request.addHeader("x-sampled", "0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("sampling_rate", "0");
+        filter.init(config);
+
+        HttpServletRequest synchronousRequest = new HttpServletRequestWrapper(request) {
+            @Override
+            public boolean isAsyncSupported() {
+                return false;
+            }
+        };
+
+        filter.doFilter(synchronousRequest, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                assertEquals("first_dispatch", MDC.get("transaction"));
+                assertEquals("1", MDC.get("sampled"));
+            }
+        });
+
+        assertNull(MDC.get("sampled"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldEndTransactionOfSynchronousRequests() throws Exception {
+        BlockingQueue<String> ended = new LinkedBlockingQueue<String>();
+        FlightRecorder recorder = new QueueFlightRecorder(ended);
+        FlightRecorders.register(recorder);
+        try {
+            get("/sync", "sync_transaction");
+            assertEquals("discard:sync_transaction", ended.poll(5, TimeUnit.SECONDS));
+            assertNull(ended.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldEndTransactionOnceAsyncRequestsComplete() throws Exception {
+        BlockingQueue<String> ended = new LinkedBlockingQueue<String>();
+        FlightRecorder recorder = new QueueFlightRecorder(ended);
+        FlightRecorders.register(recorder);
+        try {
+            get("/dispatch", "async_transaction");
+            assertEquals("discard:async_transaction", ended.poll(5, TimeUnit.SECONDS));
+            assertNull(ended.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldFlushTransactionOfTimedOutRequests() throws Exception {
+        BlockingQueue<String> ended = new LinkedBlockingQueue<String>();
+        FlightRecorder recorder = new QueueFlightRecorder(ended);
+        FlightRecorders.register(recorder);
+        try {
+            get("/timeout", "timed_out_transaction");
+            assertEquals("flush:timed_out_transaction", ended.poll(5, TimeUnit.SECONDS));
+            assertEquals("discard:timed_out_transaction", ended.poll(5, TimeUnit.SECONDS));
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldSkipRequestsOwnedUpstream() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, new Object());
+        request.addHeader("x-transaction", "ignored");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MDC.put("transaction", "upstream");
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                assertEquals("upstream", MDC.get("transaction"));
+            }
+        });
+
+        assertEquals("upstream", MDC.get("transaction"));
+        assertNull(request.getAttribute(AsyncHttpHeaderServletFilter.class.getName() + ".transaction"));
+    }
+
+    /**
+     * Test helper sending a GET request, with the transaction header if not <code>null</code>.
+     */
+    private String get(String path, String transaction) throws IOException {
+        return get(path, transaction, null);
+    }
+
+    /**
+     * Test helper sending a GET request, with the transaction and <code>traceparent</code> headers if not
+     * <code>null</code>.
+     */
+    private String get(String path, String transaction, String traceparent) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        connection.setReadTimeout(10000);
+        if (transaction != null) {
+            connection.setRequestProperty("x-transaction", transaction);
+        }
+        if (traceparent != null) {
+            connection.setRequestProperty("traceparent", traceparent);
+        }
+
+        InputStream in = connection.getInputStream();
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                body.write(buffer, 0, read);
+            }
+            return body.toString("UTF-8");
+        } finally {
+            in.close();
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Test helper counting the requests of the servlet timed by the recorder.
+     */
+    private static long count(LatencyRecorder recorder) {
+        return recorder.getHistograms().containsKey("/async") ? recorder.getHistograms().get("/async").getCount() : 0;
+    }
+
+    /**
+     * Test helper queuing the notifications of the flight recorders.
+     */
+    private static class QueueFlightRecorder implements FlightRecorder {
+
+        private final BlockingQueue<String> ended;
+
+        QueueFlightRecorder(BlockingQueue<String> ended) {
+            this.ended = ended;
+        }
+
+        @Override
+        public void flush(String transaction) {
+            ended.add("flush:" + transaction);
+        }
+
+        @Override
+        public void discard(String transaction) {
+            ended.add("discard:" + transaction);
+        }
+    }
+
+    /**
+     * Test servlet, writing the transaction found in the MDC from the synchronous and asynchronous stages.
+     */
+    private static class AsyncServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+                IOException {
+            String path = request.getPathInfo();
+
+            if ("/sync".equals(path)) {
+                write(response, "sync");
+            } else if ("/start".equals(path)) {
+                final AsyncContext context = request.startAsync();
+                context.start(new Runnable() {
+                    @Override
+                    public void run() {
+                        write((HttpServletResponse) context.getResponse(), "start");
+                        context.complete();
+                    }
+                });
+            } else if ("/dispatch".equals(path)) {
+                if (request.getDispatcherType() == DispatcherType.ASYNC) {
+                    write(response, "dispatch");
+                } else {
+                    final AsyncContext context = request.startAsync();
+                    new Thread() {
+                        @Override
+                        public void run() {
+                            context.dispatch();
+                        }
+                    }.start();
+                }
+            } else if ("/timeout".equals(path)) {
+                AsyncContext context = request.startAsync();
+                context.setTimeout(100);
+                context.addListener(new AsyncListener() {
+                    @Override
+                    public void onTimeout(AsyncEvent event) throws IOException {
+                        write((HttpServletResponse) event.getSuppliedResponse(), "timeout");
+                        event.getAsyncContext().complete();
+                    }
+
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        seen.add("complete:" + MDC.get("transaction"));
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        // Nothing special...
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        // Nothing special...
+                    }
+                });
+            }
+        }
+
+        private static void write(HttpServletResponse response, String stage) {
+            try {
+                response.setContentType("text/plain");
+                String trace = MDC.get("trace_id") == null ? "" : ":" + MDC.get("trace_id");
+                response.getWriter().write(stage + ":" + MDC.get("transaction") + trace);
+                response.getWriter().flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,315 @@
+package traceability.logback.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+
+/**
+ * Unit test for {@link ContextServletFilter}.
+ */
+public class TestContextServletFilter {
+
+    private ContextServletFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() throws Exception {
+        filter = new ContextServletFilter();
+        request = new MockHttpServletRequest("POST", "/orders");
+        response = new MockHttpServletResponse();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetHttpHeaderAndPrincipalInMDC() throws Exception {
+        request.addHeader("x-transaction", "transaction_id");
+        request.setUserPrincipal(new SimplePrincipal("john"));
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("transaction_id", chain.context.get("transaction"));
+        assertEquals("john", chain.context.get("user"));
+
+        // After the filter is run, the MDC should be cleared
+        assertNull(MDC.get("transaction"));
+        assertNull(MDC.get("user"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldEndTransactionForFlightRecorders() throws Exception {
+        request.addHeader("x-transaction", "transaction_id");
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            filter.doFilter(request, response, new RecordMDCFilterChain());
+            assertEquals("discard:transaction_id ", seen.toString());
+
+            seen.setLength(0);
+            filter.doFilter(request, response, new FilterChain() {
+                @Override
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                    throw new IllegalStateException("failure");
+                }
+            });
+            fail("The exception should escape the filter");
+        } catch (IllegalStateException e) {
+            assertEquals("flush:transaction_id discard:transaction_id ", seen.toString());
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseAnonymousIfNotHttpHeaderNorPrincipalFound() throws Exception {
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("anonymous", chain.context.get("transaction"));
+        assertEquals("anonymous", chain.context.get("user"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseAnonymousIfPrincipalNameIsNull() throws Exception {
+        request.setUserPrincipal(new SimplePrincipal(null));
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("anonymous", chain.context.get("user"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldOwnRequestForComponentsDownstream() throws Exception {
+        request.addHeader("x-transaction", "transaction_id");
+        final HttpHeaderServletFilter downstream = new HttpHeaderServletFilter();
+        downstream.init(new MockFilterConfig());
+        final RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException,
+                    ServletException {
+                assertSame(filter, request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+                downstream.doFilter(request, response, chain);
+                // The downstream filter leaves the MDC to the owner
+                assertEquals("transaction_id", MDC.get("transaction"));
+            }
+        });
+
+        assertEquals("transaction_id", chain.context.get("transaction"));
+        assertNull(request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+        assertNull(MDC.get("transaction"));
+        downstream.destroy();
+    }
+
+    @Test
+    public void testDoFilter_ShouldLetThroughRequestOwnedUpstream() throws Exception {
+        request.addHeader("x-transaction", "transaction_id");
+        request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, this);
+        MDC.put("transaction", "upstream_id");
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("upstream_id", chain.context.get("transaction"));
+        assertFalse(chain.context.containsKey("user"));
+        assertSame(this, request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+        assertEquals("upstream_id", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseFieldsFromConfig() throws Exception {
+        request.addHeader("x-request", "request_id");
+        request.addHeader("x-client", "mobile");
+        request.setRemoteAddr("10.0.0.1");
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("fields",
+                " request=header:x-request, client = header:x-client,client_ip=remote_addr, method=METHOD ");
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        Map<String, String> expected = new HashMap<String, String>();
+        expected.put("request", "request_id");
+        expected.put("client", "mobile");
+        expected.put("client_ip", "10.0.0.1");
+        expected.put("method", "POST");
+        assertEquals(expected, chain.context);
+    }
+
+    @Test
+    public void testDoFilter_ShouldRestorePreviousContext() throws Exception {
+        MDC.put("transaction", "outer_transaction");
+        MDC.put("node", "node_1");
+        request.addHeader("x-transaction", "transaction_id");
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("transaction_id", chain.context.get("transaction"));
+        assertEquals("node_1", chain.context.get("node"));
+        assertEquals("outer_transaction", MDC.get("transaction"));
+        assertEquals("node_1", MDC.get("node"));
+        assertNull(MDC.get("user"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldDiscardMDCChangesOfTheApplication() throws Exception {
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                MDC.put("order", "order_id");
+            }
+        });
+
+        assertNull(MDC.get("order"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldRejectInvalidHttpHeaderIfConfigured() throws Exception {
+        request.addHeader("x-transaction", "transaction_id\r\nX-Injected: true");
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("invalid_policy", "reject");
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        assertEquals(400, response.getStatus());
+        assertNull(chain.context);
+        assertEquals(1, filter.getValidator().getRejectedCount());
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseIdGeneratorFromConfigIfNotHttpHeaderFound() throws Exception {
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("id_generator", TestHttpHeaderServletFilter.FixedIdGenerator.class.getName());
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        assertEquals("generated_id", chain.context.get("transaction"));
+        assertEquals("anonymous", chain.context.get("user"));
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfFieldSourceIsUnknown() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("fields", "transaction=cookie:session");
+
+        filter.init(config);
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfHeaderNameIsMissing() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("fields", "transaction=header");
+
+        filter.init(config);
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfMDCKeyIsMissing() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("fields", "principal");
+
+        filter.init(config);
+    }
+
+    @Test
+    public void testInit_ShouldKeepDefaultFieldsIfInitParamNotFoundInConfig() throws Exception {
+        request.addHeader("x-transaction", "transaction_id");
+        RecordMDCFilterChain chain = new RecordMDCFilterChain();
+
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("another_init_param", "test");
+
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+
+        assertEquals("transaction_id", chain.context.get("transaction"));
+        assertFalse(chain.context.containsKey("method"));
+    }
+
+    /**
+     * Mock implementation of {@link FilterChain}, recording the MDC of the request.
+     */
+    private static class RecordMDCFilterChain implements FilterChain {
+
+        private Map<String, String> context;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            context = MDC.getCopyOfContextMap();
+        }
+    }
+
+    /**
+     * Simple {@link Principal} implementation.
+     */
+    private static class SimplePrincipal implements Principal {
+
+        private final String name;
+
+        public SimplePrincipal(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
\ No newline at end of file
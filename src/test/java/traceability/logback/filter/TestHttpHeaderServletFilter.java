@@ -1,9 +1,13 @@
 package traceability.logback.filter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
@@ -15,6 +19,12 @@ import org.springframework.mock.web.MockFilterConfig;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TransactionIdGenerator;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+
 /**
  * Unit test for {@link HttpHeaderServletFilter}.
  */
@@ -135,6 +145,418 @@ public class TestHttpHeaderServletFilter {
         assertNull(MDC.get("transaction"));
     }
 
+    @Test
+    public void testDoFilter_ShouldUseIdGeneratorFromConfigIfNotHttpHeaderFound() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("id_generator", FixedIdGenerator.class.getName());
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "generated_id"));
+
+        // After the filter is run, the MDC should be cleared
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldNotUseIdGeneratorIfHttpHeaderFound() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction_id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("id_generator", FixedIdGenerator.class.getName());
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "transaction_id"));
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfIdGeneratorFromConfigIsInvalid() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("id_generator", "traceability.logback.id.UnknownGenerator");
+
+        filter.init(config);
+    }
+
+    @Test
+    public void testDoFilter_ShouldTruncateInvalidHttpHeader() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction_id\r\nX-Injected: true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "transaction_id"));
+
+        assertEquals(1, filter.getValidator().getTruncatedCount());
+    }
+
+    @Test
+    public void testDoFilter_ShouldCountAnonymousAndTracedRequests() throws Exception {
+        MockHttpServletRequest traced = new MockHttpServletRequest();
+        traced.addHeader("x-transaction", "unique_transaction");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        TraceMetrics metrics = TraceMetrics.getInstance(Channel.HTTP_IN);
+        long anonymousCount = metrics.getAnonymous();
+        long tracedCount = metrics.getTraced();
+
+        filter.doFilter(new MockHttpServletRequest(), response, new VerifyMDCFilterChain("transaction", "anonymous"));
+        filter.doFilter(traced, response, new VerifyMDCFilterChain("transaction", "unique_transaction"));
+
+        assertEquals(anonymousCount + 1, metrics.getAnonymous());
+        assertEquals(tracedCount + 1, metrics.getTraced());
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseValidationFromConfig() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction/id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("max_length", "11");
+        config.addInitParameter("allowed_chars", "/");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "transaction"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldGenerateIfInvalidHttpHeaderAndPolicyIsGenerate() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("id_generator", FixedIdGenerator.class.getName());
+        config.addInitParameter("invalid_policy", "generate");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "generated_id"));
+
+        assertEquals(1, filter.getValidator().getGeneratedCount());
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseAnonymousIfInvalidHttpHeaderAndNoIdGenerator() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("invalid_policy", "generate");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "anonymous"));
+
+        assertEquals(1, filter.getValidator().getGeneratedCount());
+    }
+
+    @Test
+    public void testDoFilter_ShouldRejectInvalidHttpHeaderIfPolicyIsReject() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("invalid_policy", "reject");
+
+        filter.init(config);
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                fail("Rejected requests should not be served");
+            }
+        });
+
+        assertEquals(400, response.getStatus());
+        assertEquals(1, filter.getValidator().getRejectedCount());
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfInvalidPolicyFromConfigIsUnknown() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("invalid_policy", "ignore");
+
+        filter.init(config);
+    }
+
+    @Test
+    public void testDoFilter_ShouldNotSetSampledInMDCIfSamplingRateNotFoundInConfig() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-sampled", "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.init(new MockFilterConfig());
+        filter.doFilter(request, response, new VerifyMDCFilterChain("sampled", null));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetReceivedSampledInMDC() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction_id");
+        request.addHeader("x-sampled", "true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("sampling_rate", "0");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("sampled", "1"));
+
+        // After the filter is run, the MDC should be cleared
+        assertNull(MDC.get("sampled"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSampleTransactionIfSampledHttpHeaderNotFound() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction_id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("sampling_rate", "1");
+        config.addInitParameter("sampled_mdc_key", "different_key");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("different_key", "1"));
+
+        // After the filter is run, the MDC should be cleared
+        assertNull(MDC.get("different_key"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldUseSampledHeaderNameFromConfig() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-another-sampled", "0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("sampling_rate", "1");
+        config.addInitParameter("sampled_header", "x-another-sampled");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("sampled", "0"));
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfSamplingRateFromConfigIsInvalid() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("sampling_rate", "1.5");
+
+        filter.init(config);
+    }
+
+    @Test
+    public void testDoFilter_ShouldSetTraceparentInMDCIfTraceFormatConfigured() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("trace_format", "traceparent");
+        config.addInitParameter("span_id_mdc_key", "different_key");
+
+        filter.init(config);
+        filter.doFilter(request, response, new VerifyMDCFilterChain("trace_id", "0af7651916cd43dd8448eb211c80319c"));
+        filter.doFilter(request, response, new VerifyMDCFilterChain("different_key", "b7ad6b7169203331"));
+
+        // After the filter is run, the MDC should be cleared
+        assertNull(MDC.get("trace_id"));
+        assertNull(MDC.get("different_key"));
+        assertNull(MDC.get("trace_flags"));
+    }
+
+    @Test
+    public void testDoFilter_ShouldNotSetTraceContextInMDCIfTraceFormatNotConfigured() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("b3", "0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.init(new MockFilterConfig());
+        filter.doFilter(request, response, new VerifyMDCFilterChain("trace_id", null));
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfTraceFormatFromConfigIsInvalid() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("trace_format", "zipkin");
+
+        filter.init(config);
+    }
+
+
+    @Test
+    public void testDoFilter_ShouldRecordLatencyPerServletPathIfTimingConfigured() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/orders");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig("orders filter");
+        config.addInitParameter("timing", "true");
+
+        filter.init(config);
+        try {
+            filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "anonymous"));
+            assertEquals(1, filter.getLatencyRecorder().getHistogram("/orders").getCount());
+        } finally {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldRecordLatencyPerMatchedPatternIfAny() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/orders/42"); // Servlet mapped to "/"
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig("orders filter");
+        config.addInitParameter("timing", "true");
+
+        filter.init(config);
+        try {
+            filter.doFilter(request, response, new FilterChain() {
+                @Override
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                    request.setAttribute("org.springframework.web.servlet.HandlerMapping.bestMatchingPattern",
+                            "/orders/{id}");
+                }
+            });
+            assertEquals(1, filter.getLatencyRecorder().getHistogram("/orders/{id}").getCount());
+            assertFalse(filter.getLatencyRecorder().getHistograms().containsKey("/orders/42"));
+        } finally {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldRecordLatencyUnderConfiguredEntryPoint() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/orders/42");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig("orders filter");
+        config.addInitParameter("timing", "true");
+        config.addInitParameter("timing_entry_point", "orders");
+
+        filter.init(config);
+        try {
+            filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "anonymous"));
+            assertEquals(1, filter.getLatencyRecorder().getHistogram("orders").getCount());
+        } finally {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    public void testInit_ShouldNotTimeRequestsByDefault() throws Exception {
+        filter.init(new MockFilterConfig());
+
+        assertNull(filter.getLatencyRecorder());
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfTimingMaxEntryPointsFromConfigIsInvalid() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("timing", "true");
+        config.addInitParameter("timing_max_entry_points", "0");
+
+        filter.init(config);
+    }
+
+    @Test
+    public void testDoFilter_ShouldNotifyFlightRecordersOfFailedTransactions() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "unique_transaction");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "unique_transaction"));
+            assertEquals("discard:unique_transaction ", seen.toString());
+
+            seen.setLength(0);
+            filter.doFilter(request, response, new FilterChain() {
+                @Override
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                    throw new IllegalStateException("failure");
+                }
+            });
+            fail("The exception should escape the filter");
+        } catch (IllegalStateException e) {
+            assertEquals("flush:unique_transaction discard:unique_transaction ", seen.toString());
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testDoFilter_ShouldOwnRequestWhileInChain() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "transaction_id");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                assertSame(filter, request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+            }
+        });
+
+        assertNull(request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+    }
+
+    @Test
+    public void testDoFilter_ShouldSkipRequestsOwnedUpstream() throws Exception {
+        Object owner = new Object();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, owner);
+        request.addHeader("x-transaction", "ignored");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        TraceMetrics metrics = TraceMetrics.getInstance(Channel.HTTP_IN);
+        long tracedCount = metrics.getTraced();
+
+        MDC.put("transaction", "upstream");
+        filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "upstream"));
+
+        // The owner cleans the MDC up, not the filter
+        assertEquals("upstream", MDC.get("transaction"));
+        assertSame(owner, request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+        assertEquals(tracedCount, metrics.getTraced());
+    }
+
+    /**
+     * Test helper generating always the same transaction ID.
+     */
+    public static class FixedIdGenerator implements TransactionIdGenerator {
+
+        @Override
+        public String generate() {
+            return "generated_id";
+        }
+    }
+
     /**
      * Test helper to verify the content of the MDC once the Filter under test delegates on the next filter.
      */
@@ -2,8 +2,10 @@ package traceability.logback.filter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
@@ -103,6 +105,64 @@ public class TestPrincipalServletFilter {
         assertNull(MDC.get("transaction"));
     }
 
+    @Test
+    public void testDoFilter_ShouldShareUsernameInstanceIfNameCacheConfigured() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        final StringBuilder seen = new StringBuilder();
+        final String[] usernames = new String[2];
+
+        // Create an explicit init-param of the servlet filter
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("name_cache_size", "16");
+        filter.init(config);
+
+        for (int i = 0; i < usernames.length; i++) {
+            final int index = i;
+            MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+            httpRequest.setUserPrincipal(new DummyPrincipal(new String("user")));
+
+            filter.doFilter(httpRequest, response, new FilterChain() {
+                @Override
+                public void doFilter(ServletRequest request, ServletResponse response) {
+                    usernames[index] = MDC.get("transaction");
+                    seen.append(usernames[index]);
+                }
+            });
+        }
+
+        assertEquals("useruser", seen.toString());
+        assertSame(usernames[0], usernames[1]);
+        assertEquals(1, filter.getNameCache().getHitCount());
+    }
+
+    @Test(expected = ServletException.class)
+    public void testInit_ShouldFailIfNameCacheSizeIsInvalid() throws Exception {
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("name_cache_size", "none");
+
+        filter.init(config);
+    }
+
+
+    @Test
+    public void testDoFilter_ShouldRecordLatencyPerServletPathIfTimingConfigured() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServletPath("/users");
+        request.setUserPrincipal(new DummyPrincipal("user"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockFilterConfig config = new MockFilterConfig("users filter");
+        config.addInitParameter("timing", "true");
+
+        filter.init(config);
+        try {
+            filter.doFilter(request, response, new VerifyMDCFilterChain("transaction", "user"));
+            assertEquals(1, filter.getLatencyRecorder().getHistogram("/users").getCount());
+        } finally {
+            filter.destroy();
+        }
+    }
+
     /**
      * Test helper to verify the content of the MDC once the Filter under test delegates on the next filter.
      */
@@ -0,0 +1,165 @@
+package traceability.logback.flight;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+/**
+ * Unit test for {@link FlightRecorderAppender} and {@link FlightRecorders}.
+ */
+public class TestFlightRecorderAppender {
+
+    private FlightRecorderAppender appender;
+    private ListAppender<ILoggingEvent> delegate;
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        delegate = new ListAppender<ILoggingEvent>();
+        delegate.setContext(loggerContext);
+        delegate.start();
+
+        appender = new FlightRecorderAppender();
+        appender.setContext(loggerContext);
+        appender.addAppender(delegate);
+        appender.start();
+
+        logger = loggerContext.getLogger(TestFlightRecorderAppender.class);
+        logger.setLevel(Level.DEBUG);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        logger.detachAppender(appender);
+        logger.setAdditive(true);
+        logger.setLevel(null);
+        appender.stop();
+    }
+
+    @Test
+    public void testAppend_ShouldDiscardDebugOfSuccessfulTransactions() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        logger.debug("detail");
+        logger.info("summary");
+
+        assertEquals(messages("summary"), written());
+        FlightRecorders.endTransaction("unique_transaction", false);
+
+        assertEquals(messages("summary"), written());
+        assertEquals(0, appender.getTransactionCount());
+    }
+
+    @Test
+    public void testAppend_ShouldFlushDebugOnError() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        logger.debug("first {}", "detail");
+        logger.debug("second detail");
+        logger.error("failure");
+        logger.debug("after the failure");
+
+        assertEquals(messages("first detail", "second detail", "failure", "after the failure"), written());
+    }
+
+    @Test
+    public void testEndTransaction_ShouldFlushDebugOfFailedTransactions() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        logger.debug("detail");
+        MDC.put("transaction", "another_transaction");
+        logger.debug("another detail");
+
+        FlightRecorders.endTransaction("unique_transaction", true);
+
+        assertEquals(messages("detail"), written());
+        assertEquals(1, appender.getTransactionCount());
+    }
+
+    @Test
+    public void testAppend_ShouldDropOldestEventsBeyondMaxBytes() throws Exception {
+        appender.setMaxBytes(600);
+        MDC.put("transaction", "unique_transaction");
+        logger.debug("first");
+        logger.debug("second");
+        logger.debug("third");
+
+        appender.flush("unique_transaction");
+
+        assertEquals(messages("second", "third"), written());
+    }
+
+    @Test
+    public void testAppend_ShouldNotBufferEventsWithoutTransaction() throws Exception {
+        logger.debug("detail");
+        MDC.put("transaction", "anonymous");
+        logger.debug("anonymous detail");
+        logger.warn("warning");
+
+        assertEquals(messages("warning"), written());
+        assertEquals(0, appender.getTransactionCount());
+    }
+
+    @Test
+    public void testAppend_ShouldEvictLeastRecentlyUsedBeyondMaxTransactions() throws Exception {
+        appender.setMaxTransactions(1);
+        MDC.put("transaction", "unique_transaction");
+        logger.debug("detail");
+        MDC.put("transaction", "another_transaction");
+        logger.debug("another detail");
+
+        assertEquals(1, appender.getTransactionCount());
+        appender.flush("unique_transaction");
+        assertTrue(written().isEmpty());
+        appender.flush("another_transaction");
+        assertEquals(messages("another detail"), written());
+    }
+
+    @Test
+    public void testStart_ShouldFailWithoutDelegate() throws Exception {
+        FlightRecorderAppender orphan = new FlightRecorderAppender();
+        orphan.setContext(appender.getContext());
+        orphan.start();
+
+        assertFalse(orphan.isStarted());
+    }
+
+    /**
+     * Test helper returning the messages written to the delegate appender.
+     */
+    private List<String> written() {
+        List<String> messages = new ArrayList<String>();
+        for (ILoggingEvent event : delegate.list) {
+            messages.add(event.getFormattedMessage());
+        }
+        return messages;
+    }
+
+    /**
+     * Test helper building the list of expected messages.
+     */
+    private static List<String> messages(String... expected) {
+        List<String> messages = new ArrayList<String>();
+        for (String message : expected) {
+            messages.add(message);
+        }
+        return messages;
+    }
+}
\ No newline at end of file
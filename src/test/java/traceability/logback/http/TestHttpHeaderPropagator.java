@@ -0,0 +1,122 @@
+package traceability.logback.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import traceability.test.http.TransactionEchoServer;
+
+/**
+ * Unit test for {@link HttpHeaderPropagator}, calling an embedded server.
+ */
+public class TestHttpHeaderPropagator {
+
+    private static TransactionEchoServer server;
+
+    private HttpHeaderPropagator propagator;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new TransactionEchoServer();
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        propagator = new HttpHeaderPropagator();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testPropagate_ShouldSetMDCTransactionInHttpHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        assertEquals("unique_transaction:0", get(propagator.propagate(open())));
+    }
+
+    @Test
+    public void testPropagate_ShouldSetMDCSampledInHttpHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+
+        assertEquals("unique_transaction:1", get(propagator.propagate(open())));
+    }
+
+    @Test
+    public void testPropagate_ShouldNotSetHttpHeaderIfTransactionNotFoundInMDC() throws Exception {
+        MDC.put("sampled", "1");
+        HttpURLConnection connection = propagator.propagate(open());
+
+        assertNull(connection.getRequestProperty("x-transaction"));
+        assertNull(connection.getRequestProperty("x-sampled"));
+        assertEquals("anonymous:0", get(connection));
+    }
+
+    @Test
+    public void testPropagate_ShouldNotSetHttpHeaderIfTransactionIsEmptyInMDC() throws Exception {
+        MDC.put("transaction", "");
+
+        assertNull(propagator.propagate(open()).getRequestProperty("x-transaction"));
+    }
+
+    @Test
+    public void testPropagate_ShouldUseAlternateConfigurationIfConfigured() throws Exception {
+        MDC.put("another-transaction", "unique_transaction");
+        MDC.put("another-sampled", "1");
+
+        propagator = new HttpHeaderPropagator("another-transaction", "x-another-transaction");
+        propagator.setSampledMdcKey("another-sampled");
+        propagator.setSampledHeaderName("x-another-sampled");
+        HttpURLConnection connection = propagator.propagate(open());
+
+        assertEquals("unique_transaction", connection.getRequestProperty("x-another-transaction"));
+        assertEquals("1", connection.getRequestProperty("x-another-sampled"));
+    }
+
+    /**
+     * Test helper opening a connection to the embedded server.
+     */
+    private HttpURLConnection open() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getUrl()).openConnection();
+        connection.setReadTimeout(10000);
+        return connection;
+    }
+
+    /**
+     * Test helper reading the response of the embedded server.
+     */
+    private static String get(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getInputStream();
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                body.write(buffer, 0, read);
+            }
+            return body.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
\ No newline at end of file
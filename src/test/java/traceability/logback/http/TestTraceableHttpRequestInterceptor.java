@@ -0,0 +1,97 @@
+package traceability.logback.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import traceability.test.http.TransactionEchoServer;
+
+/**
+ * Unit test for {@link TraceableHttpRequestInterceptor}, calling an embedded server.
+ */
+public class TestTraceableHttpRequestInterceptor {
+
+    private static TransactionEchoServer server;
+
+    private CloseableHttpClient client;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new TransactionEchoServer();
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        client = HttpClients.custom().addInterceptorLast(new TraceableHttpRequestInterceptor()).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        client.close();
+    }
+
+    @Test
+    public void testProcess_ShouldSetMDCTransactionInHttpHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        assertEquals("unique_transaction:0", get());
+    }
+
+    @Test
+    public void testProcess_ShouldSetMDCSampledInHttpHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+
+        assertEquals("unique_transaction:1", get());
+    }
+
+    @Test
+    public void testProcess_ShouldNotSetHttpHeaderIfTransactionNotFoundInMDC() throws Exception {
+        HttpGet request = new HttpGet(server.getUrl());
+        new TraceableHttpRequestInterceptor().process(request, null);
+
+        assertFalse(request.containsHeader("x-transaction"));
+        assertEquals("anonymous:0", get());
+    }
+
+    @Test
+    public void testProcess_ShouldUseAlternateConfigurationIfConfigured() throws Exception {
+        MDC.put("another-transaction", "unique_transaction");
+        MDC.put("another-sampled", "0");
+
+        TraceableHttpRequestInterceptor interceptor = new TraceableHttpRequestInterceptor("another-transaction",
+                "x-another-transaction");
+        interceptor.setSampledMdcKey("another-sampled");
+        interceptor.setSampledHeaderName("x-another-sampled");
+        HttpGet request = new HttpGet(server.getUrl());
+        interceptor.process(request, null);
+
+        assertEquals("unique_transaction", request.getFirstHeader("x-another-transaction").getValue());
+        assertEquals("0", request.getFirstHeader("x-another-sampled").getValue());
+    }
+
+    /**
+     * Test helper reading the response of the embedded server.
+     */
+    private String get() throws Exception {
+        return EntityUtils.toString(client.execute(new HttpGet(server.getUrl())).getEntity(), "UTF-8");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package traceability.logback.id;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TimeBasedTransactionIdGenerator}.
+ */
+public class TestTimeBasedTransactionIdGenerator {
+
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    private TimeBasedTransactionIdGenerator generator;
+
+    @Before
+    public void setUp() throws Exception {
+        generator = new TimeBasedTransactionIdGenerator();
+    }
+
+    @Test
+    public void testGenerate_ShouldCreateFixedLengthCrockfordBase32Ids() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            String id = generator.generate();
+
+            assertEquals(TimeBasedTransactionIdGenerator.LENGTH, id.length());
+            for (int c = 0; c < id.length(); c++) {
+                assertTrue(id, ALPHABET.indexOf(id.charAt(c)) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testGenerate_ShouldEncodeCreationTimeInTheFirstCharacters() throws Exception {
+        long before = System.currentTimeMillis();
+        String id = generator.generate();
+        long after = System.currentTimeMillis();
+
+        long timestamp = decode(id.substring(0, 10));
+        assertTrue(timestamp >= before && timestamp <= after);
+    }
+
+    @Test
+    public void testGenerate_ShouldCreateIdsSortedByTime() throws Exception {
+        String first = generator.generate();
+        Thread.sleep(5);
+        String second = generator.generate();
+
+        assertTrue(first.compareTo(second) < 0);
+    }
+
+    @Test
+    public void testGenerate_ShouldCreateDifferentIdsInTheSameThread() throws Exception {
+        Set<String> ids = new HashSet<String>();
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(ids.add(generator.generate()));
+        }
+    }
+
+    @Test
+    public void testGenerate_ShouldCreateDifferentIdsInConcurrentThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        List<String> ids = new ArrayList<String>();
+                        for (int i = 0; i < 20000; i++) {
+                            ids.add(generator.generate());
+                        }
+                        return ids;
+                    }
+                }));
+            }
+
+            Set<String> ids = new HashSet<String>();
+            for (Future<List<String>> result : results) {
+                for (String id : result.get()) {
+                    assertTrue(ids.add(id));
+                }
+            }
+            assertEquals(8 * 20000, ids.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testGenerate_ShouldEncodeTheNodeId() throws Exception {
+        generator = new TimeBasedTransactionIdGenerator(0xABCDEF);
+
+        String id = generator.generate();
+
+        assertEquals(0xABCDEF, decode(id.substring(10, 18)) >>> 16);
+    }
+
+    @Test
+    public void testGenerate_ShouldCreateDifferentIdsOnDifferentNodes() throws Exception {
+        String first = new TimeBasedTransactionIdGenerator(1).generate();
+        String second = new TimeBasedTransactionIdGenerator(2).generate();
+
+        assertFalse(first.substring(10).equals(second.substring(10)));
+    }
+
+    @Test
+    public void testGenerate_ShouldStartSequencesAtRandomValues() throws Exception {
+        // As two JVMs with the same node ID would do, had the sequences started at the same value
+        String first = new TimeBasedTransactionIdGenerator(1).generate();
+        String second = new TimeBasedTransactionIdGenerator(1).generate();
+
+        assertFalse(decode(first.substring(18)) % (1L << 32) == decode(second.substring(18)) % (1L << 32));
+    }
+
+    @Test
+    public void testConstructor_ShouldKeepOnlyTheLowestNodeBits() throws Exception {
+        assertEquals(0x123456, new TimeBasedTransactionIdGenerator(0x7F123456).getNode());
+    }
+
+    /**
+     * Test helper decoding a Crockford base32 string.
+     */
+    private long decode(String encoded) {
+        long value = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            value = (value << 5) | ALPHABET.indexOf(encoded.charAt(i));
+        }
+        return value;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package traceability.logback.id;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TransactionIdValidator}.
+ */
+public class TestTransactionIdValidator {
+
+    private TransactionIdValidator validator;
+
+    @Before
+    public void setUp() throws Exception {
+        validator = new TransactionIdValidator();
+        validator.setIdGenerator(new TransactionIdGenerator() {
+            @Override
+            public String generate() {
+                return "generated_id";
+            }
+        });
+    }
+
+    @Test
+    public void testValidate_ShouldReturnSameInstanceIfValid() throws Exception {
+        String transaction = "4f1c2a9e-6d0b-4f63-9a57_2b1d8c3e7f10.a:b";
+
+        assertSame(transaction, validator.validate(transaction));
+        assertEquals(0, validator.getTruncatedCount() + validator.getGeneratedCount() + validator.getRejectedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldTruncateAtFirstInvalidCharacter() throws Exception {
+        assertEquals("transaction", validator.validate("transaction\r\nX-Injected: true"));
+        assertEquals(1, validator.getTruncatedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldTruncateNonAsciiCharacters() throws Exception {
+        assertEquals("transacci", validator.validate("transacci\u00f3n"));
+        assertEquals(1, validator.getTruncatedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldTruncateAtMaxLength() throws Exception {
+        StringBuilder transaction = new StringBuilder();
+        for (int i = 0; i < 64 * 1024; i++) {
+            transaction.append('a');
+        }
+
+        assertEquals(TransactionIdValidator.DEFAULT_MAX_LENGTH, validator.validate(transaction.toString()).length());
+        assertEquals(1, validator.getTruncatedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldAcceptValueOfMaxLength() throws Exception {
+        validator.setMaxLength(4);
+
+        assertEquals("abcd", validator.validate("abcd"));
+        assertEquals("abcd", validator.validate("abcde"));
+        assertEquals(1, validator.getTruncatedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldGenerateIfNothingLeftAfterTruncation() throws Exception {
+        assertEquals("generated_id", validator.validate("\nabc"));
+        assertEquals(0, validator.getTruncatedCount());
+        assertEquals(1, validator.getGeneratedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldGenerateIfPolicyIsGenerate() throws Exception {
+        validator.setPolicy(TransactionIdValidator.Policy.GENERATE);
+
+        assertEquals("generated_id", validator.validate("transaction id"));
+        assertEquals("valid", validator.validate("valid"));
+        assertEquals(1, validator.getGeneratedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldReplaceWithAnonymousIfNoIdGenerator() throws Exception {
+        validator.setIdGenerator(null);
+
+        assertEquals(TransactionIdValidator.ANONYMOUS, validator.validate("\nabc"));
+        validator.setPolicy(TransactionIdValidator.Policy.GENERATE);
+        assertEquals(TransactionIdValidator.ANONYMOUS, validator.validate("transaction id"));
+        assertEquals(2, validator.getGeneratedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldReturnNullIfPolicyIsReject() throws Exception {
+        validator.setPolicy(TransactionIdValidator.Policy.REJECT);
+
+        assertNull(validator.validate("transaction id"));
+        assertEquals("valid", validator.validate("valid"));
+        assertEquals(1, validator.getRejectedCount());
+    }
+
+    @Test
+    public void testValidate_ShouldUseAllowedCharsIfConfigured() throws Exception {
+        validator.setAllowedChars("/");
+
+        assertEquals("a/b", validator.validate("a/b"));
+        assertEquals("a", validator.validate("a-b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetAllowedChars_ShouldRejectControlCharacters() throws Exception {
+        validator.setAllowedChars("-\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxLength_ShouldRejectNonPositiveLength() throws Exception {
+        validator.setMaxLength(0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package traceability.logback.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+
+/**
+ * Unit test for {@link IndexedFileAppender}.
+ */
+public class TestIndexedFileAppender {
+
+    private File logFile;
+    private IndexedFileAppender appender;
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("indexed-appender", ".log");
+        logger = context().getLogger(TestIndexedFileAppender.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(true);
+        logger.setLevel(null);
+        for (int segment = 0; TransactionIndex.segmentFile(logFile, segment).exists(); segment++) {
+            TransactionIndex.segmentFile(logFile, segment).delete();
+        }
+        logFile.delete();
+    }
+
+    @Test
+    public void testAppend_ShouldIndexEventsPerTransaction() throws Exception {
+        start();
+        MDC.put("transaction", "first");
+        logger.info("one");
+        MDC.put("transaction", "second");
+        logger.info("two");
+        MDC.put("transaction", "first");
+        logger.info("three");
+        MDC.put("transaction", "anonymous");
+        logger.info("four");
+        MDC.remove("transaction");
+        logger.info("five");
+        appender.stop();
+
+        TransactionIndex index = new TransactionIndex(logFile);
+        assertEquals(Arrays.asList("first INFO one\n", "first INFO three\n"), index.lookup("first"));
+        assertEquals(Arrays.asList("second INFO two\n"), index.lookup("second"));
+        assertTrue(index.lookup("anonymous").isEmpty());
+    }
+
+    @Test
+    public void testAppend_ShouldKeepOffsetsWhenAppendingToExistingLog() throws Exception {
+        start();
+        MDC.put("transaction", "first");
+        logger.info("before restart");
+        logger.detachAndStopAllAppenders();
+
+        start();
+        logger.info("after restart");
+        appender.stop();
+
+        assertEquals(Arrays.asList("first INFO before restart\n", "first INFO after restart\n"), new TransactionIndex(
+                logFile).lookup("first"));
+    }
+
+    @Test
+    public void testStart_ShouldRejectPrudentMode() throws Exception {
+        appender = new IndexedFileAppender();
+        appender.setContext(context());
+        appender.setFile(logFile.getPath());
+        appender.setPrudent(true);
+        appender.start();
+
+        assertFalse(appender.isStarted());
+    }
+
+    /**
+     * Test helper starting an appender on the log file.
+     */
+    private void start() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context());
+        encoder.setPattern("%X{transaction} %level %msg\n");
+        encoder.start();
+
+        appender = new IndexedFileAppender();
+        appender.setContext(context());
+        appender.setFile(logFile.getPath());
+        appender.setAppend(true);
+        appender.setSegmentRecords(4);
+        appender.setEncoder(encoder);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+}
\ No newline at end of file
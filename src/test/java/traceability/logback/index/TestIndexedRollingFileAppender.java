@@ -0,0 +1,169 @@
+package traceability.logback.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.DefaultTimeBasedFileNamingAndTriggeringPolicy;
+import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
+
+/**
+ * Unit test for {@link IndexedRollingFileAppender}.
+ */
+public class TestIndexedRollingFileAppender {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long NOON = 1579089600000L; // 2020-01-15 12:00 UTC
+
+    private File directory;
+    private IndexedRollingFileAppender appender;
+    private DefaultTimeBasedFileNamingAndTriggeringPolicy<ILoggingEvent> clock;
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("indexed-rolling-appender", "");
+        directory.delete();
+        directory.mkdir();
+        logger = context().getLogger(TestIndexedRollingFileAppender.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(true);
+        logger.setLevel(null);
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testRollover_ShouldRenameIndexWithRolledFile() throws Exception {
+        File logFile = new File(directory, "app.log");
+        start(logFile.getPath(), NOON);
+        MDC.put("transaction", "first");
+        logger.info("day one");
+
+        clock.setCurrentTime(NOON + 2 * DAY);
+        logger.info("day two");
+        appender.stop();
+
+        File rolledFile = rolledFile(NOON);
+        assertTrue(TransactionIndex.segmentFile(rolledFile, 0).exists());
+        assertEquals(Arrays.asList("first INFO day one\n"), new TransactionIndex(rolledFile).lookup("first"));
+        assertEquals(Arrays.asList("first INFO day two\n"), new TransactionIndex(logFile).lookup("first"));
+    }
+
+    @Test
+    public void testRollover_ShouldStartIndexOfEachPeriodFile() throws Exception {
+        start(null, NOON);
+        MDC.put("transaction", "first");
+        logger.info("day one");
+
+        clock.setCurrentTime(NOON + 2 * DAY);
+        logger.info("day two");
+        appender.stop();
+
+        assertEquals(Arrays.asList("first INFO day one\n"), new TransactionIndex(rolledFile(NOON)).lookup(
+                "first"));
+        assertEquals(Arrays.asList("first INFO day two\n"), new TransactionIndex(rolledFile(NOON + 2 * DAY))
+                .lookup("first"));
+    }
+
+    @Test
+    public void testRollover_ShouldDeleteIndexOfDeletedFile() throws Exception {
+        File logFile = new File(directory, "app.log");
+        start(logFile.getPath(), NOON);
+        MDC.put("transaction", "first");
+        logger.info("day one");
+
+        File deletedFile = rolledFile(NOON);
+        clock.setCurrentTime(NOON + 2 * DAY);
+        logger.info("day two");
+        assertTrue(TransactionIndex.segmentFile(deletedFile, 0).exists());
+
+        deletedFile.delete();
+        clock.setCurrentTime(NOON + 4 * DAY);
+        logger.info("day four");
+        appender.stop();
+
+        assertFalse(TransactionIndex.segmentFile(deletedFile, 0).exists());
+        assertTrue(TransactionIndex.segmentFile(logFile, 0).exists());
+    }
+
+    @Test
+    public void testStart_ShouldRejectCompression() throws Exception {
+        start(new File(directory, "app.log").getPath(), NOON, ".gz");
+
+        assertFalse(appender.isStarted());
+    }
+
+    /**
+     * Test helper starting an appender rolling daily, at a given time.
+     */
+    private void start(String file, long time) {
+        start(file, time, "");
+    }
+
+    /**
+     * Test helper starting an appender rolling daily, at a given time, with a suffix of the rolled files.
+     */
+    private void start(String file, long time, String suffix) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context());
+        encoder.setPattern("%X{transaction} %level %msg\n");
+        encoder.start();
+
+        appender = new IndexedRollingFileAppender();
+        appender.setContext(context());
+        appender.setFile(file);
+        appender.setSegmentRecords(4);
+        appender.setEncoder(encoder);
+
+        clock = new DefaultTimeBasedFileNamingAndTriggeringPolicy<ILoggingEvent>();
+        clock.setCurrentTime(time);
+        TimeBasedRollingPolicy<ILoggingEvent> policy = new TimeBasedRollingPolicy<ILoggingEvent>();
+        policy.setContext(context());
+        policy.setParent(appender);
+        policy.setFileNamePattern(new File(directory, "app-%d{yyyy-MM-dd}.log").getPath() + suffix);
+        policy.setTimeBasedFileNamingAndTriggeringPolicy(clock);
+        policy.start();
+
+        appender.setRollingPolicy(policy);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    /**
+     * Test helper returning the file of the period of a given time.
+     */
+    private File rolledFile(long time) {
+        return new File(directory, "app-" + new SimpleDateFormat("yyyy-MM-dd").format(new Date(time)) + ".log");
+    }
+
+    private static LoggerContext context() {
+        return (LoggerContext) LoggerFactory.getILoggerFactory();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package traceability.logback.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LogScanner}.
+ */
+public class TestLogScanner {
+
+    private final List<File> files = new ArrayList<File>();
+
+    @After
+    public void tearDown() throws Exception {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testScan_ShouldWriteLinesOfTransactionInOrder() throws Exception {
+        StringBuilder log = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            String line = i + " [" + (i % 7 == 0 ? "4f1c2a9e" : "4f1c2a9f") + "] INFO event " + i + "\n";
+            log.append(line);
+            if (i % 7 == 0) {
+                expected.append(line);
+            }
+        }
+        File file = write(".log", log.toString(), false);
+
+        // Small chunks, so that the file is scanned by many tasks
+        LogScanner scanner = new LogScanner(Arrays.asList("4f1c2a9e"), 4, 256);
+        assertEquals(expected.toString(), scan(scanner, file));
+    }
+
+    @Test
+    public void testScan_ShouldMatchAnyTransaction() throws Exception {
+        File file = write(".log", "[first] a\n[other] b\n[second] c\n[first] d\n", false);
+
+        LogScanner scanner = new LogScanner(Arrays.asList("first", "second"), 1);
+        assertEquals("[first] a\n[second] c\n[first] d\n", scan(scanner, file));
+    }
+
+    @Test
+    public void testScan_ShouldMatchAtEndOfFileWithoutLineFeed() throws Exception {
+        File file = write(".log", "[other] a\nlast x", false);
+
+        LogScanner scanner = new LogScanner(Arrays.asList("x"), 1);
+        assertEquals("last x\n", scan(scanner, file));
+    }
+
+    @Test
+    public void testScan_ShouldWriteMatchingLineOnce() throws Exception {
+        File file = write(".log", "tx tx tx\nnone\n", false);
+
+        LogScanner scanner = new LogScanner(Arrays.asList("tx"), 1);
+        assertEquals("tx tx tx\n", scan(scanner, file));
+    }
+
+    @Test
+    public void testScan_ShouldReadGzipArchivesAndFilesInOrder() throws Exception {
+        File archive = write(".log.gz", "[tx] archived\n[other] archived\n", true);
+        File current = write(".log", "[tx] current\n", false);
+
+        LogScanner scanner = new LogScanner(Arrays.asList("tx"), 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, scanner.scan(Arrays.asList(archive, current), out));
+        assertEquals("[tx] archived\n[tx] current\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testScan_ShouldMatchWholeTransactionOnly() throws Exception {
+        File file = write(".log", "[tx-1] a\n[tx-10] b\n[abctx-1] c\ntx-1.2 d\nend tx-1\n", false);
+
+        LogScanner scanner = new LogScanner(Arrays.asList("tx-1"), 1);
+        assertEquals("[tx-1] a\nend tx-1\n", scan(scanner, file));
+    }
+
+    @Test
+    public void testScan_ShouldMatchTransactionPrefixingAnother() throws Exception {
+        File file = write(".log", "[tx-1] a\n[tx-10] b\n[tx-100] c\n", false);
+
+        LogScanner scanner = new LogScanner(Arrays.asList("tx-1", "tx-10"), 1);
+        assertEquals("[tx-1] a\n[tx-10] b\n", scan(scanner, file));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ShouldRejectEmptyTransaction() throws Exception {
+        new LogScanner(Arrays.asList(""), 1);
+    }
+
+    /**
+     * Test helper scanning a single file.
+     */
+    private static String scan(LogScanner scanner, File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scanner.scan(Arrays.asList(file), out);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * Test helper writing a temporary log file, plain or gzip.
+     */
+    private File write(String suffix, String content, boolean compressed) throws IOException {
+        File file = File.createTempFile("log-scanner", suffix);
+        files.add(file);
+        OutputStream out = new FileOutputStream(file);
+        if (compressed) {
+            out = new GZIPOutputStream(out);
+        }
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
\ No newline at end of file
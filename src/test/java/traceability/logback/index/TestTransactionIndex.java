@@ -0,0 +1,148 @@
+package traceability.logback.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TransactionIndex} and {@link TransactionIndexWriter}.
+ */
+public class TestTransactionIndex {
+
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = File.createTempFile("transaction-index", ".log");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (int segment = 0; TransactionIndex.segmentFile(logFile, segment).exists(); segment++) {
+            TransactionIndex.segmentFile(logFile, segment).delete();
+        }
+        logFile.delete();
+    }
+
+    @Test
+    public void testLookup_ShouldReadEventsOfTransaction() throws Exception {
+        TransactionIndexWriter writer = new TransactionIndexWriter(logFile, 16, true);
+        write(writer, "first", "event 1 of first\n");
+        write(writer, "second", "event 1 of second\n");
+        write(writer, "first", "event 2 of first\nwith a stack trace\n");
+        writer.close();
+
+        TransactionIndex index = new TransactionIndex(logFile);
+        assertEquals(Arrays.asList("event 1 of first\n", "event 2 of first\nwith a stack trace\n"), index
+                .lookup("first"));
+        assertEquals(Arrays.asList("event 1 of second\n"), index.lookup("second"));
+        assertTrue(index.lookup("unknown").isEmpty());
+    }
+
+    @Test
+    public void testAppend_ShouldCreateNewSegmentWhenFull() throws Exception {
+        TransactionIndexWriter writer = new TransactionIndexWriter(logFile, 2, true);
+        for (int i = 0; i < 5; i++) {
+            write(writer, "transaction", "event " + i + "\n");
+        }
+        writer.close();
+
+        assertTrue(TransactionIndex.segmentFile(logFile, 2).exists());
+        assertEquals(5, new TransactionIndex(logFile).lookup("transaction").size());
+    }
+
+    @Test
+    public void testConstructor_ShouldContinueExistingIndex() throws Exception {
+        TransactionIndexWriter writer = new TransactionIndexWriter(logFile, 4, true);
+        write(writer, "transaction", "before restart\n");
+        writer.close();
+
+        writer = new TransactionIndexWriter(logFile, 4, true);
+        write(writer, "transaction", "after restart\n");
+        writer.close();
+
+        assertEquals(Arrays.asList("before restart\n", "after restart\n"), new TransactionIndex(logFile)
+                .lookup("transaction"));
+    }
+
+    @Test
+    public void testConstructor_ShouldDeleteExistingIndexIfNotAppending() throws Exception {
+        TransactionIndexWriter writer = new TransactionIndexWriter(logFile, 1, true);
+        write(writer, "transaction", "first\n");
+        write(writer, "transaction", "second\n");
+        writer.close();
+
+        new TransactionIndexWriter(logFile, 1, false).close();
+
+        assertArrayEquals(new long[0], new TransactionIndex(logFile).find("transaction"));
+    }
+
+    @Test
+    public void testClose_ShouldSortSegmentByHashInOrderOfLog() throws Exception {
+        TransactionIndexWriter writer = new TransactionIndexWriter(logFile, 64, true);
+        for (int i = 0; i < 30; i++) {
+            write(writer, "transaction-" + i % 10, "event " + i + "\n");
+        }
+        writer.close();
+
+        RandomAccessFile segment = new RandomAccessFile(TransactionIndex.segmentFile(logFile, 0), "r");
+        try {
+            segment.seek(TransactionIndex.SORTED_OFFSET);
+            assertEquals(30, segment.readInt());
+            long previous = Long.MIN_VALUE;
+            for (int i = 0; i < 30; i++) {
+                long key = segment.readLong() & TransactionIndex.KEY_MASK;
+                segment.readLong();
+                assertTrue(previous <= key);
+                previous = key;
+            }
+        } finally {
+            segment.close();
+        }
+        assertEquals(Arrays.asList("event 3\n", "event 13\n", "event 23\n"), new TransactionIndex(logFile)
+                .lookup("transaction-3"));
+    }
+
+    @Test
+    public void testLookup_ShouldReadSortedRecordsThenAppendedOnes() throws Exception {
+        TransactionIndexWriter writer = new TransactionIndexWriter(logFile, 64, true);
+        write(writer, "second", "second before restart\n");
+        write(writer, "first", "first before restart\n");
+        writer.close();
+
+        writer = new TransactionIndexWriter(logFile, 64, true);
+        write(writer, "first", "first after restart\n");
+        TransactionIndex index = new TransactionIndex(logFile);
+        assertEquals(Arrays.asList("first before restart\n", "first after restart\n"), index.lookup("first"));
+
+        write(writer, "second", "second after restart\n");
+        writer.close();
+        assertEquals(Arrays.asList("first before restart\n", "first after restart\n"), index.lookup("first"));
+        assertEquals(Arrays.asList("second before restart\n", "second after restart\n"), index.lookup("second"));
+    }
+
+    /**
+     * Test helper writing an event to the log file and its record to the index.
+     */
+    private void write(TransactionIndexWriter writer, String transaction, String event) throws IOException {
+        byte[] bytes = event.getBytes("UTF-8");
+        long offset = logFile.length();
+        FileOutputStream out = new FileOutputStream(logFile, true);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        writer.append(transaction, offset, bytes.length);
+    }
+}
\ No newline at end of file
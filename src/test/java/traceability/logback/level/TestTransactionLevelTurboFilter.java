@@ -0,0 +1,216 @@
+package traceability.logback.level;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Unit test for {@link TransactionLevelTurboFilter}.
+ */
+public class TestTransactionLevelTurboFilter {
+
+    private LoggerContext loggerContext;
+    private TransactionLevelTurboFilter filter;
+    private Logger logger;
+    private File watchFile;
+
+    @Before
+    public void setUp() throws Exception {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        filter = new TransactionLevelTurboFilter();
+        filter.setContext(loggerContext);
+        loggerContext.addTurboFilter(filter);
+
+        logger = loggerContext.getLogger(TestTransactionLevelTurboFilter.class);
+        logger.setLevel(Level.INFO);
+        watchFile = File.createTempFile("watched", ".txt");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        filter.stop();
+        loggerContext.getTurboFilterList().remove(filter);
+        logger.setLevel(null);
+        watchFile.delete();
+    }
+
+    @Test
+    public void testDecide_ShouldKeepLoggerLevelIfNothingWatched() throws Exception {
+        filter.start();
+        MDC.put("transaction", "unique_transaction");
+
+        assertFalse(logger.isDebugEnabled());
+        assertTrue(logger.isInfoEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldEnableDebugForWatchedTransaction() throws Exception {
+        filter.start();
+        filter.watch("unique_transaction");
+
+        MDC.put("transaction", "unique_transaction");
+        assertTrue(logger.isDebugEnabled());
+        assertFalse(logger.isTraceEnabled());
+
+        MDC.put("transaction", "another_transaction");
+        assertFalse(logger.isDebugEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldEnableDebugForWatchedUser() throws Exception {
+        filter.start();
+        filter.watch("watched_user");
+
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("user", "watched_user");
+        assertTrue(logger.isDebugEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldUseConfiguredLevelAndKeys() throws Exception {
+        filter.setMdcKey("another-transaction");
+        filter.setUserMdcKey(null);
+        filter.setWatchLevel(Level.TRACE);
+        filter.start();
+        filter.watch("unique_transaction");
+
+        MDC.put("user", "unique_transaction");
+        assertFalse(logger.isTraceEnabled());
+
+        MDC.put("another-transaction", "unique_transaction");
+        assertTrue(logger.isTraceEnabled());
+    }
+
+    @Test
+    public void testUnwatch_ShouldRestoreLoggerLevel() throws Exception {
+        filter.start();
+        filter.watch("unique_transaction");
+        filter.watch("another_transaction");
+        MDC.put("transaction", "unique_transaction");
+
+        filter.unwatch("unique_transaction");
+        assertFalse(logger.isDebugEnabled());
+        assertArrayEquals(new String[] { "another_transaction" }, filter.getWatched());
+
+        filter.clearWatched();
+        assertEquals(0, filter.getWatched().length);
+    }
+
+    @Test
+    public void testStart_ShouldReadWatchFile() throws Exception {
+        write("# Incident 42\nunique_transaction\n\n  watched_user  \n");
+        filter.setFile(watchFile.getPath());
+        filter.setRefreshPeriod(0);
+        filter.start();
+
+        MDC.put("transaction", "unique_transaction");
+        assertTrue(logger.isDebugEnabled());
+        assertEquals(2, filter.getWatched().length);
+    }
+
+    @Test
+    public void testReload_ShouldKeepManagedValues() throws Exception {
+        write("unique_transaction\n");
+        filter.setFile(watchFile.getPath());
+        filter.setRefreshPeriod(0);
+        filter.start();
+        filter.watch("managed_transaction");
+
+        write("");
+        filter.reload();
+
+        assertArrayEquals(new String[] { "managed_transaction" }, filter.getWatched());
+    }
+
+    @Test
+    public void testStart_ShouldPollWatchFileForChanges() throws Exception {
+        filter.setFile(watchFile.getPath());
+        filter.setRefreshPeriod(10);
+        filter.start();
+        MDC.put("transaction", "unique_transaction");
+        assertFalse(logger.isDebugEnabled());
+
+        write("unique_transaction\n");
+        for (int i = 0; i < 500 && !logger.isDebugEnabled(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(logger.isDebugEnabled());
+    }
+
+    @Test
+    public void testStart_ShouldRegisterMBean() throws Exception {
+        filter.start();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = filter.getObjectName();
+        server.invoke(name, "watch", new Object[] { "unique_transaction" }, new String[] { String.class.getName() });
+
+        MDC.put("transaction", "unique_transaction");
+        assertTrue(logger.isDebugEnabled());
+
+        filter.stop();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testStart_ShouldRegisterUnnamedFiltersUnderDistinctNames() throws Exception {
+        TransactionLevelTurboFilter other = new TransactionLevelTurboFilter();
+        other.setContext(filter.getContext());
+        filter.start();
+        other.start();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertFalse(filter.getObjectName().equals(other.getObjectName()));
+            assertTrue(server.isRegistered(filter.getObjectName()));
+            assertTrue(server.isRegistered(other.getObjectName()));
+            assertTrue(filter.getObjectName().getKeyProperty("name").startsWith(
+                    filter.getContext().getName() + "-"));
+        } finally {
+            other.stop();
+        }
+    }
+
+    @Test
+    public void testStart_ShouldRegisterNamedFilterUnderItsName() throws Exception {
+        filter.setName("orders");
+        filter.start();
+
+        assertEquals(new ObjectName("traceability.logback:type=TransactionLevelTurboFilter,name=orders"), filter
+                .getObjectName());
+    }
+
+    /**
+     * Test helper replacing the content of the watch file, with a new timestamp.
+     */
+    private void write(String content) throws IOException {
+        long lastModified = watchFile.lastModified();
+        FileOutputStream out = new FileOutputStream(watchFile);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        watchFile.setLastModified(lastModified + 2000);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package traceability.logback.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LatencyHistogram}.
+ */
+public class TestLatencyHistogram {
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() throws Exception {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testIndexOf_ShouldCoverEveryValueWithContiguousBuckets() throws Exception {
+        for (int index = 0; index < 1055; index++) {
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.lowestValueOf(index)));
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.highestValueOf(index)));
+            assertEquals(LatencyHistogram.highestValueOf(index) + 1, LatencyHistogram.lowestValueOf(index + 1));
+        }
+        assertEquals(1055, LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    public void testGetValueAtPercentile_ShouldBeWithinThreePercent() throws Exception {
+        for (long micros = 1; micros <= 100000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertEquals(100000, histogram.getCount());
+        assertWithinThreePercent(50000, histogram.getP50());
+        assertWithinThreePercent(99000, histogram.getP99());
+        assertWithinThreePercent(99900, histogram.getP999());
+        assertWithinThreePercent(100000, histogram.getMax());
+        assertWithinThreePercent(50000, histogram.getMean());
+    }
+
+    @Test
+    public void testGetValueAtPercentile_ShouldBeExactForSmallValues() throws Exception {
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(42);
+
+        assertEquals(7, histogram.getP50());
+        assertEquals(42, histogram.getP99());
+        assertEquals(42, histogram.getMax());
+        assertEquals(17, histogram.getMean());
+    }
+
+    @Test
+    public void testRecord_ShouldClampOutOfRangeValues() throws Exception {
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50.0));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void testRecordNanos_ShouldRecordMicroseconds() throws Exception {
+        histogram.recordNanos(25000);
+
+        assertEquals(25, histogram.getMax());
+    }
+
+    @Test
+    public void testReset_ShouldDiscardRecordedValues() throws Exception {
+        histogram.record(1000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getP99());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+    }
+
+    /**
+     * Test helper to verify a statistic against its exact value.
+     */
+    private void assertWithinThreePercent(long expected, long actual) {
+        assertTrue("Expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.03);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package traceability.logback.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LatencyRecorder}.
+ */
+public class TestLatencyRecorder {
+
+    private LatencyRecorder recorder;
+
+    @Before
+    public void setUp() throws Exception {
+        recorder = new LatencyRecorder("test", 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        recorder.close();
+    }
+
+    @Test
+    public void testRecord_ShouldKeepOneHistogramPerEntryPoint() throws Exception {
+        recorder.record("/orders", 2000000);
+        recorder.record(new String("/orders"), 4000000);
+        recorder.record("/users", 1000000);
+
+        assertEquals(2, recorder.getHistogram("/orders").getCount());
+        assertEquals(1, recorder.getHistogram("/users").getCount());
+        assertNotSame(recorder.getHistogram("/orders"), recorder.getHistogram("/users"));
+    }
+
+    @Test
+    public void testRecord_ShouldShareOtherHistogramOnceLimitIsReached() throws Exception {
+        recorder.record("/orders", 1000000);
+        recorder.record("/users", 1000000);
+        recorder.record("/products", 1000000);
+        recorder.record("/stores", 1000000);
+
+        assertSame(recorder.getHistogram("/products"), recorder.getHistogram("/stores"));
+        assertEquals(2, recorder.getHistogram("/stores").getCount());
+        assertEquals(1, recorder.getHistogram("/orders").getCount());
+        assertTrue(recorder.getHistograms().containsKey(LatencyRecorder.OTHER));
+    }
+
+    @Test
+    public void testGetHistogram_ShouldNameMethodsAfterTheirClass() throws Exception {
+        recorder.record(String.class.getMethod("trim"), 1000000);
+        recorder.record(Integer.class, 1000000);
+
+        assertTrue(recorder.getHistograms().containsKey("String.trim"));
+        assertTrue(recorder.getHistograms().containsKey("Integer"));
+    }
+
+    @Test
+    public void testRecord_ShouldRegisterHistogramsInMBeanServer() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = recorder.objectName("/orders");
+
+        recorder.record("/orders", 3000000);
+        assertEquals(1L, server.getAttribute(name, "Count"));
+        assertEquals(recorder.getHistogram("/orders").getP99(), server.getAttribute(name, "P99"));
+
+        recorder.close();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testRecord_ShouldNotReplaceHistogramOfAnotherRecorder() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = recorder.objectName("/orders");
+        recorder.record("/orders", 3000000);
+
+        LatencyRecorder other = new LatencyRecorder("test");
+        try {
+            other.record("/orders", 1000000);
+            other.record("/orders", 1000000);
+            other.close();
+            assertEquals(1L, server.getAttribute(name, "Count"));
+        } finally {
+            other.close();
+        }
+    }
+}
\ No newline at end of file
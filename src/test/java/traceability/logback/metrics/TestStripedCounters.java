@@ -0,0 +1,73 @@
+package traceability.logback.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link StripedCounters}.
+ */
+public class TestStripedCounters {
+
+    private StripedCounters counters;
+
+    @Before
+    public void setUp() throws Exception {
+        counters = new StripedCounters(10);
+    }
+
+    @Test
+    public void testIncrement_ShouldCountEachCounterApart() throws Exception {
+        counters.increment(0);
+        counters.increment(9);
+        counters.increment(9);
+
+        assertEquals(1, counters.get(0));
+        assertEquals(0, counters.get(1));
+        assertEquals(2, counters.get(9));
+    }
+
+    @Test
+    public void testIncrement_ShouldSumIncrementsOfAllThreads() throws Exception {
+        final int threads = 8;
+        final int increments = 10000;
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < increments; j++) {
+                        counters.increment(3);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+
+        assertEquals(threads * increments, counters.get(3));
+        assertEquals(0, counters.get(4));
+    }
+
+    @Test
+    public void testReset_ShouldSetCountersBackToZero() throws Exception {
+        counters.increment(5);
+        counters.reset();
+
+        assertEquals(0, counters.get(5));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIncrement_ShouldFailIfCounterIsOutOfRange() throws Exception {
+        counters.increment(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ShouldFailIfSizeIsNotPositive() throws Exception {
+        new StripedCounters(0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package traceability.logback.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterConfig;
+
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.metrics.TraceMetrics.Outcome;
+import traceability.logback.spring.mvc.HttpHeaderSpringInterceptor;
+
+/**
+ * Unit test for {@link TraceMetrics}.
+ */
+public class TestTraceMetrics {
+
+    @Test
+    public void testRecord_ShouldCountOutcomePerChannel() throws Exception {
+        TraceMetrics jmsOut = TraceMetrics.getInstance(Channel.JMS_OUT);
+        TraceMetrics jmsIn = TraceMetrics.getInstance(Channel.JMS_IN);
+        long skipped = jmsOut.getSkipped();
+        long traced = jmsOut.getTraced();
+        long inSkipped = jmsIn.getSkipped();
+
+        TraceMetrics.record(Channel.JMS_OUT, Outcome.SKIPPED);
+        TraceMetrics.record(Channel.JMS_OUT, Outcome.SKIPPED);
+
+        assertEquals(skipped + 2, jmsOut.getSkipped());
+        assertEquals(traced, jmsOut.getTraced());
+        assertEquals(inSkipped, jmsIn.getSkipped());
+    }
+
+    @Test
+    public void testRegister_ShouldRegisterEveryChannelInMBeanServer() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = TraceMetrics.objectName(Channel.SOAP_OUT);
+
+        TraceMetrics.register();
+        try {
+            TraceMetrics.record(Channel.SOAP_OUT, Outcome.FAILED);
+            assertEquals(TraceMetrics.getInstance(Channel.SOAP_OUT).getFailed(), server.getAttribute(name, "Failed"));
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Failed"));
+        } finally {
+            TraceMetrics.unregister();
+        }
+    }
+
+    @Test
+    public void testUnregister_ShouldUnregisterOnceEveryRegistrationIsMatched() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = TraceMetrics.objectName(Channel.HTTP_IN);
+        int previous = unregisterAll(server, name);
+        try {
+            TraceMetrics.register();
+            TraceMetrics.register();
+            TraceMetrics.unregister();
+            assertTrue(server.isRegistered(name));
+
+            TraceMetrics.unregister();
+            assertFalse(server.isRegistered(name));
+
+            // Unmatched calls are ignored
+            TraceMetrics.unregister();
+            TraceMetrics.register();
+            assertTrue(server.isRegistered(name));
+            TraceMetrics.unregister();
+            assertFalse(server.isRegistered(name));
+        } finally {
+            registerAll(previous);
+        }
+    }
+
+    @Test
+    public void testDestroy_ShouldUnregisterMetricsOfFilter() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = TraceMetrics.objectName(Channel.HTTP_IN);
+
+        int previous = unregisterAll(server, name);
+        try {
+            HttpHeaderServletFilter filter = new HttpHeaderServletFilter();
+            filter.init(new MockFilterConfig());
+            assertTrue(server.isRegistered(name));
+
+            filter.destroy();
+            assertFalse(server.isRegistered(name));
+        } finally {
+            registerAll(previous);
+        }
+    }
+
+    @Test
+    public void testUnregister_ShouldNotUnregisterMBeanOfAnotherApplication() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = TraceMetrics.objectName(Channel.TASK);
+        int previous = unregisterAll(server, name);
+        try {
+            // Same name, registered by someone else
+            server.registerMBean(TraceMetrics.getInstance(Channel.HTTP_OUT), name);
+            TraceMetrics.register();
+            TraceMetrics.unregister();
+            assertTrue(server.isRegistered(name));
+            server.unregisterMBean(name);
+        } finally {
+            registerAll(previous);
+        }
+    }
+
+    @Test
+    public void testDestroy_ShouldUnregisterMetricsOfInterceptor() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = TraceMetrics.objectName(Channel.HTTP_IN);
+
+        int previous = unregisterAll(server, name);
+        try {
+            HttpHeaderSpringInterceptor interceptor = new HttpHeaderSpringInterceptor();
+            interceptor.afterPropertiesSet();
+            assertTrue(server.isRegistered(name));
+
+            interceptor.destroy();
+            interceptor.destroy();
+            assertFalse(server.isRegistered(name));
+        } finally {
+            registerAll(previous);
+        }
+    }
+
+    /**
+     * Test helper unregistering the metrics as many times as the other tests registered them (e.g. filters never
+     * destroyed), returning that number.
+     */
+    private static int unregisterAll(MBeanServer server, ObjectName name) {
+        int count = 0;
+        while (server.isRegistered(name) && count < 1000) {
+            TraceMetrics.unregister();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Test helper restoring the registrations removed by {@link #unregisterAll(MBeanServer, ObjectName)}.
+     */
+    private static void registerAll(int count) {
+        for (int i = 0; i < count; i++) {
+            TraceMetrics.register();
+        }
+    }
+}
\ No newline at end of file
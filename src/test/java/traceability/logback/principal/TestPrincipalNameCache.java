@@ -0,0 +1,115 @@
+package traceability.logback.principal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import traceability.test.http.DummyPrincipal;
+
+/**
+ * Unit test for {@link PrincipalNameCache}.
+ */
+public class TestPrincipalNameCache {
+
+    @Test
+    public void testIntern_ShouldReturnCachedInstanceOfEqualNames() throws Exception {
+        PrincipalNameCache cache = new PrincipalNameCache();
+        String first = new String("user");
+        String second = new String("user");
+
+        assertSame(first, cache.intern(first));
+        assertSame(first, cache.intern(second));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testIntern_ShouldEvictLeastRecentlyAddedNameOfTheBucket() throws Exception {
+        PrincipalNameCache cache = new PrincipalNameCache(4);
+        String first = new String("user1");
+        String second = new String("user2");
+
+        cache.intern(first);
+        cache.intern(second);
+        cache.intern("user3");
+        cache.intern("user4");
+        cache.intern("user5");
+
+        assertSame(second, cache.intern(new String("user2")));
+        assertNotSame(first, cache.intern(new String("user1")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(6, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testIntern_ShouldIgnoreNullName() throws Exception {
+        PrincipalNameCache cache = new PrincipalNameCache();
+
+        assertNull(cache.intern(null));
+        assertNull(cache.getName(null));
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testGetName_ShouldReturnCachedNameOfPrincipal() throws Exception {
+        PrincipalNameCache cache = new PrincipalNameCache();
+        String name = cache.getName(new DummyPrincipal(new String("user")));
+
+        assertSame(name, cache.getName(new DummyPrincipal(new String("user"))));
+    }
+
+    @Test
+    public void testConstructor_ShouldRoundCapacityToPowerOfTwo() throws Exception {
+        assertEquals(4, new PrincipalNameCache(1).getCapacity());
+        assertEquals(1024, new PrincipalNameCache(1000).getCapacity());
+        assertEquals(PrincipalNameCache.DEFAULT_CAPACITY, new PrincipalNameCache().getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ShouldRejectInvalidCapacity() throws Exception {
+        new PrincipalNameCache(0);
+    }
+
+    @Test
+    public void testIntern_ShouldReturnEqualNamesFromConcurrentThreads() throws Exception {
+        final PrincipalNameCache cache = new PrincipalNameCache(64);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int i = 0; i < 10000; i++) {
+                            String name = "user" + (i % 200);
+                            if (!name.equals(cache.intern(name))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertEquals(Boolean.TRUE, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+    }
+}
\ No newline at end of file
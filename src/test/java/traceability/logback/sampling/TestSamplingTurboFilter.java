@@ -0,0 +1,95 @@
+package traceability.logback.sampling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Unit test for {@link SamplingTurboFilter}.
+ */
+public class TestSamplingTurboFilter {
+
+    private LoggerContext loggerContext;
+    private SamplingTurboFilter filter;
+    private Logger logger;
+
+    @Before
+    public void setUp() throws Exception {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        filter = new SamplingTurboFilter();
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        logger = loggerContext.getLogger(TestSamplingTurboFilter.class);
+        logger.setLevel(Level.INFO);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        loggerContext.getTurboFilterList().remove(filter);
+        logger.setLevel(null);
+    }
+
+    @Test
+    public void testDecide_ShouldEnableDebugForSampledTransactions() throws Exception {
+        MDC.put("sampled", "1");
+
+        assertTrue(logger.isDebugEnabled());
+        assertFalse(logger.isTraceEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldDisableDebugForTransactionsNotSampled() throws Exception {
+        logger.setLevel(Level.TRACE);
+        MDC.put("sampled", "0");
+
+        assertFalse(logger.isDebugEnabled());
+        assertFalse(logger.isTraceEnabled());
+        assertTrue(logger.isInfoEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldKeepLoggerLevelWithoutDecision() throws Exception {
+        assertFalse(logger.isDebugEnabled());
+        assertTrue(logger.isInfoEnabled());
+
+        logger.setLevel(Level.DEBUG);
+        assertTrue(logger.isDebugEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldNeverFilterFromThreshold() throws Exception {
+        logger.setLevel(Level.ERROR);
+        MDC.put("sampled", "1");
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.WARN, "message", null, null));
+        assertFalse(logger.isWarnEnabled());
+    }
+
+    @Test
+    public void testDecide_ShouldUseConfiguredLevelsAndKey() throws Exception {
+        filter.setMdcKey("another-sampled");
+        filter.setThreshold(Level.WARN);
+        filter.setSampledLevel(Level.TRACE);
+        MDC.put("another-sampled", "1");
+
+        assertTrue(logger.isTraceEnabled());
+
+        MDC.put("another-sampled", "0");
+        assertFalse(logger.isInfoEnabled());
+        assertTrue(logger.isWarnEnabled());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package traceability.logback.sampling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TransactionSampler}.
+ */
+public class TestTransactionSampler {
+
+    @Test
+    public void testSample_ShouldKeepReceivedDecision() throws Exception {
+        assertEquals("1", new TransactionSampler(0).sample("1", "transaction_id"));
+        assertEquals("1", new TransactionSampler(0).sample("TRUE", "transaction_id"));
+        assertEquals("0", new TransactionSampler(1).sample("0", "transaction_id"));
+        assertEquals("0", new TransactionSampler(1).sample("false", "transaction_id"));
+    }
+
+    @Test
+    public void testSample_ShouldDecideIfReceivedDecisionIsInvalid() throws Exception {
+        assertEquals("1", new TransactionSampler(1).sample("maybe", "transaction_id"));
+        assertEquals("0", new TransactionSampler(0).sample(null, "transaction_id"));
+    }
+
+    @Test
+    public void testIsSampled_ShouldMakeSameDecisionForSameTransaction() throws Exception {
+        TransactionSampler sampler = new TransactionSampler(0.5);
+        TransactionSampler anotherSampler = new TransactionSampler(0.5);
+
+        for (int i = 0; i < 100; i++) {
+            String transaction = "transaction_" + i;
+            assertEquals(sampler.isSampled(transaction), anotherSampler.isSampled(transaction));
+            assertEquals(sampler.isSampled(transaction), sampler.isSampled(transaction));
+        }
+    }
+
+    @Test
+    public void testIsSampled_ShouldSampleConfiguredRateOfTransactions() throws Exception {
+        TransactionSampler sampler = new TransactionSampler(0.1);
+
+        int sampled = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (sampler.isSampled(Long.toString(1334000000000L + i, 36))) {
+                sampled++;
+            }
+        }
+        assertTrue("Sampled " + sampled, sampled > 9000 && sampled < 11000);
+    }
+
+    @Test
+    public void testIsSampled_ShouldSampleConfiguredRateOfTransactionsWithoutId() throws Exception {
+        TransactionSampler sampler = new TransactionSampler(0.1);
+
+        int sampled = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (sampler.isSampled(null)) {
+                sampled++;
+            }
+        }
+        assertTrue("Sampled " + sampled, sampled > 9000 && sampled < 11000);
+    }
+
+    @Test
+    public void testIsSampled_ShouldHonourBoundaryRates() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(new TransactionSampler(1).isSampled("transaction_" + i));
+            assertFalse(new TransactionSampler(0).isSampled("transaction_" + i));
+        }
+    }
+
+    @Test
+    public void testNormalize_ShouldRejectUnknownValues() throws Exception {
+        assertNull(TransactionSampler.normalize(null));
+        assertNull(TransactionSampler.normalize(""));
+        assertNull(TransactionSampler.normalize("yes"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetRate_ShouldRejectRateOutOfRange() throws Exception {
+        new TransactionSampler(-0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetRate_ShouldRejectNaN() throws Exception {
+        new TransactionSampler(Double.NaN);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package traceability.logback.spring.jms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import traceability.logback.id.TimeBasedTransactionIdGenerator;
+
+/**
+ * Unit test for {@link BinaryTransactionCodec}.
+ */
+public class TestBinaryTransactionCodec {
+
+    @Test
+    public void testDecode_ShouldRestoreGeneratedTransactions() {
+        TimeBasedTransactionIdGenerator generator = new TimeBasedTransactionIdGenerator();
+        for (int i = 0; i < 1000; i++) {
+            assertRoundTrip(generator.generate(), BinaryTransactionCodec.ULID);
+        }
+        assertRoundTrip("7ZZZZZZZZZZZZZZZZZZZZZZZZZ", BinaryTransactionCodec.ULID);
+        assertRoundTrip("00000000000000000000000000", BinaryTransactionCodec.ULID);
+    }
+
+    @Test
+    public void testDecode_ShouldRestoreUuidAndHexTransactions() {
+        for (int i = 0; i < 1000; i++) {
+            String uuid = UUID.randomUUID().toString();
+            assertRoundTrip(uuid, BinaryTransactionCodec.UUID);
+            assertRoundTrip(uuid.replace("-", ""), BinaryTransactionCodec.HEX);
+        }
+        assertRoundTrip("ffffffff-ffff-ffff-ffff-ffffffffffff", BinaryTransactionCodec.UUID);
+    }
+
+    @Test
+    public void testFormat_ShouldRejectTransactionsThatWouldNotBeRestoredAsTheyAre() {
+        String[] invalid = { "", "unique_transaction", "8ZZZZZZZZZZZZZZZZZZZZZZZZZ", "01hv3k8z9q4x7m2n5p6r8t0w1y",
+                "01HV3K8Z9Q4X7M2N5P6R8T0W1I", "4F1C2A9E-6D0B-4F63-9A57-2B1D8C3E7F10",
+                "4f1c2a9e-6d0b-4f63-9a57+2b1d8c3e7f10", "4f1c2a9e6d0b4f639a572b1d8c3e7f1g", "4f1c2a9e6d0b4f63" };
+        for (String transaction : invalid) {
+            assertEquals(transaction, BinaryTransactionCodec.NONE, BinaryTransactionCodec.format(transaction));
+        }
+    }
+
+    /**
+     * Test helper packing and unpacking a transaction ID.
+     */
+    private static void assertRoundTrip(String transaction, int format) {
+        assertEquals(transaction, format, BinaryTransactionCodec.format(transaction));
+        assertEquals(transaction, BinaryTransactionCodec.decode(BinaryTransactionCodec.high(transaction, format),
+                BinaryTransactionCodec.low(transaction, format), format));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package traceability.logback.spring.jms;
+
+import java.util.Arrays;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+/**
+ * Unit test for {@link TraceableJmsTemplate}.
+ */
+public class TestTraceableJmsTemplate {
+
+    private TraceableJmsTemplate template;
+
+    private Mockery mockery = new Mockery();
+    private ConnectionFactory connectionFactoryMock;
+    private Connection connectionMock;
+    private Session sessionMock;
+    private Queue queueMock;
+    private MessageProducer producerMock;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionFactoryMock = mockery.mock(ConnectionFactory.class);
+        connectionMock = mockery.mock(Connection.class);
+        sessionMock = mockery.mock(Session.class);
+        queueMock = mockery.mock(Queue.class);
+        producerMock = mockery.mock(MessageProducer.class);
+
+        template = new TraceableJmsTemplate(connectionFactoryMock);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        mockery.assertIsSatisfied();
+    }
+
+    @Test
+    public void testConvertAndSend_ShouldSetMDCTransactionInMessageProperty() throws Exception {
+        final TextMessage messageMock = mockery.mock(TextMessage.class);
+        expectSession(false);
+        mockery.checking(new Expectations() {
+            {
+                oneOf(sessionMock).createTextMessage("order 42");
+                will(returnValue(messageMock));
+                oneOf(messageMock).setStringProperty("transaction", "unique_transaction");
+                oneOf(producerMock).send(messageMock);
+            }
+        });
+
+        MDC.put("transaction", "unique_transaction");
+        template.convertAndSend("orders", "order 42");
+    }
+
+    @Test
+    public void testConvertAndSendBatch_ShouldSendAllMessagesInOneTransactedSession() throws Exception {
+        final TextMessage firstMock = mockery.mock(TextMessage.class, "first");
+        final TextMessage secondMock = mockery.mock(TextMessage.class, "second");
+        expectSession(true);
+        mockery.checking(new Expectations() {
+            {
+                oneOf(sessionMock).createTextMessage("order 42");
+                will(returnValue(firstMock));
+                oneOf(firstMock).setStringProperty("transaction", "unique_transaction");
+                oneOf(firstMock).setStringProperty("sampled", "1");
+                oneOf(producerMock).send(firstMock);
+
+                oneOf(sessionMock).createTextMessage("order 43");
+                will(returnValue(secondMock));
+                oneOf(secondMock).setStringProperty("transaction", "unique_transaction");
+                oneOf(secondMock).setStringProperty("sampled", "1");
+                oneOf(producerMock).send(secondMock);
+
+                oneOf(sessionMock).commit();
+            }
+        });
+
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+        template.setSessionTransacted(true);
+        template.convertAndSendBatch("orders", Arrays.asList("order 42", "order 43"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConvertAndSendBatch_ShouldFailWithoutDefaultDestination() throws Exception {
+        template.convertAndSendBatch(Arrays.asList("order 42"));
+    }
+
+    /**
+     * Test helper expecting a single session, with a single producer to the <code>orders</code> queue.
+     */
+    private void expectSession(final boolean transacted) throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(connectionFactoryMock).createConnection();
+                will(returnValue(connectionMock));
+                oneOf(connectionMock).createSession(transacted, Session.AUTO_ACKNOWLEDGE);
+                will(returnValue(sessionMock));
+                oneOf(sessionMock).createQueue("orders");
+                will(returnValue(queueMock));
+                oneOf(sessionMock).createProducer(queueMock);
+                will(returnValue(producerMock));
+                allowing(sessionMock).getTransacted();
+                will(returnValue(transacted));
+                oneOf(producerMock).close();
+                oneOf(sessionMock).close();
+                oneOf(connectionMock).close();
+            }
+        });
+    }
+}
\ No newline at end of file
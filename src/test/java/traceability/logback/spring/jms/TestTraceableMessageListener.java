@@ -0,0 +1,394 @@
+package traceability.logback.spring.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+
+/**
+ * Unit test for {@link TraceableMessageListener}.
+ */
+public class TestTraceableMessageListener {
+
+    private TraceableMessageListener listener;
+
+    private RecordingListener delegate;
+    private RecordingSessionAwareListener sessionAwareDelegate;
+
+    private Mockery mockery = new Mockery();
+    private Message messageMock;
+    private Session sessionMock;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = new RecordingListener();
+        sessionAwareDelegate = new RecordingSessionAwareListener();
+        listener = new TraceableMessageListener(delegate);
+
+        messageMock = mockery.mock(Message.class);
+        sessionMock = mockery.mock(Session.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+
+        mockery.assertIsSatisfied();
+    }
+
+    @Test
+    public void testOnMessage_ShouldSetMessagePropertyInMDCDuringDelegation() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+
+        listener.onMessage(messageMock);
+
+        assertSame(messageMock, delegate.message);
+        assertEquals("unique_transaction", delegate.transaction);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldEndTransactionForFlightRecorders() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+        delegate.failure = new IllegalStateException("listener failure");
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            listener.onMessage(messageMock);
+            fail("Delegate failure expected");
+        } catch (IllegalStateException e) {
+            assertEquals("flush:unique_transaction discard:unique_transaction ", seen.toString());
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testOnMessage_ShouldNotModifyMDCIfPropertyNotFound() throws Exception {
+        expectProperty("transaction", null);
+
+        listener.onMessage(messageMock);
+
+        assertSame(messageMock, delegate.message);
+        assertNull(delegate.transaction);
+    }
+
+    @Test
+    public void testOnMessage_ShouldNotModifyMDCIfPropertyIsEmpty() throws Exception {
+        expectProperty("transaction", "");
+
+        listener.onMessage(messageMock);
+
+        assertSame(messageMock, delegate.message);
+        assertNull(delegate.transaction);
+    }
+
+    @Test
+    public void testOnMessage_ShouldDelegateIfPropertyCannotBeRead() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).getStringProperty("transaction");
+                will(throwException(new JMSException("unreadable")));
+            }
+        });
+
+        listener.onMessage(messageMock);
+
+        assertSame(messageMock, delegate.message);
+        assertNull(delegate.transaction);
+    }
+
+    @Test
+    public void testOnMessage_ShouldClearMDCIfDelegateFails() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+        delegate.failure = new IllegalStateException("listener failure");
+
+        try {
+            listener.onMessage(messageMock);
+            fail("Delegate failure expected");
+        } catch (IllegalStateException e) {
+            assertSame(delegate.failure, e);
+        }
+
+        assertEquals("unique_transaction", delegate.transaction);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldForwardSessionToSessionAwareDelegate() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+
+        listener = new TraceableMessageListener(sessionAwareDelegate);
+        listener.onMessage(messageMock, sessionMock);
+
+        assertSame(messageMock, sessionAwareDelegate.message);
+        assertSame(sessionMock, sessionAwareDelegate.session);
+        assertEquals("unique_transaction", sessionAwareDelegate.transaction);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldInvokePlainDelegateWhenSessionIsGiven() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+
+        listener.onMessage(messageMock, sessionMock);
+
+        assertSame(messageMock, delegate.message);
+        assertEquals("unique_transaction", delegate.transaction);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldClearMDCIfSessionAwareDelegateFails() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+        sessionAwareDelegate.failure = new JMSException("listener failure");
+
+        listener = new TraceableMessageListener(sessionAwareDelegate);
+        try {
+            listener.onMessage(messageMock, sessionMock);
+            fail("Delegate failure expected");
+        } catch (JMSException e) {
+            assertSame(sessionAwareDelegate.failure, e);
+        }
+
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOnMessage_ShouldRejectSessionAwareDelegateWithoutSession() throws Exception {
+        listener = new TraceableMessageListener(sessionAwareDelegate);
+        listener.onMessage(messageMock);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ShouldRejectUnknownDelegate() throws Exception {
+        new TraceableMessageListener(new Object());
+    }
+
+    @Test
+    public void testOnMessage_ShouldUseAlternateMDCKeyIfConfigured() throws Exception {
+        expectProperty("transaction", "unique_transaction");
+
+        listener.setMdcKey("another-transaction");
+        listener.onMessage(messageMock);
+
+        assertNull(delegate.transaction);
+        assertEquals("unique_transaction", delegate.anotherTransaction);
+        assertNull(MDC.get("another-transaction"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldUseAlternateJmsKeyIfConfigured() throws Exception {
+        expectProperty("new_jms_key", "unique_transaction");
+
+        listener.setJmsKey("new_jms_key");
+        listener.onMessage(messageMock);
+
+        assertEquals("unique_transaction", delegate.transaction);
+    }
+
+    @Test
+    public void testOnMessage_ShouldUseAlternateConfigurationFromAlternateConstructor() throws Exception {
+        expectProperty("new_jms", "unique_transaction");
+
+        listener = new TraceableMessageListener(delegate, "another-transaction", "new_jms");
+        listener.onMessage(messageMock);
+
+        assertEquals("unique_transaction", delegate.anotherTransaction);
+    }
+
+    @Test
+    public void testOnMessage_ShouldSetSampledPropertyInMDCDuringDelegation() throws Exception {
+        expectProperties("transaction", "unique_transaction", "true");
+
+        listener.onMessage(messageMock);
+
+        assertEquals("1", delegate.sampled);
+        assertNull(MDC.get("sampled"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldIgnoreInvalidSampledProperty() throws Exception {
+        expectProperties("transaction", "unique_transaction", "maybe");
+
+        listener.onMessage(messageMock);
+
+        assertEquals("unique_transaction", delegate.transaction);
+        assertNull(delegate.sampled);
+    }
+
+    @Test
+    public void testOnMessage_ShouldUseAlternateSampledKeysIfConfigured() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).getStringProperty("transaction");
+                will(returnValue("unique_transaction"));
+                oneOf(messageMock).getStringProperty("new_sampled");
+                will(returnValue("0"));
+            }
+        });
+
+        listener.setSampledJmsKey("new_sampled");
+        listener.setSampledMdcKey("another-sampled");
+        listener.onMessage(messageMock);
+
+        assertNull(delegate.sampled);
+        assertEquals("0", delegate.anotherSampled);
+        assertNull(MDC.get("another-sampled"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldSetBinaryTransactionInMDCIfStringPropertyNotFound() throws Exception {
+        final String transaction = "01HV3K8Z9Q4X7M2N5P6R8T0W1Y";
+        final int format = BinaryTransactionCodec.format(transaction);
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).getStringProperty("transaction");
+                will(returnValue(null));
+                oneOf(messageMock).getStringProperty("sampled");
+                will(returnValue(null));
+                oneOf(messageMock).propertyExists("txH");
+                will(returnValue(true));
+                oneOf(messageMock).propertyExists("txF");
+                will(returnValue(true));
+                oneOf(messageMock).getByteProperty("txF");
+                will(returnValue((byte) (format | BinaryTransactionCodec.SAMPLING_PRESENT)));
+                oneOf(messageMock).getLongProperty("txH");
+                will(returnValue(BinaryTransactionCodec.high(transaction, format)));
+                oneOf(messageMock).getLongProperty("txL");
+                will(returnValue(BinaryTransactionCodec.low(transaction, format)));
+            }
+        });
+
+        listener.onMessage(messageMock);
+
+        assertEquals(transaction, delegate.transaction);
+        assertEquals("0", delegate.sampled);
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testOnMessage_ShouldReadBinaryTransactionAsUlidIfFlagsNotFound() throws Exception {
+        final String transaction = "01HV3K8Z9Q4X7M2N5P6R8T0W1Y";
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).getStringProperty("transaction");
+                will(returnValue(null));
+                oneOf(messageMock).getStringProperty("sampled");
+                will(returnValue(null));
+                oneOf(messageMock).propertyExists("txH");
+                will(returnValue(true));
+                oneOf(messageMock).propertyExists("txF");
+                will(returnValue(false));
+                oneOf(messageMock).getLongProperty("txH");
+                will(returnValue(BinaryTransactionCodec.high(transaction, BinaryTransactionCodec.ULID)));
+                oneOf(messageMock).getLongProperty("txL");
+                will(returnValue(BinaryTransactionCodec.low(transaction, BinaryTransactionCodec.ULID)));
+            }
+        });
+
+        listener.onMessage(messageMock);
+
+        assertEquals(transaction, delegate.transaction);
+        assertNull(delegate.sampled);
+    }
+
+    /**
+     * Test helper expecting a single read of the given message property, without sampling decision.
+     */
+    private void expectProperty(final String name, final String value) throws JMSException {
+        expectProperties(name, value, null);
+    }
+
+    /**
+     * Test helper expecting a single read of the given message property and of the sampling decision.
+     */
+    private void expectProperties(final String name, final String value, final String sampled) throws JMSException {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).getStringProperty(name);
+                will(returnValue(value));
+                oneOf(messageMock).getStringProperty("sampled");
+                will(returnValue(sampled));
+                if (value == null) {
+                    oneOf(messageMock).propertyExists("txH");
+                    will(returnValue(false));
+                }
+            }
+        });
+    }
+
+    /**
+     * Test helper recording the message and the MDC seen by the delegate.
+     */
+    private static class RecordingListener implements MessageListener {
+
+        Message message;
+        String transaction;
+        String anotherTransaction;
+        String sampled;
+        String anotherSampled;
+        RuntimeException failure;
+
+        @Override
+        public void onMessage(Message message) {
+            this.message = message;
+            this.transaction = MDC.get("transaction");
+            this.anotherTransaction = MDC.get("another-transaction");
+            this.sampled = MDC.get("sampled");
+            this.anotherSampled = MDC.get("another-sampled");
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Test helper recording the message, the session and the MDC seen by the delegate.
+     */
+    private static class RecordingSessionAwareListener implements SessionAwareMessageListener<Message> {
+
+        Message message;
+        Session session;
+        String transaction;
+        JMSException failure;
+
+        @Override
+        public void onMessage(Message message, Session session) throws JMSException {
+            this.message = message;
+            this.session = session;
+            this.transaction = MDC.get("transaction");
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package traceability.logback.spring.jms;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import javax.jms.Message;
@@ -11,6 +12,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.MDC;
 
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+
 /**
  * Unit test for {@link TraceableMessagePostProcessor}.
  */
@@ -118,4 +122,109 @@ public class TestTraceableMessagePostProcessor {
         Message message = processor.postProcessMessage(messageMock);
         assertNotNull(message);
     }
+
+    @Test
+    public void testPostProcessMessage_ShouldSetMDCSampledInMessageProperty() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setStringProperty(with("transaction"), with("unique_transaction"));
+                oneOf(messageMock).setStringProperty(with("sampled"), with("1"));
+            }
+        });
+
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+        Message message = processor.postProcessMessage(messageMock);
+        assertNotNull(message);
+    }
+
+    @Test
+    public void testPostProcessMessage_ShouldUseAlternateSampledKeysIfConfigured() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setStringProperty(with("transaction"), with("unique_transaction"));
+                oneOf(messageMock).setStringProperty(with("new_sampled"), with("0"));
+            }
+        });
+
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+        MDC.put("another-sampled", "0");
+
+        processor.setSampledMdcKey("another-sampled");
+        processor.setSampledJmsKey("new_sampled");
+        Message message = processor.postProcessMessage(messageMock);
+        assertNotNull(message);
+    }
+
+    @Test
+    public void testPostProcessMessage_ShouldPackTransactionAndSampledInBinaryMode() throws Exception {
+        final String transaction = "4f1c2a9e-6d0b-4f63-9a57-2b1d8c3e7f10";
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setLongProperty("txH", 0x4f1c2a9e6d0b4f63L);
+                oneOf(messageMock).setLongProperty("txL", 0x9a572b1d8c3e7f10L);
+                oneOf(messageMock).setByteProperty("txF", (byte) (BinaryTransactionCodec.UUID
+                        | BinaryTransactionCodec.SAMPLING_PRESENT | BinaryTransactionCodec.SAMPLED));
+            }
+        });
+
+        MDC.put("transaction", transaction);
+        MDC.put("sampled", "1");
+        processor.setBinary(true);
+        processor.postProcessMessage(messageMock);
+    }
+
+    @Test
+    public void testPostProcessMessage_ShouldLeaveFlagsOutForUlidWithoutSampledInBinaryMode() throws Exception {
+        final String transaction = "01HV3K8Z9Q4X7M2N5P6R8T0W1Y";
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setLongProperty("bH",
+                        BinaryTransactionCodec.high(transaction, BinaryTransactionCodec.ULID));
+                oneOf(messageMock).setLongProperty("bL",
+                        BinaryTransactionCodec.low(transaction, BinaryTransactionCodec.ULID));
+            }
+        });
+
+        MDC.put("transaction", transaction);
+        processor.setBinary(true);
+        processor.setBinaryJmsKey("b");
+        processor.postProcessMessage(messageMock);
+    }
+
+    @Test
+    public void testPostProcessMessage_ShouldSendStringPropertyInBinaryModeIfTransactionCannotBePacked()
+            throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setStringProperty(with("transaction"), with("unique_transaction"));
+                oneOf(messageMock).setStringProperty(with("sampled"), with("1"));
+            }
+        });
+
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+        processor.setBinary(true);
+        processor.postProcessMessage(messageMock);
+    }
+
+    @Test
+    public void testPostProcessMessage_ShouldCountMessagesSentWithoutTransaction() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                oneOf(messageMock).setStringProperty(with("transaction"), with("unique_transaction"));
+            }
+        });
+        TraceMetrics metrics = TraceMetrics.getInstance(Channel.JMS_OUT);
+        long skipped = metrics.getSkipped();
+        long traced = metrics.getTraced();
+
+        processor.postProcessMessage(messageMock);
+        MDC.put("transaction", "unique_transaction");
+        processor.postProcessMessage(messageMock);
+
+        assertEquals(skipped + 1, metrics.getSkipped());
+        assertEquals(traced + 1, metrics.getTraced());
+    }
 }
\ No newline at end of file
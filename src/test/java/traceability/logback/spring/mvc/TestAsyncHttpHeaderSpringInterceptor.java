@@ -0,0 +1,270 @@
+package traceability.logback.spring.mvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.core.task.support.ExecutorServiceAdapter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.stereotype.Controller;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.metrics.LatencyRecorder;
+
+/**
+ * Unit test for {@link AsyncHttpHeaderSpringInterceptor}.
+ */
+public class TestAsyncHttpHeaderSpringInterceptor {
+
+    private static final int THREADS = 4;
+
+    private ThreadPoolExecutor workers;
+    private AsyncHttpHeaderSpringInterceptor interceptor;
+    private List<String> mismatches;
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() throws Exception {
+        // Threads started with an empty MDC, as Logback may copy the context of the thread creating them
+        workers = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREADS);
+        workers.prestartAllCoreThreads();
+        interceptor = new AsyncHttpHeaderSpringInterceptor();
+        mismatches = Collections.synchronizedList(new ArrayList<String>());
+        mvc = MockMvcBuilders.standaloneSetup(new AsyncController(new ConcurrentTaskExecutor(workers), mismatches))
+                .addInterceptors(interceptor, new CheckingInterceptor(mismatches)).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workers.shutdownNow();
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testCallable_ShouldRunWithTransactionOfRequest() throws Exception {
+        assertEquals("test-header", perform("/callable", "test-header"));
+        assertTrue(mismatches.toString(), mismatches.isEmpty());
+    }
+
+    @Test
+    public void testDeferredResult_ShouldRestoreTransactionOnCompletionDispatch() throws Exception {
+        assertEquals("test-header", perform("/deferred", "test-header"));
+        assertTrue(mismatches.toString(), mismatches.isEmpty());
+    }
+
+    @Test
+    public void testAfterConcurrentHandlingStarted_ShouldRestoreContextOfContainerThread() throws Exception {
+        MDC.put("user", "john");
+
+        MvcResult result = mvc.perform(get("/callable").header("x-transaction", "test-header")).andReturn();
+        assertNull(MDC.get("transaction"));
+        assertEquals("john", MDC.get("user"));
+
+        result.getAsyncResult();
+        mvc.perform(asyncDispatch(result));
+        assertNull(MDC.get("transaction"));
+        assertEquals("john", MDC.get("user"));
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldRecordLatencyOfWholeAsyncRequest() throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder("interceptor");
+        interceptor.setLatencyRecorder(recorder);
+        try {
+            perform("/callable", "test-header");
+            assertEquals(1, recorder.getHistograms().get("AsyncController.callable").getCount());
+            assertTrue(recorder.getHistograms().get("AsyncController.callable").getMax() >= TimeUnit.NANOSECONDS
+                    .toMicros(AsyncController.PAUSE));
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldEndTransactionOnlyIfOwned() throws Exception {
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            perform("/callable", "owned-transaction");
+            assertEquals("discard:owned-transaction ", seen.toString());
+
+            // First dispatch traced by a filter, which ends the transaction once the dispatch returns
+            seen.setLength(0);
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            Object handler = new Object();
+            request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, new Object());
+            MDC.put("transaction", "filter-transaction");
+            interceptor.preHandle(request, response, handler);
+            interceptor.afterConcurrentHandlingStarted(request, response, handler);
+            request.removeAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE);
+            MDC.clear();
+
+            // Completion dispatch, without the filter
+            interceptor.preHandle(request, response, handler);
+            assertEquals("filter-transaction", MDC.get("transaction"));
+            interceptor.afterCompletion(request, response, handler, null);
+            assertEquals("", seen.toString());
+            assertNull(MDC.get("transaction"));
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testAsyncHandlers_ShouldKeepTransactionsApartUnderConcurrentLoad() throws Exception {
+        final int requests = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS * 2);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < requests; i++) {
+                final String path = i % 2 == 0 ? "/callable" : "/deferred";
+                final String transaction = "transaction-" + i;
+                results.add(clients.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        String body = perform(path, transaction);
+                        if (MDC.get("transaction") != null) {
+                            mismatches.add("client leak " + MDC.get("transaction"));
+                        }
+                        return body;
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < requests; i++) {
+                assertEquals("transaction-" + i, results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        assertTrue(mismatches.toString(), mismatches.isEmpty());
+    }
+
+    /**
+     * Test helper running both dispatches of an asynchronous request, returning the response body.
+     */
+    private String perform(String path, String transaction) throws Exception {
+        MvcResult result = mvc.perform(get(path).header("x-transaction", transaction)).andReturn();
+        if (MDC.get("transaction") != null) {
+            mismatches.add("container leak " + MDC.get("transaction"));
+        }
+        result.getAsyncResult(); // Waits for the result
+        return mvc.perform(asyncDispatch(result)).andReturn().getResponse().getContentAsString();
+    }
+
+    /**
+     * Test helper handling requests asynchronously, answering the transaction found in the MDC of the thread producing
+     * the result.
+     */
+    @Controller
+    public static class AsyncController {
+
+        static final long PAUSE = TimeUnit.MILLISECONDS.toNanos(2);
+
+        private final ConcurrentTaskExecutor executor;
+        private final List<String> mismatches;
+
+        AsyncController(ConcurrentTaskExecutor executor, List<String> mismatches) {
+            this.executor = executor;
+            this.mismatches = mismatches;
+        }
+
+        @RequestMapping("/callable")
+        @ResponseBody
+        public WebAsyncTask<String> callable() {
+            return new WebAsyncTask<String>(10000L, executor, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    TimeUnit.NANOSECONDS.sleep(PAUSE);
+                    return MDC.get("transaction");
+                }
+            });
+        }
+
+        @RequestMapping("/deferred")
+        @ResponseBody
+        public DeferredResult<String> deferred(HttpServletRequest request) {
+            final String transaction = request.getHeader("x-transaction");
+            final DeferredResult<String> result = new DeferredResult<String>();
+            new ExecutorServiceAdapter(executor).execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (MDC.get("transaction") != null) {
+                        mismatches.add("worker leak " + MDC.get("transaction"));
+                    }
+                    result.setResult(transaction);
+                }
+            });
+            return result;
+        }
+    }
+
+    /**
+     * Test helper checking the MDC of every dispatch, after the tested interceptor.
+     */
+    private static class CheckingInterceptor extends HandlerInterceptorAdapter {
+
+        private final List<String> mismatches;
+
+        CheckingInterceptor(List<String> mismatches) {
+            this.mismatches = mismatches;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            String transaction = request.getHeader("x-transaction");
+            if (!transaction.equals(MDC.get("transaction"))) {
+                mismatches.add(request.getDispatcherType() + " " + transaction + " != " + MDC.get("transaction"));
+            }
+            return true;
+        }
+    }
+}
\ No newline at end of file
@@ -1,15 +1,35 @@
 package traceability.logback.spring.mvc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.MDC;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import traceability.logback.filter.HttpHeaderServletFilter;
+import traceability.logback.flight.FlightRecorder;
+import traceability.logback.flight.FlightRecorders;
+import traceability.logback.id.TimeBasedTransactionIdGenerator;
+import traceability.logback.id.TransactionIdValidator;
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.metrics.TraceMetrics;
+import traceability.logback.metrics.TraceMetrics.Channel;
+import traceability.logback.sampling.TransactionSampler;
+import traceability.logback.trace.TraceContextParser;
 
 /**
  * Unit test for {@link HttpHeaderSpringInterceptor}.
@@ -87,6 +107,92 @@ public class TestHttpHeaderSpringInterceptor {
         assertEquals("test-header", MDC.get("another_key"));
     }
 
+    @Test
+    public void testPreHandle_ShouldUseIdGeneratorIfConfiguredAndHeaderNotFound() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setIdGenerator(new TimeBasedTransactionIdGenerator());
+        boolean result = interceptor.preHandle(request, response, new Object());
+        assertTrue(result);
+
+        String transaction = MDC.get("transaction");
+        assertEquals(TimeBasedTransactionIdGenerator.LENGTH, transaction.length());
+    }
+
+    @Test
+    public void testPreHandle_ShouldNotUseIdGeneratorIfHeaderFound() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setIdGenerator(new TimeBasedTransactionIdGenerator());
+        boolean result = interceptor.preHandle(request, response, new Object());
+        assertTrue(result);
+
+        assertEquals("test-header", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldTruncateInvalidHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header\r\nX-Injected: true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean result = interceptor.preHandle(request, response, new Object());
+        assertTrue(result);
+
+        assertEquals("test-header", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldReplaceInvalidHeaderAsMissingOne() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "\r\nX-Injected: true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        assertEquals("anonymous", MDC.get("transaction"));
+        interceptor.afterCompletion(request, response, new Object(), null);
+
+        // The generator of the interceptor applies to a validator set before or after it
+        TransactionIdValidator validator = new TransactionIdValidator();
+        validator.setPolicy(TransactionIdValidator.Policy.GENERATE);
+        interceptor.setValidator(validator);
+        interceptor.setIdGenerator(new TimeBasedTransactionIdGenerator());
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        assertEquals(TimeBasedTransactionIdGenerator.LENGTH, MDC.get("transaction").length());
+    }
+
+    @Test
+    public void testPreHandle_ShouldRejectInvalidHeaderIfPolicyIsReject() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        TransactionIdValidator validator = new TransactionIdValidator();
+        validator.setPolicy(TransactionIdValidator.Policy.REJECT);
+        interceptor.setValidator(validator);
+        boolean result = interceptor.preHandle(request, response, new Object());
+        assertFalse(result);
+
+        assertEquals(400, response.getStatus());
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldNotValidateHeaderIfValidatorIsDisabled() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setValidator(null);
+        boolean result = interceptor.preHandle(request, response, new Object());
+        assertTrue(result);
+
+        assertEquals("test header", MDC.get("transaction"));
+    }
+
     @Test
     public void testAfterCompletion_ShouldClearMDCTransaction() {
         MockHttpServletRequest request = new MockHttpServletRequest();
@@ -96,4 +202,277 @@ public class TestHttpHeaderSpringInterceptor {
         interceptor.afterCompletion(request, response, new Object(), new Exception());
         assertNull(MDC.get("transaction"));
     }
+
+    @Test
+    public void testPreHandle_ShouldNotSetSampledInMDCIfSamplerNotSet() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-sampled", "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        assertNull(MDC.get("sampled"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldSetReceivedSampledInMDC() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header");
+        request.addHeader("x-sampled", "1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setSampler(new TransactionSampler(0));
+        interceptor.preHandle(request, response, new Object());
+        assertEquals("1", MDC.get("sampled"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldSampleTransactionIfSampledHeaderNotFound() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setSampler(new TransactionSampler(0));
+        interceptor.preHandle(request, response, new Object());
+        assertEquals("0", MDC.get("sampled"));
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldClearMDCSampled() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setSampler(new TransactionSampler(1));
+        MDC.put("transaction", "test-header");
+        MDC.put("sampled", "1");
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertNull(MDC.get("sampled"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldSetB3TraceContextInMDCAndClearItAfterCompletion() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("b3", "0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.setTraceContextParser(new TraceContextParser(TraceContextParser.Format.B3));
+        interceptor.preHandle(request, response, new Object());
+        assertEquals("0af7651916cd43dd8448eb211c80319c", MDC.get("trace_id"));
+        assertEquals("b7ad6b7169203331", MDC.get("span_id"));
+        assertEquals("1", MDC.get("trace_flags"));
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertNull(MDC.get("trace_id"));
+        assertNull(MDC.get("span_id"));
+        assertNull(MDC.get("trace_flags"));
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldRecordLatencyPerHandlerMethod() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HandlerMethod handler = new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+
+        LatencyRecorder recorder = new LatencyRecorder("interceptor");
+        interceptor.setLatencyRecorder(recorder);
+        try {
+            interceptor.preHandle(request, response, handler);
+            interceptor.afterCompletion(request, response, handler, null);
+            interceptor.preHandle(request, response, new Object());
+            interceptor.afterCompletion(request, response, new Object(), null);
+
+            assertEquals(1, recorder.getHistograms().get("Object.toString").getCount());
+            assertEquals(1, recorder.getHistograms().get("Object").getCount());
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldRecordLatencyOfAsyncRequestsAcrossDispatches() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        final HandlerMethod handler = new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+
+        LatencyRecorder recorder = new LatencyRecorder("interceptor");
+        interceptor.setLatencyRecorder(recorder);
+        try {
+            // More requests than a per-thread stack of start times could hold, all started on this thread
+            for (int i = 0; i < 20; i++) {
+                final MockHttpServletRequest request = new MockHttpServletRequest();
+                request.addHeader("x-transaction", "test-header");
+                interceptor.preHandle(request, response, handler);
+                interceptor.afterConcurrentHandlingStarted(request, response, handler);
+                Thread.sleep(2);
+
+                // Completion dispatch, on another container thread
+                Thread dispatch = new Thread() {
+                    @Override
+                    public void run() {
+                        interceptor.preHandle(request, response, handler);
+                        interceptor.afterCompletion(request, response, handler, null);
+                    }
+                };
+                dispatch.start();
+                dispatch.join();
+            }
+
+            assertEquals(20, recorder.getHistograms().get("Object.toString").getCount());
+            assertTrue(recorder.getHistograms().get("Object.toString").getP50() >= 2000);
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test
+    public void testAfterConcurrentHandlingStarted_ShouldLetCompletionDispatchTraceRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Object handler = new Object();
+
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            interceptor.preHandle(request, response, handler);
+            interceptor.afterConcurrentHandlingStarted(request, response, handler);
+            assertNull(MDC.get("transaction"));
+            assertSame(interceptor, request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+
+            // Completion dispatch
+            assertTrue(interceptor.preHandle(request, response, handler));
+            assertEquals("test-header", MDC.get("transaction"));
+            interceptor.afterCompletion(request, response, handler, null);
+            assertNull(MDC.get("transaction"));
+            assertEquals("discard:test-header ", seen.toString());
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testAfterConcurrentHandlingStarted_ShouldKeepGeneratedTransactionForCompletionDispatch() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Object handler = new Object();
+        interceptor.setIdGenerator(new TimeBasedTransactionIdGenerator());
+        interceptor.setSampler(new TransactionSampler(1.0));
+
+        final StringBuilder seen = new StringBuilder();
+        FlightRecorder recorder = new FlightRecorder() {
+            @Override
+            public void flush(String transaction) {
+                seen.append("flush:").append(transaction).append(' ');
+            }
+
+            @Override
+            public void discard(String transaction) {
+                seen.append("discard:").append(transaction).append(' ');
+            }
+        };
+
+        FlightRecorders.register(recorder);
+        try {
+            interceptor.preHandle(request, response, handler);
+            String transaction = MDC.get("transaction");
+            interceptor.afterConcurrentHandlingStarted(request, response, handler);
+            assertNull(MDC.get("transaction"));
+            assertNull(MDC.get(TransactionSampler.DEFAULT_MDC_KEY));
+
+            // Completion dispatch
+            assertTrue(interceptor.preHandle(request, response, handler));
+            assertEquals(transaction, MDC.get("transaction"));
+            assertEquals(TransactionSampler.SAMPLED, MDC.get(TransactionSampler.DEFAULT_MDC_KEY));
+            interceptor.afterCompletion(request, response, handler, null);
+            assertEquals("discard:" + transaction + " ", seen.toString());
+        } finally {
+            FlightRecorders.unregister(recorder);
+        }
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldNotRecordLatencyOfRejectedRequests() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "bad transaction");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        TransactionIdValidator validator = new TransactionIdValidator();
+        validator.setPolicy(TransactionIdValidator.Policy.REJECT);
+        interceptor.setValidator(validator);
+        LatencyRecorder recorder = new LatencyRecorder("interceptor");
+        interceptor.setLatencyRecorder(recorder);
+        try {
+            assertFalse(interceptor.preHandle(request, response, new Object()));
+            interceptor.afterCompletion(request, response, new Object(), null);
+
+            assertTrue(recorder.getHistograms().isEmpty());
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test
+    public void testPreHandle_ShouldSkipRequestsOwnedUpstream() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE, new Object());
+        request.addHeader("x-transaction", "ignored");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MDC.put("transaction", "upstream");
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        assertEquals("upstream", MDC.get("transaction"));
+
+        // The owner cleans the MDC up, not the interceptor
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertEquals("upstream", MDC.get("transaction"));
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldReleaseOwnedRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        assertSame(interceptor, request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertNull(request.getAttribute(HttpHeaderServletFilter.OWNER_ATTRIBUTE));
+        assertNull(MDC.get("transaction"));
+    }
+
+    @Test
+    public void testPreHandle_ShouldLeaveRequestToHttpHeaderServletFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("x-transaction", "test-header");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        TraceMetrics metrics = TraceMetrics.getInstance(Channel.HTTP_IN);
+        long tracedCount = metrics.getTraced();
+
+        new HttpHeaderServletFilter().doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                Object handler = new Object();
+                interceptor.preHandle((HttpServletRequest) request, (HttpServletResponse) response, handler);
+                interceptor.afterCompletion((HttpServletRequest) request, (HttpServletResponse) response, handler,
+                        null);
+
+                // The rest of the chain is still traced
+                assertEquals("test-header", MDC.get("transaction"));
+            }
+        });
+
+        assertNull(MDC.get("transaction"));
+        assertEquals(tracedCount + 1, metrics.getTraced());
+    }
 }
\ No newline at end of file
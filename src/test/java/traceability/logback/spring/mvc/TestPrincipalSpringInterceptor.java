@@ -2,6 +2,7 @@ package traceability.logback.spring.mvc;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.After;
@@ -11,6 +12,8 @@ import org.slf4j.MDC;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import traceability.logback.metrics.LatencyRecorder;
+import traceability.logback.principal.PrincipalNameCache;
 import traceability.test.http.DummyPrincipal;
 
 /**
@@ -85,4 +88,39 @@ public class TestPrincipalSpringInterceptor {
         interceptor.afterCompletion(request, response, new Object(), new Exception());
         assertNull(MDC.get("transaction"));
     }
+
+    @Test
+    public void testPreHandle_ShouldShareUsernameInstanceIfNameCacheSet() {
+        interceptor.setNameCache(new PrincipalNameCache(16));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setUserPrincipal(new DummyPrincipal(new String("user1")));
+        interceptor.preHandle(request, response, new Object());
+        String first = MDC.get("transaction");
+
+        request = new MockHttpServletRequest();
+        request.setUserPrincipal(new DummyPrincipal(new String("user1")));
+        interceptor.preHandle(request, response, new Object());
+
+        assertEquals("user1", MDC.get("transaction"));
+        assertSame(first, MDC.get("transaction"));
+    }
+
+    @Test
+    public void testAfterCompletion_ShouldRecordLatencyPerHandler() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        LatencyRecorder recorder = new LatencyRecorder("interceptor");
+        interceptor.setLatencyRecorder(recorder);
+        try {
+            interceptor.preHandle(request, response, new Object());
+            interceptor.afterCompletion(request, response, new Object(), null);
+
+            assertEquals(1, recorder.getHistograms().get("Object").getCount());
+        } finally {
+            recorder.close();
+        }
+    }
 }
\ No newline at end of file
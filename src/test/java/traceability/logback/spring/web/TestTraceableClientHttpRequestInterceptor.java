@@ -0,0 +1,83 @@
+package traceability.logback.spring.web;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.web.client.RestTemplate;
+
+import traceability.test.http.TransactionEchoServer;
+
+/**
+ * Unit test for {@link TraceableClientHttpRequestInterceptor}, calling an embedded server.
+ */
+public class TestTraceableClientHttpRequestInterceptor {
+
+    private static TransactionEchoServer server;
+
+    private RestTemplate restTemplate;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new TransactionEchoServer();
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(Collections
+                .<ClientHttpRequestInterceptor> singletonList(new TraceableClientHttpRequestInterceptor()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testIntercept_ShouldSetMDCTransactionInHttpHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+
+        assertEquals("unique_transaction:0", restTemplate.getForObject(server.getUrl(), String.class));
+    }
+
+    @Test
+    public void testIntercept_ShouldSetMDCSampledInHttpHeader() throws Exception {
+        MDC.put("transaction", "unique_transaction");
+        MDC.put("sampled", "1");
+
+        assertEquals("unique_transaction:1", restTemplate.getForObject(server.getUrl(), String.class));
+    }
+
+    @Test
+    public void testIntercept_ShouldNotSetHttpHeaderIfTransactionNotFoundInMDC() throws Exception {
+        MDC.put("sampled", "1");
+
+        assertEquals("anonymous:0", restTemplate.getForObject(server.getUrl(), String.class));
+    }
+
+    @Test
+    public void testIntercept_ShouldUseAlternateMDCKeyIfConfigured() throws Exception {
+        MDC.put("transaction", "original_transaction");
+        MDC.put("another-transaction", "unique_transaction");
+
+        TraceableClientHttpRequestInterceptor interceptor = new TraceableClientHttpRequestInterceptor();
+        interceptor.setMdcKey("another-transaction");
+        restTemplate.setInterceptors(Collections.<ClientHttpRequestInterceptor> singletonList(interceptor));
+
+        assertEquals("unique_transaction:0", restTemplate.getForObject(server.getUrl(), String.class));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package traceability.logback.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import traceability.logback.trace.TraceContextParser.Format;
+
+/**
+ * Unit test for {@link TraceContextParser}.
+ */
+public class TestTraceContextParser {
+
+    private static final String TRACE_ID = "0af7651916cd43dd8448eb211c80319c";
+    private static final String SPAN_ID = "b7ad6b7169203331";
+
+    private final TraceContextParser traceparent = new TraceContextParser(Format.TRACEPARENT);
+    private final TraceContextParser b3 = new TraceContextParser(Format.B3);
+
+    @After
+    public void tearDown() throws Exception {
+        MDC.clear(); // Clean the MDC after each test execution...
+    }
+
+    @Test
+    public void testPutTraceparent_ShouldSetTraceContextInMDC() {
+        assertTrue(traceparent.putTraceparent("00-" + TRACE_ID + "-" + SPAN_ID + "-01"));
+        assertTraceContext(TRACE_ID, SPAN_ID, "01");
+    }
+
+    @Test
+    public void testPutTraceparent_ShouldAcceptFieldsOfLaterVersions() {
+        assertTrue(traceparent.putTraceparent("cc-" + TRACE_ID + "-" + SPAN_ID + "-00-what-the-future-will-be-like"));
+        assertTraceContext(TRACE_ID, SPAN_ID, "00");
+    }
+
+    @Test
+    public void testPutTraceparent_ShouldIgnoreInvalidHeaders() {
+        String[] invalid = { null, "", "00-" + TRACE_ID + "-" + SPAN_ID + "-0",
+                "00-" + TRACE_ID + "-" + SPAN_ID + "-01-extra", "ff-" + TRACE_ID + "-" + SPAN_ID + "-01",
+                "00-" + TRACE_ID.toUpperCase() + "-" + SPAN_ID + "-01",
+                "00-00000000000000000000000000000000-" + SPAN_ID + "-01", "00-" + TRACE_ID + "-0000000000000000-01",
+                "00_" + TRACE_ID + "-" + SPAN_ID + "-01", "00-" + TRACE_ID + "-" + SPAN_ID + "-0g" };
+        for (String header : invalid) {
+            assertFalse(header, traceparent.putTraceparent(header));
+        }
+        assertTraceContext(null, null, null);
+    }
+
+    @Test
+    public void testPutB3_ShouldSetTraceContextInMDC() {
+        assertTrue(b3.putB3(TRACE_ID + "-" + SPAN_ID + "-1-" + "00f067aa0ba902b7"));
+        assertTraceContext(TRACE_ID, SPAN_ID, "1");
+    }
+
+    @Test
+    public void testPutB3_ShouldAcceptShortTraceIdWithoutSamplingState() {
+        assertTrue(b3.putB3("8448eb211c80319c-" + SPAN_ID));
+        assertTraceContext("8448eb211c80319c", SPAN_ID, null);
+    }
+
+    @Test
+    public void testPutB3_ShouldIgnoreInvalidHeaders() {
+        String[] invalid = { null, "1", "d", TRACE_ID, TRACE_ID + "-" + SPAN_ID + "-", TRACE_ID + "-" + SPAN_ID + "-x",
+                TRACE_ID + "-" + SPAN_ID + "-1-", TRACE_ID + "-" + SPAN_ID + "-1-00f067aa", "8448eb211c80319-" + SPAN_ID,
+                TRACE_ID + "-" + SPAN_ID.toUpperCase() };
+        for (String header : invalid) {
+            assertFalse(header, b3.putB3(header));
+        }
+        assertTraceContext(null, null, null);
+    }
+
+    @Test
+    public void testPutB3_ShouldSetMultipleHeadersInMDC() {
+        assertTrue(b3.putB3(TRACE_ID, SPAN_ID, "true"));
+        assertTraceContext(TRACE_ID, SPAN_ID, "1");
+        assertFalse(b3.putB3(TRACE_ID, null, null));
+        assertFalse(b3.putB3(TRACE_ID, "b7ad6b71", null));
+    }
+
+    @Test
+    public void testPut_ShouldReadMultipleB3HeadersWithDebugFlag() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-B3-TraceId", TRACE_ID);
+        request.addHeader("X-B3-SpanId", SPAN_ID);
+        request.addHeader("X-B3-Sampled", "0");
+        request.addHeader("X-B3-Flags", "1");
+
+        assertTrue(b3.put(request));
+        assertTraceContext(TRACE_ID, SPAN_ID, "d");
+    }
+
+    @Test
+    public void testRemove_ShouldClearTraceContextWithConfiguredKeys() {
+        traceparent.setTraceIdMdcKey("trace");
+        traceparent.setSpanIdMdcKey("span");
+        traceparent.setFlagsMdcKey("flags");
+        traceparent.putTraceparent("00-" + TRACE_ID + "-" + SPAN_ID + "-01");
+        assertEquals(TRACE_ID, MDC.get("trace"));
+        assertEquals(SPAN_ID, MDC.get("span"));
+        assertEquals("01", MDC.get("flags"));
+
+        traceparent.remove();
+        assertNull(MDC.get("trace"));
+        assertNull(MDC.get("span"));
+        assertNull(MDC.get("flags"));
+    }
+
+    /**
+     * Test helper checking the trace context in the MDC, with the default keys.
+     */
+    private static void assertTraceContext(String traceId, String spanId, String flags) {
+        assertEquals(traceId, MDC.get("trace_id"));
+        assertEquals(spanId, MDC.get("span_id"));
+        assertEquals(flags, MDC.get("trace_flags"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package traceability.test.http;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.slf4j.MDC;
+
+import traceability.logback.filter.HttpHeaderServletFilter;
+
+/**
+ * Convenience class to test the outbound HTTP propagation end to end: an embedded Jetty server reading the requests
+ * through a {@link HttpHeaderServletFilter} (with sampling enabled), and answering with the <code>transaction</code>
+ * and <code>sampled</code> values found in its MDC, as <code>transaction:sampled</code>.
+ */
+public class TransactionEchoServer {
+
+    private final Server server = new Server();
+    private final SelectChannelConnector connector = new SelectChannelConnector();
+
+    /**
+     * Starts the server on a free local port.
+     */
+    public void start() throws Exception {
+        connector.setHost("127.0.0.1");
+        connector.setPort(0);
+        server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+
+        FilterHolder filterHolder = new FilterHolder(HttpHeaderServletFilter.class);
+        filterHolder.setInitParameter("sampling_rate", "0");
+        context.addFilter(filterHolder, "/*", EnumSet.of(DispatcherType.REQUEST));
+        context.addServlet(new ServletHolder(new EchoServlet()), "/*");
+
+        server.setHandler(context);
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() throws Exception {
+        server.stop();
+    }
+
+    /**
+     * @return The URL of the server.
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + connector.getLocalPort() + "/";
+    }
+
+    /**
+     * Servlet writing the MDC of the request.
+     */
+    private static class EchoServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+                IOException {
+            response.setContentType("text/plain");
+            response.getWriter().write(MDC.get("transaction") + ":" + MDC.get("sampled"));
+        }
+    }
+}
\ No newline at end of file